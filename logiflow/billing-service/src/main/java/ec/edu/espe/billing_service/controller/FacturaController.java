@@ -17,8 +17,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 @Tag(name = "Facturas", description = "Operaciones de facturación")
 
@@ -27,6 +30,8 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class FacturaController {
 
+    static final int MAXIMO_PEDIDOS_LOTE = 200;
+
     private final FacturaService facturaService;
 
     @Operation(summary = "Crear factura",
@@ -56,6 +61,21 @@ public class FacturaController {
         return ResponseEntity.ok(factura);
     }
 
+    @Operation(summary = "Obtener facturas de varios pedidos",
+            description = "Lookup en lote: una sola consulta para hasta " + MAXIMO_PEDIDOS_LOTE
+                    + " pedidos. Los pedidos sin factura no aparecen en la respuesta.")
+    @GetMapping(params = "pedidoIds")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<List<FacturaResponseDTO>> obtenerFacturasPorPedidoIds(
+            @RequestParam Set<String> pedidoIds
+    ) {
+        if (pedidoIds.size() > MAXIMO_PEDIDOS_LOTE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Máximo " + MAXIMO_PEDIDOS_LOTE + " pedidos por consulta");
+        }
+        return ResponseEntity.ok(facturaService.obtenerFacturasPorPedidoIds(pedidoIds));
+    }
+
     @Operation(summary = "Actualizar estado de factura")
     @PatchMapping("/{id}/estado")
     @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
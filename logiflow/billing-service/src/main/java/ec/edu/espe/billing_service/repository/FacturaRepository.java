@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,6 +20,9 @@ import java.util.UUID;
 public interface FacturaRepository extends JpaRepository<Factura, UUID> {
     Optional<Factura> findByPedidoId(String pedidoId); // UUID como String
     boolean existsByPedidoId(String pedidoId); // UUID como String
+
+    // Una sola consulta IN sobre el índice único de pedido_id (lookup en lote)
+    List<Factura> findAllByPedidoIdIn(Collection<String> pedidoIds);
     
     // Búsqueda con paginación y filtros
     Page<Factura> findAllByEstado(EstadoFactura estado, Pageable pageable);
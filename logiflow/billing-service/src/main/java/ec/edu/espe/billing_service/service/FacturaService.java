@@ -9,6 +9,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -19,6 +21,9 @@ public interface FacturaService {
     FacturaResponseDTO obtenerFacturaPorId(UUID facturaId);
 
     FacturaResponseDTO obtenerFacturaPorPedidoId(String pedidoId); // UUID como String
+
+    // Facturas existentes de los pedidos indicados; los pedidos sin factura no aparecen
+    List<FacturaResponseDTO> obtenerFacturasPorPedidoIds(Collection<String> pedidoIds);
     
     FacturaResponseDTO actualizarEstado(UUID facturaId, EstadoFactura estado);
 
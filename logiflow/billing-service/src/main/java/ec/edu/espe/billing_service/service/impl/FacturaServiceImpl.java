@@ -20,6 +20,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -108,6 +110,18 @@ public class FacturaServiceImpl implements FacturaService {
                 });
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<FacturaResponseDTO> obtenerFacturasPorPedidoIds(Collection<String> pedidoIds) {
+        log.debug("Consultando facturas en lote | pedidos={}", pedidoIds.size());
+        if (pedidoIds.isEmpty()) {
+            return List.of();
+        }
+        return facturaRepository.findAllByPedidoIdIn(pedidoIds).stream()
+                .map(this::mapToResponse)
+                .toList();
+    }
+
     @Override
     public FacturaResponseDTO actualizarEstado(UUID facturaId, EstadoFactura estado) {
         log.info("Actualizando estado factura | facturaId={} | nuevoEstado={}",
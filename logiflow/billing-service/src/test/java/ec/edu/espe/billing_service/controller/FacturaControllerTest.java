@@ -18,8 +18,12 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -77,6 +81,24 @@ class FacturaControllerTest {
                         .build();
             }
 
+            @Override
+            public List<FacturaResponseDTO> obtenerFacturasPorPedidoIds(Collection<String> pedidoIds) {
+                // PED-SIN-FACTURA no tiene factura: no aparece en la respuesta
+                return pedidoIds.stream()
+                        .filter(pedidoId -> !pedidoId.equals("PED-SIN-FACTURA"))
+                        .sorted()
+                        .map(pedidoId -> FacturaResponseDTO.builder()
+                                .id(UUID.randomUUID())
+                                .pedidoId(pedidoId)
+                                .tipoEntrega("URBANA")
+                                .montoTotal(BigDecimal.valueOf(15.00))
+                                .estado(EstadoFactura.BORRADOR)
+                                .fechaCreacion(LocalDateTime.now())
+                                .distanciaKm(10.0)
+                                .build())
+                        .toList();
+            }
+
             @Override
             public FacturaResponseDTO actualizarEstado(UUID facturaId, EstadoFactura estado) {
                 return FacturaResponseDTO.builder()
@@ -223,6 +245,31 @@ class FacturaControllerTest {
                 .andExpect(jsonPath("$.pedidoId").value(pedidoId));
     }
 
+    /* ===============================
+       TEST: Obtener facturas de varios pedidos
+       =============================== */
+    @Test
+    void obtenerFacturasPorPedidoIds_ok() throws Exception {
+
+        mockMvc.perform(get("/api/facturas")
+                        .param("pedidoIds", "PED-001,PED-002,PED-SIN-FACTURA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].pedidoId").value("PED-001"))
+                .andExpect(jsonPath("$[1].pedidoId").value("PED-002"));
+    }
+
+    @Test
+    void obtenerFacturasPorPedidoIds_excedeMaximo_badRequest() throws Exception {
+
+        String pedidoIds = IntStream.rangeClosed(0, FacturaController.MAXIMO_PEDIDOS_LOTE)
+                .mapToObj(i -> "PED-" + i)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(get("/api/facturas").param("pedidoIds", pedidoIds))
+                .andExpect(status().isBadRequest());
+    }
+
     /* ===============================
        TEST: Actualizar estado
        =============================== */
@@ -18,7 +18,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -179,6 +181,39 @@ class FacturaServiceImplTest {
 
 
 
+    @Test
+    void obtenerFacturasPorPedidoIds_unaSolaConsulta() {
+
+        Factura factura = Factura.builder()
+                .id(UUID.randomUUID())
+                .pedidoId("PED-005")
+                .tipoEntrega("URBANA")
+                .montoTotal(BigDecimal.TEN)
+                .estado(EstadoFactura.BORRADOR)
+                .fechaCreacion(LocalDateTime.now())
+                .distanciaKm(10.0)
+                .build();
+        Set<String> pedidoIds = Set.of("PED-005", "PED-006");
+
+        when(facturaRepository.findAllByPedidoIdIn(pedidoIds))
+                .thenReturn(List.of(factura));
+
+        List<FacturaResponseDTO> response =
+                facturaService.obtenerFacturasPorPedidoIds(pedidoIds);
+
+        assertEquals(1, response.size());
+        assertEquals("PED-005", response.get(0).getPedidoId());
+        verify(facturaRepository, times(1)).findAllByPedidoIdIn(pedidoIds);
+        verify(facturaRepository, never()).findByPedidoId(anyString());
+    }
+
+    @Test
+    void obtenerFacturasPorPedidoIds_vacio_noConsulta() {
+
+        assertTrue(facturaService.obtenerFacturasPorPedidoIds(Set.of()).isEmpty());
+        verifyNoInteractions(facturaRepository);
+    }
+
     @Test
     void actualizarEstado_ok() {
 
@@ -14,8 +14,15 @@ import {
   BillingServiceClient,
   RepartidorResponse,
   VehiculoResponse,
+  FacturaResponse,
 } from './services';
-import { config, createRepartidorLoader, createVehiculoLoader, setupHttpClients } from './utils';
+import {
+  config,
+  createRepartidorLoader,
+  createVehiculoLoader,
+  createFacturaPorPedidoLoader,
+  setupHttpClients,
+} from './utils';
 import { authManager } from './auth';
 
 /**
@@ -34,6 +41,7 @@ export interface GraphQLContext {
   // DataLoaders para evitar N+1
   repartidorLoader: DataLoader<string, RepartidorResponse | null>;
   vehiculoLoader: DataLoader<string, VehiculoResponse | null>;
+  facturaPorPedidoLoader: DataLoader<string, FacturaResponse | null>;
 }
 
 // Instanciar servicios (singleton)
@@ -77,6 +85,7 @@ async function startServer(): Promise<void> {
         // Crear nuevos DataLoaders por request (importante para evitar cache entre requests)
         repartidorLoader: createRepartidorLoader(fleetClient),
         vehiculoLoader: createVehiculoLoader(fleetClient),
+        facturaPorPedidoLoader: createFacturaPorPedidoLoader(billingClient),
       }),
     });
 
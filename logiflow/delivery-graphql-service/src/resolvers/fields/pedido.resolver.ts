@@ -17,6 +17,7 @@ export interface Pedido {
 export interface GraphQLContext {
   repartidorLoader: DataLoader<string, RepartidorResponse | null>;
   vehiculoLoader: DataLoader<string, VehiculoResponse | null>;
+  facturaPorPedidoLoader: DataLoader<string, FacturaResponse | null>;
   fleetClient: FleetServiceClient;
   billingClient: BillingServiceClient;
 }
@@ -56,34 +57,16 @@ export const pedidoFieldResolvers = {
 
   /**
    * Resolver para Pedido.factura
-   * Llama al billing-service para obtener la factura
+   * Usa el DataLoader: las facturas de toda la página se piden al billing-service en un solo request.
+   * Un pedido tiene a lo sumo una factura, así que buscar por pedidoId cubre también el caso con facturaId
    */
   factura: async (
     parent: Pedido,
     _args: unknown,
     context: GraphQLContext
   ): Promise<{ id: string; pedidoId: string; monto: number; estado: string; fechaEmision?: string } | null> => {
-    // Intentar por facturaId primero
-    if (parent.facturaId) {
-      try {
-        const factura = await context.billingClient.obtenerFacturaPorId(parent.facturaId);
-        if (factura) {
-          return {
-            id: factura.id,
-            pedidoId: factura.pedidoId,
-            monto: factura.montoTotal,
-            estado: factura.estado,
-            fechaEmision: factura.fechaCreacion
-          };
-        }
-      } catch (error) {
-        console.error(`[PedidoResolver] Error obteniendo factura por ID:`, error);
-      }
-    }
-    
-    // Intentar por pedidoId
     try {
-      const factura = await context.billingClient.obtenerFacturaPorPedidoId(parent.id);
+      const factura = await context.facturaPorPedidoLoader.load(parent.id);
       if (factura) {
         return {
           id: factura.id,
@@ -18,6 +18,7 @@ export interface FacturaResponse {
  * Endpoints:
  * - GET /billing/facturas/{id} -> Factura por ID
  * - GET /billing/facturas/pedido/{pedidoId} -> Factura por pedidoId
+ * - GET /billing/facturas?pedidoIds=a,b,c -> Facturas de varios pedidos (una sola consulta)
  */
 export class BillingServiceClient {
 
@@ -56,4 +57,24 @@ export class BillingServiceClient {
       throw error;
     }
   }
+
+  /**
+   * Obtener facturas de varios pedidos en un solo request
+   * Los pedidos sin factura no aparecen en la respuesta
+   */
+  async obtenerFacturasPorPedidoIds(pedidoIds: readonly string[]): Promise<FacturaResponse[]> {
+    if (pedidoIds.length === 0) {
+      return [];
+    }
+    try {
+      console.log(`[BillingClient] GET /billing/facturas?pedidoIds=... (${pedidoIds.length} pedidos)`);
+      const response = await billingClient.get<FacturaResponse[]>('/billing/facturas', {
+        params: { pedidoIds: pedidoIds.join(',') },
+      });
+      return response.data;
+    } catch (error: any) {
+      console.error(`[BillingClient] Error obteniendo facturas de ${pedidoIds.length} pedidos:`, error.message);
+      throw error;
+    }
+  }
 }
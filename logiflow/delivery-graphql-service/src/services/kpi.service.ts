@@ -1,4 +1,4 @@
-import { PedidoService, PedidoResponse } from './pedido.service';
+import { PedidoService, KpiCoberturaResponse } from './pedido.service';
 import { FleetServiceClient } from './fleet.client';
 import { EstadoPedido } from '../enums';
 
@@ -13,7 +13,7 @@ export interface Kpi {
   pedidosEnRuta: number;
   pedidosEntregados: number;
   pedidosCancelados: number;
-  tiempoPromedioEntrega: number | null;
+  tiempoPromedioEntrega: number | null; // minutos
   repartidoresActivos: number;
 }
 
@@ -31,42 +31,41 @@ export class KpiService {
 
   /**
    * Calcula KPIs por cobertura
+   * Los conteos vienen del rollup de pedido-service: O(coberturas), no O(pedidos)
    */
   async calcularKpisPorCobertura(cobertura: string): Promise<Kpi> {
     console.log(`[KpiService] Calculando KPIs para cobertura: ${cobertura}`);
 
-    // Obtener todos los pedidos
-    const todosPedidos = await this.pedidoService.obtenerTodosLosPedidos();
-    
-    // Filtrar por cobertura
-    const pedidos = todosPedidos.filter((p: PedidoResponse) => p.cobertura === cobertura);
-
-    return this.calcularKpisDesdeArray(pedidos, cobertura);
+    const kpis = await this.pedidoService.obtenerKpis(cobertura);
+    return this.combinarConFlota(kpis, cobertura);
   }
 
   /**
-   * Calcula KPIs generales (todos los pedidos)
+   * Calcula KPIs generales (todas las coberturas)
    */
   async calcularKpisGenerales(): Promise<Kpi> {
     console.log('[KpiService] Calculando KPIs generales');
-    
-    const pedidos = await this.pedidoService.obtenerTodosLosPedidos();
-    return this.calcularKpisDesdeArray(pedidos, 'GENERAL');
+
+    const kpis = await this.pedidoService.obtenerKpis();
+    return this.combinarConFlota(kpis, 'GENERAL');
   }
 
   /**
-   * Calcula estadísticas desde un array de pedidos
+   * Suma los contadores de las coberturas recibidas y agrega el resumen de flota
    */
-  private async calcularKpisDesdeArray(pedidos: PedidoResponse[], cobertura: string): Promise<Kpi> {
-    // Calcular métricas
-    const pendientes = pedidos.filter((p: PedidoResponse) => p.estado === EstadoPedido.PENDIENTE).length;
-    const enRuta = pedidos.filter((p: PedidoResponse) => p.estado === EstadoPedido.EN_RUTA).length;
-    const entregados = pedidos.filter((p: PedidoResponse) => p.estado === EstadoPedido.ENTREGADO).length;
-    const cancelados = pedidos.filter((p: PedidoResponse) => p.estado === EstadoPedido.CANCELADO).length;
+  private async combinarConFlota(kpis: KpiCoberturaResponse[], cobertura: string): Promise<Kpi> {
+    const contar = (...estados: string[]) => kpis.reduce(
+      (total, kpi) => total + estados.reduce((suma, estado) => suma + (kpi.pedidosPorEstado[estado] ?? 0), 0),
+      0
+    );
 
-    // Tiempo promedio de entrega (si hay campo de tiempo disponible)
-    // Por ahora no está disponible en PedidoResponse, se puede calcular si se agrega
-    const tiempoPromedio = null;
+    // Promedio ponderado por cantidad de entregas medidas de cada cobertura
+    const entregasMedidas = kpis.reduce((total, kpi) => total + kpi.entregasMedidas, 0);
+    const minutosTotales = kpis.reduce(
+      (total, kpi) => total + (kpi.tiempoPromedioEntregaMinutos ?? 0) * kpi.entregasMedidas,
+      0
+    );
+    const tiempoPromedio = entregasMedidas > 0 ? Math.round((minutosTotales / entregasMedidas) * 10) / 10 : null;
 
     // Obtener resumen de flota
     const resumenFlota = await this.fleetClient.obtenerFlotaResumen();
@@ -75,11 +74,12 @@ export class KpiService {
     return {
       cobertura,
       fecha: new Date().toISOString(),
-      pedidosTotal: pedidos.length,
-      pedidosPendientes: pendientes,
-      pedidosEnRuta: enRuta,
-      pedidosEntregados: entregados,
-      pedidosCancelados: cancelados,
+      pedidosTotal: kpis.reduce((total, kpi) => total + kpi.pedidosTotal, 0),
+      pedidosPendientes: contar(EstadoPedido.PENDIENTE),
+      // pedido-service distingue EN_TRANSITO y EN_DISTRIBUCION; aquí ambos cuentan como "en ruta"
+      pedidosEnRuta: contar('EN_TRANSITO', 'EN_DISTRIBUCION', EstadoPedido.EN_RUTA),
+      pedidosEntregados: contar(EstadoPedido.ENTREGADO),
+      pedidosCancelados: contar(EstadoPedido.CANCELADO),
       tiempoPromedioEntrega: tiempoPromedio,
       repartidoresActivos,
     };
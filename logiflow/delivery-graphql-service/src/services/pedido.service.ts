@@ -38,6 +38,18 @@ export interface PedidoResponse {
   tarifa?: number;
 }
 
+/**
+ * KPIs de una cobertura (KpiCoberturaResponse.java)
+ * Mantenidos de forma incremental por pedido-service en cada cambio de estado
+ */
+export interface KpiCoberturaResponse {
+  cobertura: string;
+  pedidosTotal: number;
+  pedidosPorEstado: Record<string, number>;
+  entregasMedidas: number;
+  tiempoPromedioEntregaMinutos: number | null;
+}
+
 /**
  * PedidoService - Comunicación con el microservicio de Pedidos a través del API Gateway
  * 
@@ -50,6 +62,7 @@ export interface PedidoResponse {
  * - GET /api/pedidos/pendientes-asignacion - Obtener pedidos pendientes de asignación
  * - PATCH /api/pedidos/{id}/asignar?repartidorId=X&vehiculoId=Y - Asignar repartidor y vehículo
  * - PATCH /api/pedidos/{id}/cancelar - Cancelar pedido
+ * - GET /api/pedidos/kpis?cobertura=X - KPIs por cobertura (rollup)
  */
 export class PedidoService {
   
@@ -211,4 +224,21 @@ export class PedidoService {
       throw new Error(`Error al actualizar pedido: ${error.message}`);
     }
   }
+
+  /**
+   * KPIs por cobertura desde el rollup de pedido-service (sin traer los pedidos)
+   * GET /api/pedidos/kpis?cobertura={cobertura}
+   */
+  async obtenerKpis(cobertura?: string): Promise<KpiCoberturaResponse[]> {
+    try {
+      console.log(`[PedidoService] GET /pedidos/kpis (cobertura: ${cobertura || 'todas'})`);
+      const response = await pedidoClient.get<KpiCoberturaResponse[]>('/pedidos/kpis', {
+        params: cobertura ? { cobertura } : undefined,
+      });
+      return response.data;
+    } catch (error: any) {
+      console.error('[PedidoService] Error al obtener KPIs:', error.message);
+      return [];
+    }
+  }
 }
@@ -14,4 +14,9 @@ export const config = {
 
   // Timeout para llamadas HTTP (ms)
   httpTimeout: parseInt(process.env.HTTP_TIMEOUT || '5000', 10),
+
+  // Ventana (ms) en la que se juntan las consultas de factura antes de enviarlas en un solo request
+  facturaBatchVentanaMs: parseInt(process.env.FACTURA_BATCH_VENTANA_MS || '5', 10),
+  // Tope de pedidos por request al billing-service (igual al máximo que acepta el endpoint)
+  facturaBatchMaximo: parseInt(process.env.FACTURA_BATCH_MAXIMO || '200', 10),
 };
@@ -1,5 +1,12 @@
 import DataLoader from 'dataloader';
-import { FleetServiceClient, RepartidorResponse, VehiculoResponse } from '../services';
+import {
+  BillingServiceClient,
+  FacturaResponse,
+  FleetServiceClient,
+  RepartidorResponse,
+  VehiculoResponse,
+} from '../services';
+import { config } from './config';
 
 /**
  * DataLoader para repartidores - Evita el problema N+1
@@ -49,3 +56,30 @@ export const createVehiculoLoader = (
     }
   );
 };
+
+/**
+ * DataLoader para facturas por pedidoId - Evita el N+1 al resolver Pedido.factura
+ * Junta las consultas que llegan dentro de una ventana de pocos ms (no solo las del mismo tick,
+ * así también entran los pedidos de listas resueltas en paralelo) y las envía en un solo
+ * GET /billing/facturas?pedidoIds=..., en lotes de hasta facturaBatchMaximo
+ */
+export const createFacturaPorPedidoLoader = (
+  billingClient: BillingServiceClient
+): DataLoader<string, FacturaResponse | null> => {
+  return new DataLoader<string, FacturaResponse | null>(
+    async (pedidoIds: readonly string[]) => {
+      console.log(`[DataLoader] Cargando facturas de ${pedidoIds.length} pedidos en batch`);
+
+      const facturas = await billingClient.obtenerFacturasPorPedidoIds(pedidoIds);
+      const porPedido = new Map<string, FacturaResponse>(facturas.map((factura) => [factura.pedidoId, factura]));
+
+      // Mismo orden que las claves; null para pedidos sin factura
+      return pedidoIds.map((pedidoId) => porPedido.get(pedidoId) ?? null);
+    },
+    {
+      cache: true,
+      maxBatchSize: config.facturaBatchMaximo,
+      batchScheduleFn: (callback) => setTimeout(callback, config.facturaBatchVentanaMs),
+    }
+  );
+};
@@ -1,5 +1,5 @@
 export { config } from './config';
 export { pedidoClient, fleetClient, trackingClient, authClient, setupHttpClients } from './axiosClients';
-export { createRepartidorLoader, createVehiculoLoader } from './dataLoaders';
+export { createRepartidorLoader, createVehiculoLoader, createFacturaPorPedidoLoader } from './dataLoaders';
 export { SimpleCache, flotaCache, kpiCache, pedidoCache } from './cache';
 export type { CacheMetrics } from './cache';
@@ -1,15 +1,22 @@
 package com.logiflow.fleetservice.config;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
 import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.amqp.autoconfigure.RabbitProperties;
+import org.springframework.boot.amqp.autoconfigure.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+@Slf4j
 @Configuration
 public class RabbitMQConfig {
 
@@ -34,12 +41,18 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.queue.pedido-estado}")
     private String pedidoEstadoQueue;
 
+    @Value("${rabbitmq.queue.pedido-estado-dlq}")
+    private String pedidoEstadoDlq;
+
     @Value("${rabbitmq.queue.tracking-ubicacion}")
     private String trackingUbicacionQueue;
 
     @Value("${rabbitmq.queue.pedido-reintento}")
     private String pedidoReintentoQueue;
 
+    @Value("${rabbitmq.queue.pedido-reintento-lote}")
+    private String pedidoReintentoLoteQueue;
+
     // ============================================
     // ROUTING KEYS
     // ============================================
@@ -55,6 +68,18 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-key.pedido-reintento}")
     private String pedidoReintentoRoutingKey;
 
+    @Value("${rabbitmq.routing-key.pedido-reintento-lote}")
+    private String pedidoReintentoLoteRoutingKey;
+
+    // ============================================
+    // LOTE DE LIBERACIONES
+    // ============================================
+    @Value("${fleet.asignacion.liberacion.lote-maximo:500}")
+    private int liberacionLoteMaximo;
+
+    @Value("${fleet.asignacion.liberacion.intervalo-ms:200}")
+    private long liberacionIntervaloMs;
+
     // ============================================
     // EXCHANGE DEFINITIONS
     // ============================================
@@ -94,6 +119,12 @@ public class RabbitMQConfig {
         return new Queue(pedidoEstadoQueue, true);
     }
 
+    /** Lotes de pedido.estado.actualizado que agotaron los reintentos, para revisión o reenvío manual */
+    @Bean
+    public Queue pedidoEstadoDlq() {
+        return new Queue(pedidoEstadoDlq, true);
+    }
+
     /** Cola para eventos de ubicación GPS desde TrackingService */
     @Bean
     public Queue trackingUbicacionQueue() {
@@ -106,6 +137,12 @@ public class RabbitMQConfig {
         return new Queue(pedidoReintentoQueue, true);
     }
 
+    /** Cola para lotes de reintento del scheduler de PedidoService */
+    @Bean
+    public Queue pedidoReintentoLoteQueue() {
+        return new Queue(pedidoReintentoLoteQueue, true);
+    }
+
     // ============================================
     // BINDINGS
     // ============================================
@@ -142,6 +179,58 @@ public class RabbitMQConfig {
                 .with(pedidoReintentoRoutingKey);
     }
 
+    @Bean
+    public Binding bindingPedidoReintentoLote(Queue pedidoReintentoLoteQueue, TopicExchange pedidosExchange) {
+        return BindingBuilder
+                .bind(pedidoReintentoLoteQueue)
+                .to(pedidosExchange)
+                .with(pedidoReintentoLoteRoutingKey);
+    }
+
+    // ============================================
+    // CONTENEDORES
+    // ============================================
+
+    /**
+     * Contenedor en modo batch para pedido.estado.actualizado: entrega hasta lote-maximo mensajes
+     * (o los que lleguen en intervalo-ms) y confirma el lote completo cuando el listener retorna,
+     * es decir, después del commit de las liberaciones.
+     *
+     * El recuperador por defecto de Spring Boot (RejectAndDontRequeueRecoverer) no admite lotes:
+     * con un listener batch no haría nada y el lote se confirmaría igual. Por eso, al agotar los
+     * reintentos de spring.rabbitmq.listener.simple.retry, los mensajes se reenvían a la DLQ; si ese
+     * envío falla la excepción llega al contenedor y el lote vuelve a la cola.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory pedidoEstadoLoteContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            RabbitProperties rabbitProperties, RabbitTemplate rabbitTemplate) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(liberacionLoteMaximo);
+        factory.setPrefetchCount(liberacionLoteMaximo);
+        factory.setReceiveTimeout(liberacionIntervaloMs);
+
+        RabbitProperties.ListenerRetry retry = rabbitProperties.getListener().getSimple().getRetry();
+        MessageBatchRecoverer aDlq = (mensajes, causa) -> {
+            log.error("[LIBERACION-LOTE] Lote de {} mensajes agotó los reintentos, se envía a {}: {}",
+                    mensajes.size(), pedidoEstadoDlq, causa.getMessage());
+            for (Message mensaje : mensajes) {
+                mensaje.getMessageProperties().setHeader("x-error", String.valueOf(causa.getMessage()));
+                rabbitTemplate.send("", pedidoEstadoDlq, mensaje);
+            }
+        };
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxRetries((int) retry.getMaxRetries())
+                .backOffOptions(retry.getInitialInterval().toMillis(), retry.getMultiplier(),
+                        retry.getMaxInterval().toMillis())
+                .recoverer(aDlq)
+                .build());
+        return factory;
+    }
+
     // ============================================
     // MESSAGE CONVERTER
     // ============================================
@@ -0,0 +1,12 @@
+package com.logiflow.fleetservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (recarga del índice de disponibilidad)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,49 @@
+package com.logiflow.fleetservice.controller;
+
+import com.logiflow.fleetservice.dto.response.PlanRutaResponse;
+import com.logiflow.fleetservice.service.ruta.PlanificadorRutas;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/**
+ * Controlador REST para la ruta de varias paradas de cada repartidor
+ */
+@RestController
+@RequestMapping("/api/rutas")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Rutas", description = "API para planificar la ruta de los pedidos en curso de un repartidor")
+@SecurityRequirement(name = "Bearer Authentication")
+public class RutaController {
+
+    private final PlanificadorRutas planificadorRutas;
+
+    @GetMapping("/repartidor/{repartidorId}")
+    @PreAuthorize("hasAnyRole('REPARTIDOR_MOTORIZADO', 'REPARTIDOR_VEHICULO', 'REPARTIDOR_CAMION', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    @Operation(
+            summary = "Ruta planificada del repartidor",
+            description = "Ordena las recogidas y entregas de sus pedidos en curso y estima la llegada a cada parada"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ruta calculada"),
+            @ApiResponse(responseCode = "404", description = "Repartidor no encontrado")
+    })
+    public ResponseEntity<PlanRutaResponse> obtenerRuta(
+            @Parameter(description = "ID del repartidor", required = true)
+            @PathVariable UUID repartidorId
+    ) {
+        log.info("GET /api/rutas/repartidor/{}", repartidorId);
+        return ResponseEntity.ok(planificadorRutas.planificar(repartidorId));
+    }
+}
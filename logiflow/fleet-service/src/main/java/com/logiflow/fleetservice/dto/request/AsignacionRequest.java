@@ -38,5 +38,13 @@ public class AsignacionRequest {
     @NotNull(message = "El peso es obligatorio")
     @Positive(message = "El peso debe ser mayor a 0")
     private Double peso; // en kilogramos
+
+    // Opcionales: si llegan, se asigna el repartidor más cercano al punto de recogida
+    private Double latitudOrigen;
+    private Double longitudOrigen;
+
+    // Opcionales: punto de entrega, para la ruta del vehículo
+    private Double latitudDestino;
+    private Double longitudDestino;
 }
 
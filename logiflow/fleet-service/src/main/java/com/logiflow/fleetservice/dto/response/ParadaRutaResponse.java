@@ -0,0 +1,27 @@
+package com.logiflow.fleetservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Parada de una ruta planificada
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParadaRutaResponse {
+
+    private Integer orden;
+    private String pedidoId;
+    private String tipo; // RECOGIDA, ENTREGA
+    private Double latitud;
+    private Double longitud;
+    private Double distanciaAcumuladaKm;
+    private Double cargaKg; // carga a bordo al salir de la parada
+    private LocalDateTime eta;
+}
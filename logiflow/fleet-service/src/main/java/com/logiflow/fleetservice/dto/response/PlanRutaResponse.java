@@ -0,0 +1,28 @@
+package com.logiflow.fleetservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ruta planificada de un repartidor: paradas en orden de visita con su hora estimada
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanRutaResponse {
+
+    private String repartidorId;
+    private String vehiculoId;
+    private String vehiculoPlaca;
+    private Double distanciaTotalKm;
+    private Double duracionTotalMinutos;
+    private LocalDateTime calculadoEn;
+    private List<ParadaRutaResponse> paradas;
+    private List<String> pedidosSinUbicacion; // pedidos sin coordenadas: no entran en la ruta
+}
@@ -39,4 +39,10 @@ public class PedidoCreadoEvent implements Serializable {
     private String ciudadDestino;
     private Double distanciaEstimadaKm;
     private BigDecimal tarifaCalculada;
+    // Coordenadas de recogida, para elegir el repartidor más cercano
+    private Double latitudOrigen;
+    private Double longitudOrigen;
+    // Coordenadas de entrega, para planificar la ruta del vehículo
+    private Double latitudDestino;
+    private Double longitudDestino;
 }
@@ -35,6 +35,10 @@ public class ReintentarAsignacionEvent {
     // Ubicaciones
     private String ciudadOrigen;
     private String ciudadDestino;
+    private Double latitudOrigen;
+    private Double longitudOrigen;
+    private Double latitudDestino;
+    private Double longitudDestino;
     
     // Control de reintentos
     private Integer numeroReintento;
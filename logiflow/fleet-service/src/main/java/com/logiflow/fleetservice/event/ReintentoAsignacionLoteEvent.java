@@ -0,0 +1,27 @@
+package com.logiflow.fleetservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lote de reintentos de asignación publicado por el scheduler de PedidoService
+ * Los pedidos vienen ordenados por prioridad y antigüedad
+ * Consumido por FleetService
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReintentoAsignacionLoteEvent {
+
+    private String messageId;
+    private LocalDateTime timestamp;
+
+    private String motivoReintento;    // REINTENTO_AUTOMATICO
+    private List<ReintentarAsignacionEvent> pedidos;
+}
@@ -0,0 +1,97 @@
+package com.logiflow.fleetservice.model.entity.asignacion;
+
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Registro de qué repartidor y vehículo tomó cada pedido.
+ * Una fila por pedido: si se reasigna tras una liberación, se reutiliza.
+ * Un vehículo en ruta puede tener varias filas ACTIVAS (pedidos consolidados).
+ */
+@Entity
+@Table(name = "asignaciones", indexes = {
+        @Index(name = "idx_asignacion_pedido", columnList = "pedido_id", unique = true),
+        @Index(name = "idx_asignacion_estado", columnList = "estado"),
+        @Index(name = "idx_asignacion_repartidor", columnList = "repartidor_id")
+})
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Asignacion {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.AUTO)
+  @Column(columnDefinition = "uuid")
+  private UUID id;
+
+  @Column(name = "pedido_id", nullable = false, length = 64)
+  private String pedidoId;
+
+  @Column(name = "repartidor_id", nullable = false, columnDefinition = "uuid")
+  private UUID repartidorId;
+
+  @Column(name = "vehiculo_id", nullable = false, columnDefinition = "uuid")
+  private UUID vehiculoId;
+
+  // Datos del pedido para reconstruir la carga de cada vehículo al recargar el índice
+  @Column(name = "peso_kg")
+  private Double peso;
+
+  @Column(name = "zona_origen", length = 50)
+  private String zonaOrigen;
+
+  @Column(name = "modalidad_servicio", length = 30)
+  private String modalidadServicio;
+
+  @Column(name = "tipo_entrega", length = 20)
+  private String tipoEntrega;
+
+  // Puntos de recogida y entrega: paradas de la ruta del vehículo
+  @Embedded
+  @AttributeOverrides({
+          @AttributeOverride(name = "latitud", column = @Column(name = "latitud_origen")),
+          @AttributeOverride(name = "longitud", column = @Column(name = "longitud_origen"))
+  })
+  private Coordenada origen;
+
+  @Embedded
+  @AttributeOverrides({
+          @AttributeOverride(name = "latitud", column = @Column(name = "latitud_destino")),
+          @AttributeOverride(name = "longitud", column = @Column(name = "longitud_destino"))
+  })
+  private Coordenada destino;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  @Builder.Default
+  private EstadoAsignacion estado = EstadoAsignacion.ACTIVA;
+
+  @Column(name = "fecha_asignacion", nullable = false)
+  private LocalDateTime fechaAsignacion;
+
+  @Column(name = "fecha_liberacion")
+  private LocalDateTime fechaLiberacion;
+
+  @CreatedDate
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+
+  @LastModifiedDate
+  @Column(name = "updated_at")
+  private LocalDateTime updatedAt;
+}
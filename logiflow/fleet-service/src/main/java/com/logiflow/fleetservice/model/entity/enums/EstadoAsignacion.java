@@ -0,0 +1,18 @@
+package com.logiflow.fleetservice.model.entity.enums;
+
+public enum EstadoAsignacion {
+  ACTIVA("Repartidor y vehículo ocupados con el pedido"),
+  ENTREGADA("Pedido entregado, recursos liberados"),
+  CANCELADA("Pedido cancelado, recursos liberados"),
+  LIBERADA("Asignación revertida por FleetService");
+
+  private final String descripcion;
+
+  EstadoAsignacion(String descripcion) {
+    this.descripcion = descripcion;
+  }
+
+  public String getDescripcion() {
+    return descripcion;
+  }
+}
@@ -93,6 +93,15 @@ public class Repartidor {
   @Builder.Default
   private Boolean activo = true;
 
+  // Carga del vehículo mientras está EN_RUTA: varios pedidos consolidados en un mismo viaje
+  @Column(name = "carga_asignada_kg")
+  @Builder.Default
+  private Double cargaAsignada = 0.0;
+
+  @Column(name = "pedidos_en_curso")
+  @Builder.Default
+  private Integer pedidosEnCurso = 0;
+
   @CreatedDate
   @Column(name = "created_at", nullable = false, updatable = false)
   private LocalDateTime createdAt;
@@ -0,0 +1,37 @@
+package com.logiflow.fleetservice.repository;
+
+import com.logiflow.fleetservice.model.entity.asignacion.Asignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AsignacionRepository extends JpaRepository<Asignacion, UUID> {
+
+  Optional<Asignacion> findByPedidoId(String pedidoId);
+
+  List<Asignacion> findByEstado(EstadoAsignacion estado);
+
+  List<Asignacion> findByPedidoIdInAndEstado(Collection<String> pedidoIds, EstadoAsignacion estado);
+
+  List<Asignacion> findByRepartidorIdAndEstado(UUID repartidorId, EstadoAsignacion estado);
+
+  /**
+   * Cierra en una sola sentencia las asignaciones activas de los pedidos indicados
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Asignacion a SET a.estado = :estado, a.fechaLiberacion = :ahora, a.updatedAt = :ahora " +
+          "WHERE a.pedidoId IN :pedidoIds AND a.estado = 'ACTIVA'")
+  int cerrarActivas(@Param("pedidoIds") Collection<String> pedidoIds,
+                    @Param("estado") EstadoAsignacion estado,
+                    @Param("ahora") LocalDateTime ahora);
+}
@@ -3,10 +3,13 @@ package com.logiflow.fleetservice.repository;
 import com.logiflow.fleetservice.model.entity.enums.EstadoRepartidor;
 import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -45,6 +48,76 @@ public interface RepartidorRepository extends JpaRepository<Repartidor, UUID> {
           @Param("tipoVehiculo") Class<?> tipoVehiculo
   );
 
+  // Carga del índice de disponibilidad: una sola consulta con el vehículo de cada repartidor
+  @Query("SELECT r FROM Repartidor r LEFT JOIN FETCH r.vehiculoAsignado WHERE r.activo = true")
+  List<Repartidor> findActivosConVehiculo();
+
+  @Query("SELECT r FROM Repartidor r LEFT JOIN FETCH r.vehiculoAsignado WHERE r.id = :id")
+  Optional<Repartidor> findConVehiculoById(@Param("id") UUID id);
+
+  /**
+   * Pasa el repartidor a EN_RUTA solo si sigue DISPONIBLE, activo y con ese vehículo ACTIVO;
+   * la carga del viaje empieza con el peso de este pedido
+   * @return 1 si se tomó, 0 si otro proceso lo cambió antes
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Repartidor r SET r.estado = 'EN_RUTA', r.cargaAsignada = :peso, r.pedidosEnCurso = 1, " +
+          "r.updatedAt = :ahora " +
+          "WHERE r.id = :id AND r.estado = 'DISPONIBLE' AND r.activo = true " +
+          "AND r.vehiculoAsignado.id = :vehiculoId " +
+          "AND EXISTS (SELECT v.id FROM VehiculoEntrega v WHERE v.id = :vehiculoId " +
+          "AND v.estado = 'ACTIVO' AND v.activo = true)")
+  int ocuparSiDisponible(@Param("id") UUID id,
+                         @Param("vehiculoId") UUID vehiculoId,
+                         @Param("peso") double peso,
+                         @Param("ahora") LocalDateTime ahora);
+
+  /**
+   * Suma un pedido a un repartidor EN_RUTA solo si su vehículo ACTIVO todavía tiene capacidad
+   * y no llegó al máximo de pedidos. La condición se evalúa sobre la propia fila: dos
+   * consolidaciones concurrentes no pueden pasarse de la capacidad.
+   * @return 1 si se sumó, 0 si ya no cabe o el repartidor cambió
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Repartidor r SET r.cargaAsignada = COALESCE(r.cargaAsignada, 0) + :peso, " +
+          "r.pedidosEnCurso = COALESCE(r.pedidosEnCurso, 0) + 1, r.updatedAt = :ahora " +
+          "WHERE r.id = :id AND r.estado = 'EN_RUTA' AND r.activo = true " +
+          "AND r.vehiculoAsignado.id = :vehiculoId " +
+          "AND COALESCE(r.pedidosEnCurso, 0) < :maximoPedidos " +
+          "AND COALESCE(r.cargaAsignada, 0) + :peso <= (SELECT v.capacidadCarga FROM VehiculoEntrega v " +
+          "WHERE v.id = :vehiculoId AND v.estado = 'ACTIVO' AND v.activo = true)")
+  int sumarCargaSiCabe(@Param("id") UUID id,
+                       @Param("vehiculoId") UUID vehiculoId,
+                       @Param("peso") double peso,
+                       @Param("maximoPedidos") int maximoPedidos,
+                       @Param("ahora") LocalDateTime ahora);
+
+  /**
+   * Descuenta de cada repartidor el peso y la cantidad de sus asignaciones activas entre esos pedidos.
+   * Debe ejecutarse antes de cerrar las asignaciones, seguido de liberarSinPedidos.
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Repartidor r SET " +
+          "r.cargaAsignada = COALESCE(r.cargaAsignada, 0) - (SELECT COALESCE(SUM(a.peso), 0) FROM Asignacion a " +
+          "WHERE a.repartidorId = r.id AND a.pedidoId IN :pedidoIds AND a.estado = 'ACTIVA'), " +
+          "r.pedidosEnCurso = COALESCE(r.pedidosEnCurso, 0) - (SELECT COUNT(a) FROM Asignacion a " +
+          "WHERE a.repartidorId = r.id AND a.pedidoId IN :pedidoIds AND a.estado = 'ACTIVA'), " +
+          "r.updatedAt = :ahora " +
+          "WHERE r.estado = 'EN_RUTA' AND r.id IN (SELECT a.repartidorId FROM Asignacion a " +
+          "WHERE a.pedidoId IN :pedidoIds AND a.estado = 'ACTIVA')")
+  int descontarPedidos(@Param("pedidoIds") Collection<String> pedidoIds, @Param("ahora") LocalDateTime ahora);
+
+  /**
+   * Devuelve a DISPONIBLE a los repartidores de esos pedidos que ya no tienen otros en curso
+   */
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Repartidor r SET r.estado = 'DISPONIBLE', r.cargaAsignada = 0, r.pedidosEnCurso = 0, " +
+          "r.updatedAt = :ahora " +
+          "WHERE r.estado = 'EN_RUTA' AND COALESCE(r.pedidosEnCurso, 0) <= 0 " +
+          "AND r.id IN (SELECT a.repartidorId FROM Asignacion a " +
+          "WHERE a.pedidoId IN :pedidoIds AND a.estado = 'ACTIVA')")
+  int liberarSinPedidos(@Param("pedidoIds") Collection<String> pedidoIds, @Param("ahora") LocalDateTime ahora);
+
   @Query("SELECT COUNT(r) FROM Repartidor r WHERE r.estado = :estado")
   long countByEstado(@Param("estado") EstadoRepartidor estado);
 
@@ -2,18 +2,29 @@ package com.logiflow.fleetservice.service;
 
 import com.logiflow.fleetservice.dto.request.AsignacionRequest;
 import com.logiflow.fleetservice.dto.response.AsignacionResponse;
-import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
-import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
-import com.logiflow.fleetservice.model.entity.enums.EstadoRepartidor;
+import com.logiflow.fleetservice.model.entity.asignacion.Asignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import com.logiflow.fleetservice.repository.AsignacionRepository;
 import com.logiflow.fleetservice.repository.RepartidorRepository;
-import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad.Candidato;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad.Paquete;
+import com.logiflow.fleetservice.service.asignacion.RegistroAsignaciones;
+import com.logiflow.fleetservice.service.asignacion.RegistroAsignaciones.AsignacionActiva;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Servicio para asignar repartidores y vehículos a pedidos
@@ -23,110 +34,243 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AsignacionService {
 
+    private static final String MENSAJE_YA_ASIGNADO = "El pedido ya tiene un repartidor asignado";
+
     private final RepartidorRepository repartidorRepository;
-    private final VehiculoRepository vehiculoRepository;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final AsignacionRepository asignacionRepository;
+    private final RegistroAsignaciones registroAsignaciones;
+
+    @Value("${fleet.asignacion.maximo-intentos:5}")
+    private int maximoIntentos;
+
+    @Value("${fleet.asignacion.consolidacion.maximo-pedidos:6}")
+    private int maximoPedidos;
 
     /**
      * Asigna un repartidor y vehículo disponible a un pedido
      * Algoritmo de asignación:
-     * 1. Busca repartidores disponibles en la zona
-     * 2. Selecciona el que tenga vehículo asignado y disponible
-     * 3. Prioriza por calificación y experiencia
+     * 1. El índice de disponibilidad propone, sin consultar la base, el repartidor más cercano
+     *    al punto de recogida con capacidad suficiente; si el pedido no trae coordenadas, el de
+     *    la zona de origen cuyo vehículo ACTIVO tenga la menor capacidad suficiente para el peso
+     * 2. Un UPDATE condicional lo pasa a EN_RUTA solo si sigue DISPONIBLE con ese vehículo
+     * 3. Si otro proceso lo tomó antes, se reindexa desde la base y se prueba el siguiente
+     * 4. La asignación queda en la tabla asignaciones (una fila por pedido) para liberarla después
+     * Antes de todo eso se intenta consolidar el pedido en un vehículo que ya está en ruta
+     * (misma zona y modalidad, capacidad restante suficiente): no ocupa otro repartidor.
      */
     @Transactional
     public AsignacionResponse asignarRepartidorYVehiculo(AsignacionRequest request) {
         log.info("Iniciando asignación para pedido: {}", request.getPedidoId());
 
-        // Buscar repartidores disponibles
-        List<Repartidor> repartidoresDisponibles = repartidorRepository
-                .findByEstadoAndActivoTrue(EstadoRepartidor.DISPONIBLE);
+        // Evento repetido: el pedido ya tiene repartidor, no se ocupa otro
+        if (registroAsignaciones.buscar(request.getPedidoId()).isPresent()) {
+            log.warn("[ASIGNACION] Pedido {} ya tiene una asignación activa", request.getPedidoId());
+            return rechazo(request, MENSAJE_YA_ASIGNADO);
+        }
 
-        if (repartidoresDisponibles.isEmpty()) {
+        Optional<AsignacionResponse> consolidada = consolidar(request);
+        if (consolidada.isPresent()) {
+            return consolidada.get();
+        }
+
+        if (indiceDisponibilidad.disponibles() == 0) {
             log.warn("No hay repartidores disponibles");
-            return AsignacionResponse.builder()
-                    .pedidoId(request.getPedidoId())
-                    .estado("RECHAZADO")
-                    .mensaje("No hay repartidores disponibles en este momento")
-                    .build();
+            return rechazo(request, "No hay repartidores disponibles en este momento");
         }
 
-        // Buscar el mejor repartidor con vehículo disponible
-        Optional<Repartidor> repartidorSeleccionado = seleccionarMejorRepartidor(
-                repartidoresDisponibles,
-                request.getPeso()
-        );
-
-        if (repartidorSeleccionado.isEmpty()) {
-            log.warn("No se encontró repartidor adecuado con vehículo disponible");
-            return AsignacionResponse.builder()
-                    .pedidoId(request.getPedidoId())
-                    .estado("RECHAZADO")
-                    .mensaje("No hay repartidores con vehículos adecuados disponibles")
-                    .build();
+        Coordenada origen = coordenada(request.getLatitudOrigen(), request.getLongitudOrigen());
+
+        for (int intento = 1; intento <= maximoIntentos; intento++) {
+            Optional<Candidato> reservado = indiceDisponibilidad.reservar(request.getCiudadOrigen(), origen, request.getPeso());
+            if (reservado.isEmpty()) {
+                break;
+            }
+            Optional<AsignacionResponse> respuesta = ocupar(request, reservado.get(), intento);
+            if (respuesta.isPresent()) {
+                return respuesta.get();
+            }
         }
 
-        Repartidor repartidor = repartidorSeleccionado.get();
-        VehiculoEntrega vehiculo = repartidor.getVehiculoAsignado();
-        // Cambiar estado del repartidor a EN_RUTA
-        repartidor.setEstado(EstadoRepartidor.EN_RUTA);
-        repartidorRepository.save(repartidor);
+        log.warn("No se encontró repartidor adecuado con vehículo disponible");
+        return rechazo(request, "No hay repartidores con vehículos adecuados disponibles");
+    }
 
-        log.info("Asignación exitosa - Repartidor: {} ({}), Vehículo: {} ({})",
-                repartidor.getId(), repartidor.getNombreCompleto(),
-                vehiculo.getId(), vehiculo.getPlaca());
+    /**
+     * Asigna al pedido el repartidor elegido por el optimizador de lotes.
+     * Si ya no está disponible, cae en la asignación individual.
+     */
+    @Transactional
+    public AsignacionResponse asignarRepartidorElegido(AsignacionRequest request, UUID repartidorId) {
+        if (registroAsignaciones.buscar(request.getPedidoId()).isPresent()) {
+            log.warn("[ASIGNACION] Pedido {} ya tiene una asignación activa", request.getPedidoId());
+            return rechazo(request, MENSAJE_YA_ASIGNADO);
+        }
+        Optional<AsignacionResponse> respuesta = indiceDisponibilidad.reservar(repartidorId)
+                .flatMap(candidato -> ocupar(request, candidato, 1));
+        return respuesta.orElseGet(() -> asignarRepartidorYVehiculo(request));
+    }
 
-        return AsignacionResponse.builder()
-                .pedidoId(request.getPedidoId())
-                .repartidorId(String.valueOf(repartidor.getId()))
-                .vehiculoId(String.valueOf(vehiculo.getId()))
-                .repartidorNombre(repartidor.getNombreCompleto())
-                .vehiculoPlaca(vehiculo.getPlaca())
-                .estado("ASIGNADO")
-                .mensaje("Repartidor y vehículo asignados exitosamente")
-                .build();
+    /**
+     * Suma el pedido, por primer ajuste, a un vehículo en ruta con lugar; vacío si ninguno lo admite.
+     * El UPDATE condicional vuelve a comprobar capacidad y cantidad de pedidos en la base.
+     */
+    @Transactional
+    public Optional<AsignacionResponse> consolidar(AsignacionRequest request) {
+        Paquete paquete = paquete(request);
+        if (!indiceDisponibilidad.consolidable(paquete)) {
+            return Optional.empty();
+        }
+        for (int intento = 1; intento <= maximoIntentos; intento++) {
+            Optional<Candidato> reservado = indiceDisponibilidad.reservarCarga(paquete);
+            if (reservado.isEmpty()) {
+                return Optional.empty();
+            }
+            Candidato candidato = reservado.get();
+            int filas = repartidorRepository.sumarCargaSiCabe(candidato.repartidorId(), candidato.vehiculoId(),
+                    paquete.peso(), maximoPedidos, LocalDateTime.now());
+            if (filas == 0) {
+                log.warn("[CONSOLIDACION] Repartidor {} ya no admite el pedido en base de datos, se descarta",
+                        candidato.repartidorId());
+                indiceDisponibilidad.descartarCarga(candidato.repartidorId());
+                continue;
+            }
+            log.info("[CONSOLIDACION] Pedido {} ({} kg) consolidado en vehículo {} del repartidor {}",
+                    request.getPedidoId(), paquete.peso(), candidato.vehiculoPlaca(), candidato.repartidorId());
+            return Optional.of(confirmar(request, candidato,
+                    "Pedido consolidado en un vehículo en ruta"));
+        }
+        return Optional.empty();
     }
 
     /**
-     * Libera la asignación de un repartidor cuando un pedido es cancelado
+     * Libera la asignación de un pedido (p. ej. si no se pudo publicar la confirmación)
      */
     @Transactional
     public void liberarAsignacion(String pedidoId) {
         log.info("Liberando asignación para pedido: {}", pedidoId);
+        liberar(Map.of(pedidoId, EstadoAsignacion.LIBERADA));
+    }
+
+    /**
+     * Cierra las asignaciones activas de los pedidos, descuenta su carga de cada vehículo y devuelve
+     * a DISPONIBLE a los repartidores que se quedan sin pedidos en curso.
+     * Tres UPDATE por lote sobre índices (pedido_id y la PK del repartidor), sin recorrer repartidores.
+     * @return repartidores liberados
+     */
+    @Transactional
+    public int liberar(Map<String, EstadoAsignacion> cierres) {
+        if (cierres.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        repartidorRepository.descontarPedidos(cierres.keySet(), ahora);
+        int liberados = repartidorRepository.liberarSinPedidos(cierres.keySet(), ahora);
 
-        // Buscar repartidor EN_RUTA y marcarlo como DISPONIBLE
-        // Nota: En una implementación real, deberías mantener un registro
-        // de asignaciones pedido-repartidor
-        List<Repartidor> repartidoresEnRuta = repartidorRepository
-                .findByEstadoAndActivoTrue(EstadoRepartidor.EN_RUTA);
-
-        // Por simplicidad, liberamos el primer repartidor encontrado
-        // En producción deberías tener una tabla de asignaciones
-        if (!repartidoresEnRuta.isEmpty()) {
-            Repartidor repartidor = repartidoresEnRuta.get(0);
-            repartidor.setEstado(EstadoRepartidor.DISPONIBLE);
-            repartidorRepository.save(repartidor);
-            log.info("Repartidor {} liberado", repartidor.getId());
+        Map<EstadoAsignacion, List<String>> porEstado = cierres.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        porEstado.forEach((estado, pedidoIds) -> asignacionRepository.cerrarActivas(pedidoIds, estado, ahora));
+
+        // Si la copia en memoria no tiene algún pedido, la recarga periódica del índice lo corrige
+        List<AsignacionActiva> cerradas = cierres.keySet().stream()
+                .map(registroAsignaciones::buscar)
+                .flatMap(Optional::stream)
+                .toList();
+        registroAsignaciones.quitar(cierres.keySet());
+        indiceDisponibilidad.liberar(cerradas);
+        return liberados;
+    }
+
+    /**
+     * Confirma el candidato reservado con el UPDATE condicional y registra la asignación
+     * @return vacío si la base ya no lo tenía disponible (el índice se corrige con el estado real)
+     */
+    private Optional<AsignacionResponse> ocupar(AsignacionRequest request, Candidato candidato, int intento) {
+        Paquete paquete = paquete(request);
+        int filas = repartidorRepository.ocuparSiDisponible(
+                candidato.repartidorId(), candidato.vehiculoId(), paquete.peso(), LocalDateTime.now());
+        if (filas == 0) {
+            // El índice estaba desactualizado (cambio en otra instancia): se corrige con el estado real
+            log.warn("[ASIGNACION] Repartidor {} ya no está disponible en base de datos, se reindexa",
+                    candidato.repartidorId());
+            repartidorRepository.findConVehiculoById(candidato.repartidorId())
+                    .ifPresent(indiceDisponibilidad::registrar);
+            return Optional.empty();
         }
+        indiceDisponibilidad.confirmarReserva(candidato);
+        indiceDisponibilidad.abrirCarga(candidato, paquete);
+        log.info("Asignación exitosa - Repartidor: {} ({}), Vehículo: {} ({}) | Intento: {}",
+                candidato.repartidorId(), candidato.repartidorNombre(),
+                candidato.vehiculoId(), candidato.vehiculoPlaca(), intento);
+        return Optional.of(confirmar(request, candidato, "Repartidor y vehículo asignados exitosamente"));
+    }
+
+    /**
+     * Registra la asignación ya escrita en el repartidor y arma la respuesta
+     */
+    private AsignacionResponse confirmar(AsignacionRequest request, Candidato candidato, String mensaje) {
+        if (!registrarAsignacion(request, candidato)) {
+            // Otra instancia asignó el pedido entre tanto: se deshace la ocupación
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.warn("[ASIGNACION] Pedido {} asignado por otra instancia, se revierte", request.getPedidoId());
+            return rechazo(request, MENSAJE_YA_ASIGNADO);
+        }
+        return AsignacionResponse.builder()
+                .pedidoId(request.getPedidoId())
+                .repartidorId(String.valueOf(candidato.repartidorId()))
+                .vehiculoId(String.valueOf(candidato.vehiculoId()))
+                .repartidorNombre(candidato.repartidorNombre())
+                .vehiculoPlaca(candidato.vehiculoPlaca())
+                .estado("ASIGNADO")
+                .mensaje(mensaje)
+                .build();
     }
 
     /**
-     * Selecciona el mejor repartidor disponible
-     * NOTA: Esta funcionalidad está fuera del scope de la Fase 1 según documentación
-     * Requiere métricas y calificaciones no implementadas en el modelo actual
+     * Escribe la fila del pedido; reutiliza la de una asignación anterior ya cerrada
+     * @return false si el pedido ya tiene una asignación activa
      */
-    private Optional<Repartidor> seleccionarMejorRepartidor(
-            List<Repartidor> repartidores,
-            Double pesoRequerido
-    ) {
-        // Implementación simplificada temporal
-        return repartidores.stream()
-                // Filtrar: debe tener vehículo asignado y activo
-                .filter(r -> r.getVehiculoAsignado() != null)
-                .filter(r -> r.getVehiculoAsignado().getEstado() == com.logiflow.fleetservice.model.entity.enums.EstadoVehiculo.ACTIVO)
-                // Filtrar: el vehículo debe soportar el peso
-                .filter(r -> r.getVehiculoAsignado().getCapacidadCarga() >= pesoRequerido)
-                // Retornar el primero disponible (sin métricas de calificación)
-                .findFirst();
+    private boolean registrarAsignacion(AsignacionRequest request, Candidato candidato) {
+        String pedidoId = request.getPedidoId();
+        Asignacion asignacion = asignacionRepository.findByPedidoId(pedidoId)
+                .orElseGet(() -> Asignacion.builder().pedidoId(pedidoId).build());
+        if (asignacion.getId() != null && asignacion.getEstado() == EstadoAsignacion.ACTIVA) {
+            return false;
+        }
+        Paquete paquete = paquete(request);
+        asignacion.setRepartidorId(candidato.repartidorId());
+        asignacion.setVehiculoId(candidato.vehiculoId());
+        asignacion.setPeso(paquete.peso());
+        asignacion.setZonaOrigen(request.getCiudadOrigen());
+        asignacion.setModalidadServicio(request.getModalidadServicio());
+        asignacion.setTipoEntrega(request.getTipoEntrega());
+        asignacion.setOrigen(coordenada(request.getLatitudOrigen(), request.getLongitudOrigen()));
+        asignacion.setDestino(coordenada(request.getLatitudDestino(), request.getLongitudDestino()));
+        asignacion.setEstado(EstadoAsignacion.ACTIVA);
+        asignacion.setFechaAsignacion(LocalDateTime.now());
+        asignacion.setFechaLiberacion(null);
+        asignacionRepository.save(asignacion);
+        registroAsignaciones.registrar(new AsignacionActiva(pedidoId, candidato.repartidorId(),
+                candidato.vehiculoId(), paquete.peso()));
+        return true;
+    }
+
+    private static Coordenada coordenada(Double latitud, Double longitud) {
+        return latitud != null && longitud != null ? new Coordenada(latitud, longitud) : null;
+    }
+
+    private static Paquete paquete(AsignacionRequest request) {
+        return new Paquete(request.getCiudadOrigen(), request.getModalidadServicio(), request.getTipoEntrega(),
+                request.getPeso() != null ? request.getPeso() : 0.0);
+    }
+
+    private AsignacionResponse rechazo(AsignacionRequest request, String mensaje) {
+        return AsignacionResponse.builder()
+                .pedidoId(request.getPedidoId())
+                .estado("RECHAZADO")
+                .mensaje(mensaje)
+                .build();
     }
 }
 
@@ -15,6 +15,7 @@ import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
 import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
 import com.logiflow.fleetservice.repository.RepartidorRepository;
 import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
 import com.logiflow.fleetservice.service.messaging.FleetEventPublisher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +37,7 @@ public class RepartidorServiceImpl {
   private final VehiculoRepository vehiculoRepository;
   private final RepartidorMapper repartidorMapper;
   private final FleetEventPublisher eventPublisher;
+  private final IndiceDisponibilidad indiceDisponibilidad;
 
   @Transactional
   public RepartidorResponse crearRepartidor(RepartidorCreateRequest request) {
@@ -63,6 +65,7 @@ public class RepartidorServiceImpl {
     }
 
     Repartidor saved = repartidorRepository.save(repartidor);
+    indiceDisponibilidad.registrar(saved);
     log.info("Repartidor creado con ID: {}", saved.getId());
 
     return repartidorMapper.toResponse(saved);
@@ -109,6 +112,7 @@ public class RepartidorServiceImpl {
     }
 
     Repartidor updated = repartidorRepository.save(repartidor);
+    indiceDisponibilidad.registrar(updated);
     return repartidorMapper.toResponse(updated);
   }
 
@@ -120,6 +124,7 @@ public class RepartidorServiceImpl {
     repartidor.cambiarEstado(nuevoEstado);
 
     Repartidor updated = repartidorRepository.save(repartidor);
+    indiceDisponibilidad.registrar(updated);
     return repartidorMapper.toResponse(updated);
   }
 
@@ -136,6 +141,7 @@ public class RepartidorServiceImpl {
     repartidor.setActivo(false);
     repartidor.cambiarEstado(EstadoRepartidor.MANTENIMIENTO);
     repartidorRepository.save(repartidor);
+    indiceDisponibilidad.registrar(repartidor);
   }
 
   @Transactional
@@ -152,6 +158,7 @@ public class RepartidorServiceImpl {
 
     repartidor.asignarVehiculo(vehiculo);
     repartidorRepository.save(repartidor);
+    indiceDisponibilidad.registrar(repartidor);
 
     log.info("Vehículo asignado exitosamente");
   }
@@ -168,6 +175,7 @@ public class RepartidorServiceImpl {
 
     repartidor.setVehiculoAsignado(null);
     repartidorRepository.save(repartidor);
+    indiceDisponibilidad.registrar(repartidor);
   }
 
   @Transactional
@@ -181,6 +189,7 @@ public class RepartidorServiceImpl {
     repartidor.setUbicacionActual(nuevaUbicacion);
 
     Repartidor updated = repartidorRepository.save(repartidor);
+    indiceDisponibilidad.actualizarUbicacion(updated.getId(), nuevaUbicacion);
     
     // Publicar evento de actualización de ubicación
     RepartidorUbicacionActualizadaEvent event = RepartidorUbicacionActualizadaEvent.builder()
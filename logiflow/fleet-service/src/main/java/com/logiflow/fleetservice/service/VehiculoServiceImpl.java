@@ -11,6 +11,7 @@ import com.logiflow.fleetservice.exception.ResourceNotFoundException;
 import com.logiflow.fleetservice.factory.VehiculoFactory;
 import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
 import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
 import com.logiflow.fleetservice.service.messaging.FleetEventPublisher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +33,7 @@ public class VehiculoServiceImpl {
   private final VehiculoFactory vehiculoFactory;
   private final VehiculoMapper vehiculoMapper;
   private final FleetEventPublisher eventPublisher;
+  private final IndiceDisponibilidad indiceDisponibilidad;
 
   @Transactional
   public VehiculoResponse crearVehiculo(VehiculoCreateRequest request) {
@@ -80,6 +82,7 @@ public class VehiculoServiceImpl {
     }
 
     VehiculoEntrega updated = vehiculoRepository.save(vehiculo);
+    indiceDisponibilidad.registrarVehiculo(updated);
     log.info("Vehículo actualizado exitosamente");
 
     return vehiculoMapper.toResponse(updated);
@@ -94,6 +97,7 @@ public class VehiculoServiceImpl {
     vehiculo.setEstado(estado);
 
     VehiculoEntrega updated = vehiculoRepository.save(vehiculo);
+    indiceDisponibilidad.registrarVehiculo(updated);
     
     // Publicar evento de cambio de estado
     VehiculoEstadoActualizadoEvent event = VehiculoEstadoActualizadoEvent.builder()
@@ -119,6 +123,7 @@ public class VehiculoServiceImpl {
     vehiculo.setActivo(false);
     vehiculo.setEstado(com.logiflow.fleetservice.model.entity.enums.EstadoVehiculo.FUERA_DE_SERVICIO);
     vehiculoRepository.save(vehiculo);
+    indiceDisponibilidad.registrarVehiculo(vehiculo);
 
     log.info("Vehículo eliminado lógicamente");
   }
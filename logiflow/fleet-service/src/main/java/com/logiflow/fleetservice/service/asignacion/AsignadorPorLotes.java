@@ -0,0 +1,291 @@
+package com.logiflow.fleetservice.service.asignacion;
+
+import com.logiflow.fleetservice.dto.request.AsignacionRequest;
+import com.logiflow.fleetservice.dto.response.AsignacionResponse;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import com.logiflow.fleetservice.service.AsignacionService;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad.Candidato;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad.Cercano;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad.Paquete;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Modo de asignación por lotes (fleet.asignacion.lote.habilitado).
+ *
+ * Junta los pedidos que llegan durante una ventana corta y los reparte todos a la vez con un
+ * emparejamiento de costo mínimo contra los repartidores del índice, en vez de uno por uno:
+ * un pedido liviano que llega antes ya no se queda con el único camión que necesita el pesado.
+ *
+ * Costo de pedido -> repartidor (en km equivalentes):
+ * - distancia al punto de recogida, o penalización por zona si el pedido no trae coordenadas
+ * - holgura de capacidad: capacidad sobrante / capacidad, por peso-capacidad
+ * - sin capacidad suficiente: no elegible
+ * Cada pedido tiene además una columna "sin asignar" muy cara, un poco más cara cuanto mayor
+ * es su prioridad: si no alcanza para todos, quedan afuera primero los de prioridad BAJA.
+ *
+ * Columnas: no se usa todo el índice (con decenas de miles de repartidores la matriz no entraría
+ * en memoria ni en la ventana). Cada pedido aporta sus fleet.asignacion.lote.candidatos-por-pedido
+ * más cercanos con capacidad (o, sin coordenadas, los más ajustados de su zona), tomados por turnos
+ * de rango hasta fleet.asignacion.lote.maximo-columnas. Con 1.000 pedidos la matriz queda en a lo
+ * sumo 1.000 x 2.000.
+ *
+ * Antes del emparejamiento, los pedidos consolidables del lote se ordenan de mayor a menor peso
+ * y se suman por primer ajuste a los vehículos ya en ruta (first-fit decreasing): los grandes
+ * toman los huecos grandes y los chicos rellenan lo que queda. Solo el resto ocupa repartidores.
+ */
+@Slf4j
+@Component
+public class AsignadorPorLotes {
+
+    private static final double NO_ELEGIBLE = 1e9;
+    private static final double SIN_ASIGNAR = 1e6;
+
+    private record Pendiente(AsignacionRequest request, Consumer<AsignacionResponse> alResolver) {
+    }
+
+    private final AsignacionService asignacionService;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final boolean habilitado;
+    private final int maximoPorLote;
+    private final double penalizacionZonaKm;
+    private final double pesoCapacidad;
+    private final double pesoPrioridad;
+    private final int candidatosPorPedido;
+    private final int maximoColumnas;
+
+    private final ConcurrentLinkedQueue<Pendiente> pendientes = new ConcurrentLinkedQueue<>();
+
+    public AsignadorPorLotes(AsignacionService asignacionService,
+                             IndiceDisponibilidad indiceDisponibilidad,
+                             @Value("${fleet.asignacion.lote.habilitado:false}") boolean habilitado,
+                             @Value("${fleet.asignacion.lote.maximo:1000}") int maximoPorLote,
+                             @Value("${fleet.asignacion.lote.penalizacion-zona-km:30}") double penalizacionZonaKm,
+                             @Value("${fleet.asignacion.lote.peso-capacidad:10}") double pesoCapacidad,
+                             @Value("${fleet.asignacion.lote.peso-prioridad:1000}") double pesoPrioridad,
+                             @Value("${fleet.asignacion.lote.candidatos-por-pedido:5}") int candidatosPorPedido,
+                             @Value("${fleet.asignacion.lote.maximo-columnas:1000}") int maximoColumnas) {
+        this.asignacionService = asignacionService;
+        this.indiceDisponibilidad = indiceDisponibilidad;
+        this.habilitado = habilitado;
+        this.maximoPorLote = maximoPorLote;
+        this.penalizacionZonaKm = penalizacionZonaKm;
+        this.pesoCapacidad = pesoCapacidad;
+        this.pesoPrioridad = pesoPrioridad;
+        this.candidatosPorPedido = candidatosPorPedido;
+        this.maximoColumnas = maximoColumnas;
+    }
+
+    public boolean habilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Deja el pedido para la próxima ventana; el resultado se entrega a alResolver
+     */
+    public void encolar(AsignacionRequest request, Consumer<AsignacionResponse> alResolver) {
+        pendientes.add(new Pendiente(request, alResolver));
+    }
+
+    @Scheduled(fixedDelayString = "${fleet.asignacion.lote.ventana-ms:500}")
+    public void procesarVentana() {
+        if (habilitado) {
+            resolver();
+        }
+    }
+
+    /**
+     * Resuelve lo acumulado, en lotes de hasta fleet.asignacion.lote.maximo pedidos
+     */
+    public void resolver() {
+        while (!pendientes.isEmpty()) {
+            List<Pendiente> lote = new ArrayList<>();
+            Pendiente pendiente;
+            while (lote.size() < maximoPorLote && (pendiente = pendientes.poll()) != null) {
+                lote.add(pendiente);
+            }
+            if (lote.isEmpty()) {
+                return;
+            }
+            resolverLote(lote);
+        }
+    }
+
+    private void resolverLote(List<Pendiente> todos) {
+        long inicio = System.nanoTime();
+        List<Pendiente> lote = consolidar(todos);
+        if (lote.isEmpty()) {
+            return;
+        }
+        int pedidos = lote.size();
+        List<Coordenada> origenes = lote.stream().map(pendiente -> origen(pendiente.request())).toList();
+        List<Candidato> candidatos = columnas(lote, origenes);
+        int repartidores = candidatos.size();
+        int columnas = repartidores + pedidos;
+
+        double[] costos = new double[pedidos * columnas];
+        for (int i = 0; i < pedidos; i++) {
+            AsignacionRequest request = lote.get(i).request();
+            int base = i * columnas;
+            double peso = peso(request);
+            String zona = IndiceDisponibilidad.normalizarZona(request.getCiudadOrigen());
+            Coordenada origen = origenes.get(i);
+            for (int j = 0; j < repartidores; j++) {
+                costos[base + j] = costo(candidatos.get(j), peso, zona, origen);
+            }
+            double sinAsignar = SIN_ASIGNAR + pesoPrioridad * prioridad(request.getPrioridad());
+            for (int j = repartidores; j < columnas; j++) {
+                costos[base + j] = sinAsignar;
+            }
+        }
+
+        int[] elegidos = EmparejamientoMinimoCosto.resolver(costos, pedidos, columnas);
+        log.info("[ASIGNACION-LOTE] {} pedidos x {} repartidores resueltos en {} ms",
+                pedidos, repartidores, (System.nanoTime() - inicio) / 1_000_000);
+
+        for (int i = 0; i < pedidos; i++) {
+            Pendiente pendiente = lote.get(i);
+            int columna = elegidos[i];
+            boolean elegible = columna < repartidores && costos[i * columnas + columna] < NO_ELEGIBLE;
+            try {
+                // Sin repartidor elegible en el lote: el flujo individual da el mismo rechazo de siempre
+                AsignacionResponse respuesta = elegible
+                        ? asignacionService.asignarRepartidorElegido(pendiente.request(), candidatos.get(columna).repartidorId())
+                        : asignacionService.asignarRepartidorYVehiculo(pendiente.request());
+                pendiente.alResolver().accept(respuesta);
+            } catch (RuntimeException e) {
+                log.error("[ASIGNACION-LOTE] Error asignando pedido {}: {}",
+                        pendiente.request().getPedidoId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Unión de los candidatos de cada pedido, por turnos: primero el mejor de cada uno, después
+     * el segundo, ... hasta maximoColumnas. Así un pedido del final del lote no se queda sin
+     * columnas porque los primeros llenaron el tope.
+     */
+    private List<Candidato> columnas(List<Pendiente> lote, List<Coordenada> origenes) {
+        List<List<Candidato>> porPedido = new ArrayList<>(lote.size());
+        for (int i = 0; i < lote.size(); i++) {
+            porPedido.add(candidatosDe(lote.get(i).request(), origenes.get(i)));
+        }
+        Map<UUID, Candidato> union = new LinkedHashMap<>();
+        for (int rango = 0; rango < candidatosPorPedido && union.size() < maximoColumnas; rango++) {
+            for (List<Candidato> propios : porPedido) {
+                if (rango < propios.size()) {
+                    Candidato candidato = propios.get(rango);
+                    union.putIfAbsent(candidato.repartidorId(), candidato);
+                    if (union.size() == maximoColumnas) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(union.values());
+    }
+
+    private List<Candidato> candidatosDe(AsignacionRequest request, Coordenada origen) {
+        double peso = peso(request);
+        if (origen != null && origen.esValida()) {
+            List<Candidato> cercanos = indiceDisponibilidad.cercanos(origen, peso, candidatosPorPedido).stream()
+                    .map(Cercano::candidato)
+                    .toList();
+            if (!cercanos.isEmpty()) {
+                return cercanos;
+            }
+        }
+        return indiceDisponibilidad.ajustadosPorZona(request.getCiudadOrigen(), peso, candidatosPorPedido);
+    }
+
+    private static Coordenada origen(AsignacionRequest request) {
+        return request.getLatitudOrigen() != null && request.getLongitudOrigen() != null
+                ? new Coordenada(request.getLatitudOrigen(), request.getLongitudOrigen())
+                : null;
+    }
+
+    /**
+     * First-fit decreasing sobre los vehículos en ruta
+     * @return los pedidos que no entraron en ninguno
+     */
+    private List<Pendiente> consolidar(List<Pendiente> lote) {
+        List<Pendiente> porPeso = new ArrayList<>(lote);
+        porPeso.sort(Comparator.comparingDouble((Pendiente p) -> peso(p.request())).reversed());
+        Set<Pendiente> consolidados = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Pendiente pendiente : porPeso) {
+            AsignacionRequest request = pendiente.request();
+            // Sin vehículo abierto donde quepa no hace falta abrir una transacción
+            if (!indiceDisponibilidad.admiteCarga(new Paquete(request.getCiudadOrigen(),
+                    request.getModalidadServicio(), request.getTipoEntrega(), peso(request)))) {
+                continue;
+            }
+            Optional<AsignacionResponse> consolidada = Optional.empty();
+            try {
+                consolidada = asignacionService.consolidar(pendiente.request());
+            } catch (RuntimeException e) {
+                log.error("[ASIGNACION-LOTE] Error consolidando pedido {}: {}",
+                        pendiente.request().getPedidoId(), e.getMessage(), e);
+            }
+            if (consolidada.isPresent()) {
+                consolidados.add(pendiente);
+                pendiente.alResolver().accept(consolidada.get());
+            }
+        }
+        if (!consolidados.isEmpty()) {
+            log.info("[ASIGNACION-LOTE] {} de {} pedidos consolidados en vehículos en ruta",
+                    consolidados.size(), lote.size());
+        }
+        // El emparejamiento conserva el orden de llegada
+        return lote.stream().filter(pendiente -> !consolidados.contains(pendiente)).toList();
+    }
+
+    private static double peso(AsignacionRequest request) {
+        return request.getPeso() != null ? request.getPeso() : 0.0;
+    }
+
+    private double costo(Candidato candidato, double peso, String zona, Coordenada origen) {
+        double capacidad = candidato.capacidadCarga();
+        if (capacidad < peso) {
+            return NO_ELEGIBLE;
+        }
+        double holgura = capacidad > 0 ? (capacidad - peso) / capacidad : 0.0;
+        return distancia(candidato, zona, origen) + pesoCapacidad * holgura;
+    }
+
+    private double distancia(Candidato candidato, String zona, Coordenada origen) {
+        if (origen != null && origen.esValida() && candidato.ubicacion() != null) {
+            return origen.distanciaHasta(candidato.ubicacion());
+        }
+        if (candidato.zona().equals(zona)) {
+            return 0.0;
+        }
+        // Sin zona asignada puede trabajar en cualquiera: queda entre la propia y una ajena
+        return candidato.zona().isEmpty() ? penalizacionZonaKm / 2 : penalizacionZonaKm;
+    }
+
+    private static int prioridad(String prioridad) {
+        if (prioridad == null) {
+            return 1;
+        }
+        return switch (prioridad.toUpperCase()) {
+            case "ALTA", "URGENTE" -> 2;
+            case "BAJA" -> 0;
+            default -> 1;
+        };
+    }
+}
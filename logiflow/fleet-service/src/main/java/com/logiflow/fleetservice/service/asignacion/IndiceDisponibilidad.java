@@ -0,0 +1,762 @@
+package com.logiflow.fleetservice.service.asignacion;
+
+import com.logiflow.fleetservice.model.entity.asignacion.Asignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoRepartidor;
+import com.logiflow.fleetservice.model.entity.enums.TipoVehiculo;
+import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
+import com.logiflow.fleetservice.repository.AsignacionRepository;
+import com.logiflow.fleetservice.repository.RepartidorRepository;
+import com.logiflow.fleetservice.service.asignacion.RegistroAsignaciones.AsignacionActiva;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.logiflow.fleetservice.service.asignacion.Transacciones.alConfirmar;
+
+/**
+ * Índice en memoria de repartidores asignables (DISPONIBLE, activos, con vehículo ACTIVO)
+ *
+ * - Agrupados por zona asignada y tipo de vehículo; dentro de cada grupo, por capacidad de
+ *   carga (TreeMap), así el vehículo más ajustado al peso sale con un ceiling en O(log n).
+ * - Los que tienen ubicación conocida están además en una grilla uniforme de celdas
+ *   (fleet.asignacion.indice.celda-grados): para un pedido con coordenadas se recorren
+ *   anillos de celdas alrededor del origen hasta tener los k más cercanos con capacidad.
+ * - Cada ficha guarda nombre y placa: la selección no toca la base de datos.
+ * - Se carga al arrancar y se actualiza con cada cambio de repartidor o vehículo al confirmar
+ *   la transacción que lo escribió; una recarga periódica incluye lo escrito por otras instancias.
+ * - El índice solo propone: AsignacionService confirma cada candidato con un UPDATE condicional
+ *   y, si la base ya no lo tiene disponible, lo reindexa y prueba el siguiente.
+ * - Consolidación: los vehículos EN_RUTA guardan su capacidad restante y la zona y modalidad del
+ *   viaje; un pedido compatible entra en el primero (en orden de salida) donde quepa, antes de
+ *   ocupar otro repartidor. Los tipos de entrega dedicados (EXPRESS) siempre van solos.
+ */
+@Slf4j
+@Component
+public class IndiceDisponibilidad {
+
+    private static final String SIN_ZONA = "";
+    private static final double KM_POR_GRADO = 111.32;
+    private static final double HOLGURA_KG = 1e-6;
+
+    /**
+     * Repartidor y vehículo propuestos para una asignación
+     */
+    public record Candidato(UUID repartidorId, String repartidorNombre, String zona,
+                            UUID vehiculoId, String vehiculoPlaca, TipoVehiculo tipoVehiculo,
+                            double capacidadCarga, Coordenada ubicacion) {
+    }
+
+    /**
+     * Candidato con su distancia al punto de recogida
+     */
+    public record Cercano(Candidato candidato, double distanciaKm) {
+    }
+
+    record FichaRepartidor(UUID id, String nombreCompleto, String zona, boolean disponible, UUID vehiculoId,
+                           Coordenada ubicacion) {
+
+        FichaRepartidor conDisponible(boolean valor) {
+            return new FichaRepartidor(id, nombreCompleto, zona, valor, vehiculoId, ubicacion);
+        }
+
+        FichaRepartidor conUbicacion(Coordenada valor) {
+            return new FichaRepartidor(id, nombreCompleto, zona, disponible, vehiculoId, valor);
+        }
+    }
+
+    record FichaVehiculo(UUID id, String placa, TipoVehiculo tipo, Double capacidadCarga, boolean disponible) {
+    }
+
+    private record Clave(String zona, TipoVehiculo tipo) {
+    }
+
+    /**
+     * Pedido a cargar: zona de origen, modalidad de servicio (URBANA_RAPIDA, ...), tipo de entrega y peso
+     */
+    public record Paquete(String zona, String modalidad, String tipoEntrega, double peso) {
+    }
+
+    // Vehículo en ruta: comparte viaje con pedidos de la misma zona y modalidad
+    private record ClaveCarga(String zona, String modalidad) {
+    }
+
+    private record Carga(Candidato candidato, ClaveCarga clave, double restante, int pedidos) {
+    }
+
+    private final RepartidorRepository repartidorRepository;
+    private final AsignacionRepository asignacionRepository;
+    private final double celdaGrados;
+    private final int cercanosK;
+    private final double radioMaximoKm;
+    private final double toleranciaKm;
+    private final boolean consolidacionHabilitada;
+    private final int maximoPedidos;
+    private final Set<String> tiposDedicados;
+
+    private final Map<UUID, FichaRepartidor> repartidores = new HashMap<>();
+    private final Map<UUID, FichaVehiculo> vehiculos = new HashMap<>();
+    private final Map<UUID, Set<UUID>> repartidoresPorVehiculo = new HashMap<>();
+    private final Map<UUID, Candidato> indexados = new HashMap<>();
+    private final Map<Clave, TreeMap<Double, LinkedHashSet<UUID>>> porCapacidad = new HashMap<>();
+    private final Map<Long, Set<UUID>> porCelda = new HashMap<>();
+    private final Map<UUID, Carga> cargas = new HashMap<>();
+    private final Map<ClaveCarga, LinkedHashSet<UUID>> abiertas = new HashMap<>();
+
+    public IndiceDisponibilidad(RepartidorRepository repartidorRepository,
+                                AsignacionRepository asignacionRepository,
+                                @Value("${fleet.asignacion.indice.celda-grados:0.02}") double celdaGrados,
+                                @Value("${fleet.asignacion.cercanos.k:5}") int cercanosK,
+                                @Value("${fleet.asignacion.cercanos.radio-maximo-km:50}") double radioMaximoKm,
+                                @Value("${fleet.asignacion.cercanos.tolerancia-km:0.5}") double toleranciaKm,
+                                @Value("${fleet.asignacion.consolidacion.habilitada:true}") boolean consolidacionHabilitada,
+                                @Value("${fleet.asignacion.consolidacion.maximo-pedidos:6}") int maximoPedidos,
+                                @Value("${fleet.asignacion.consolidacion.tipos-dedicados:EXPRESS}") List<String> tiposDedicados) {
+        this.repartidorRepository = repartidorRepository;
+        this.asignacionRepository = asignacionRepository;
+        this.celdaGrados = celdaGrados;
+        this.cercanosK = cercanosK;
+        this.radioMaximoKm = radioMaximoKm;
+        this.toleranciaKm = Math.max(toleranciaKm, 0.001);
+        this.consolidacionHabilitada = consolidacionHabilitada;
+        this.maximoPedidos = maximoPedidos;
+        this.tiposDedicados = tiposDedicados.stream()
+                .map(IndiceDisponibilidad::normalizarTipo)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @PostConstruct
+    void inicializar() {
+        recargar();
+    }
+
+    /**
+     * Reconstruye el índice con una consulta de repartidores activos con su vehículo y otra de
+     * asignaciones activas (la carga de cada vehículo en ruta)
+     */
+    @Scheduled(fixedDelayString = "${fleet.asignacion.indice.recarga-ms:60000}",
+            initialDelayString = "${fleet.asignacion.indice.recarga-ms:60000}")
+    public void recargar() {
+        try {
+            List<Repartidor> activos = repartidorRepository.findActivosConVehiculo();
+            List<Asignacion> enCurso = consolidacionHabilitada
+                    ? asignacionRepository.findByEstado(EstadoAsignacion.ACTIVA)
+                    : List.of();
+            synchronized (this) {
+                repartidores.clear();
+                vehiculos.clear();
+                repartidoresPorVehiculo.clear();
+                indexados.clear();
+                porCapacidad.clear();
+                porCelda.clear();
+                cargas.clear();
+                abiertas.clear();
+                for (Repartidor repartidor : activos) {
+                    aplicar(ficha(repartidor), ficha(repartidor.getVehiculoAsignado()));
+                }
+                reconstruirCargas(enCurso);
+            }
+            log.info("[INDICE-DISPONIBILIDAD] Recargado: {} repartidores activos, {} asignables",
+                    activos.size(), disponibles());
+        } catch (RuntimeException e) {
+            log.error("[INDICE-DISPONIBILIDAD] No se pudo recargar el índice: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Refleja el estado de un repartidor (y de su vehículo) al confirmar la transacción en curso.
+     * Debe llamarse dentro de la transacción: los datos se copian en el momento de la llamada.
+     */
+    public void registrar(Repartidor repartidor) {
+        FichaRepartidor fichaRepartidor = ficha(repartidor);
+        FichaVehiculo fichaVehiculo = ficha(repartidor.getVehiculoAsignado());
+        alConfirmar(() -> {
+            synchronized (this) {
+                aplicar(fichaRepartidor, fichaVehiculo);
+            }
+        });
+    }
+
+    /**
+     * Refleja el estado de un vehículo en todos los repartidores que lo tienen asignado
+     */
+    public void registrarVehiculo(VehiculoEntrega vehiculo) {
+        FichaVehiculo fichaVehiculo = ficha(vehiculo);
+        alConfirmar(() -> {
+            synchronized (this) {
+                aplicarVehiculo(fichaVehiculo);
+            }
+        });
+    }
+
+    /**
+     * Al confirmar la transacción descuenta los pedidos cerrados de la carga de su vehículo;
+     * el repartidor vuelve a ser asignable cuando no le queda ninguno en curso
+     */
+    public void liberar(Collection<AsignacionActiva> cerradas) {
+        List<AsignacionActiva> copia = List.copyOf(cerradas);
+        alConfirmar(() -> {
+            synchronized (this) {
+                for (AsignacionActiva cerrada : copia) {
+                    UUID repartidorId = cerrada.repartidorId();
+                    if (cargas.containsKey(repartidorId)) {
+                        ajustarCarga(repartidorId, -cerrada.peso(), -1);
+                        if (cargas.get(repartidorId).pedidos() > 0) {
+                            continue;
+                        }
+                        cerrarCarga(repartidorId);
+                    }
+                    if (repartidores.computeIfPresent(repartidorId, (id, ficha) -> ficha.conDisponible(true)) != null) {
+                        indexar(repartidorId);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Los pedidos de tipo dedicado (EXPRESS) no comparten vehículo
+     */
+    public boolean consolidable(Paquete paquete) {
+        return consolidacionHabilitada && maximoPedidos > 1
+                && !tiposDedicados.contains(normalizarTipo(paquete.tipoEntrega()));
+    }
+
+    /**
+     * Primer ajuste: el primer vehículo en ruta (en orden de salida) con la misma zona y modalidad,
+     * lugar para otro pedido y capacidad restante suficiente. La capacidad queda descontada en el
+     * momento; si la transacción se revierte, se devuelve.
+     */
+    public synchronized Optional<Candidato> reservarCarga(Paquete paquete) {
+        if (!consolidable(paquete)) {
+            return Optional.empty();
+        }
+        LinkedHashSet<UUID> enRuta = abiertas.get(claveCarga(paquete));
+        if (enRuta == null) {
+            return Optional.empty();
+        }
+        for (UUID repartidorId : enRuta) {
+            Carga carga = cargas.get(repartidorId);
+            if (carga.restante() + HOLGURA_KG >= paquete.peso()) {
+                ajustarCarga(repartidorId, paquete.peso(), 1);
+                devolverSiSeRevierte(repartidorId, paquete.peso());
+                return Optional.of(carga.candidato());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Si hay algún vehículo en ruta donde el pedido cabría ahora (no reserva nada)
+     */
+    public synchronized boolean admiteCarga(Paquete paquete) {
+        LinkedHashSet<UUID> enRuta = consolidable(paquete) ? abiertas.get(claveCarga(paquete)) : null;
+        if (enRuta == null) {
+            return false;
+        }
+        for (UUID repartidorId : enRuta) {
+            if (cargas.get(repartidorId).restante() + HOLGURA_KG >= paquete.peso()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * El repartidor recién ocupado abre un viaje que otros pedidos compatibles pueden compartir
+     */
+    public void abrirCarga(Candidato candidato, Paquete paquete) {
+        if (!consolidable(paquete)) {
+            return;
+        }
+        ClaveCarga clave = claveCarga(paquete);
+        alConfirmar(() -> {
+            synchronized (this) {
+                cargas.put(candidato.repartidorId(),
+                        new Carga(candidato, clave, candidato.capacidadCarga() - paquete.peso(), 1));
+                ajustarCarga(candidato.repartidorId(), 0.0, 0);
+            }
+        });
+    }
+
+    /**
+     * La base rechazó la consolidación (otra instancia cambió al repartidor): deja de ofrecerlo
+     * hasta la próxima recarga
+     */
+    public synchronized void descartarCarga(UUID repartidorId) {
+        cerrarCarga(repartidorId);
+    }
+
+    /**
+     * Capacidad que le queda al vehículo de un repartidor en ruta, si lleva pedidos consolidables
+     */
+    public synchronized OptionalDouble capacidadRestante(UUID repartidorId) {
+        Carga carga = cargas.get(repartidorId);
+        return carga == null ? OptionalDouble.empty() : OptionalDouble.of(carga.restante());
+    }
+
+    /**
+     * Mueve al repartidor de celda al confirmar la transacción; no relee la base de datos
+     */
+    public void actualizarUbicacion(UUID repartidorId, Coordenada ubicacion) {
+        Coordenada copia = copiar(ubicacion);
+        alConfirmar(() -> {
+            synchronized (this) {
+                FichaRepartidor ficha = repartidores.get(repartidorId);
+                if (ficha == null) {
+                    return;
+                }
+                repartidores.put(repartidorId, ficha.conUbicacion(copia));
+                if (indexados.containsKey(repartidorId)) {
+                    quitar(repartidorId);
+                    indexar(repartidorId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Con coordenadas de recogida toma el más cercano entre los k más próximos con capacidad;
+     * sin coordenadas, o si no hay nadie ubicado dentro del radio máximo, aplica el orden por zona
+     */
+    public synchronized Optional<Candidato> reservar(String zona, Coordenada origen, double peso) {
+        Coordenada punto = copiar(origen);
+        if (punto != null) {
+            List<Cercano> cercanos = cercanos(punto, peso, cercanosK);
+            if (!cercanos.isEmpty()) {
+                return Optional.of(tomar(cercanos.get(0).candidato()));
+            }
+        }
+        return reservar(zona, peso);
+    }
+
+    /**
+     * Los k candidatos con capacidad suficiente más cercanos al origen, dentro del radio máximo.
+     * Ordenados por distancia; a igual distancia (dentro de la tolerancia) primero el vehículo
+     * de menor capacidad, para no gastar los grandes en cargas chicas.
+     */
+    public synchronized List<Cercano> cercanos(Coordenada origen, double peso, int k) {
+        List<Cercano> encontrados = new ArrayList<>();
+        if (k <= 0 || porCelda.isEmpty()) {
+            return encontrados;
+        }
+        int filaOrigen = celda(origen.getLatitud());
+        int columnaOrigen = celda(origen.getLongitud());
+        // Un grado de longitud mide menos al alejarse del ecuador: cota inferior conservadora
+        double kmPorCelda = celdaGrados * KM_POR_GRADO
+                * Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.0, Math.abs(origen.getLatitud()) + 1.0))));
+        int anillos = (int) Math.ceil(radioMaximoKm / kmPorCelda) + 1;
+        double peorAceptado = Double.MAX_VALUE;
+        for (int anillo = 0; anillo <= anillos; anillo++) {
+            // Todo lo que esté en este anillo o más afuera queda a más de (anillo - 1) celdas
+            double cotaAnillo = Math.max(0, anillo - 1) * kmPorCelda;
+            if (cotaAnillo > radioMaximoKm || (encontrados.size() >= k && cotaAnillo > peorAceptado + toleranciaKm)) {
+                break;
+            }
+            for (int fila = filaOrigen - anillo; fila <= filaOrigen + anillo; fila++) {
+                boolean borde = fila == filaOrigen - anillo || fila == filaOrigen + anillo;
+                int paso = borde ? 1 : Math.max(1, 2 * anillo);
+                for (int columna = columnaOrigen - anillo; columna <= columnaOrigen + anillo; columna += paso) {
+                    Set<UUID> enCelda = porCelda.get(claveCelda(fila, columna));
+                    if (enCelda == null) {
+                        continue;
+                    }
+                    for (UUID repartidorId : enCelda) {
+                        Candidato candidato = indexados.get(repartidorId);
+                        if (candidato.capacidadCarga() < peso) {
+                            continue;
+                        }
+                        double distancia = origen.distanciaHasta(candidato.ubicacion());
+                        if (distancia <= radioMaximoKm) {
+                            encontrados.add(new Cercano(candidato, distancia));
+                        }
+                    }
+                }
+            }
+            if (encontrados.size() >= k) {
+                encontrados.sort(Comparator.comparingDouble(Cercano::distanciaKm));
+                peorAceptado = encontrados.get(k - 1).distanciaKm();
+            }
+        }
+        encontrados.sort(Comparator.comparingDouble(Cercano::distanciaKm));
+        List<Cercano> primeros = new ArrayList<>(encontrados.subList(0, Math.min(k, encontrados.size())));
+        primeros.sort(Comparator
+                .comparingLong((Cercano c) -> Math.round(c.distanciaKm() / toleranciaKm))
+                .thenComparingDouble(c -> c.candidato().capacidadCarga())
+                .thenComparingDouble(Cercano::distanciaKm));
+        return primeros;
+    }
+
+    /**
+     * Toma el candidato de menor capacidad suficiente para el peso, por orden de zona:
+     * la del pedido, repartidores sin zona y, si no hay, cualquier otra.
+     * El candidato sale del índice para que otra asignación concurrente no lo proponga.
+     */
+    public synchronized Optional<Candidato> reservar(String zona, double peso) {
+        String zonaPedido = normalizarZona(zona);
+        Candidato candidato = mejorEnZona(zonaPedido, peso);
+        if (candidato == null && !SIN_ZONA.equals(zonaPedido)) {
+            candidato = mejorEnZona(SIN_ZONA, peso);
+        }
+        if (candidato == null) {
+            candidato = mejorEnOtrasZonas(zonaPedido, peso);
+        }
+        if (candidato == null) {
+            return Optional.empty();
+        }
+        return Optional.of(tomar(candidato));
+    }
+
+    /**
+     * Hasta k candidatos con capacidad suficiente, de menor a mayor capacidad, en el mismo orden
+     * de zonas que reservar(zona, peso): la del pedido, sin zona y, si faltan, cualquier otra.
+     * No reserva nada (candidatos de un pedido sin coordenadas para el optimizador de lotes).
+     */
+    public synchronized List<Candidato> ajustadosPorZona(String zona, double peso, int k) {
+        String zonaPedido = normalizarZona(zona);
+        List<Candidato> elegidos = new ArrayList<>();
+        agregarAjustados(elegidos, grupo -> grupo.zona().equals(zonaPedido), peso, k);
+        if (!SIN_ZONA.equals(zonaPedido)) {
+            agregarAjustados(elegidos, grupo -> grupo.zona().equals(SIN_ZONA), peso, k);
+        }
+        agregarAjustados(elegidos,
+                grupo -> !grupo.zona().equals(zonaPedido) && !grupo.zona().equals(SIN_ZONA), peso, k);
+        return elegidos;
+    }
+
+    /**
+     * Toma un repartidor concreto (elegido por el optimizador de lotes) si sigue en el índice
+     */
+    public synchronized Optional<Candidato> reservar(UUID repartidorId) {
+        Candidato candidato = indexados.get(repartidorId);
+        return candidato == null ? Optional.empty() : Optional.of(tomar(candidato));
+    }
+
+    /**
+     * Copia de los candidatos asignables en este momento
+     */
+    public synchronized List<Candidato> candidatos() {
+        return new ArrayList<>(indexados.values());
+    }
+
+    /**
+     * La reserva quedó escrita en base de datos; si la transacción se revierte el candidato
+     * vuelve al índice
+     */
+    public void confirmarReserva(Candidato candidato) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    restaurar(candidato);
+                }
+            }
+        });
+    }
+
+    public synchronized int disponibles() {
+        return indexados.size();
+    }
+
+    // ======= MÉTODOS AUXILIARES =======
+
+    // El candidato sale del índice para que otra asignación concurrente no lo proponga
+    private Candidato tomar(Candidato candidato) {
+        quitar(candidato.repartidorId());
+        repartidores.computeIfPresent(candidato.repartidorId(), (id, ficha) -> ficha.conDisponible(false));
+        return candidato;
+    }
+
+    private synchronized void restaurar(Candidato candidato) {
+        repartidores.computeIfPresent(candidato.repartidorId(), (id, ficha) -> ficha.conDisponible(true));
+        indexar(candidato.repartidorId());
+    }
+
+    private Candidato mejorEnZona(String zona, double peso) {
+        Candidato mejor = null;
+        for (TipoVehiculo tipo : TipoVehiculo.values()) {
+            mejor = masAjustado(mejor, porCapacidad.get(new Clave(zona, tipo)), peso);
+        }
+        return mejor;
+    }
+
+    private Candidato mejorEnOtrasZonas(String zonaPedido, double peso) {
+        Candidato mejor = null;
+        for (Map.Entry<Clave, TreeMap<Double, LinkedHashSet<UUID>>> grupo : porCapacidad.entrySet()) {
+            String zona = grupo.getKey().zona();
+            if (!zona.equals(zonaPedido) && !zona.equals(SIN_ZONA)) {
+                mejor = masAjustado(mejor, grupo.getValue(), peso);
+            }
+        }
+        return mejor;
+    }
+
+    // Completa hasta k con los de menor capacidad suficiente de los grupos que cumplen el filtro
+    private void agregarAjustados(List<Candidato> elegidos, Predicate<Clave> filtro, double peso, int k) {
+        int faltan = k - elegidos.size();
+        if (faltan <= 0) {
+            return;
+        }
+        List<Candidato> nivel = new ArrayList<>();
+        for (Map.Entry<Clave, TreeMap<Double, LinkedHashSet<UUID>>> grupo : porCapacidad.entrySet()) {
+            if (!filtro.test(grupo.getKey())) {
+                continue;
+            }
+            grupo.getValue().tailMap(peso, true).values().stream()
+                    .flatMap(Set::stream)
+                    .limit(faltan)
+                    .map(indexados::get)
+                    .forEach(nivel::add);
+        }
+        nivel.sort(Comparator.comparingDouble(Candidato::capacidadCarga));
+        elegidos.addAll(nivel.subList(0, Math.min(faltan, nivel.size())));
+    }
+
+    private Candidato masAjustado(Candidato actual, TreeMap<Double, LinkedHashSet<UUID>> grupo, double peso) {
+        if (grupo == null) {
+            return actual;
+        }
+        Map.Entry<Double, LinkedHashSet<UUID>> ajuste = grupo.ceilingEntry(peso);
+        if (ajuste == null || (actual != null && actual.capacidadCarga() <= ajuste.getKey())) {
+            return actual;
+        }
+        return indexados.get(ajuste.getValue().iterator().next());
+    }
+
+    private void aplicar(FichaRepartidor repartidor, FichaVehiculo vehiculo) {
+        if (vehiculo != null) {
+            vehiculos.put(vehiculo.id(), vehiculo);
+        }
+        if (repartidor.disponible()) {
+            // Volvió a DISPONIBLE por otro camino: ya no tiene viaje en curso
+            cerrarCarga(repartidor.id());
+        }
+        FichaRepartidor anterior = repartidores.put(repartidor.id(), repartidor);
+        if (anterior != null && anterior.vehiculoId() != null && !anterior.vehiculoId().equals(repartidor.vehiculoId())) {
+            Set<UUID> delVehiculo = repartidoresPorVehiculo.get(anterior.vehiculoId());
+            if (delVehiculo != null) {
+                delVehiculo.remove(repartidor.id());
+            }
+        }
+        if (repartidor.vehiculoId() != null) {
+            repartidoresPorVehiculo.computeIfAbsent(repartidor.vehiculoId(), id -> new HashSet<>()).add(repartidor.id());
+        }
+        quitar(repartidor.id());
+        indexar(repartidor.id());
+    }
+
+    private void aplicarVehiculo(FichaVehiculo vehiculo) {
+        vehiculos.put(vehiculo.id(), vehiculo);
+        for (UUID repartidorId : repartidoresPorVehiculo.getOrDefault(vehiculo.id(), Set.of())) {
+            quitar(repartidorId);
+            indexar(repartidorId);
+            if (!vehiculo.disponible()) {
+                cerrarCarga(repartidorId);
+            }
+        }
+    }
+
+    // Agrupa las asignaciones activas por repartidor en orden de asignación
+    private void reconstruirCargas(List<Asignacion> enCurso) {
+        Map<UUID, List<Asignacion>> porRepartidor = enCurso.stream()
+                .sorted(Comparator.comparing(Asignacion::getFechaAsignacion,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.groupingBy(Asignacion::getRepartidorId, LinkedHashMap::new, Collectors.toList()));
+        porRepartidor.forEach((repartidorId, filas) -> {
+            FichaRepartidor repartidor = repartidores.get(repartidorId);
+            FichaVehiculo vehiculo = repartidor != null && repartidor.vehiculoId() != null
+                    ? vehiculos.get(repartidor.vehiculoId())
+                    : null;
+            if (repartidor == null || repartidor.disponible() || vehiculo == null || !vehiculo.disponible()
+                    || vehiculo.capacidadCarga() == null) {
+                return;
+            }
+            List<Paquete> paquetes = filas.stream().map(IndiceDisponibilidad::paquete).toList();
+            if (!paquetes.stream().allMatch(this::consolidable)) {
+                return;
+            }
+            double carga = paquetes.stream().mapToDouble(Paquete::peso).sum();
+            cargas.put(repartidorId, new Carga(nuevoCandidato(repartidor, vehiculo), claveCarga(paquetes.get(0)),
+                    vehiculo.capacidadCarga() - carga, paquetes.size()));
+            ajustarCarga(repartidorId, 0.0, 0);
+        });
+    }
+
+    // Aplica el cambio de carga y deja al vehículo en la lista de abiertos solo si admite otro pedido
+    private void ajustarCarga(UUID repartidorId, double peso, int pedidos) {
+        Carga carga = cargas.get(repartidorId);
+        if (carga == null) {
+            return;
+        }
+        Carga nueva = new Carga(carga.candidato(), carga.clave(), carga.restante() - peso, carga.pedidos() + pedidos);
+        cargas.put(repartidorId, nueva);
+        if (nueva.pedidos() < maximoPedidos && nueva.restante() > HOLGURA_KG) {
+            abiertas.computeIfAbsent(nueva.clave(), clave -> new LinkedHashSet<>()).add(repartidorId);
+        } else {
+            quitarAbierta(nueva.clave(), repartidorId);
+        }
+    }
+
+    private void cerrarCarga(UUID repartidorId) {
+        Carga carga = cargas.remove(repartidorId);
+        if (carga != null) {
+            quitarAbierta(carga.clave(), repartidorId);
+        }
+    }
+
+    private void quitarAbierta(ClaveCarga clave, UUID repartidorId) {
+        LinkedHashSet<UUID> grupo = abiertas.get(clave);
+        if (grupo != null) {
+            grupo.remove(repartidorId);
+            if (grupo.isEmpty()) {
+                abiertas.remove(clave);
+            }
+        }
+    }
+
+    private void devolverSiSeRevierte(UUID repartidorId, double peso) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    synchronized (IndiceDisponibilidad.this) {
+                        ajustarCarga(repartidorId, -peso, -1);
+                    }
+                }
+            }
+        });
+    }
+
+    private void indexar(UUID repartidorId) {
+        FichaRepartidor repartidor = repartidores.get(repartidorId);
+        if (repartidor == null || !repartidor.disponible() || repartidor.vehiculoId() == null
+                || indexados.containsKey(repartidorId)) {
+            return;
+        }
+        FichaVehiculo vehiculo = vehiculos.get(repartidor.vehiculoId());
+        if (vehiculo == null || !vehiculo.disponible() || vehiculo.capacidadCarga() == null) {
+            return;
+        }
+        Candidato candidato = nuevoCandidato(repartidor, vehiculo);
+        indexados.put(repartidorId, candidato);
+        porCapacidad.computeIfAbsent(new Clave(repartidor.zona(), vehiculo.tipo()), clave -> new TreeMap<>())
+                .computeIfAbsent(vehiculo.capacidadCarga(), capacidad -> new LinkedHashSet<>())
+                .add(repartidorId);
+        if (candidato.ubicacion() != null) {
+            porCelda.computeIfAbsent(claveCelda(candidato.ubicacion()), clave -> new HashSet<>()).add(repartidorId);
+        }
+    }
+
+    private void quitar(UUID repartidorId) {
+        Candidato candidato = indexados.remove(repartidorId);
+        if (candidato == null) {
+            return;
+        }
+        Clave clave = new Clave(candidato.zona(), candidato.tipoVehiculo());
+        TreeMap<Double, LinkedHashSet<UUID>> grupo = porCapacidad.get(clave);
+        LinkedHashSet<UUID> mismos = grupo.get(candidato.capacidadCarga());
+        mismos.remove(repartidorId);
+        if (mismos.isEmpty()) {
+            grupo.remove(candidato.capacidadCarga());
+            if (grupo.isEmpty()) {
+                porCapacidad.remove(clave);
+            }
+        }
+        if (candidato.ubicacion() != null) {
+            long celda = claveCelda(candidato.ubicacion());
+            Set<UUID> enCelda = porCelda.get(celda);
+            enCelda.remove(repartidorId);
+            if (enCelda.isEmpty()) {
+                porCelda.remove(celda);
+            }
+        }
+    }
+
+    private static Candidato nuevoCandidato(FichaRepartidor repartidor, FichaVehiculo vehiculo) {
+        return new Candidato(repartidor.id(), repartidor.nombreCompleto(), repartidor.zona(),
+                vehiculo.id(), vehiculo.placa(), vehiculo.tipo(), vehiculo.capacidadCarga(), repartidor.ubicacion());
+    }
+
+    private static ClaveCarga claveCarga(Paquete paquete) {
+        return new ClaveCarga(normalizarZona(paquete.zona()), normalizarTipo(paquete.modalidad()));
+    }
+
+    private static Paquete paquete(Asignacion fila) {
+        return new Paquete(fila.getZonaOrigen(), fila.getModalidadServicio(), fila.getTipoEntrega(),
+                fila.getPeso() != null ? fila.getPeso() : 0.0);
+    }
+
+    private int celda(double grados) {
+        return (int) Math.floor(grados / celdaGrados);
+    }
+
+    private long claveCelda(Coordenada ubicacion) {
+        return claveCelda(celda(ubicacion.getLatitud()), celda(ubicacion.getLongitud()));
+    }
+
+    private static long claveCelda(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xFFFFFFFFL);
+    }
+
+    private static FichaRepartidor ficha(Repartidor repartidor) {
+        VehiculoEntrega vehiculo = repartidor.getVehiculoAsignado();
+        return new FichaRepartidor(repartidor.getId(), repartidor.getNombreCompleto(),
+                normalizarZona(repartidor.getZonaAsignada()),
+                Boolean.TRUE.equals(repartidor.getActivo()) && repartidor.getEstado() == EstadoRepartidor.DISPONIBLE,
+                vehiculo != null ? vehiculo.getId() : null, copiar(repartidor.getUbicacionActual()));
+    }
+
+    // Copia inmutable de hecho: la entidad puede seguir cambiando después de indexarla
+    private static Coordenada copiar(Coordenada ubicacion) {
+        return ubicacion != null && ubicacion.esValida()
+                ? new Coordenada(ubicacion.getLatitud(), ubicacion.getLongitud())
+                : null;
+    }
+
+    private static FichaVehiculo ficha(VehiculoEntrega vehiculo) {
+        if (vehiculo == null) {
+            return null;
+        }
+        return new FichaVehiculo(vehiculo.getId(), vehiculo.getPlaca(), vehiculo.getTipo(),
+                vehiculo.getCapacidadCarga(), vehiculo.estaDisponible());
+    }
+
+    private static String normalizarTipo(String tipo) {
+        return tipo == null ? "" : tipo.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // Misma regla que Repartidor.puedeTrabajarEnZona: sin distinguir mayúsculas
+    static String normalizarZona(String zona) {
+        return zona == null || zona.isBlank() ? SIN_ZONA : zona.trim().toLowerCase(Locale.ROOT);
+    }
+}
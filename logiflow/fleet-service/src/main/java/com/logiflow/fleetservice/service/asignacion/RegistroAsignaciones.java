@@ -0,0 +1,77 @@
+package com.logiflow.fleetservice.service.asignacion;
+
+import com.logiflow.fleetservice.model.entity.asignacion.Asignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.repository.AsignacionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.logiflow.fleetservice.service.asignacion.Transacciones.alConfirmar;
+
+/**
+ * Copia en memoria de las asignaciones ACTIVAS de la tabla asignaciones, por pedido.
+ * Permite resolver en O(1) qué repartidor libera un pedido y descartar eventos repetidos
+ * sin consultar la base; los cambios se aplican al confirmar la transacción que los escribió.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistroAsignaciones {
+
+    /**
+     * Repartidor y vehículo ocupados por un pedido, con el peso que carga en el vehículo
+     */
+    public record AsignacionActiva(String pedidoId, UUID repartidorId, UUID vehiculoId, double peso) {
+    }
+
+    private final AsignacionRepository asignacionRepository;
+
+    private final Map<String, AsignacionActiva> activas = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void inicializar() {
+        recargar();
+    }
+
+    /**
+     * Vuelve a leer las asignaciones activas; reemplaza el contenido sin vaciarlo antes
+     */
+    public void recargar() {
+        Map<String, AsignacionActiva> nuevas = new HashMap<>();
+        for (Asignacion fila : asignacionRepository.findByEstado(EstadoAsignacion.ACTIVA)) {
+            nuevas.put(fila.getPedidoId(),
+                    new AsignacionActiva(fila.getPedidoId(), fila.getRepartidorId(), fila.getVehiculoId(),
+                            fila.getPeso() != null ? fila.getPeso() : 0.0));
+        }
+        activas.keySet().retainAll(nuevas.keySet());
+        activas.putAll(nuevas);
+        log.info("[ASIGNACIONES] {} asignaciones activas cargadas", activas.size());
+    }
+
+    public Optional<AsignacionActiva> buscar(String pedidoId) {
+        return Optional.ofNullable(activas.get(pedidoId));
+    }
+
+    public void registrar(AsignacionActiva asignacion) {
+        alConfirmar(() -> activas.put(asignacion.pedidoId(), asignacion));
+    }
+
+    public void quitar(Collection<String> pedidoIds) {
+        List<String> ids = List.copyOf(pedidoIds);
+        alConfirmar(() -> ids.forEach(activas::remove));
+    }
+
+    public int activas() {
+        return activas.size();
+    }
+}
@@ -5,13 +5,20 @@ import com.logiflow.fleetservice.dto.response.AsignacionResponse;
 import com.logiflow.fleetservice.event.AsignacionCompletadaEvent;
 import com.logiflow.fleetservice.event.PedidoCreadoEvent;
 import com.logiflow.fleetservice.event.PedidoEstadoActualizadoEvent;
+import com.logiflow.fleetservice.event.ReintentarAsignacionEvent;
+import com.logiflow.fleetservice.event.ReintentoAsignacionLoteEvent;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
 import com.logiflow.fleetservice.service.AsignacionService;
+import com.logiflow.fleetservice.service.asignacion.AsignadorPorLotes;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -30,12 +37,16 @@ public class PedidoEventListener {
 
     private final AsignacionService asignacionService;
     private final FleetEventPublisher fleetEventPublisher;
+    private final AsignadorPorLotes asignadorPorLotes;
 
     /**
      * Consume evento cuando se crea un nuevo pedido.
      * FleetService inicia el proceso de asignación de vehículo/repartidor.
+     * Admite varios consumidores: el repartidor se toma con un UPDATE condicional,
+     * así dos asignaciones simultáneas nunca ocupan al mismo.
      */
-    @RabbitListener(queues = "${rabbitmq.queue.pedido-creado}")
+    @RabbitListener(queues = "${rabbitmq.queue.pedido-creado}",
+            concurrency = "${fleet.asignacion.consumidores:1-8}")
     public void handlePedidoCreado(PedidoCreadoEvent event) {
         try {
             log.info("=== EVENTO RECIBIDO: pedido.creado ===");
@@ -58,42 +69,17 @@ public class PedidoEventListener {
                     .ciudadOrigen(event.getCiudadOrigen())
                     .ciudadDestino(event.getCiudadDestino())
                     .peso(event.getPeso())
+                    .latitudOrigen(event.getLatitudOrigen())
+                    .longitudOrigen(event.getLongitudOrigen())
+                    .latitudDestino(event.getLatitudDestino())
+                    .longitudDestino(event.getLongitudDestino())
                     .build();
             
-            AsignacionResponse asignacion = asignacionService.asignarRepartidorYVehiculo(request);
-            
-            if ("ASIGNADO".equals(asignacion.getEstado())) {
-                log.info("[ASIGNACION-AUTO] Recursos encontrados - Repartidor: {} | Vehículo: {}", 
-                        asignacion.getRepartidorNombre(), asignacion.getVehiculoPlaca());
-                
-                // PUBLICAR EVENTO EN LUGAR DE LLAMAR REST
-                log.info("[EVENT-PUBLISH] Publicando evento de asignación completada a RabbitMQ");
-                
-                AsignacionCompletadaEvent asignacionEvent = AsignacionCompletadaEvent.builder()
-                        .messageId(UUID.randomUUID().toString())
-                        .timestamp(LocalDateTime.now())
-                        .pedidoId(event.getPedidoId())
-                        .repartidorId(asignacion.getRepartidorId().toString())
-                        .vehiculoId(asignacion.getVehiculoId().toString())
-                        .repartidorNombre(asignacion.getRepartidorNombre())
-                        .vehiculoPlaca(asignacion.getVehiculoPlaca())
-                        .estadoPedido("ASIGNADO")
-                        .servicioOrigen("FLEET_SERVICE")
-                        .motivoAsignacion("ASIGNACION_AUTOMATICA")
-                        .build();
-                
-                try {
-                    fleetEventPublisher.publishAsignacionCompletada(asignacionEvent);
-                    log.info("[CONFIRMACION] Evento de asignación publicado exitosamente - Pedido: {}", event.getPedidoId());
-                } catch (Exception publishEx) {
-                    log.error("[EVENT-ERROR] Error publicando evento de asignación: {}", publishEx.getMessage());
-                    // Revertir asignación en FleetService
-                    asignacionService.liberarAsignacion(event.getPedidoId());
-                }
-            } else {
-                log.warn("[ASIGNACION-AUTO] No se encontraron recursos disponibles - Pedido: {} | Motivo: {}",
-                        event.getPedidoId(), asignacion.getMensaje());
+            if (asignadorPorLotes.habilitado()) {
+                asignadorPorLotes.encolar(request, asignacion -> procesarAsignacion(event, asignacion));
+                return;
             }
+            procesarAsignacion(event, asignacionService.asignarRepartidorYVehiculo(request));
             
         } catch (Exception e) {
             log.error("[ERROR] Error procesando pedido.creado [MessageID: {}]: {}", 
@@ -102,7 +88,7 @@ public class PedidoEventListener {
     }
 
     /**
-     * Consume evento cuando se actualiza el estado de un pedido.
+     * Consume en lote los eventos de cambio de estado de pedidos.
      * Esto incluye TODOS los cambios de estado, incluyendo cancelaciones.
      * 
      * PedidoService publica PedidoEstadoEvent con:
@@ -110,10 +96,18 @@ public class PedidoEventListener {
      *   - estadoNuevo = "EN_CAMINO" → repartidor en ruta
      *   - estadoNuevo = "ENTREGADO" → liberar recursos
      *   - estadoNuevo = "CANCELADO" → liberar recursos (este es el caso de cancelación)
+     *   - estadoNuevo = "PENDIENTE" → liberar recursos (el pedido se devolvió para reasignarlo)
+     *
+     * Las liberaciones del lote se aplican en una transacción antes de retornar: el contenedor
+     * confirma los mensajes al broker solo si hizo commit. Si falla, el lote se reintenta y al
+     * agotar los reintentos pasa a la cola de mensajes muertos (ver pedidoEstadoLoteContainerFactory).
      */
-    @RabbitListener(queues = "${rabbitmq.queue.pedido-estado}")
-    public void handlePedidoEstadoActualizado(PedidoEstadoActualizadoEvent event) {
-        try {
+    @RabbitListener(queues = "${rabbitmq.queue.pedido-estado}",
+            containerFactory = "pedidoEstadoLoteContainerFactory")
+    public void handlePedidosEstadoActualizado(List<PedidoEstadoActualizadoEvent> eventos) {
+        // Si el mismo pedido llega dos veces en el lote, vale el último estado
+        Map<String, EstadoAsignacion> cierres = new LinkedHashMap<>();
+        for (PedidoEstadoActualizadoEvent event : eventos) {
             log.info("EVENTO RECIBIDO: pedido.estado.actualizado");
             log.info("MessageID: {} | Timestamp: {}", event.getMessageId(), event.getTimestamp());
             log.info("Pedido: {} | Usuario: {}", event.getPedidoId(), event.getUsuarioModificador());
@@ -123,19 +117,24 @@ public class PedidoEventListener {
 
             // Despachar lógica según el nuevo estado
             if ("CANCELADO".equalsIgnoreCase(nuevoEstado)) {
-                handleCancelacion(event);
+                handleCancelacion(event, cierres);
             } else if ("ENTREGADO".equalsIgnoreCase(nuevoEstado)) {
-                handleEntrega(event);
+                handleEntrega(event, cierres);
             } else if ("ASIGNADO".equalsIgnoreCase(nuevoEstado)) {
                 handleAsignacion(event);
+            } else if ("PENDIENTE".equalsIgnoreCase(nuevoEstado)) {
+                handleDevolucion(event, cierres);
             } else {
                 log.info("Estado {} registrado para pedido {} (sin acción de fleet requerida)",
                         nuevoEstado, event.getPedidoId());
             }
+        }
 
-        } catch (Exception e) {
-            log.error("Error procesando pedido.estado.actualizado [MessageID: {}]: {}", 
-                    event.getMessageId(), e.getMessage(), e);
+        if (!cierres.isEmpty()) {
+            // Sin try/catch: un error debe llegar al contenedor para que el lote no se confirme
+            int liberados = asignacionService.liberar(cierres);
+            log.info("[LIBERACION-LOTE] {} pedidos procesados, {} repartidores liberados",
+                    cierres.size(), liberados);
         }
     }
 
@@ -143,40 +142,38 @@ public class PedidoEventListener {
      * Lógica cuando un pedido es CANCELADO.
      * Liberar repartidor y vehículo asignados para que queden disponibles.
      */
-    private void handleCancelacion(PedidoEstadoActualizadoEvent event) {
+    private void handleCancelacion(PedidoEstadoActualizadoEvent event, Map<String, EstadoAsignacion> cierres) {
         log.info("Pedido {} CANCELADO (antes: {})", event.getPedidoId(), event.getEstadoAnterior());
 
-        if (event.getRepartidorId() != null) {
-            log.info("Liberando repartidor {} del pedido cancelado {}",
-                    event.getRepartidorId(), event.getPedidoId());
-            // TODO: repartidorService.liberarRepartidor(event.getRepartidorId())
-        }
-
-        if (event.getVehiculoId() != null) {
-            log.info("Liberando vehículo {} del pedido cancelado {}",
-                    event.getVehiculoId(), event.getPedidoId());
-            // TODO: vehiculoService.liberarVehiculo(event.getVehiculoId())
-        }
+        // El repartidor sale de la tabla asignaciones, no del evento
+        log.info("Liberando repartidor {} y vehículo {} del pedido cancelado {}",
+                event.getRepartidorId(), event.getVehiculoId(), event.getPedidoId());
+        cierres.put(event.getPedidoId(), EstadoAsignacion.CANCELADA);
     }
 
     /**
      * Lógica cuando un pedido es ENTREGADO.
      * Liberar repartidor y vehículo para que puedan tomar nuevos pedidos.
      */
-    private void handleEntrega(PedidoEstadoActualizadoEvent event) {
+    private void handleEntrega(PedidoEstadoActualizadoEvent event, Map<String, EstadoAsignacion> cierres) {
         log.info("Pedido {} ENTREGADO", event.getPedidoId());
 
-        if (event.getRepartidorId() != null) {
-            log.info("Liberando repartidor {} tras entrega de pedido {}",
-                    event.getRepartidorId(), event.getPedidoId());
-            // TODO: repartidorService.liberarRepartidor(event.getRepartidorId())
-        }
+        log.info("Liberando repartidor {} y vehículo {} tras entrega de pedido {}",
+                event.getRepartidorId(), event.getVehiculoId(), event.getPedidoId());
+        cierres.put(event.getPedidoId(), EstadoAsignacion.ENTREGADA);
+    }
 
-        if (event.getVehiculoId() != null) {
-            log.info("Liberando vehículo {} tras entrega de pedido {}",
-                    event.getVehiculoId(), event.getPedidoId());
-            // TODO: vehiculoService.liberarVehiculo(event.getVehiculoId())
-        }
+    /**
+     * Lógica cuando un pedido ASIGNADO vuelve a PENDIENTE.
+     * PedidoService ya soltó repartidor y vehículo; aquí se cierra la asignación para que
+     * el reintento pueda proponer otros recursos.
+     */
+    private void handleDevolucion(PedidoEstadoActualizadoEvent event, Map<String, EstadoAsignacion> cierres) {
+        log.info("Pedido {} devuelto a PENDIENTE (antes: {})", event.getPedidoId(), event.getEstadoAnterior());
+
+        log.info("Liberando repartidor {} y vehículo {} del pedido devuelto {}",
+                event.getRepartidorId(), event.getVehiculoId(), event.getPedidoId());
+        cierres.put(event.getPedidoId(), EstadoAsignacion.LIBERADA);
     }
 
     /**
@@ -196,6 +193,24 @@ public class PedidoEventListener {
         }
     }
 
+    /**
+     * Maneja LOTES de reintento emitidos por el scheduler de PedidoService.
+     * Un mensaje por ciclo con los pedidos PENDIENTE ordenados por prioridad y antigüedad.
+     */
+    @RabbitListener(queues = "${rabbitmq.queue.pedido-reintento-lote}")
+    public void handleReintentoAsignacionLote(ReintentoAsignacionLoteEvent lote) {
+        List<ReintentarAsignacionEvent> pedidos = lote.getPedidos() != null ? lote.getPedidos() : List.of();
+        log.info("[REINTENTO-LOTE] Recibido lote {} con {} pedidos | Motivo: {}",
+                lote.getMessageId(), pedidos.size(), lote.getMotivoReintento());
+
+        // Mismo flujo que el reintento individual; los errores de un pedido no cortan el lote
+        for (ReintentarAsignacionEvent pedido : pedidos) {
+            handleReintentoAsignacion(pedido);
+        }
+
+        log.info("[REINTENTO-LOTE] Lote {} procesado", lote.getMessageId());
+    }
+
     /**
      * Maneja eventos de REINTENTO DE ASIGNACIÓN desde PedidoService.
      * Se publica cuando un pedido PENDIENTE necesita reintentar asignación automática
@@ -209,8 +224,9 @@ public class PedidoEventListener {
      * 5. Si exitoso, publica asignacion.completada
      * 6. PedidoService actualiza pedido a ASIGNADO
      */
-    @RabbitListener(queues = "${rabbitmq.queue.pedido-reintento}")
-    public void handleReintentoAsignacion(com.logiflow.fleetservice.event.ReintentarAsignacionEvent event) {
+    @RabbitListener(queues = "${rabbitmq.queue.pedido-reintento}",
+            concurrency = "${fleet.asignacion.consumidores:1-8}")
+    public void handleReintentoAsignacion(ReintentarAsignacionEvent event) {
         try {
             log.info("=============================================================");
             log.info("=== EVENTO RECIBIDO: pedido.reintento.asignacion ===");
@@ -239,46 +255,21 @@ public class PedidoEventListener {
                     .peso(event.getPeso())
                     .ciudadOrigen(event.getCiudadOrigen())
                     .ciudadDestino(event.getCiudadDestino())
+                    .latitudOrigen(event.getLatitudOrigen())
+                    .longitudOrigen(event.getLongitudOrigen())
+                    .latitudDestino(event.getLatitudDestino())
+                    .longitudDestino(event.getLongitudDestino())
                     .build();
 
             log.info("[REINTENTO-ASIGNACION] Iniciando proceso de asignación automática para pedido: {}", 
                 event.getPedidoId());
 
-            // Llamar al servicio de asignación
-            AsignacionResponse asignacion = asignacionService.asignarRepartidorYVehiculo(asignacionRequest);
-
-            // Si se asignó exitosamente, publicar evento de asignación completada
-            if ("ASIGNADO".equalsIgnoreCase(asignacion.getEstado())) {
-                log.info("[REINTENTO-ASIGNACION] Asignación EXITOSA - Pedido: {} | Repartidor: {} | Vehiculo: {}",
-                        event.getPedidoId(), 
-                        asignacion.getRepartidorId(),
-                        asignacion.getVehiculoId());
-
-                // Construir evento de asignación completada
-                AsignacionCompletadaEvent asignacionEvent = AsignacionCompletadaEvent.builder()
-                        .messageId(java.util.UUID.randomUUID().toString())
-                        .timestamp(java.time.LocalDateTime.now())
-                        .pedidoId(event.getPedidoId())
-                        .repartidorId(asignacion.getRepartidorId())
-                        .vehiculoId(asignacion.getVehiculoId())
-                        .repartidorNombre(asignacion.getRepartidorNombre())
-                        .vehiculoPlaca(asignacion.getVehiculoPlaca())
-                        .estadoPedido("ASIGNADO")
-                        .servicioOrigen("FLEET_SERVICE")
-                        .motivoAsignacion("REINTENTO_MANUAL")
-                        .build();
-
-                // Publicar evento a RabbitMQ
-                fleetEventPublisher.publishAsignacionCompletada(asignacionEvent);
-
-                log.info("[REINTENTO-ASIGNACION] Evento asignacion.completada publicado exitosamente");
-                
-            } else {
-                log.warn("[REINTENTO-ASIGNACION] No se pudo asignar - Pedido: {} | Motivo: {}",
-                        event.getPedidoId(), asignacion.getMensaje());
-                log.info("[REINTENTO-ASIGNACION] El pedido {} permanece en estado PENDIENTE", 
-                    event.getPedidoId());
+            // Llamar al servicio de asignación (o dejarlo para el próximo lote)
+            if (asignadorPorLotes.habilitado()) {
+                asignadorPorLotes.encolar(asignacionRequest, asignacion -> procesarReintento(event, asignacion));
+                return;
             }
+            procesarReintento(event, asignacionService.asignarRepartidorYVehiculo(asignacionRequest));
 
         } catch (Exception e) {
             log.error("[REINTENTO-ASIGNACION] ❌ Error procesando reintento para pedido {} [MessageID: {}]: {}", 
@@ -287,4 +278,81 @@ public class PedidoEventListener {
                 event.getUsuarioSolicitante(), event.getNumeroReintento(), event.getMotivoReintento());
         }
     }
+
+    /**
+     * Publica asignacion.completada si hubo asignación; si no se puede publicar, la revierte
+     */
+    private void procesarAsignacion(PedidoCreadoEvent event, AsignacionResponse asignacion) {
+        
+        if ("ASIGNADO".equals(asignacion.getEstado())) {
+            log.info("[ASIGNACION-AUTO] Recursos encontrados - Repartidor: {} | Vehículo: {}", 
+                    asignacion.getRepartidorNombre(), asignacion.getVehiculoPlaca());
+            
+            // PUBLICAR EVENTO EN LUGAR DE LLAMAR REST
+            log.info("[EVENT-PUBLISH] Publicando evento de asignación completada a RabbitMQ");
+            
+            AsignacionCompletadaEvent asignacionEvent = AsignacionCompletadaEvent.builder()
+                    .messageId(UUID.randomUUID().toString())
+                    .timestamp(LocalDateTime.now())
+                    .pedidoId(event.getPedidoId())
+                    .repartidorId(asignacion.getRepartidorId().toString())
+                    .vehiculoId(asignacion.getVehiculoId().toString())
+                    .repartidorNombre(asignacion.getRepartidorNombre())
+                    .vehiculoPlaca(asignacion.getVehiculoPlaca())
+                    .estadoPedido("ASIGNADO")
+                    .servicioOrigen("FLEET_SERVICE")
+                    .motivoAsignacion("ASIGNACION_AUTOMATICA")
+                    .build();
+            
+            try {
+                fleetEventPublisher.publishAsignacionCompletada(asignacionEvent);
+                log.info("[CONFIRMACION] Evento de asignación publicado exitosamente - Pedido: {}", event.getPedidoId());
+            } catch (Exception publishEx) {
+                log.error("[EVENT-ERROR] Error publicando evento de asignación: {}", publishEx.getMessage());
+                // Revertir asignación en FleetService
+                asignacionService.liberarAsignacion(event.getPedidoId());
+            }
+        } else {
+            log.warn("[ASIGNACION-AUTO] No se encontraron recursos disponibles - Pedido: {} | Motivo: {}",
+                    event.getPedidoId(), asignacion.getMensaje());
+        }
+    }
+
+    /**
+     * Publica asignacion.completada para un reintento exitoso
+     */
+    private void procesarReintento(ReintentarAsignacionEvent event, AsignacionResponse asignacion) {
+        // Si se asignó exitosamente, publicar evento de asignación completada
+        if ("ASIGNADO".equalsIgnoreCase(asignacion.getEstado())) {
+            log.info("[REINTENTO-ASIGNACION] Asignación EXITOSA - Pedido: {} | Repartidor: {} | Vehiculo: {}",
+                    event.getPedidoId(), 
+                    asignacion.getRepartidorId(),
+                    asignacion.getVehiculoId());
+
+            // Construir evento de asignación completada
+            AsignacionCompletadaEvent asignacionEvent = AsignacionCompletadaEvent.builder()
+                    .messageId(java.util.UUID.randomUUID().toString())
+                    .timestamp(java.time.LocalDateTime.now())
+                    .pedidoId(event.getPedidoId())
+                    .repartidorId(asignacion.getRepartidorId())
+                    .vehiculoId(asignacion.getVehiculoId())
+                    .repartidorNombre(asignacion.getRepartidorNombre())
+                    .vehiculoPlaca(asignacion.getVehiculoPlaca())
+                    .estadoPedido("ASIGNADO")
+                    .servicioOrigen("FLEET_SERVICE")
+                    .motivoAsignacion("REINTENTO_MANUAL")
+                    .build();
+
+            // Publicar evento a RabbitMQ
+            fleetEventPublisher.publishAsignacionCompletada(asignacionEvent);
+
+            log.info("[REINTENTO-ASIGNACION] Evento asignacion.completada publicado exitosamente");
+            
+        } else {
+            log.warn("[REINTENTO-ASIGNACION] No se pudo asignar - Pedido: {} | Motivo: {}",
+                    event.getPedidoId(), asignacion.getMensaje());
+            log.info("[REINTENTO-ASIGNACION] El pedido {} permanece en estado PENDIENTE", 
+                event.getPedidoId());
+        }
+    }
 }
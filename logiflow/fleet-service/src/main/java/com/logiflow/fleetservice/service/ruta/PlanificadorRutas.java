@@ -0,0 +1,242 @@
+package com.logiflow.fleetservice.service.ruta;
+
+import com.logiflow.fleetservice.dto.InformacionRuta;
+import com.logiflow.fleetservice.dto.response.ParadaRutaResponse;
+import com.logiflow.fleetservice.dto.response.PlanRutaResponse;
+import com.logiflow.fleetservice.exception.BusinessException;
+import com.logiflow.fleetservice.exception.ResourceNotFoundException;
+import com.logiflow.fleetservice.model.entity.asignacion.Asignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.model.entity.enums.TipoVehiculo;
+import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
+import com.logiflow.fleetservice.repository.AsignacionRepository;
+import com.logiflow.fleetservice.repository.RepartidorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Planificación de la ruta de un repartidor con sus pedidos en curso (tabla asignaciones)
+ *
+ * - Cada pedido aporta una parada de RECOGIDA y otra de ENTREGA (la entrega siempre después).
+ * - Las restricciones salen de IRuteable/InformacionRuta del vehículo: capacidad de carga para
+ *   la carga a bordo y ciclovías para el rodeo sobre la distancia en línea recta.
+ * - La secuencia la calcula SecuenciadorParadas sobre una matriz de distancias precalculada.
+ * - Se guarda la última secuencia de cada repartidor: si después se agrega o quita un pedido,
+ *   se replanifica a partir de ella en vez de empezar de cero.
+ * - La hora estimada de cada parada usa la velocidad media del tipo de vehículo más un tiempo
+ *   fijo de atención por parada.
+ */
+@Slf4j
+@Service
+public class PlanificadorRutas {
+
+    private static final String RECOGIDA = "RECOGIDA";
+    private static final String ENTREGA = "ENTREGA";
+
+    private record Parada(String pedidoId, String tipo, Coordenada punto, double carga) {
+
+        String clave() {
+            return pedidoId + ":" + tipo;
+        }
+    }
+
+    private final RepartidorRepository repartidorRepository;
+    private final AsignacionRepository asignacionRepository;
+    private final double factorRodeo;
+    private final double factorCiclovias;
+    private final double minutosPorParada;
+    private final Map<TipoVehiculo, Double> velocidadesKmh = new EnumMap<>(TipoVehiculo.class);
+
+    // Última secuencia (claves de parada) de cada repartidor: semilla de la próxima planificación
+    private final Map<UUID, List<String>> secuencias = new ConcurrentHashMap<>();
+
+    public PlanificadorRutas(RepartidorRepository repartidorRepository,
+                             AsignacionRepository asignacionRepository,
+                             @Value("${fleet.rutas.factor-rodeo:1.3}") double factorRodeo,
+                             @Value("${fleet.rutas.factor-ciclovias:0.9}") double factorCiclovias,
+                             @Value("${fleet.rutas.minutos-por-parada:4}") double minutosPorParada,
+                             @Value("${fleet.rutas.velocidad-kmh.motorizado:28}") double velocidadMotorizado,
+                             @Value("${fleet.rutas.velocidad-kmh.liviano:24}") double velocidadLiviano,
+                             @Value("${fleet.rutas.velocidad-kmh.camion:18}") double velocidadCamion) {
+        this.repartidorRepository = repartidorRepository;
+        this.asignacionRepository = asignacionRepository;
+        this.factorRodeo = factorRodeo;
+        this.factorCiclovias = factorCiclovias;
+        this.minutosPorParada = minutosPorParada;
+        velocidadesKmh.put(TipoVehiculo.MOTORIZADO, velocidadMotorizado);
+        velocidadesKmh.put(TipoVehiculo.VEHICULO_LIVIANO, velocidadLiviano);
+        velocidadesKmh.put(TipoVehiculo.CAMION, velocidadCamion);
+    }
+
+    /**
+     * Ordena las paradas de los pedidos en curso del repartidor, saliendo de su última ubicación
+     */
+    public PlanRutaResponse planificar(UUID repartidorId) {
+        long inicio = System.nanoTime();
+        Repartidor repartidor = repartidorRepository.findConVehiculoById(repartidorId)
+                .orElseThrow(() -> new ResourceNotFoundException("Repartidor no encontrado"));
+        VehiculoEntrega vehiculo = repartidor.getVehiculoAsignado();
+        if (vehiculo == null) {
+            throw new BusinessException("El repartidor no tiene vehículo asignado");
+        }
+        InformacionRuta informacion = vehiculo.getInformacionRuta();
+
+        List<Asignacion> asignaciones = new ArrayList<>(
+                asignacionRepository.findByRepartidorIdAndEstado(repartidorId, EstadoAsignacion.ACTIVA));
+        asignaciones.sort(Comparator.comparing(Asignacion::getFechaAsignacion,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        List<Parada> paradas = new ArrayList<>();
+        List<Integer> previas = new ArrayList<>();
+        List<String> sinUbicacion = new ArrayList<>();
+        double aBordo = 0.0;
+        for (Asignacion asignacion : asignaciones) {
+            double peso = asignacion.getPeso() != null ? asignacion.getPeso() : 0.0;
+            boolean conOrigen = valida(asignacion.getOrigen());
+            boolean conDestino = valida(asignacion.getDestino());
+            if (!conOrigen && !conDestino) {
+                sinUbicacion.add(asignacion.getPedidoId());
+                continue;
+            }
+            int recogida = -1;
+            if (conOrigen) {
+                paradas.add(new Parada(asignacion.getPedidoId(), RECOGIDA, asignacion.getOrigen(), peso));
+                previas.add(-1);
+                recogida = paradas.size(); // nodo de la parada: el 0 es la posición del vehículo
+            }
+            if (conDestino) {
+                paradas.add(new Parada(asignacion.getPedidoId(), ENTREGA, asignacion.getDestino(), -peso));
+                previas.add(recogida);
+                if (!conOrigen) {
+                    // Sin punto de recogida se asume que ya está a bordo
+                    aBordo += peso;
+                }
+            }
+        }
+
+        PlanRutaResponse.PlanRutaResponseBuilder respuesta = PlanRutaResponse.builder()
+                .repartidorId(repartidorId.toString())
+                .vehiculoId(String.valueOf(vehiculo.getId()))
+                .vehiculoPlaca(vehiculo.getPlaca())
+                .calculadoEn(LocalDateTime.now())
+                .pedidosSinUbicacion(sinUbicacion);
+        if (paradas.isEmpty()) {
+            secuencias.remove(repartidorId);
+            return respuesta.distanciaTotalKm(0.0).duracionTotalMinutos(0.0).paradas(List.of()).build();
+        }
+
+        int nodos = paradas.size() + 1;
+        Coordenada[] puntos = new Coordenada[nodos];
+        puntos[0] = valida(repartidor.getUbicacionActual()) ? repartidor.getUbicacionActual() : paradas.get(0).punto();
+        double[] cargas = new double[nodos];
+        int[] previa = new int[nodos];
+        cargas[0] = aBordo;
+        previa[0] = -1;
+        for (int i = 1; i < nodos; i++) {
+            puntos[i] = paradas.get(i - 1).punto();
+            cargas[i] = paradas.get(i - 1).carga();
+            previa[i] = previas.get(i - 1);
+        }
+        double[] distancias = matrizDistancias(puntos, informacion.isPuedeUsarCiclovias());
+        double capacidad = informacion.getCapacidadCarga() != null ? informacion.getCapacidadCarga() : Double.MAX_VALUE;
+
+        SecuenciadorParadas secuenciador = new SecuenciadorParadas(distancias, nodos, cargas, previa, capacidad);
+        int[] ruta = secuenciador.secuenciar(semilla(repartidorId, paradas));
+        if (!secuenciador.factible(ruta)) {
+            log.warn("[RUTAS] La carga del repartidor {} supera la capacidad del vehículo {} en algún tramo",
+                    repartidorId, vehiculo.getPlaca());
+        }
+
+        double velocidad = velocidadesKmh.getOrDefault(informacion.getTipo(), 25.0);
+        LocalDateTime salida = LocalDateTime.now();
+        List<ParadaRutaResponse> ordenadas = new ArrayList<>(ruta.length);
+        List<String> claves = new ArrayList<>(ruta.length);
+        double kilometros = 0.0;
+        double minutos = 0.0;
+        double carga = aBordo;
+        int anterior = 0;
+        for (int i = 0; i < ruta.length; i++) {
+            int nodo = ruta[i];
+            Parada parada = paradas.get(nodo - 1);
+            double tramo = distancias[anterior * nodos + nodo];
+            kilometros += tramo;
+            minutos += tramo / velocidad * 60.0;
+            carga += parada.carga();
+            ordenadas.add(ParadaRutaResponse.builder()
+                    .orden(i + 1)
+                    .pedidoId(parada.pedidoId())
+                    .tipo(parada.tipo())
+                    .latitud(parada.punto().getLatitud())
+                    .longitud(parada.punto().getLongitud())
+                    .distanciaAcumuladaKm(redondear(kilometros))
+                    .cargaKg(redondear(carga))
+                    .eta(salida.plusSeconds(Math.round(minutos * 60.0)))
+                    .build());
+            minutos += minutosPorParada;
+            claves.add(parada.clave());
+            anterior = nodo;
+        }
+        secuencias.put(repartidorId, claves);
+
+        log.info("[RUTAS] Repartidor {}: {} paradas, {} km, calculada en {} ms",
+                repartidorId, ruta.length, redondear(kilometros), (System.nanoTime() - inicio) / 1_000_000);
+        return respuesta
+                .distanciaTotalKm(redondear(kilometros))
+                .duracionTotalMinutos(redondear(minutos))
+                .paradas(ordenadas)
+                .build();
+    }
+
+    // Secuencia anterior traducida a los nodos actuales; las paradas de pedidos cerrados se descartan
+    private int[] semilla(UUID repartidorId, List<Parada> paradas) {
+        List<String> anterior = secuencias.get(repartidorId);
+        if (anterior == null) {
+            return null;
+        }
+        Map<String, Integer> nodoPorClave = new HashMap<>();
+        for (int i = 0; i < paradas.size(); i++) {
+            nodoPorClave.put(paradas.get(i).clave(), i + 1);
+        }
+        return anterior.stream()
+                .map(nodoPorClave::get)
+                .filter(nodo -> nodo != null)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Distancia en línea recta por un factor de rodeo; las ciclovías acortan el rodeo
+    private double[] matrizDistancias(Coordenada[] puntos, boolean puedeUsarCiclovias) {
+        int nodos = puntos.length;
+        double factor = factorRodeo * (puedeUsarCiclovias ? factorCiclovias : 1.0);
+        double[] distancias = new double[nodos * nodos];
+        for (int i = 0; i < nodos; i++) {
+            for (int j = i + 1; j < nodos; j++) {
+                double distancia = puntos[i].distanciaHasta(puntos[j]) * factor;
+                distancias[i * nodos + j] = distancia;
+                distancias[j * nodos + i] = distancia;
+            }
+        }
+        return distancias;
+    }
+
+    private static boolean valida(Coordenada coordenada) {
+        return coordenada != null && coordenada.esValida();
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100.0) / 100.0;
+    }
+}
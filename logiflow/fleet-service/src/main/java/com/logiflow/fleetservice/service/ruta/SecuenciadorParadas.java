@@ -0,0 +1,305 @@
+package com.logiflow.fleetservice.service.ruta;
+
+import java.util.Arrays;
+
+/**
+ * Orden de visita de las paradas de un vehículo (ruta abierta: no vuelve al punto de partida).
+ *
+ * Trabaja sobre arreglos primitivos: una matriz de distancias plana de nodos x nodos, donde el
+ * nodo 0 es la posición actual del vehículo y 1..n las paradas.
+ * - Semilla: vecino más cercano; o, si se pasa una secuencia previa, esa secuencia con las
+ *   paradas nuevas insertadas donde menos alargan la ruta (replanificación incremental).
+ * - Mejora local hasta que ninguna jugada acorta la ruta: 2-opt (invertir un tramo) y
+ *   Or-opt (mover un tramo de 1 a 3 paradas a otra posición).
+ * Toda secuencia respeta las restricciones: cada entrega después de su recogida y la carga
+ * acumulada nunca por encima de la capacidad del vehículo.
+ */
+public final class SecuenciadorParadas {
+
+    private static final double MEJORA_MINIMA = 1e-9;
+    private static final double HOLGURA_KG = 1e-6;
+    private static final int TRAMO_MAXIMO_OR_OPT = 3;
+
+    private final double[] distancias;
+    private final int nodos;
+    private final double[] cargas;
+    private final int[] previa;
+    private final double capacidad;
+
+    /**
+     * @param distancias matriz simétrica nodos x nodos en orden de filas: distancias[desde * nodos + hasta]
+     * @param nodos      cantidad de nodos, contando el 0 (posición del vehículo)
+     * @param cargas     variación de carga en cada nodo: + peso al recoger, - peso al entregar
+     *                   (cargas[0] es la carga con la que sale el vehículo)
+     * @param previa     nodo que debe visitarse antes de cada uno, o -1 si no hay
+     * @param capacidad  capacidad de carga del vehículo
+     */
+    public SecuenciadorParadas(double[] distancias, int nodos, double[] cargas, int[] previa, double capacidad) {
+        if (distancias.length < nodos * nodos || cargas.length < nodos || previa.length < nodos) {
+            throw new IllegalArgumentException("Las matrices no corresponden a " + nodos + " nodos");
+        }
+        this.distancias = distancias;
+        this.nodos = nodos;
+        this.cargas = cargas;
+        this.previa = previa;
+        this.capacidad = capacidad;
+    }
+
+    /**
+     * @param semilla secuencia anterior (nodos 1..n en el orden a conservar) o null para empezar de cero;
+     *                los nodos que falten se insertan y los que no existan se ignoran
+     * @return orden de visita de los nodos 1..n
+     */
+    public int[] secuenciar(int[] semilla) {
+        int[] ruta = semilla == null ? vecinoMasCercano() : completar(semilla);
+        mejorar(ruta);
+        return ruta;
+    }
+
+    /**
+     * Distancia total de la ruta, saliendo del nodo 0
+     */
+    public double longitud(int[] ruta) {
+        double total = 0.0;
+        int anterior = 0;
+        for (int nodo : ruta) {
+            total += d(anterior, nodo);
+            anterior = nodo;
+        }
+        return total;
+    }
+
+    /**
+     * Cada entrega después de su recogida y la carga siempre dentro de la capacidad
+     */
+    public boolean factible(int[] ruta) {
+        int[] posicion = new int[nodos];
+        Arrays.fill(posicion, -1);
+        posicion[0] = 0;
+        double carga = cargas[0];
+        for (int i = 0; i < ruta.length; i++) {
+            int nodo = ruta[i];
+            if (previa[nodo] >= 0 && posicion[previa[nodo]] < 0) {
+                return false;
+            }
+            posicion[nodo] = i + 1;
+            carga += cargas[nodo];
+            if (carga > capacidad + HOLGURA_KG) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ======= SEMILLA =======
+
+    private int[] vecinoMasCercano() {
+        int[] ruta = new int[nodos - 1];
+        boolean[] visitado = new boolean[nodos];
+        visitado[0] = true;
+        int actual = 0;
+        double carga = cargas[0];
+        for (int i = 0; i < ruta.length; i++) {
+            int siguiente = masCercano(actual, visitado, carga, true);
+            if (siguiente < 0) {
+                // Ninguno entra sin pasarse de capacidad: se relaja para no dejar paradas afuera
+                siguiente = masCercano(actual, visitado, carga, false);
+            }
+            ruta[i] = siguiente;
+            visitado[siguiente] = true;
+            carga += cargas[siguiente];
+            actual = siguiente;
+        }
+        return ruta;
+    }
+
+    private int masCercano(int actual, boolean[] visitado, double carga, boolean respetarCapacidad) {
+        int mejor = -1;
+        double mejorDistancia = Double.POSITIVE_INFINITY;
+        for (int nodo = 1; nodo < nodos; nodo++) {
+            if (visitado[nodo] || (previa[nodo] >= 0 && !visitado[previa[nodo]])) {
+                continue;
+            }
+            if (respetarCapacidad && carga + cargas[nodo] > capacidad + HOLGURA_KG) {
+                continue;
+            }
+            double distancia = d(actual, nodo);
+            if (distancia < mejorDistancia) {
+                mejorDistancia = distancia;
+                mejor = nodo;
+            }
+        }
+        return mejor;
+    }
+
+    // Conserva la secuencia anterior e inserta lo nuevo por menor costo (primero las recogidas)
+    private int[] completar(int[] semilla) {
+        int[] ruta = new int[nodos - 1];
+        boolean[] presente = new boolean[nodos];
+        int largo = 0;
+        for (int nodo : semilla) {
+            if (nodo > 0 && nodo < nodos && !presente[nodo]) {
+                presente[nodo] = true;
+                ruta[largo++] = nodo;
+            }
+        }
+        if (!factible(Arrays.copyOf(ruta, largo))) {
+            return vecinoMasCercano();
+        }
+        boolean agregado = true;
+        while (largo < ruta.length && agregado) {
+            agregado = false;
+            for (int nodo = 1; nodo < nodos; nodo++) {
+                if (!presente[nodo] && (previa[nodo] < 0 || presente[previa[nodo]])) {
+                    largo = insertarMasBarato(ruta, largo, nodo);
+                    presente[nodo] = true;
+                    agregado = true;
+                }
+            }
+        }
+        return largo == ruta.length ? ruta : vecinoMasCercano();
+    }
+
+    private int insertarMasBarato(int[] ruta, int largo, int nodo) {
+        int desde = 0;
+        if (previa[nodo] >= 0) {
+            for (int i = 0; i < largo; i++) {
+                if (ruta[i] == previa[nodo]) {
+                    desde = i + 1;
+                    break;
+                }
+            }
+        }
+        int mejorPosicion = -1;
+        int posicionRelajada = largo;
+        double mejorCosto = Double.POSITIVE_INFINITY;
+        for (int posicion = desde; posicion <= largo; posicion++) {
+            int antes = posicion == 0 ? 0 : ruta[posicion - 1];
+            double costo = d(antes, nodo)
+                    + (posicion < largo ? d(nodo, ruta[posicion]) - d(antes, ruta[posicion]) : 0.0);
+            if (costo < mejorCosto && cabeAlInsertar(ruta, largo, nodo, posicion)) {
+                mejorCosto = costo;
+                mejorPosicion = posicion;
+            }
+        }
+        int posicion = mejorPosicion >= 0 ? mejorPosicion : posicionRelajada;
+        System.arraycopy(ruta, posicion, ruta, posicion + 1, largo - posicion);
+        ruta[posicion] = nodo;
+        return largo + 1;
+    }
+
+    private boolean cabeAlInsertar(int[] ruta, int largo, int nodo, int posicion) {
+        double carga = cargas[0];
+        for (int i = 0; i < largo; i++) {
+            if (i == posicion) {
+                carga += cargas[nodo];
+                if (carga > capacidad + HOLGURA_KG) {
+                    return false;
+                }
+            }
+            carga += cargas[ruta[i]];
+            if (carga > capacidad + HOLGURA_KG) {
+                return false;
+            }
+        }
+        return posicion < largo || carga + cargas[nodo] <= capacidad + HOLGURA_KG;
+    }
+
+    // ======= MEJORA LOCAL =======
+
+    private void mejorar(int[] ruta) {
+        int[] prueba = new int[ruta.length];
+        boolean mejoro = true;
+        while (mejoro) {
+            mejoro = dosOpt(ruta, prueba) | orOpt(ruta, prueba);
+        }
+    }
+
+    // Invierte ruta[i..j] si acorta la ruta; en ruta abierta el último tramo no tiene sucesor
+    private boolean dosOpt(int[] ruta, int[] prueba) {
+        boolean mejoro = false;
+        int n = ruta.length;
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int antes = i == 0 ? 0 : ruta[i - 1];
+                double delta = d(antes, ruta[j]) - d(antes, ruta[i]);
+                if (j < n - 1) {
+                    delta += d(ruta[i], ruta[j + 1]) - d(ruta[j], ruta[j + 1]);
+                }
+                if (delta >= -MEJORA_MINIMA) {
+                    continue;
+                }
+                System.arraycopy(ruta, 0, prueba, 0, n);
+                for (int a = i, b = j; a < b; a++, b--) {
+                    int tmp = prueba[a];
+                    prueba[a] = prueba[b];
+                    prueba[b] = tmp;
+                }
+                if (factible(prueba)) {
+                    System.arraycopy(prueba, 0, ruta, 0, n);
+                    mejoro = true;
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    // Mueve ruta[i..i+largo-1] (sin invertir) entre otras dos paradas si acorta la ruta
+    private boolean orOpt(int[] ruta, int[] prueba) {
+        boolean mejoro = false;
+        int n = ruta.length;
+        for (int largo = 1; largo <= TRAMO_MAXIMO_OR_OPT; largo++) {
+            for (int i = 0; i + largo <= n; i++) {
+                int primero = ruta[i];
+                int ultimo = ruta[i + largo - 1];
+                int antes = i == 0 ? 0 : ruta[i - 1];
+                int despues = i + largo < n ? ruta[i + largo] : -1;
+                double quitar = d(antes, primero) + (despues >= 0 ? d(ultimo, despues) - d(antes, despues) : 0.0);
+                // Posición k: el tramo queda a continuación de la parada que está en k (en la ruta sin el tramo)
+                for (int k = -1; k < n - largo; k++) {
+                    int destino = k < i ? k : k + largo;
+                    if (destino == i - 1) {
+                        continue;
+                    }
+                    int a = destino < 0 ? 0 : ruta[destino];
+                    int siguiente = destino + 1 == i ? i + largo : destino + 1;
+                    int b = siguiente < n ? ruta[siguiente] : -1;
+                    double poner = d(a, primero) + (b >= 0 ? d(ultimo, b) - d(a, b) : 0.0);
+                    if (poner - quitar >= -MEJORA_MINIMA) {
+                        continue;
+                    }
+                    mover(ruta, prueba, i, largo, destino);
+                    if (factible(prueba)) {
+                        System.arraycopy(prueba, 0, ruta, 0, n);
+                        mejoro = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return mejoro;
+    }
+
+    // Copia en prueba la ruta con el tramo [i, i+largo) colocado después de ruta[destino] (-1: al inicio)
+    private static void mover(int[] ruta, int[] prueba, int i, int largo, int destino) {
+        int escrito = 0;
+        if (destino < 0) {
+            System.arraycopy(ruta, i, prueba, 0, largo);
+            escrito = largo;
+        }
+        for (int k = 0; k < ruta.length; k++) {
+            if (k >= i && k < i + largo) {
+                continue;
+            }
+            prueba[escrito++] = ruta[k];
+            if (k == destino) {
+                System.arraycopy(ruta, i, prueba, escrito, largo);
+                escrito += largo;
+            }
+        }
+    }
+
+    private double d(int desde, int hasta) {
+        return distancias[desde * nodos + hasta];
+    }
+}
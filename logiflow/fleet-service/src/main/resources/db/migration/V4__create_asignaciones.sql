@@ -0,0 +1,15 @@
+-- Registro de asignaciones pedido -> repartidor/vehículo (una fila por pedido)
+CREATE TABLE IF NOT EXISTS asignaciones (
+    id               UUID PRIMARY KEY,
+    pedido_id        VARCHAR(64) NOT NULL,
+    repartidor_id    UUID        NOT NULL,
+    vehiculo_id      UUID        NOT NULL,
+    estado           VARCHAR(20) NOT NULL,
+    fecha_asignacion TIMESTAMP   NOT NULL,
+    fecha_liberacion TIMESTAMP,
+    created_at       TIMESTAMP   NOT NULL,
+    updated_at       TIMESTAMP
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_asignacion_pedido ON asignaciones (pedido_id);
+CREATE INDEX IF NOT EXISTS idx_asignacion_estado ON asignaciones (estado);
@@ -0,0 +1,10 @@
+-- Consolidación de pedidos: carga en curso por repartidor y datos del pedido en el registro
+ALTER TABLE repartidores ADD COLUMN IF NOT EXISTS carga_asignada_kg DOUBLE PRECISION NOT NULL DEFAULT 0;
+ALTER TABLE repartidores ADD COLUMN IF NOT EXISTS pedidos_en_curso  INTEGER          NOT NULL DEFAULT 0;
+
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS peso_kg            DOUBLE PRECISION;
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS zona_origen        VARCHAR(50);
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS modalidad_servicio VARCHAR(30);
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS tipo_entrega       VARCHAR(20);
+
+CREATE INDEX IF NOT EXISTS idx_asignacion_repartidor ON asignaciones (repartidor_id);
@@ -0,0 +1,5 @@
+-- Puntos de recogida y entrega de cada asignación, para planificar la ruta del vehículo
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS latitud_origen   DOUBLE PRECISION;
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS longitud_origen  DOUBLE PRECISION;
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS latitud_destino  DOUBLE PRECISION;
+ALTER TABLE asignaciones ADD COLUMN IF NOT EXISTS longitud_destino DOUBLE PRECISION;
@@ -0,0 +1,200 @@
+package com.logiflow.fleetservice.service;
+
+import com.logiflow.fleetservice.dto.request.AsignacionRequest;
+import com.logiflow.fleetservice.dto.response.AsignacionResponse;
+import com.logiflow.fleetservice.model.entity.asignacion.Asignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoRepartidor;
+import com.logiflow.fleetservice.model.entity.enums.TipoDocumento;
+import com.logiflow.fleetservice.model.entity.enums.TipoLicencia;
+import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
+import com.logiflow.fleetservice.model.entity.vehiculo.Motorizado;
+import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
+import com.logiflow.fleetservice.repository.AsignacionRepository;
+import com.logiflow.fleetservice.repository.RepartidorRepository;
+import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
+import com.logiflow.fleetservice.service.asignacion.RegistroAsignaciones;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Prueba de estrés: muchas asignaciones simultáneas sobre pocos repartidores.
+ * Un hilo recarga el índice sin parar para que proponga repartidores que otra
+ * transacción ya está tomando (como haría otra instancia); solo el UPDATE
+ * condicional impide la doble asignación.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("AsignacionService - asignaciones concurrentes")
+class AsignacionConcurrenteTest {
+
+  private static final int REPARTIDORES = 40;
+  private static final int PEDIDOS = 160;
+  private static final int HILOS = 16;
+
+  @Autowired
+  private AsignacionService asignacionService;
+
+  @Autowired
+  private IndiceDisponibilidad indiceDisponibilidad;
+
+  @Autowired
+  private RepartidorRepository repartidorRepository;
+
+  @Autowired
+  private VehiculoRepository vehiculoRepository;
+
+  @Autowired
+  private AsignacionRepository asignacionRepository;
+
+  @Autowired
+  private RegistroAsignaciones registroAsignaciones;
+
+  @AfterEach
+  void limpiar() {
+    asignacionRepository.deleteAll();
+    repartidorRepository.deleteAll();
+    vehiculoRepository.deleteAll();
+    indiceDisponibilidad.recargar();
+    registroAsignaciones.recargar();
+  }
+
+  @Test
+  @DisplayName("ningún repartidor queda asignado a dos pedidos")
+  void ningunRepartidorAsignadoDosVeces() throws Exception {
+    crearRepartidores(REPARTIDORES);
+
+    ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS + 1);
+    CountDownLatch salida = new CountDownLatch(1);
+    AtomicBoolean terminado = new AtomicBoolean(false);
+    try {
+      Future<?> recargas = ejecutor.submit(() -> {
+        while (!terminado.get()) {
+          indiceDisponibilidad.recargar();
+        }
+      });
+
+      List<Future<AsignacionResponse>> respuestas = new ArrayList<>();
+      for (int i = 0; i < PEDIDOS; i++) {
+        AsignacionRequest request = AsignacionRequest.builder()
+            .pedidoId("PED-CONC-" + i)
+            .modalidadServicio("URBANA_RAPIDA")
+            .tipoEntrega("EXPRESS")
+            .prioridad("ALTA")
+            .ciudadOrigen("Norte")
+            .ciudadDestino("Norte")
+            .peso(5.0)
+            .build();
+        respuestas.add(ejecutor.submit(() -> {
+          salida.await();
+          return asignacionService.asignarRepartidorYVehiculo(request);
+        }));
+      }
+      salida.countDown();
+
+      List<String> asignados = new ArrayList<>();
+      for (Future<AsignacionResponse> respuesta : respuestas) {
+        AsignacionResponse resultado = respuesta.get(60, TimeUnit.SECONDS);
+        if ("ASIGNADO".equals(resultado.getEstado())) {
+          asignados.add(resultado.getRepartidorId());
+        }
+      }
+      terminado.set(true);
+      recargas.get(60, TimeUnit.SECONDS);
+
+      Set<String> distintos = new HashSet<>(asignados);
+      assertThat(asignados).hasSize(distintos.size());
+      assertThat(asignados).hasSizeLessThanOrEqualTo(REPARTIDORES);
+      assertThat(repartidorRepository.findByEstadoAndActivoTrue(EstadoRepartidor.EN_RUTA))
+          .hasSize(distintos.size());
+      assertThat(asignacionRepository.findByEstado(EstadoAsignacion.ACTIVA)).hasSize(distintos.size());
+    } finally {
+      terminado.set(true);
+      ejecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("la consolidación concurrente no supera la capacidad ni el máximo de pedidos")
+  void consolidacionConcurrenteRespetaCapacidad() throws Exception {
+    crearRepartidores(10);
+    ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+    CountDownLatch salida = new CountDownLatch(1);
+    try {
+      List<Future<AsignacionResponse>> respuestas = new ArrayList<>();
+      for (int i = 0; i < PEDIDOS; i++) {
+        AsignacionRequest request = AsignacionRequest.builder()
+            .pedidoId("PED-CONS-" + i)
+            .modalidadServicio("URBANA_RAPIDA")
+            .tipoEntrega("STANDARD")
+            .prioridad("NORMAL")
+            .ciudadOrigen("Norte")
+            .ciudadDestino("Norte")
+            .peso(4.0 + i % 3)
+            .build();
+        respuestas.add(ejecutor.submit(() -> {
+          salida.await();
+          return asignacionService.asignarRepartidorYVehiculo(request);
+        }));
+      }
+      salida.countDown();
+      for (Future<AsignacionResponse> respuesta : respuestas) {
+        respuesta.get(60, TimeUnit.SECONDS);
+      }
+
+      Map<UUID, List<Asignacion>> porRepartidor = asignacionRepository.findByEstado(EstadoAsignacion.ACTIVA)
+          .stream().collect(Collectors.groupingBy(Asignacion::getRepartidorId));
+      assertThat(porRepartidor).isNotEmpty();
+      porRepartidor.forEach((repartidorId, asignaciones) -> {
+        double carga = asignaciones.stream().mapToDouble(Asignacion::getPeso).sum();
+        Repartidor repartidor = repartidorRepository.findById(repartidorId).orElseThrow();
+        assertThat(carga).isLessThanOrEqualTo(30.0);
+        assertThat(asignaciones).hasSizeLessThanOrEqualTo(6);
+        assertThat(repartidor.getCargaAsignada()).isEqualTo(carga);
+        assertThat(repartidor.getPedidosEnCurso()).isEqualTo(asignaciones.size());
+      });
+    } finally {
+      ejecutor.shutdownNow();
+    }
+  }
+
+  private void crearRepartidores(int cantidad) {
+    for (int i = 0; i < cantidad; i++) {
+      VehiculoEntrega vehiculo = new Motorizado("CON-" + (1000 + i), "Honda", "CB", 150);
+      vehiculo.setAnio(2022);
+      repartidorRepository.save(Repartidor.builder()
+          .nombre("Repartidor")
+          .apellido("Concurrente " + i)
+          .documento("CONC-" + i)
+          .tipoDocumento(TipoDocumento.CEDULA)
+          .tipoLicencia(TipoLicencia.TIPO_A)
+          .zonaAsignada("Norte")
+          .fechaContratacion(LocalDate.of(2024, 1, 15))
+          .vehiculoAsignado(vehiculoRepository.save(vehiculo))
+          .build());
+    }
+    indiceDisponibilidad.recargar();
+  }
+}
@@ -0,0 +1,429 @@
+package com.logiflow.fleetservice.service;
+
+import com.logiflow.fleetservice.dto.request.AsignacionRequest;
+import com.logiflow.fleetservice.dto.response.AsignacionResponse;
+import com.logiflow.fleetservice.model.entity.asignacion.Asignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.model.entity.enums.EstadoRepartidor;
+import com.logiflow.fleetservice.model.entity.enums.EstadoVehiculo;
+import com.logiflow.fleetservice.model.entity.enums.TipoCarroceria;
+import com.logiflow.fleetservice.model.entity.enums.TipoDocumento;
+import com.logiflow.fleetservice.model.entity.enums.TipoLicencia;
+import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
+import com.logiflow.fleetservice.model.entity.vehiculo.Camion;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import com.logiflow.fleetservice.model.entity.vehiculo.Motorizado;
+import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
+import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoLiviano;
+import com.logiflow.fleetservice.repository.AsignacionRepository;
+import com.logiflow.fleetservice.repository.RepartidorRepository;
+import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.asignacion.AsignadorPorLotes;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
+import com.logiflow.fleetservice.service.asignacion.RegistroAsignaciones;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Asignación contra H2: el índice propone y el UPDATE condicional confirma.
+ * Cada guardado confirma su propia transacción, así los cambios llegan al índice.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("AsignacionService - índice de disponibilidad")
+class AsignacionServiceTest {
+
+  @Autowired
+  private AsignacionService asignacionService;
+
+  @Autowired
+  private IndiceDisponibilidad indiceDisponibilidad;
+
+  @Autowired
+  private RepartidorRepository repartidorRepository;
+
+  @Autowired
+  private VehiculoRepository vehiculoRepository;
+
+  private int secuencia;
+
+  @Autowired
+  private AsignacionRepository asignacionRepository;
+
+  @Autowired
+  private RegistroAsignaciones registroAsignaciones;
+
+  @Autowired
+  private AsignadorPorLotes asignadorPorLotes;
+
+  @AfterEach
+  void limpiar() {
+    asignacionRepository.deleteAll();
+    repartidorRepository.deleteAll();
+    vehiculoRepository.deleteAll();
+    indiceDisponibilidad.recargar();
+    registroAsignaciones.recargar();
+  }
+
+  @Test
+  @DisplayName("elige el vehículo de menor capacidad suficiente para el peso")
+  void eligeVehiculoMasAjustado() {
+    Repartidor camion = repartidor("Norte", new Camion(placa(), "Hino", "300", 2, 20.0));
+    Repartidor liviano = repartidor("Norte", new VehiculoLiviano(placa(), "Kia", "Rio", TipoCarroceria.SEDAN));
+    repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    indiceDisponibilidad.recargar();
+
+    AsignacionResponse respuesta = asignacionService.asignarRepartidorYVehiculo(solicitud("Norte", 120.0));
+
+    assertThat(respuesta.getEstado()).isEqualTo("ASIGNADO");
+    assertThat(respuesta.getRepartidorId()).isEqualTo(liviano.getId().toString());
+    assertThat(repartidorRepository.findById(liviano.getId()).orElseThrow().getEstado())
+        .isEqualTo(EstadoRepartidor.EN_RUTA);
+    assertThat(repartidorRepository.findById(camion.getId()).orElseThrow().getEstado())
+        .isEqualTo(EstadoRepartidor.DISPONIBLE);
+    assertThat(indiceDisponibilidad.disponibles()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("prefiere la zona del pedido aunque otra zona tenga un vehículo más ajustado")
+  void prefiereZonaDelPedido() {
+    repartidor("Sur", new VehiculoLiviano(placa(), "Kia", "Rio", TipoCarroceria.SEDAN));
+    Repartidor local = repartidor("norte", new Camion(placa(), "Hino", "300", 2, 20.0));
+    indiceDisponibilidad.recargar();
+
+    AsignacionResponse respuesta = asignacionService.asignarRepartidorYVehiculo(solicitud("Norte", 120.0));
+
+    assertThat(respuesta.getRepartidorId()).isEqualTo(local.getId().toString());
+  }
+
+  @Test
+  @DisplayName("si la base ya no tiene disponible al candidato pasa al siguiente")
+  void candidatoDesactualizadoPasaAlSiguiente() {
+    Repartidor ocupado = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    Repartidor libre = repartidor("Norte", new VehiculoLiviano(placa(), "Kia", "Rio", TipoCarroceria.SEDAN));
+    indiceDisponibilidad.recargar();
+
+    // Cambio escrito por otra instancia: este índice no se entera
+    ocupado.setEstado(EstadoRepartidor.EN_RUTA);
+    repartidorRepository.save(ocupado);
+
+    AsignacionResponse respuesta = asignacionService.asignarRepartidorYVehiculo(solicitud("Norte", 10.0));
+
+    assertThat(respuesta.getEstado()).isEqualTo("ASIGNADO");
+    assertThat(respuesta.getRepartidorId()).isEqualTo(libre.getId().toString());
+    assertThat(indiceDisponibilidad.disponibles()).isZero();
+  }
+
+  @Test
+  @DisplayName("un vehículo fuera de servicio saca a su repartidor del índice")
+  void vehiculoInactivoSaleDelIndice() {
+    Repartidor repartidor = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    indiceDisponibilidad.recargar();
+    assertThat(indiceDisponibilidad.disponibles()).isEqualTo(1);
+
+    VehiculoEntrega vehiculo = vehiculoRepository.findById(repartidor.getVehiculoAsignado().getId()).orElseThrow();
+    vehiculo.setEstado(EstadoVehiculo.MANTENIMIENTO);
+    indiceDisponibilidad.registrarVehiculo(vehiculoRepository.save(vehiculo));
+
+    AsignacionResponse respuesta = asignacionService.asignarRepartidorYVehiculo(solicitud("Norte", 10.0));
+
+    assertThat(respuesta.getEstado()).isEqualTo("RECHAZADO");
+    assertThat(respuesta.getMensaje()).isEqualTo("No hay repartidores disponibles en este momento");
+  }
+
+  @Test
+  @DisplayName("con coordenadas elige al más cercano y a igual distancia el de menor capacidad")
+  void eligeMasCercanoYDesempataPorCarga() {
+    Repartidor lejano = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150), -0.2500, -78.5000);
+    Repartidor camion = repartidor("Sur", new Camion(placa(), "Hino", "300", 2, 20.0), -0.1801, -78.4801);
+    Repartidor moto = repartidor("Sur", new Motorizado(placa(), "Honda", "CB", 150), -0.1802, -78.4802);
+    indiceDisponibilidad.recargar();
+
+    AsignacionResponse primera = asignacionService.asignarRepartidorYVehiculo(
+        solicitud("Norte", 10.0, -0.1800, -78.4800));
+    AsignacionResponse segunda = asignacionService.asignarRepartidorYVehiculo(
+        solicitud("Norte", 10.0, -0.1800, -78.4800));
+
+    assertThat(primera.getRepartidorId()).isEqualTo(moto.getId().toString());
+    assertThat(segunda.getRepartidorId()).isEqualTo(camion.getId().toString());
+    assertThat(repartidorRepository.findById(lejano.getId()).orElseThrow().getEstado())
+        .isEqualTo(EstadoRepartidor.DISPONIBLE);
+  }
+
+  @Test
+  @DisplayName("actualizarUbicacion mueve al repartidor de celda")
+  void ubicacionActualizadaCambiaElMasCercano() {
+    Repartidor primero = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150), -0.1800, -78.4800);
+    Repartidor segundo = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150), -0.3000, -78.6000);
+    indiceDisponibilidad.recargar();
+
+    indiceDisponibilidad.actualizarUbicacion(primero.getId(), new Coordenada(-0.9000, -79.0000));
+    indiceDisponibilidad.actualizarUbicacion(segundo.getId(), new Coordenada(-0.1805, -78.4805));
+
+    AsignacionResponse respuesta = asignacionService.asignarRepartidorYVehiculo(
+        solicitud("Norte", 10.0, -0.1800, -78.4800));
+
+    assertThat(respuesta.getRepartidorId()).isEqualTo(segundo.getId().toString());
+  }
+
+  @Test
+  @DisplayName("la asignación queda en el registro y un evento repetido no ocupa otro repartidor")
+  void asignacionRegistradaEsIdempotente() {
+    Repartidor primero = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    indiceDisponibilidad.recargar();
+    AsignacionRequest request = solicitud("Norte", 10.0);
+
+    AsignacionResponse respuesta = asignacionService.asignarRepartidorYVehiculo(request);
+    AsignacionResponse repetida = asignacionService.asignarRepartidorYVehiculo(request);
+
+    Asignacion fila = asignacionRepository.findByPedidoId(request.getPedidoId()).orElseThrow();
+    assertThat(fila.getRepartidorId().toString()).isEqualTo(respuesta.getRepartidorId());
+    assertThat(fila.getVehiculoId()).isEqualTo(primero.getVehiculoAsignado().getId());
+    assertThat(fila.getEstado()).isEqualTo(EstadoAsignacion.ACTIVA);
+    assertThat(repetida.getEstado()).isEqualTo("RECHAZADO");
+    assertThat(indiceDisponibilidad.disponibles()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("cancelaciones y entregas en lote liberan exactamente a sus repartidores")
+  void liberacionEnLoteLiberaRepartidoresCorrectos() {
+    for (int i = 0; i < 3; i++) {
+      repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    }
+    indiceDisponibilidad.recargar();
+    AsignacionRequest cancelado = solicitud("Norte", 10.0);
+    AsignacionRequest entregado = solicitud("Norte", 10.0);
+    AsignacionRequest enCurso = solicitud("Norte", 10.0);
+    String repartidorCancelado = asignacionService.asignarRepartidorYVehiculo(cancelado).getRepartidorId();
+    String repartidorEntregado = asignacionService.asignarRepartidorYVehiculo(entregado).getRepartidorId();
+    String repartidorEnCurso = asignacionService.asignarRepartidorYVehiculo(enCurso).getRepartidorId();
+    assertThat(indiceDisponibilidad.disponibles()).isZero();
+
+    asignacionService.liberar(Map.of(
+        cancelado.getPedidoId(), EstadoAsignacion.CANCELADA,
+        entregado.getPedidoId(), EstadoAsignacion.ENTREGADA));
+
+    assertThat(estado(repartidorCancelado)).isEqualTo(EstadoRepartidor.DISPONIBLE);
+    assertThat(estado(repartidorEntregado)).isEqualTo(EstadoRepartidor.DISPONIBLE);
+    assertThat(estado(repartidorEnCurso)).isEqualTo(EstadoRepartidor.EN_RUTA);
+    assertThat(asignacionRepository.findByPedidoId(cancelado.getPedidoId()).orElseThrow().getEstado())
+        .isEqualTo(EstadoAsignacion.CANCELADA);
+    assertThat(asignacionRepository.findByPedidoId(entregado.getPedidoId()).orElseThrow().getEstado())
+        .isEqualTo(EstadoAsignacion.ENTREGADA);
+    assertThat(registroAsignaciones.buscar(enCurso.getPedidoId())).isPresent();
+    assertThat(registroAsignaciones.buscar(cancelado.getPedidoId())).isEmpty();
+    assertThat(indiceDisponibilidad.disponibles()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("un pedido liberado puede volver a asignarse sobre la misma fila")
+  void reasignacionReutilizaFila() {
+    repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    indiceDisponibilidad.recargar();
+    AsignacionRequest request = solicitud("Norte", 10.0);
+
+    asignacionService.asignarRepartidorYVehiculo(request);
+    asignacionService.liberarAsignacion(request.getPedidoId());
+    AsignacionResponse otraVez = asignacionService.asignarRepartidorYVehiculo(request);
+
+    assertThat(otraVez.getEstado()).isEqualTo("ASIGNADO");
+    assertThat(asignacionRepository.count()).isEqualTo(1);
+    assertThat(asignacionRepository.findByPedidoId(request.getPedidoId()).orElseThrow().getEstado())
+        .isEqualTo(EstadoAsignacion.ACTIVA);
+  }
+
+  @Test
+  @DisplayName("en lote, el pedido liviano cercano al camión deja el camión al pedido pesado")
+  void loteRepartePorCostoTotal() {
+    Repartidor camion = repartidor("Norte", new Camion(placa(), "Hino", "300", 2, 20.0), -0.1800, -78.4800);
+    Repartidor moto = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150), -0.3000, -78.4800);
+    indiceDisponibilidad.recargar();
+    AsignacionRequest liviano = solicitud("Norte", 10.0, -0.1800, -78.4810);
+    AsignacionRequest pesado = solicitud("Norte", 1000.0, -0.1820, -78.4800);
+    Map<String, AsignacionResponse> respuestas = new HashMap<>();
+
+    // Uno por uno, el liviano se quedaría con el camión por estar más cerca
+    asignadorPorLotes.encolar(liviano, r -> respuestas.put(liviano.getPedidoId(), r));
+    asignadorPorLotes.encolar(pesado, r -> respuestas.put(pesado.getPedidoId(), r));
+    asignadorPorLotes.resolver();
+
+    assertThat(respuestas.get(liviano.getPedidoId()).getRepartidorId()).isEqualTo(moto.getId().toString());
+    assertThat(respuestas.get(pesado.getPedidoId()).getRepartidorId()).isEqualTo(camion.getId().toString());
+    assertThat(asignacionRepository.findByEstado(EstadoAsignacion.ACTIVA)).hasSize(2);
+    assertThat(indiceDisponibilidad.disponibles()).isZero();
+  }
+
+  @Test
+  @DisplayName("pedidos compatibles se consolidan en el vehículo que ya está en ruta")
+  void consolidaPedidosCompatibles() {
+    Repartidor camion = repartidor("Norte", new Camion(placa(), "Hino", "300", 2, 20.0));
+    repartidor("Norte", new Camion(placa(), "Hino", "300", 2, 20.0));
+    indiceDisponibilidad.recargar();
+
+    for (int i = 0; i < 3; i++) {
+      AsignacionResponse respuesta = asignacionService.asignarRepartidorYVehiculo(consolidable("Norte", 1000.0));
+      assertThat(respuesta.getRepartidorId()).isEqualTo(camion.getId().toString());
+    }
+
+    Repartidor guardado = repartidorRepository.findById(camion.getId()).orElseThrow();
+    assertThat(guardado.getPedidosEnCurso()).isEqualTo(3);
+    assertThat(guardado.getCargaAsignada()).isEqualTo(3000.0);
+    assertThat(indiceDisponibilidad.capacidadRestante(camion.getId())).hasValue(1000.0);
+    assertThat(indiceDisponibilidad.disponibles()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("no consolida con otra zona, sin capacidad suficiente ni pedidos EXPRESS")
+  void noConsolidaIncompatibles() {
+    Repartidor moto = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    Repartidor camion = repartidor("Norte", new Camion(placa(), "Hino", "300", 2, 20.0));
+    indiceDisponibilidad.recargar();
+
+    AsignacionResponse primero = asignacionService.asignarRepartidorYVehiculo(consolidable("Norte", 10.0));
+    AsignacionResponse otraZona = asignacionService.asignarRepartidorYVehiculo(consolidable("Sur", 10.0));
+    AsignacionResponse noCabe = asignacionService.asignarRepartidorYVehiculo(consolidable("Norte", 25.0));
+    AsignacionResponse express = asignacionService.asignarRepartidorYVehiculo(solicitud("Norte", 5.0));
+    AsignacionResponse cabe = asignacionService.asignarRepartidorYVehiculo(consolidable("Norte", 20.0));
+
+    assertThat(primero.getRepartidorId()).isEqualTo(moto.getId().toString());
+    assertThat(otraZona.getRepartidorId()).isEqualTo(camion.getId().toString());
+    assertThat(noCabe.getEstado()).isEqualTo("RECHAZADO");
+    assertThat(express.getEstado()).isEqualTo("RECHAZADO");
+    assertThat(cabe.getRepartidorId()).isEqualTo(moto.getId().toString());
+    assertThat(indiceDisponibilidad.capacidadRestante(moto.getId())).hasValue(0.0);
+  }
+
+  @Test
+  @DisplayName("el repartidor vuelve a DISPONIBLE recién al cerrar todos sus pedidos consolidados")
+  void liberaRepartidorAlCerrarTodosSusPedidos() {
+    Repartidor camion = repartidor("Norte", new Camion(placa(), "Hino", "300", 2, 20.0));
+    indiceDisponibilidad.recargar();
+    AsignacionRequest primero = consolidable("Norte", 500.0);
+    AsignacionRequest segundo = consolidable("Norte", 300.0);
+    asignacionService.asignarRepartidorYVehiculo(primero);
+    asignacionService.asignarRepartidorYVehiculo(segundo);
+
+    asignacionService.liberar(Map.of(primero.getPedidoId(), EstadoAsignacion.ENTREGADA));
+
+    Repartidor enRuta = repartidorRepository.findById(camion.getId()).orElseThrow();
+    assertThat(enRuta.getEstado()).isEqualTo(EstadoRepartidor.EN_RUTA);
+    assertThat(enRuta.getCargaAsignada()).isEqualTo(300.0);
+    assertThat(indiceDisponibilidad.capacidadRestante(camion.getId())).hasValue(3700.0);
+    assertThat(indiceDisponibilidad.disponibles()).isZero();
+
+    asignacionService.liberar(Map.of(segundo.getPedidoId(), EstadoAsignacion.ENTREGADA));
+
+    Repartidor libre = repartidorRepository.findById(camion.getId()).orElseThrow();
+    assertThat(libre.getEstado()).isEqualTo(EstadoRepartidor.DISPONIBLE);
+    assertThat(libre.getPedidosEnCurso()).isZero();
+    assertThat(indiceDisponibilidad.capacidadRestante(camion.getId())).isEmpty();
+    assertThat(indiceDisponibilidad.disponibles()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("la recarga del índice reconstruye la carga de los vehículos en ruta")
+  void recargaReconstruyeCargas() {
+    Repartidor camion = repartidor("Norte", new Camion(placa(), "Hino", "300", 2, 20.0));
+    indiceDisponibilidad.recargar();
+    asignacionService.asignarRepartidorYVehiculo(consolidable("Norte", 1500.0));
+    asignacionService.asignarRepartidorYVehiculo(consolidable("Norte", 500.0));
+
+    indiceDisponibilidad.recargar();
+
+    assertThat(indiceDisponibilidad.capacidadRestante(camion.getId())).hasValue(2000.0);
+    assertThat(asignacionService.asignarRepartidorYVehiculo(consolidable("Norte", 2000.0)).getRepartidorId())
+        .isEqualTo(camion.getId().toString());
+  }
+
+  @Test
+  @DisplayName("en lote consolida de mayor a menor peso y llena los huecos de los vehículos en ruta")
+  void loteConsolidaPrimerAjusteDecreciente() {
+    Repartidor primera = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    Repartidor segunda = repartidor("Norte", new Motorizado(placa(), "Honda", "CB", 150));
+    indiceDisponibilidad.recargar();
+    // Dos motos en ruta con 25 kg libres cada una
+    asignacionService.asignarRepartidorElegido(consolidable("Norte", 5.0), primera.getId());
+    asignacionService.asignarRepartidorElegido(consolidable("Norte", 5.0), segunda.getId());
+
+    // En orden de llegada el primer ajuste solo ubicaría tres: 10+10 en una, 15 en la otra
+    List<AsignacionRequest> lote = List.of(consolidable("Norte", 10.0), consolidable("Norte", 10.0),
+        consolidable("Norte", 15.0), consolidable("Norte", 15.0));
+    Map<String, AsignacionResponse> respuestas = new HashMap<>();
+    lote.forEach(request -> asignadorPorLotes.encolar(request, r -> respuestas.put(request.getPedidoId(), r)));
+    asignadorPorLotes.resolver();
+
+    assertThat(respuestas.values()).extracting(AsignacionResponse::getEstado).containsOnly("ASIGNADO");
+    assertThat(respuestas).hasSize(4);
+    assertThat(indiceDisponibilidad.capacidadRestante(primera.getId())).hasValue(0.0);
+    assertThat(indiceDisponibilidad.capacidadRestante(segunda.getId())).hasValue(0.0);
+  }
+
+  private EstadoRepartidor estado(String repartidorId) {
+    return repartidorRepository.findById(UUID.fromString(repartidorId)).orElseThrow().getEstado();
+  }
+
+  private Repartidor repartidor(String zona, VehiculoEntrega vehiculo, double latitud, double longitud) {
+    Repartidor repartidor = repartidor(zona, vehiculo);
+    repartidor.setUbicacionActual(new Coordenada(latitud, longitud));
+    return repartidorRepository.save(repartidor);
+  }
+
+  private Repartidor repartidor(String zona, VehiculoEntrega vehiculo) {
+    vehiculo.setAnio(2022);
+    VehiculoEntrega guardado = vehiculoRepository.save(vehiculo);
+    int n = ++secuencia;
+    return repartidorRepository.save(Repartidor.builder()
+        .nombre("Repartidor")
+        .apellido("Prueba " + n)
+        .documento("DOC-" + n)
+        .tipoDocumento(TipoDocumento.CEDULA)
+        .tipoLicencia(TipoLicencia.TIPO_E)
+        .zonaAsignada(zona)
+        .fechaContratacion(LocalDate.of(2024, 1, 15))
+        .vehiculoAsignado(guardado)
+        .build());
+  }
+
+  private String placa() {
+    return "PRB-" + (1000 + ++secuencia);
+  }
+
+  private AsignacionRequest solicitud(String ciudadOrigen, double peso, double latitud, double longitud) {
+    AsignacionRequest request = solicitud(ciudadOrigen, peso);
+    request.setLatitudOrigen(latitud);
+    request.setLongitudOrigen(longitud);
+    return request;
+  }
+
+  // EXPRESS: cada pedido ocupa su propio repartidor
+  private AsignacionRequest solicitud(String ciudadOrigen, double peso) {
+    AsignacionRequest request = consolidable(ciudadOrigen, peso);
+    request.setTipoEntrega("EXPRESS");
+    return request;
+  }
+
+  private AsignacionRequest consolidable(String ciudadOrigen, double peso) {
+    return AsignacionRequest.builder()
+        .pedidoId("PED-" + ++secuencia)
+        .modalidadServicio("URBANA_RAPIDA")
+        .tipoEntrega("STANDARD")
+        .prioridad("NORMAL")
+        .ciudadOrigen(ciudadOrigen)
+        .ciudadDestino(ciudadOrigen)
+        .peso(peso)
+        .build();
+  }
+}
@@ -11,6 +11,7 @@ import com.logiflow.fleetservice.model.entity.enums.TipoLicencia;
 import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
 import com.logiflow.fleetservice.repository.RepartidorRepository;
 import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -39,6 +40,9 @@ class RepartidorServiceImplTest {
   @Mock
   private RepartidorMapper repartidorMapper;
 
+  @Mock
+  private IndiceDisponibilidad indiceDisponibilidad;
+
   @InjectMocks
   private RepartidorServiceImpl repartidorService;
 
@@ -11,6 +11,7 @@ import com.logiflow.fleetservice.model.entity.enums.TipoVehiculo;
 import com.logiflow.fleetservice.model.entity.vehiculo.Motorizado;
 import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
 import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -38,6 +39,9 @@ class VehiculoServiceImplTest {
   @Mock
   private VehiculoMapper vehiculoMapper;
 
+  @Mock
+  private IndiceDisponibilidad indiceDisponibilidad;
+
   @InjectMocks
   private VehiculoServiceImpl vehiculoService;
 
@@ -0,0 +1,124 @@
+package com.logiflow.fleetservice.service.asignacion;
+
+import com.logiflow.fleetservice.dto.request.AsignacionRequest;
+import com.logiflow.fleetservice.dto.response.AsignacionResponse;
+import com.logiflow.fleetservice.model.entity.enums.TipoVehiculo;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import com.logiflow.fleetservice.service.AsignacionService;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad.Candidato;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad.Cercano;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios de las columnas del emparejamiento por lotes
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AsignadorPorLotes - candidatos por pedido")
+class AsignadorPorLotesTest {
+
+  @Mock
+  private AsignacionService asignacionService;
+
+  @Mock
+  private IndiceDisponibilidad indiceDisponibilidad;
+
+  @Test
+  @DisplayName("arma las columnas con los cercanos de cada pedido, sin recorrer todo el índice")
+  void usaCercanosDeCadaPedido() {
+    Candidato a1 = candidato(-0.10);
+    Candidato b1 = candidato(-0.30);
+    when(indiceDisponibilidad.cercanos(enLatitud(-0.10), anyDouble(), eq(5)))
+        .thenReturn(List.of(new Cercano(a1, 0.1), new Cercano(b1, 22.0)));
+    when(indiceDisponibilidad.cercanos(enLatitud(-0.30), anyDouble(), eq(5)))
+        .thenReturn(List.of(new Cercano(b1, 0.1), new Cercano(a1, 22.0)));
+
+    AsignadorPorLotes asignador = asignador(5, 1000);
+    asignador.encolar(pedido("p-a", -0.10), respuesta -> { });
+    asignador.encolar(pedido("p-b", -0.30), respuesta -> { });
+    asignador.resolver();
+
+    verify(asignacionService).asignarRepartidorElegido(argThat(r -> r.getPedidoId().equals("p-a")), eq(a1.repartidorId()));
+    verify(asignacionService).asignarRepartidorElegido(argThat(r -> r.getPedidoId().equals("p-b")), eq(b1.repartidorId()));
+    verify(indiceDisponibilidad, never()).candidatos();
+  }
+
+  @Test
+  @DisplayName("con el tope de columnas, cada pedido aporta primero su mejor candidato")
+  void topeDeColumnasPorTurnos() {
+    Candidato a1 = candidato(-0.10);
+    Candidato a2 = candidato(-0.11);
+    Candidato b1 = candidato(-0.30);
+    Candidato b2 = candidato(-0.31);
+    when(indiceDisponibilidad.cercanos(enLatitud(-0.10), anyDouble(), eq(2)))
+        .thenReturn(List.of(new Cercano(a1, 0.1), new Cercano(a2, 1.0)));
+    when(indiceDisponibilidad.cercanos(enLatitud(-0.30), anyDouble(), eq(2)))
+        .thenReturn(List.of(new Cercano(b1, 0.1), new Cercano(b2, 1.0)));
+
+    // Tope 2: entran a1 y b1 (no a1 y a2, que dejarían a p-b sin su repartidor)
+    AsignadorPorLotes asignador = asignador(2, 2);
+    asignador.encolar(pedido("p-a", -0.10), respuesta -> { });
+    asignador.encolar(pedido("p-b", -0.30), respuesta -> { });
+    asignador.resolver();
+
+    verify(asignacionService).asignarRepartidorElegido(argThat(r -> r.getPedidoId().equals("p-a")), eq(a1.repartidorId()));
+    verify(asignacionService).asignarRepartidorElegido(argThat(r -> r.getPedidoId().equals("p-b")), eq(b1.repartidorId()));
+  }
+
+  @Test
+  @DisplayName("un pedido sin coordenadas usa los más ajustados de su zona")
+  void sinCoordenadasUsaZona() {
+    Candidato enZona = new Candidato(UUID.randomUUID(), "Repartidor", "QUITO", UUID.randomUUID(), "ABC-123",
+        TipoVehiculo.MOTORIZADO, 20.0, null);
+    when(indiceDisponibilidad.ajustadosPorZona("Quito", 5.0, 5)).thenReturn(List.of(enZona));
+
+    AsignadorPorLotes asignador = asignador(5, 1000);
+    AsignacionRequest request = pedido("p-z", -0.10);
+    request.setLatitudOrigen(null);
+    request.setLongitudOrigen(null);
+    asignador.encolar(request, respuesta -> { });
+    asignador.resolver();
+
+    verify(asignacionService).asignarRepartidorElegido(request, enZona.repartidorId());
+    verify(indiceDisponibilidad, never()).cercanos(any(), anyDouble(), anyInt());
+  }
+
+  private AsignadorPorLotes asignador(int candidatosPorPedido, int maximoColumnas) {
+    lenient().when(asignacionService.asignarRepartidorElegido(any(), any()))
+        .thenReturn(AsignacionResponse.builder().build());
+    return new AsignadorPorLotes(asignacionService, indiceDisponibilidad, true, 1000, 30, 10, 1000,
+        candidatosPorPedido, maximoColumnas);
+  }
+
+  private static Coordenada enLatitud(double latitud) {
+    return argThat(c -> c != null && c.getLatitud() == latitud);
+  }
+
+  private static Candidato candidato(double latitud) {
+    return new Candidato(UUID.randomUUID(), "Repartidor", "QUITO", UUID.randomUUID(), "ABC-123",
+        TipoVehiculo.MOTORIZADO, 20.0, new Coordenada(latitud, -78.5));
+  }
+
+  private static AsignacionRequest pedido(String pedidoId, double latitud) {
+    return AsignacionRequest.builder()
+        .pedidoId(pedidoId)
+        .modalidadServicio("URBANA_RAPIDA")
+        .tipoEntrega("STANDARD")
+        .prioridad("NORMAL")
+        .ciudadOrigen("Quito")
+        .ciudadDestino("Quito")
+        .peso(5.0)
+        .latitudOrigen(latitud)
+        .longitudOrigen(-78.5)
+        .build();
+  }
+}
@@ -0,0 +1,101 @@
+package com.logiflow.fleetservice.service.asignacion;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests unitarios del emparejamiento de costo mínimo
+ */
+@DisplayName("EmparejamientoMinimoCosto - Tests")
+class EmparejamientoMinimoCostoTest {
+
+  @Test
+  @DisplayName("encuentra el óptimo aunque el goloso por filas falle")
+  void encuentraOptimo() {
+    // Goloso: fila 0 -> columna 0 (1) y fila 1 -> columna 1 (100) = 101; óptimo: 2 + 3 = 5
+    double[] costos = {
+        1, 2,
+        3, 100
+    };
+
+    int[] asignacion = EmparejamientoMinimoCosto.resolver(costos, 2, 2);
+
+    assertThat(asignacion).containsExactly(1, 0);
+  }
+
+  @Test
+  @DisplayName("coincide con la fuerza bruta en matrices rectangulares al azar")
+  void coincideConFuerzaBruta() {
+    Random random = new Random(42);
+    for (int prueba = 0; prueba < 200; prueba++) {
+      int filas = 1 + random.nextInt(5);
+      int columnas = filas + random.nextInt(3);
+      double[] costos = new double[filas * columnas];
+      for (int i = 0; i < costos.length; i++) {
+        costos[i] = random.nextInt(50);
+      }
+
+      int[] asignacion = EmparejamientoMinimoCosto.resolver(costos, filas, columnas);
+
+      assertThat(Arrays.stream(asignacion).distinct().count()).isEqualTo(filas);
+      assertThat(total(costos, columnas, asignacion))
+          .isEqualTo(fuerzaBruta(costos, filas, columnas, 0, new boolean[columnas]));
+    }
+  }
+
+  @Test
+  @DisplayName("resuelve 1.000 x 1.000 en menos de un segundo")
+  void resuelveMilPorMil() {
+    int n = 1000;
+    Random random = new Random(7);
+    double[] costos = new double[n * n];
+    for (int i = 0; i < costos.length; i++) {
+      costos[i] = random.nextDouble() * 100;
+    }
+    EmparejamientoMinimoCosto.resolver(costos, n, n);
+
+    long inicio = System.nanoTime();
+    int[] asignacion = EmparejamientoMinimoCosto.resolver(costos, n, n);
+    long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+
+    assertThat(Arrays.stream(asignacion).distinct().count()).isEqualTo(n);
+    assertThat(milisegundos).isLessThan(1000);
+  }
+
+  @Test
+  @DisplayName("rechaza más filas que columnas")
+  void rechazaMasFilasQueColumnas() {
+    assertThatThrownBy(() -> EmparejamientoMinimoCosto.resolver(new double[6], 3, 2))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static double total(double[] costos, int columnas, int[] asignacion) {
+    double total = 0;
+    for (int fila = 0; fila < asignacion.length; fila++) {
+      total += costos[fila * columnas + asignacion[fila]];
+    }
+    return total;
+  }
+
+  private static double fuerzaBruta(double[] costos, int filas, int columnas, int fila, boolean[] usadas) {
+    if (fila == filas) {
+      return 0;
+    }
+    double mejor = Double.POSITIVE_INFINITY;
+    for (int columna = 0; columna < columnas; columna++) {
+      if (!usadas[columna]) {
+        usadas[columna] = true;
+        mejor = Math.min(mejor, costos[fila * columnas + columna]
+            + fuerzaBruta(costos, filas, columnas, fila + 1, usadas));
+        usadas[columna] = false;
+      }
+    }
+    return mejor;
+  }
+}
@@ -0,0 +1,80 @@
+package com.logiflow.fleetservice.service.messaging;
+
+import com.logiflow.fleetservice.event.PedidoEstadoActualizadoEvent;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.service.AsignacionService;
+import com.logiflow.fleetservice.service.asignacion.AsignadorPorLotes;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PedidoEventListener - lote de pedido.estado.actualizado")
+class PedidoEventListenerTest {
+
+  @Mock
+  private AsignacionService asignacionService;
+
+  @Mock
+  private FleetEventPublisher fleetEventPublisher;
+
+  @Mock
+  private AsignadorPorLotes asignadorPorLotes;
+
+  @InjectMocks
+  private PedidoEventListener listener;
+
+  @Test
+  @DisplayName("aplica las liberaciones del lote en una sola llamada, con el último estado por pedido")
+  void liberaElLoteAntesDeRetornar() {
+    listener.handlePedidosEstadoActualizado(List.of(
+        evento("p-1", "CANCELADO"),
+        evento("p-2", "EN_TRANSITO"),
+        evento("p-3", "ENTREGADO"),
+        evento("p-1", "ENTREGADO"),
+        evento("p-4", "ASIGNADO"),
+        evento("p-5", "PENDIENTE")));
+
+    verify(asignacionService).liberar(Map.of(
+        "p-1", EstadoAsignacion.ENTREGADA,
+        "p-3", EstadoAsignacion.ENTREGADA,
+        "p-5", EstadoAsignacion.LIBERADA));
+  }
+
+  @Test
+  @DisplayName("un lote sin cancelaciones ni entregas no toca la base de datos")
+  void loteSinLiberaciones() {
+    listener.handlePedidosEstadoActualizado(List.of(evento("p-1", "ASIGNADO"), evento("p-2", "EN_TRANSITO")));
+
+    verifyNoInteractions(asignacionService);
+  }
+
+  @Test
+  @DisplayName("si la liberación falla la excepción llega al contenedor y el lote no se confirma")
+  void propagaErrorDeLiberacion() {
+    when(asignacionService.liberar(anyMap())).thenThrow(new DataAccessResourceFailureException("sin conexión"));
+
+    assertThatThrownBy(() -> listener.handlePedidosEstadoActualizado(List.of(evento("p-1", "CANCELADO"))))
+        .isInstanceOf(DataAccessResourceFailureException.class);
+  }
+
+  private PedidoEstadoActualizadoEvent evento(String pedidoId, String estadoNuevo) {
+    PedidoEstadoActualizadoEvent evento = new PedidoEstadoActualizadoEvent();
+    evento.setMessageId(pedidoId + "-" + estadoNuevo);
+    evento.setPedidoId(pedidoId);
+    evento.setEstadoAnterior("ASIGNADO");
+    evento.setEstadoNuevo(estadoNuevo);
+    return evento;
+  }
+}
@@ -0,0 +1,197 @@
+package com.logiflow.fleetservice.service.ruta;
+
+import com.logiflow.fleetservice.dto.request.AsignacionRequest;
+import com.logiflow.fleetservice.dto.response.ParadaRutaResponse;
+import com.logiflow.fleetservice.dto.response.PlanRutaResponse;
+import com.logiflow.fleetservice.exception.BusinessException;
+import com.logiflow.fleetservice.model.entity.enums.EstadoAsignacion;
+import com.logiflow.fleetservice.model.entity.enums.TipoDocumento;
+import com.logiflow.fleetservice.model.entity.enums.TipoLicencia;
+import com.logiflow.fleetservice.model.entity.repartidor.Repartidor;
+import com.logiflow.fleetservice.model.entity.vehiculo.Camion;
+import com.logiflow.fleetservice.model.entity.vehiculo.Coordenada;
+import com.logiflow.fleetservice.model.entity.vehiculo.VehiculoEntrega;
+import com.logiflow.fleetservice.repository.AsignacionRepository;
+import com.logiflow.fleetservice.repository.RepartidorRepository;
+import com.logiflow.fleetservice.repository.VehiculoRepository;
+import com.logiflow.fleetservice.service.AsignacionService;
+import com.logiflow.fleetservice.service.asignacion.IndiceDisponibilidad;
+import com.logiflow.fleetservice.service.asignacion.RegistroAsignaciones;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Planificación de rutas sobre pedidos consolidados en un mismo camión (H2)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("PlanificadorRutas - Tests")
+class PlanificadorRutasTest {
+
+  @Autowired
+  private PlanificadorRutas planificadorRutas;
+
+  @Autowired
+  private AsignacionService asignacionService;
+
+  @Autowired
+  private IndiceDisponibilidad indiceDisponibilidad;
+
+  @Autowired
+  private RegistroAsignaciones registroAsignaciones;
+
+  @Autowired
+  private AsignacionRepository asignacionRepository;
+
+  @Autowired
+  private RepartidorRepository repartidorRepository;
+
+  @Autowired
+  private VehiculoRepository vehiculoRepository;
+
+  private int secuencia;
+
+  @AfterEach
+  void limpiar() {
+    asignacionRepository.deleteAll();
+    repartidorRepository.deleteAll();
+    vehiculoRepository.deleteAll();
+    indiceDisponibilidad.recargar();
+    registroAsignaciones.recargar();
+  }
+
+  @Test
+  @DisplayName("cada entrega va después de su recogida y las horas estimadas avanzan")
+  void ordenaParadasDeLosPedidosEnCurso() {
+    Repartidor camion = camion(-0.18, -78.48);
+    asignacionService.asignarRepartidorYVehiculo(pedido(-0.17, -78.48, -0.10, -78.47, 500.0));
+    asignacionService.asignarRepartidorYVehiculo(pedido(-0.19, -78.49, -0.25, -78.52, 300.0));
+    asignacionService.asignarRepartidorYVehiculo(pedido(-0.16, -78.47, -0.12, -78.49, 200.0));
+
+    PlanRutaResponse plan = planificadorRutas.planificar(camion.getId());
+
+    assertThat(plan.getParadas()).hasSize(6);
+    assertThat(plan.getPedidosSinUbicacion()).isEmpty();
+    assertThat(plan.getDistanciaTotalKm()).isPositive();
+    assertRecogidaAntesDeEntrega(plan.getParadas());
+    for (int i = 1; i < plan.getParadas().size(); i++) {
+      ParadaRutaResponse anterior = plan.getParadas().get(i - 1);
+      ParadaRutaResponse actual = plan.getParadas().get(i);
+      assertThat(actual.getEta()).isAfter(anterior.getEta());
+      assertThat(actual.getDistanciaAcumuladaKm()).isGreaterThanOrEqualTo(anterior.getDistanciaAcumuladaKm());
+    }
+    assertThat(plan.getParadas().get(5).getCargaKg()).isZero();
+  }
+
+  @Test
+  @DisplayName("al sumar o cerrar un pedido se replanifica con las paradas vigentes")
+  void replanificaAlCambiarLosPedidos() {
+    Repartidor camion = camion(-0.18, -78.48);
+    AsignacionRequest primero = pedido(-0.17, -78.48, -0.10, -78.47, 500.0);
+    asignacionService.asignarRepartidorYVehiculo(primero);
+    asignacionService.asignarRepartidorYVehiculo(pedido(-0.19, -78.49, -0.25, -78.52, 300.0));
+    assertThat(planificadorRutas.planificar(camion.getId()).getParadas()).hasSize(4);
+
+    asignacionService.asignarRepartidorYVehiculo(pedido(-0.16, -78.47, -0.12, -78.49, 200.0));
+    PlanRutaResponse ampliado = planificadorRutas.planificar(camion.getId());
+    assertThat(ampliado.getParadas()).hasSize(6);
+    assertRecogidaAntesDeEntrega(ampliado.getParadas());
+
+    asignacionService.liberar(Map.of(primero.getPedidoId(), EstadoAsignacion.ENTREGADA));
+    PlanRutaResponse reducido = planificadorRutas.planificar(camion.getId());
+    assertThat(reducido.getParadas()).hasSize(4)
+        .noneMatch(parada -> parada.getPedidoId().equals(primero.getPedidoId()));
+    assertRecogidaAntesDeEntrega(reducido.getParadas());
+  }
+
+  @Test
+  @DisplayName("un pedido sin coordenadas queda fuera de la secuencia")
+  void informaPedidosSinUbicacion() {
+    Repartidor camion = camion(-0.18, -78.48);
+    AsignacionRequest sinCoordenadas = pedido(-0.17, -78.48, -0.10, -78.47, 100.0);
+    sinCoordenadas.setLatitudOrigen(null);
+    sinCoordenadas.setLongitudOrigen(null);
+    sinCoordenadas.setLatitudDestino(null);
+    sinCoordenadas.setLongitudDestino(null);
+    asignacionService.asignarRepartidorYVehiculo(sinCoordenadas);
+    asignacionService.asignarRepartidorYVehiculo(pedido(-0.19, -78.49, -0.25, -78.52, 300.0));
+
+    PlanRutaResponse plan = planificadorRutas.planificar(camion.getId());
+
+    assertThat(plan.getParadas()).hasSize(2);
+    assertThat(plan.getPedidosSinUbicacion()).containsExactly(sinCoordenadas.getPedidoId());
+  }
+
+  @Test
+  @DisplayName("rechaza repartidores sin vehículo")
+  void rechazaRepartidorSinVehiculo() {
+    Repartidor repartidor = repartidorRepository.save(repartidor(null));
+
+    assertThatThrownBy(() -> planificadorRutas.planificar(repartidor.getId()))
+        .isInstanceOf(BusinessException.class);
+  }
+
+  private static void assertRecogidaAntesDeEntrega(List<ParadaRutaResponse> paradas) {
+    for (int i = 0; i < paradas.size(); i++) {
+      ParadaRutaResponse parada = paradas.get(i);
+      if (parada.getTipo().equals("ENTREGA")) {
+        List<ParadaRutaResponse> previas = paradas.subList(0, i);
+        assertThat(previas).anyMatch(previa -> previa.getPedidoId().equals(parada.getPedidoId())
+            && previa.getTipo().equals("RECOGIDA"));
+      }
+    }
+  }
+
+  private Repartidor camion(double latitud, double longitud) {
+    VehiculoEntrega vehiculo = new Camion("PRB-" + (2000 + ++secuencia), "Hino", "300", 2, 20.0);
+    vehiculo.setAnio(2022);
+    Repartidor repartidor = repartidor(vehiculoRepository.save(vehiculo));
+    repartidor.setUbicacionActual(new Coordenada(latitud, longitud));
+    Repartidor guardado = repartidorRepository.save(repartidor);
+    indiceDisponibilidad.recargar();
+    return guardado;
+  }
+
+  private Repartidor repartidor(VehiculoEntrega vehiculo) {
+    int n = ++secuencia;
+    return Repartidor.builder()
+        .nombre("Repartidor")
+        .apellido("Ruta " + n)
+        .documento("RUT-" + n)
+        .tipoDocumento(TipoDocumento.CEDULA)
+        .tipoLicencia(TipoLicencia.TIPO_E)
+        .zonaAsignada("Quito")
+        .fechaContratacion(LocalDate.of(2024, 1, 15))
+        .vehiculoAsignado(vehiculo)
+        .build();
+  }
+
+  // STANDARD: se consolida en el camión que ya está en ruta
+  private AsignacionRequest pedido(double latitudOrigen, double longitudOrigen,
+                                   double latitudDestino, double longitudDestino, double peso) {
+    return AsignacionRequest.builder()
+        .pedidoId("PED-R" + ++secuencia)
+        .modalidadServicio("URBANA_RAPIDA")
+        .tipoEntrega("STANDARD")
+        .prioridad("NORMAL")
+        .ciudadOrigen("Quito")
+        .ciudadDestino("Quito")
+        .peso(peso)
+        .latitudOrigen(latitudOrigen)
+        .longitudOrigen(longitudOrigen)
+        .latitudDestino(latitudDestino)
+        .longitudDestino(longitudDestino)
+        .build();
+  }
+}
@@ -0,0 +1,168 @@
+package com.logiflow.fleetservice.service.ruta;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests unitarios del secuenciador de paradas
+ */
+@DisplayName("SecuenciadorParadas - Tests")
+class SecuenciadorParadasTest {
+
+  @Test
+  @DisplayName("sobre una línea recorre las paradas en orden de distancia")
+  void recorreLineaEnOrden() {
+    double[] x = {0, 4, 1, 3, 2};
+    SecuenciadorParadas secuenciador = sinRestricciones(x);
+
+    int[] ruta = secuenciador.secuenciar(null);
+
+    assertThat(ruta).containsExactly(2, 4, 3, 1);
+    assertThat(secuenciador.longitud(ruta)).isEqualTo(4.0);
+  }
+
+  @Test
+  @DisplayName("cada entrega queda después de su recogida y la carga no supera la capacidad")
+  void respetaPrecedenciaYCapacidad() {
+    // Nodos: 1 recoge A (10 kg), 2 entrega A, 3 recoge B (10 kg), 4 entrega B; capacidad 10 kg.
+    // Sin capacidad convendría recoger A y B juntos (1, 3, 4, 2 = 13); con 10 kg se lleva uno a la vez.
+    double[] x = {0, 5, 1, 6, 7};
+    double[] cargas = {0, 10, -10, 10, -10};
+    int[] previa = {-1, -1, 1, -1, 3};
+    SecuenciadorParadas secuenciador = new SecuenciadorParadas(matriz(x), x.length, cargas, previa, 10.0);
+
+    int[] ruta = secuenciador.secuenciar(null);
+
+    assertThat(secuenciador.factible(ruta)).isTrue();
+    assertThat(secuenciador.factible(new int[]{1, 3, 4, 2})).isFalse();
+    assertThat(secuenciador.factible(new int[]{2, 1, 3, 4})).isFalse();
+    assertThat(ruta).containsExactly(3, 4, 1, 2);
+  }
+
+  @Test
+  @DisplayName("replanifica desde la secuencia anterior insertando la parada nueva")
+  void replanificaDesdeSemilla() {
+    double[] x = {0, 1, 2, 3, 4, 2.5};
+    SecuenciadorParadas secuenciador = sinRestricciones(x);
+
+    int[] ruta = secuenciador.secuenciar(new int[]{1, 2, 3, 4, 99});
+
+    assertThat(ruta).containsExactly(1, 2, 5, 3, 4);
+  }
+
+  @Test
+  @DisplayName("2-opt y Or-opt no empeoran la semilla del vecino más cercano")
+  void mejoraAlVecinoMasCercano() {
+    Random random = new Random(11);
+    for (int prueba = 0; prueba < 50; prueba++) {
+      int pedidos = 10;
+      double[][] puntos = puntosAlAzar(random, 2 * pedidos + 1);
+      SecuenciadorParadas secuenciador = conPedidos(puntos, pedidos, 1000.0);
+      int[] vecino = vecinoMasCercano(puntos, pedidos);
+
+      int[] ruta = secuenciador.secuenciar(null);
+
+      assertThat(secuenciador.factible(ruta)).isTrue();
+      assertThat(Arrays.stream(ruta).sorted().toArray())
+          .containsExactly(java.util.stream.IntStream.rangeClosed(1, 2 * pedidos).toArray());
+      assertThat(secuenciador.longitud(ruta)).isLessThanOrEqualTo(secuenciador.longitud(vecino) + 1e-9);
+    }
+  }
+
+  @Test
+  @DisplayName("secuencia 50 paradas en menos de 50 ms")
+  void secuenciaCincuentaParadas() {
+    Random random = new Random(3);
+    double[][] puntos = puntosAlAzar(random, 51);
+    for (int i = 0; i < 20; i++) {
+      conPedidos(puntosAlAzar(random, 51), 25, 100.0).secuenciar(null);
+    }
+
+    long inicio = System.nanoTime();
+    SecuenciadorParadas secuenciador = conPedidos(puntos, 25, 100.0);
+    int[] ruta = secuenciador.secuenciar(null);
+    long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+
+    assertThat(ruta).hasSize(50);
+    assertThat(secuenciador.factible(ruta)).isTrue();
+    assertThat(milisegundos).isLessThan(50);
+  }
+
+  // Pedido k: recogida en el nodo 2k-1 (10 kg) y entrega en el 2k
+  private static SecuenciadorParadas conPedidos(double[][] puntos, int pedidos, double capacidad) {
+    int nodos = 2 * pedidos + 1;
+    double[] cargas = new double[nodos];
+    int[] previa = new int[nodos];
+    previa[0] = -1;
+    for (int k = 1; k <= pedidos; k++) {
+      cargas[2 * k - 1] = 10;
+      cargas[2 * k] = -10;
+      previa[2 * k - 1] = -1;
+      previa[2 * k] = 2 * k - 1;
+    }
+    return new SecuenciadorParadas(matriz(puntos), nodos, cargas, previa, capacidad);
+  }
+
+  private static int[] vecinoMasCercano(double[][] puntos, int pedidos) {
+    SecuenciadorParadas sinMejora = conPedidos(puntos, pedidos, 1000.0);
+    int nodos = puntos.length;
+    double[] distancias = matriz(puntos);
+    int[] ruta = new int[nodos - 1];
+    boolean[] visitado = new boolean[nodos];
+    int actual = 0;
+    for (int i = 0; i < ruta.length; i++) {
+      int mejor = -1;
+      for (int nodo = 1; nodo < nodos; nodo++) {
+        boolean habilitado = nodo % 2 == 1 || visitado[nodo - 1];
+        if (!visitado[nodo] && habilitado
+            && (mejor < 0 || distancias[actual * nodos + nodo] < distancias[actual * nodos + mejor])) {
+          mejor = nodo;
+        }
+      }
+      ruta[i] = mejor;
+      visitado[mejor] = true;
+      actual = mejor;
+    }
+    assertThat(sinMejora.factible(ruta)).isTrue();
+    return ruta;
+  }
+
+  private static SecuenciadorParadas sinRestricciones(double[] x) {
+    double[] cargas = new double[x.length];
+    int[] previa = new int[x.length];
+    Arrays.fill(previa, -1);
+    return new SecuenciadorParadas(matriz(x), x.length, cargas, previa, 1.0);
+  }
+
+  private static double[] matriz(double[] x) {
+    double[][] puntos = new double[x.length][];
+    for (int i = 0; i < x.length; i++) {
+      puntos[i] = new double[]{x[i], 0};
+    }
+    return matriz(puntos);
+  }
+
+  private static double[] matriz(double[][] puntos) {
+    int n = puntos.length;
+    double[] distancias = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        distancias[i * n + j] = Math.hypot(puntos[i][0] - puntos[j][0], puntos[i][1] - puntos[j][1]);
+      }
+    }
+    return distancias;
+  }
+
+  private static double[][] puntosAlAzar(Random random, int cantidad) {
+    double[][] puntos = new double[cantidad][];
+    for (int i = 0; i < cantidad; i++) {
+      puntos[i] = new double[]{random.nextDouble() * 20, random.nextDouble() * 20};
+    }
+    return puntos;
+  }
+}
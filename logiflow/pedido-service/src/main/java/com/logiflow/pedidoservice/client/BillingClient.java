@@ -2,28 +2,32 @@ package com.logiflow.pedidoservice.client;
 
 import com.logiflow.pedidoservice.dto.FacturaRequest;
 import com.logiflow.pedidoservice.dto.FacturaResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Cliente REST para comunicación con Billing Service
- * Usa RestTemplate (Spring tradicional)
+ * Usa RestTemplate con pool, timeouts, bulkhead y circuit breaker (ver RestTemplateConfig)
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class BillingClient {
 
-    private final RestTemplate restTemplate;
+    private final ClienteDownstream billing;
 
-    @Value("${services.billing.url:http://localhost:8082}")
-    private String billingServiceUrl;
+    public BillingClient(@Qualifier("billingDownstream") ClienteDownstream billing) {
+        this.billing = billing;
+    }
 
     /**
      * Crea una factura en el Billing Service
@@ -38,8 +42,6 @@ public class BillingClient {
             try {
                 log.info("Llamando a Billing Service para crear factura - pedidoId: {}", request.getPedidoId());
 
-                String url = billingServiceUrl + "/api/facturas";
-
                 // 🔹 CONFIGURACIÓN DE HEADERS
                 HttpHeaders headers = new HttpHeaders();
 
@@ -50,12 +52,12 @@ public class BillingClient {
                 // 🔹 Envolvemos request + headers
                 HttpEntity<FacturaRequest> entity = new HttpEntity<>(request, headers);
 
-                // 🔹 Hacemos el POST (Cambiamos postForObject por exchange para mayor control si fuera necesario)
-                FacturaResponse response = restTemplate.postForObject(
-                        url,
+                // 🔹 Hacemos el POST; con billing caído o saturado falla al instante (ServicioNoDisponibleException)
+                FacturaResponse response = billing.ejecutar(restTemplate -> restTemplate.postForObject(
+                        "/api/facturas",
                         entity,
                         FacturaResponse.class
-                );
+                ));
 
                 log.info("💰 [BILLING-CLIENT] Factura creada exitosamente | FacturaID: {} | PedidoID: {} | Monto: ${}", 
                     response.getId(), request.getPedidoId(), response.getMontoTotal());
@@ -79,9 +81,8 @@ public class BillingClient {
         try {
             log.info("Consultando factura por pedidoId: {}", pedidoId);
 
-            String url = billingServiceUrl + "/api/facturas/pedido/" + pedidoId;
-
-            FacturaResponse response = restTemplate.getForObject(url, FacturaResponse.class);
+            FacturaResponse response = billing.ejecutar(restTemplate ->
+                    restTemplate.getForObject("/api/facturas/pedido/{pedidoId}", FacturaResponse.class, pedidoId));
 
             log.info("Factura encontrada - facturaId: {}", response.getId());
 
@@ -92,5 +93,30 @@ public class BillingClient {
             return null; // Devuelve null si no se encuentra
         }
     }
-}
 
+    /**
+     * Obtiene las facturas de varios pedidos en un solo request
+     * (GET /api/facturas?pedidoIds=...), en lugar de una llamada por pedido
+     *
+     * @param pedidoIds IDs de pedido (UUID como String)
+     * @return facturas encontradas por pedidoId; los pedidos sin factura no aparecen
+     */
+    public Map<String, FacturaResponse> obtenerFacturasPorPedidoIds(Collection<String> pedidoIds) {
+        if (pedidoIds.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            log.info("Consultando facturas en lote - pedidos: {}", pedidoIds.size());
+
+            FacturaResponse[] response = billing.ejecutar(restTemplate -> restTemplate.getForObject(
+                    "/api/facturas?pedidoIds={pedidoIds}", FacturaResponse[].class, String.join(",", pedidoIds)));
+
+            return response == null ? Map.of() : Arrays.stream(response)
+                    .collect(Collectors.toMap(FacturaResponse::getPedidoId, Function.identity()));
+
+        } catch (RestClientException e) {
+            log.error("Error al obtener facturas en lote: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+}
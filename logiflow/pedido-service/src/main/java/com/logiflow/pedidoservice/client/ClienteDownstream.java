@@ -0,0 +1,69 @@
+package com.logiflow.pedidoservice.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.function.Function;
+
+/**
+ * Llamadas HTTP hacia un servicio downstream (billing, fleet)
+ *
+ * - RestTemplate propio con pool de conexiones y timeouts (ver RestTemplateConfig).
+ * - Bulkhead sin espera: con todas las llamadas permitidas en curso, la siguiente falla
+ *   de inmediato en lugar de encolarse reteniendo el hilo que la hace.
+ * - Circuit breaker: con demasiadas fallas o llamadas lentas deja de llamar por un tiempo
+ *   y falla rápido; después deja pasar unas pocas llamadas de prueba. Los 4xx son
+ *   respuestas válidas del servicio y no cuentan.
+ *
+ * Ambos rechazos salen como ServicioNoDisponibleException.
+ */
+@Slf4j
+public class ClienteDownstream {
+
+    private final String nombre;
+    private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public ClienteDownstream(String nombre, RestTemplate restTemplate,
+                             CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.nombre = nombre;
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * Ejecuta la llamada con bulkhead (afuera) y circuit breaker (adentro): un rechazo
+     * del circuito devuelve el permiso del bulkhead al instante
+     */
+    public <T> T ejecutar(Function<RestTemplate, T> llamada) {
+        try {
+            return bulkhead.executeSupplier(() ->
+                    circuitBreaker.executeSupplier(() -> llamada.apply(restTemplate)));
+        } catch (CallNotPermittedException e) {
+            log.warn("[DOWNSTREAM] {}: circuito abierto, llamada rechazada sin salir a la red", nombre);
+            throw new ServicioNoDisponibleException(nombre + " no disponible (circuito abierto)", e);
+        } catch (BulkheadFullException e) {
+            log.warn("[DOWNSTREAM] {}: {} llamadas en curso, llamada rechazada",
+                    nombre, bulkhead.getBulkheadConfig().getMaxConcurrentCalls());
+            throw new ServicioNoDisponibleException(nombre + " saturado (bulkhead lleno)", e);
+        }
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+}
@@ -2,27 +2,24 @@ package com.logiflow.pedidoservice.client;
 
 import com.logiflow.pedidoservice.dto.AsignacionRequest;
 import com.logiflow.pedidoservice.dto.AsignacionResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * Cliente REST para comunicación con Fleet Service
- * Usa RestTemplate (Spring tradicional)
- * NOTA: Este servicio aún no está implementado, preparado para uso futuro
+ * Usa RestTemplate con pool, timeouts, bulkhead y circuit breaker (ver RestTemplateConfig)
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class FleetClient {
 
-    private final RestTemplate restTemplate;
+    private final ClienteDownstream fleet;
 
-    @Value("${services.fleet.url:http://localhost:8083}")
-    private String fleetServiceUrl;
+    public FleetClient(@Qualifier("fleetDownstream") ClienteDownstream fleet) {
+        this.fleet = fleet;
+    }
 
     /**
      * Solicita asignación de repartidor y vehículo al Fleet Service
@@ -35,13 +32,11 @@ public class FleetClient {
         try {
             log.info("Llamando a Fleet Service para asignar repartidor - pedidoId: {}", request.getPedidoId());
 
-            String url = fleetServiceUrl + "/api/asignaciones";
-
-            AsignacionResponse response = restTemplate.postForObject(
-                    url,
+            AsignacionResponse response = fleet.ejecutar(restTemplate -> restTemplate.postForObject(
+                    "/api/asignaciones",
                     request,
                     AsignacionResponse.class
-            );
+            ));
 
             if (response != null) {
                 log.info("Repartidor asignado exitosamente - repartidorId: {}, vehiculoId: {}",
@@ -53,6 +48,7 @@ public class FleetClient {
         } catch (RestClientException e) {
             log.error("Error al comunicarse con Fleet Service: {}", e.getMessage());
             // Retornar respuesta con estado RECHAZADO en lugar de lanzar excepción
+            // (también con circuito abierto o bulkhead lleno: el pedido sigue al reintento programado)
             return AsignacionResponse.builder()
                     .estado("RECHAZADO")
                     .mensaje("Fleet Service no disponible: " + e.getMessage())
@@ -68,9 +64,10 @@ public class FleetClient {
         try {
             log.info("Liberando asignación para pedido: {}", pedidoId);
 
-            String url = fleetServiceUrl + "/api/asignaciones/pedido/" + pedidoId + "/liberar";
-
-            restTemplate.delete(url);
+            fleet.ejecutar(restTemplate -> {
+                restTemplate.delete("/api/asignaciones/pedido/{pedidoId}/liberar", pedidoId);
+                return null;
+            });
 
             log.info("Asignación liberada exitosamente");
 
@@ -0,0 +1,15 @@
+package com.logiflow.pedidoservice.client;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * La llamada a un servicio downstream se rechazó sin salir por la red:
+ * circuito abierto o bulkhead sin lugar. Es un RestClientException, así los
+ * clientes la tratan igual que un error de comunicación.
+ */
+public class ServicioNoDisponibleException extends RestClientException {
+
+    public ServicioNoDisponibleException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
@@ -0,0 +1,34 @@
+package com.logiflow.pedidoservice.cobertura;
+
+import com.logiflow.pedidoservice.model.TipoEntrega;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Definición de zonas de cobertura tal como se lee del archivo JSON
+ *
+ * @param celdaGrados  lado de la celda del índice en grados (≈ 5.5 km con 0.05)
+ * @param tiposEntrega tipos de entrega por clase de cobertura (URBANA, INTERMUNICIPAL, NACIONAL)
+ * @param zonas        polígonos de cada zona
+ */
+public record ConfiguracionZonas(
+        Double celdaGrados,
+        Map<String, List<TipoEntrega>> tiposEntrega,
+        List<Zona> zonas) {
+
+    /**
+     * @param id           identificador estable de la zona
+     * @param ciudad       ciudad en mayúsculas, sin tildes (forma parte de la cobertura URBANA-{CIUDAD})
+     * @param provincia    provincia en mayúsculas, sin tildes (INTERMUNICIPAL-{PROVINCIA})
+     * @param tiposEntrega restricción opcional: solo estos tipos para rutas que tocan la zona
+     * @param poligono     vértices [latitud, longitud] en orden, sin repetir el primero al final
+     */
+    public record Zona(
+            String id,
+            String ciudad,
+            String provincia,
+            List<TipoEntrega> tiposEntrega,
+            List<double[]> poligono) {
+    }
+}
@@ -0,0 +1,204 @@
+package com.logiflow.pedidoservice.cobertura;
+
+import com.logiflow.pedidoservice.model.TipoEntrega;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice espacial inmutable de zonas de cobertura
+ *
+ * Una grilla uniforme cubre el rectángulo envolvente de todas las zonas; cada celda guarda
+ * las zonas cuyo rectángulo la toca. Localizar un punto es: calcular la celda, descartar
+ * por rectángulo y, solo para los candidatos restantes, el test punto-en-polígono
+ * (ray casting). La cobertura y los tipos de entrega de cada par de zonas se precalculan
+ * en una tabla n×n, así resolver una ruta no crea objetos.
+ */
+public final class IndiceZonas {
+
+    private static final double CELDA_POR_DEFECTO = 0.05;
+    private static final int[] SIN_CANDIDATOS = new int[0];
+
+    private final String[] ids;
+    private final double[][] latitudes;     // vértices por zona
+    private final double[][] longitudes;
+    private final double[] minLat, maxLat, minLon, maxLon;
+
+    private final double origenLat, origenLon, celda;
+    private final int filas, columnas;
+    private final int[][] celdas;           // [fila * columnas + columna] -> zonas candidatas
+
+    private final ResolucionCobertura[] resoluciones; // [origen * n + destino]
+
+    private IndiceZonas(ConfiguracionZonas config) {
+        List<ConfiguracionZonas.Zona> zonas = config.zonas();
+        if (zonas == null || zonas.isEmpty()) {
+            throw new IllegalArgumentException("La configuración no define zonas");
+        }
+        int n = zonas.size();
+        ids = new String[n];
+        latitudes = new double[n][];
+        longitudes = new double[n][];
+        minLat = new double[n];
+        maxLat = new double[n];
+        minLon = new double[n];
+        maxLon = new double[n];
+
+        double gMinLat = Double.MAX_VALUE, gMaxLat = -Double.MAX_VALUE;
+        double gMinLon = Double.MAX_VALUE, gMaxLon = -Double.MAX_VALUE;
+        for (int z = 0; z < n; z++) {
+            ConfiguracionZonas.Zona zona = zonas.get(z);
+            List<double[]> vertices = zona.poligono();
+            if (vertices == null || vertices.size() < 3) {
+                throw new IllegalArgumentException("La zona " + zona.id() + " necesita al menos 3 vértices");
+            }
+            ids[z] = zona.id();
+            latitudes[z] = new double[vertices.size()];
+            longitudes[z] = new double[vertices.size()];
+            minLat[z] = minLon[z] = Double.MAX_VALUE;
+            maxLat[z] = maxLon[z] = -Double.MAX_VALUE;
+            for (int v = 0; v < vertices.size(); v++) {
+                double lat = vertices.get(v)[0];
+                double lon = vertices.get(v)[1];
+                latitudes[z][v] = lat;
+                longitudes[z][v] = lon;
+                minLat[z] = Math.min(minLat[z], lat);
+                maxLat[z] = Math.max(maxLat[z], lat);
+                minLon[z] = Math.min(minLon[z], lon);
+                maxLon[z] = Math.max(maxLon[z], lon);
+            }
+            gMinLat = Math.min(gMinLat, minLat[z]);
+            gMaxLat = Math.max(gMaxLat, maxLat[z]);
+            gMinLon = Math.min(gMinLon, minLon[z]);
+            gMaxLon = Math.max(gMaxLon, maxLon[z]);
+        }
+
+        celda = config.celdaGrados() != null && config.celdaGrados() > 0 ? config.celdaGrados() : CELDA_POR_DEFECTO;
+        origenLat = gMinLat;
+        origenLon = gMinLon;
+        filas = (int) Math.floor((gMaxLat - gMinLat) / celda) + 1;
+        columnas = (int) Math.floor((gMaxLon - gMinLon) / celda) + 1;
+        celdas = construirCeldas(n);
+        resoluciones = construirResoluciones(zonas, config.tiposEntrega());
+    }
+
+    public static IndiceZonas construir(ConfiguracionZonas config) {
+        return new IndiceZonas(config);
+    }
+
+    public int totalZonas() {
+        return ids.length;
+    }
+
+    /**
+     * @return índice de la zona que contiene el punto, o -1 si está fuera de cobertura
+     */
+    public int localizar(double lat, double lon) {
+        int fila = (int) Math.floor((lat - origenLat) / celda);
+        int columna = (int) Math.floor((lon - origenLon) / celda);
+        if (fila < 0 || fila >= filas || columna < 0 || columna >= columnas) {
+            return -1;
+        }
+        for (int z : celdas[fila * columnas + columna]) {
+            if (lat >= minLat[z] && lat <= maxLat[z] && lon >= minLon[z] && lon <= maxLon[z]
+                    && contiene(z, lat, lon)) {
+                return z;
+            }
+        }
+        return -1;
+    }
+
+    public ResolucionCobertura resolucion(int zonaOrigen, int zonaDestino) {
+        return resoluciones[zonaOrigen * ids.length + zonaDestino];
+    }
+
+    /**
+     * Ray casting: cuenta cruces de un rayo horizontal hacia el este con los lados del polígono
+     */
+    private boolean contiene(int z, double lat, double lon) {
+        double[] ys = latitudes[z];
+        double[] xs = longitudes[z];
+        boolean dentro = false;
+        for (int i = 0, j = ys.length - 1; i < ys.length; j = i++) {
+            if ((ys[i] > lat) != (ys[j] > lat)
+                    && lon < (xs[j] - xs[i]) * (lat - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                dentro = !dentro;
+            }
+        }
+        return dentro;
+    }
+
+    private int[][] construirCeldas(int n) {
+        List<List<Integer>> porCelda = new ArrayList<>(filas * columnas);
+        for (int c = 0; c < filas * columnas; c++) {
+            porCelda.add(null);
+        }
+        for (int z = 0; z < n; z++) {
+            int f0 = (int) Math.floor((minLat[z] - origenLat) / celda);
+            int f1 = (int) Math.floor((maxLat[z] - origenLat) / celda);
+            int c0 = (int) Math.floor((minLon[z] - origenLon) / celda);
+            int c1 = (int) Math.floor((maxLon[z] - origenLon) / celda);
+            for (int f = f0; f <= f1; f++) {
+                for (int c = c0; c <= c1; c++) {
+                    int indice = f * columnas + c;
+                    if (porCelda.get(indice) == null) {
+                        porCelda.set(indice, new ArrayList<>(2));
+                    }
+                    porCelda.get(indice).add(z);
+                }
+            }
+        }
+
+        int[][] resultado = new int[filas * columnas][];
+        for (int c = 0; c < resultado.length; c++) {
+            List<Integer> zonas = porCelda.get(c);
+            resultado[c] = zonas == null
+                    ? SIN_CANDIDATOS
+                    : zonas.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return resultado;
+    }
+
+    private static ResolucionCobertura[] construirResoluciones(List<ConfiguracionZonas.Zona> zonas,
+                                                               Map<String, List<TipoEntrega>> tiposPorClase) {
+        int n = zonas.size();
+        ResolucionCobertura[] tabla = new ResolucionCobertura[n * n];
+        for (int o = 0; o < n; o++) {
+            ConfiguracionZonas.Zona origen = zonas.get(o);
+            for (int d = 0; d < n; d++) {
+                ConfiguracionZonas.Zona destino = zonas.get(d);
+
+                String clase;
+                String cobertura;
+                if (origen.ciudad().equalsIgnoreCase(destino.ciudad())) {
+                    clase = "URBANA";
+                    cobertura = "URBANA-" + origen.ciudad().toUpperCase();
+                } else if (origen.provincia().equalsIgnoreCase(destino.provincia())) {
+                    clase = "INTERMUNICIPAL";
+                    cobertura = "INTERMUNICIPAL-" + origen.provincia().toUpperCase();
+                } else {
+                    clase = "NACIONAL";
+                    cobertura = "NACIONAL";
+                }
+
+                Set<TipoEntrega> tipos = EnumSet.noneOf(TipoEntrega.class);
+                List<TipoEntrega> deClase = tiposPorClase != null ? tiposPorClase.get(clase) : null;
+                tipos.addAll(deClase != null ? deClase : List.of(TipoEntrega.values()));
+                if (origen.tiposEntrega() != null) {
+                    tipos.retainAll(origen.tiposEntrega());
+                }
+                if (destino.tiposEntrega() != null) {
+                    tipos.retainAll(destino.tiposEntrega());
+                }
+
+                tabla[o * n + d] = new ResolucionCobertura(cobertura, origen.id(), destino.id(),
+                        Collections.unmodifiableSet(tipos));
+            }
+        }
+        return tabla;
+    }
+}
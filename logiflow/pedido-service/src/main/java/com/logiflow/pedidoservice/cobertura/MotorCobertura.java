@@ -0,0 +1,101 @@
+package com.logiflow.pedidoservice.cobertura;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logiflow.pedidoservice.model.Direccion;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Motor de cobertura geográfica
+ *
+ * Carga los polígonos de zonas al arrancar y los vuelve a cargar cuando el archivo cambia
+ * (hot reload): el índice nuevo se construye aparte y reemplaza al anterior de forma atómica,
+ * las consultas en curso siguen usando el que tenían. Si el archivo nuevo es inválido se
+ * conserva el índice vigente.
+ */
+@Slf4j
+@Component
+public class MotorCobertura {
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+
+    @Value("${pedido.cobertura.zonas:classpath:cobertura/zonas.json}")
+    private String ubicacionZonas;
+
+    private volatile IndiceZonas indice;
+    private volatile long ultimaModificacion = -1;
+
+    public MotorCobertura(ResourceLoader resourceLoader, ObjectMapper objectMapper) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void cargarInicial() {
+        recargarSiCambio();
+        if (indice == null) {
+            log.warn("[COBERTURA] Sin zonas cargadas desde {}: se usará la validación por nombres", ubicacionZonas);
+        }
+    }
+
+    /**
+     * Revisa periódicamente si el archivo de zonas cambió
+     */
+    @Scheduled(fixedDelayString = "${pedido.cobertura.recarga-ms:30000}",
+               initialDelayString = "${pedido.cobertura.recarga-ms:30000}")
+    public void recargarSiCambio() {
+        Resource recurso = resourceLoader.getResource(ubicacionZonas);
+        if (!recurso.exists()) {
+            return;
+        }
+        try {
+            long modificado = recurso.lastModified();
+            if (indice != null && modificado == ultimaModificacion) {
+                return;
+            }
+            IndiceZonas nuevo;
+            try (InputStream in = recurso.getInputStream()) {
+                nuevo = IndiceZonas.construir(objectMapper.readValue(in, ConfiguracionZonas.class));
+            }
+            indice = nuevo;
+            ultimaModificacion = modificado;
+            log.info("[COBERTURA] {} zonas cargadas desde {}", nuevo.totalZonas(), ubicacionZonas);
+        } catch (IOException | RuntimeException e) {
+            log.error("[COBERTURA] No se pudo cargar {}; se mantiene el índice anterior: {}", ubicacionZonas, e.getMessage());
+        }
+    }
+
+    /**
+     * Resuelve la cobertura de una ruta a partir de las coordenadas
+     * @return vacío si no hay zonas cargadas, faltan coordenadas o algún punto está fuera de toda zona
+     */
+    public Optional<ResolucionCobertura> resolver(Direccion origen, Direccion destino) {
+        IndiceZonas actual = indice;
+        if (actual == null || !tieneCoordenadas(origen) || !tieneCoordenadas(destino)) {
+            return Optional.empty();
+        }
+        int zonaOrigen = actual.localizar(origen.getLatitud(), origen.getLongitud());
+        if (zonaOrigen < 0) {
+            return Optional.empty();
+        }
+        int zonaDestino = actual.localizar(destino.getLatitud(), destino.getLongitud());
+        if (zonaDestino < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(actual.resolucion(zonaOrigen, zonaDestino));
+    }
+
+    private boolean tieneCoordenadas(Direccion direccion) {
+        return direccion != null && direccion.getLatitud() != null && direccion.getLongitud() != null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.logiflow.pedidoservice.cobertura;
+
+import com.logiflow.pedidoservice.model.TipoEntrega;
+
+import java.util.Set;
+
+/**
+ * Resultado precalculado para un par (zona origen, zona destino)
+ *
+ * @param cobertura         URBANA-{CIUDAD}, INTERMUNICIPAL-{PROVINCIA} o NACIONAL
+ * @param tiposDisponibles  tipos de entrega admitidos para la ruta
+ */
+public record ResolucionCobertura(
+        String cobertura,
+        String zonaOrigen,
+        String zonaDestino,
+        Set<TipoEntrega> tiposDisponibles) {
+
+    public boolean admite(TipoEntrega tipoEntrega) {
+        return tiposDisponibles.contains(tipoEntrega);
+    }
+}
@@ -0,0 +1,21 @@
+package com.logiflow.pedidoservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuración de ejecutores asíncronos
+ * Los pasos de integración (billing/fleet) son I/O puro, por eso se ejecutan en hilos virtuales
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService pedidoPipelineExecutor() {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("pedido-pipeline-", 0).factory());
+    }
+}
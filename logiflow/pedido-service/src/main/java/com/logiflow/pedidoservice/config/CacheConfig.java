@@ -0,0 +1,47 @@
+package com.logiflow.pedidoservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caché en memoria de lecturas de pedidos (Caffeine, desalojo W-TinyLFU)
+ *
+ * Acotada por tamaño y TTL. Las invalidaciones hechas dentro de una transacción se
+ * aplican recién después del commit, así una lectura concurrente no vuelve a cargar
+ * el valor anterior. Las métricas (cache.gets, cache.evictions, ...) se publican
+ * automáticamente vía actuator.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PEDIDOS_CACHE = "pedidos";
+
+    @Value("${pedido.cache.maximo-entradas:10000}")
+    private long maximoEntradas;
+
+    @Value("${pedido.cache.ttl-segundos:60}")
+    private long ttlSegundos;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+        caffeineCacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximoEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats());
+        // Nombres fijos: sin creación dinámica de cachés y con métricas registradas al arranque
+        caffeineCacheManager.setCacheNames(List.of(PEDIDOS_CACHE));
+        caffeineCacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
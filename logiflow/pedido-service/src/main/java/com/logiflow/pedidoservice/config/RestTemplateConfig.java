@@ -1,19 +1,167 @@
 package com.logiflow.pedidoservice.config;
 
+import com.logiflow.pedidoservice.client.ClienteDownstream;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
 
 /**
- * Configuración para RestTemplate
- * Bean usado para comunicación HTTP con otros microservicios
+ * Clientes HTTP hacia billing-service y fleet-service
+ *
+ * Cada servicio tiene su propio pool de conexiones (Apache HttpClient 5, keep-alive),
+ * timeouts cortos de conexión, respuesta y espera de pool, un bulkhead y un circuit
+ * breaker (ver ClienteDownstream). Un servicio lento agota solo sus recursos, no los del otro.
+ *
+ * Propiedades en pedido.http.*; pedido.http.{billing|fleet}.* tiene prioridad por servicio.
+ * La latencia de cada llamada queda en http.client.requests (histograma por uri y estado)
+ * y el estado de circuitos y bulkheads en resilience4j.*.
  */
 @Configuration
 public class RestTemplateConfig {
 
+    public static final String BILLING = "billing";
+    public static final String FLEET = "fleet";
+
+    private final Environment environment;
+
+    public RestTemplateConfig(Environment environment) {
+        this.environment = environment;
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public CircuitBreakerRegistry circuitBreakerRegistry(ObjectProvider<MeterRegistry> meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        meterRegistry.ifAvailable(meters -> TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meters));
+        return registry;
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(ObjectProvider<MeterRegistry> meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        meterRegistry.ifAvailable(meters -> TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meters));
+        return registry;
+    }
+
+    // Beans propios: Spring cierra cada pool de conexiones al apagar el contexto
+    @Bean
+    public HttpComponentsClientHttpRequestFactory billingRequestFactory() {
+        return requestFactory(BILLING);
     }
-}
 
+    @Bean
+    public HttpComponentsClientHttpRequestFactory fleetRequestFactory() {
+        return requestFactory(FLEET);
+    }
+
+    @Bean
+    public ClienteDownstream billingDownstream(RestTemplateBuilder builder,
+                                               @Qualifier("billingRequestFactory") HttpComponentsClientHttpRequestFactory requestFactory,
+                                               CircuitBreakerRegistry circuitBreakers,
+                                               BulkheadRegistry bulkheads,
+                                               @Value("${services.billing.url:http://localhost:8082}") String url) {
+        return downstream(BILLING, url, builder, requestFactory, circuitBreakers, bulkheads);
+    }
+
+    @Bean
+    public ClienteDownstream fleetDownstream(RestTemplateBuilder builder,
+                                             @Qualifier("fleetRequestFactory") HttpComponentsClientHttpRequestFactory requestFactory,
+                                             CircuitBreakerRegistry circuitBreakers,
+                                             BulkheadRegistry bulkheads,
+                                             @Value("${services.fleet.url:http://localhost:8083}") String url) {
+        return downstream(FLEET, url, builder, requestFactory, circuitBreakers, bulkheads);
+    }
+
+    private ClienteDownstream downstream(String servicio, String url, RestTemplateBuilder builder,
+                                         HttpComponentsClientHttpRequestFactory requestFactory,
+                                         CircuitBreakerRegistry circuitBreakers, BulkheadRegistry bulkheads) {
+        // rootUri: los clientes usan plantillas relativas ("/api/facturas/pedido/{id}"),
+        // así la métrica http.client.requests agrupa por operación y no por id
+        return new ClienteDownstream(servicio,
+                builder.rootUri(url).requestFactory(() -> requestFactory).build(),
+                circuitBreakers.circuitBreaker(servicio, circuitBreakerConfig(servicio)),
+                bulkheads.bulkhead(servicio, BulkheadConfig.custom()
+                        .maxConcurrentCalls(propiedad(servicio, "maximo-concurrentes", 20))
+                        .maxWaitDuration(Duration.ZERO)
+                        .build()));
+    }
+
+    private HttpComponentsClientHttpRequestFactory requestFactory(String servicio) {
+        int maximoConexiones = propiedad(servicio, "maximo-conexiones", 20);
+        Timeout respuesta = Timeout.ofMilliseconds(propiedad(servicio, "timeout-respuesta-ms", 3000));
+        TimeValue keepAlive = TimeValue.ofSeconds(propiedad(servicio, "keep-alive-segundos", 30));
+
+        // Un solo host por servicio: el límite por ruta es el del pool completo
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maximoConexiones)
+                .setMaxConnPerRoute(maximoConexiones)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(propiedad(servicio, "timeout-conexion-ms", 1000)))
+                        .setSocketTimeout(respuesta)
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(propiedad(servicio, "espera-pool-ms", 200)))
+                        .setResponseTimeout(respuesta)
+                        .build())
+                // Respeta el Keep-Alive del servidor, con tope para no reutilizar conexiones que el otro lado ya cerró
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue delServidor = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return TimeValue.isPositive(delServidor) && delServidor.compareTo(keepAlive) < 0 ? delServidor : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive)
+                // Sin reintentos ocultos: un POST de factura o asignación no es idempotente
+                .disableAutomaticRetries()
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    private CircuitBreakerConfig circuitBreakerConfig(String servicio) {
+        int ventana = propiedad(servicio, "circuito.ventana-llamadas", 20);
+        return CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(ventana)
+                .minimumNumberOfCalls(Math.min(10, ventana))
+                .failureRateThreshold(propiedad(servicio, "circuito.umbral-fallas-porcentaje", 50))
+                .slowCallDurationThreshold(Duration.ofMillis(propiedad(servicio, "circuito.llamada-lenta-ms", 2000)))
+                .slowCallRateThreshold(propiedad(servicio, "circuito.umbral-lentas-porcentaje", 80))
+                .waitDurationInOpenState(Duration.ofSeconds(propiedad(servicio, "circuito.espera-abierto-segundos", 15)))
+                .permittedNumberOfCallsInHalfOpenState(3)
+                // Un 4xx es una respuesta del servicio (pedido inválido, sin permisos), no una falla
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build();
+    }
+
+    private int propiedad(String servicio, String clave, int porDefecto) {
+        return environment.getProperty("pedido.http." + servicio + "." + clave, Integer.class,
+                environment.getProperty("pedido.http." + clave, Integer.class, porDefecto));
+    }
+}
@@ -0,0 +1,12 @@
+package com.logiflow.pedidoservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (relay del outbox, recarga de zonas, mantenimiento)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,6 +1,9 @@
 package com.logiflow.pedidoservice.controller;
 
+import com.logiflow.pedidoservice.exception.ParametroInvalidoException;
+import com.logiflow.pedidoservice.exception.TransicionNoPermitidaException;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +26,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
     }
 
+    // Solo los parámetros validados explícitamente; otros IllegalArgumentException siguen siendo 500
+    @ExceptionHandler(ParametroInvalidoException.class)
+    public ResponseEntity<Object> handleParametroInvalido(ParametroInvalidoException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    }
+
+    // Transición no permitida por la máquina de estados; otros IllegalStateException siguen siendo 500
+    @ExceptionHandler(TransicionNoPermitidaException.class)
+    public ResponseEntity<Object> handleTransicionNoPermitida(TransicionNoPermitidaException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // Otro escritor modificó el pedido entre la lectura y el UPDATE condicional
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, WebRequest request) {
         Map<String, String> errors = new HashMap<>();
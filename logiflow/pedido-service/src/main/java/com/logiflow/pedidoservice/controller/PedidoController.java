@@ -1,8 +1,20 @@
 package com.logiflow.pedidoservice.controller;
 
+import com.logiflow.pedidoservice.dto.CampoPedido;
+import com.logiflow.pedidoservice.dto.CreacionPedidoStatusResponse;
+import com.logiflow.pedidoservice.dto.HistorialEstadoResponse;
+import com.logiflow.pedidoservice.dto.KpiCoberturaResponse;
+import com.logiflow.pedidoservice.dto.PaginaPedidosResponse;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteRequest;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse;
+import com.logiflow.pedidoservice.dto.PedidoLoteRequest;
+import com.logiflow.pedidoservice.dto.PedidoLoteResponse;
 import com.logiflow.pedidoservice.dto.PedidoPatchRequest;
 import com.logiflow.pedidoservice.dto.PedidoRequest;
 import com.logiflow.pedidoservice.dto.PedidoResponse;
+import com.logiflow.pedidoservice.dto.TiemposCoberturaResponse;
+import com.logiflow.pedidoservice.service.HistorialEstadoService;
+import com.logiflow.pedidoservice.service.KpiPedidoService;
 import com.logiflow.pedidoservice.service.PedidoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,12 +26,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para gestión de pedidos
@@ -32,7 +50,11 @@ import java.util.List;
 @Tag(name = "Pedidos", description = "API para gestión de pedidos de entrega")
 public class PedidoController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final PedidoService pedidoService;
+    private final KpiPedidoService kpiPedidoService;
+    private final HistorialEstadoService historialEstadoService;
 
     // ENDPOINT DE DEBUG TEMPORAL
     @GetMapping("/debug-auth")
@@ -46,7 +68,9 @@ public class PedidoController {
 
     @Operation(
             summary = "Crear un nuevo pedido",
-            description = "Crea un nuevo pedido con validación de cobertura y tipo de entrega"
+            description = "Crea un nuevo pedido con validación de cobertura y tipo de entrega. " +
+                         "El pedido se confirma primero y luego Billing y Fleet se invocan en paralelo. " +
+                         "Con async=true responde 202 de inmediato con la URL de estado en el header Location."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -57,14 +81,17 @@ public class PedidoController {
                             schema = @Schema(implementation = PedidoResponse.class)
                     )
             ),
+            @ApiResponse(responseCode = "202", description = "Pedido confirmado, integraciones en curso (async=true)"),
             @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos"),
             @ApiResponse(responseCode = "500", description = "Error interno del servidor")
     })
     @PostMapping
     @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
     public ResponseEntity<PedidoResponse> createPedido(
-            @Valid @RequestBody PedidoRequest request) {
-        log.info("POST /api/pedidos - Solicitud de creación de pedido recibida");
+            @Valid @RequestBody PedidoRequest request,
+            @Parameter(description = "true para no esperar a Billing/Fleet (respuesta 202)")
+            @RequestParam(name = "async", defaultValue = "false") boolean async) {
+        log.info("POST /api/pedidos - Solicitud de creación de pedido recibida (async={})", async);
         log.debug("Datos del pedido: clienteId={}, modalidad={}, tipo={}, peso={}kg, origen={}, destino={}",
                 request.getClienteId(),
                 request.getModalidadServicio(),
@@ -73,12 +100,92 @@ public class PedidoController {
                 request.getDireccionOrigen().getCiudad(),
                 request.getDireccionDestino().getCiudad());
 
+        if (async) {
+            PedidoResponse response = pedidoService.createPedidoAsync(request);
+            URI estadoUrl = URI.create("/api/pedidos/" + response.getId() + "/creacion");
+            log.info("POST /api/pedidos - Pedido aceptado con ID: {} | Estado en: {}", response.getId(), estadoUrl);
+            return ResponseEntity.accepted().location(estadoUrl).body(response);
+        }
+
         PedidoResponse response = pedidoService.createPedido(request);
 
         log.info("POST /api/pedidos - Pedido creado exitosamente con ID: {}", response.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @Operation(
+            summary = "Crear pedidos en lote",
+            description = "Carga masiva para integraciones. Cada pedido se valida por separado y el resultado " +
+                         "indica, en el mismo orden, si fue creado o rechazado. Billing y Fleet procesan " +
+                         "los pedidos creados de forma asíncrona a partir de los eventos pedido.creado."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lote procesado (ver resultado por pedido)",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PedidoLoteResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande")
+    })
+    @PostMapping("/lote")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<PedidoLoteResponse> crearPedidosLote(@Valid @RequestBody PedidoLoteRequest request) {
+        log.info("POST /api/pedidos/lote - Carga masiva de {} pedidos", request.getPedidos().size());
+
+        PedidoLoteResponse response = pedidoService.crearPedidosLote(request);
+
+        log.info("POST /api/pedidos/lote - Creados: {} | Rechazados: {}", response.getCreados(), response.getRechazados());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Consultar progreso de creación",
+            description = "Estado de los pasos de facturación y asignación de un pedido creado con async=true"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Progreso de la creación",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CreacionPedidoStatusResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "404", description = "Pedido no encontrado")
+    })
+    @GetMapping("/{id}/creacion")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<CreacionPedidoStatusResponse> getEstadoCreacion(
+            @Parameter(description = "ID del pedido", required = true)
+            @PathVariable String id) {
+        log.info("GET /api/pedidos/{}/creacion - Consultando progreso de creación", id);
+
+        CreacionPedidoStatusResponse response = pedidoService.getEstadoCreacion(id);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Historial de estados de un pedido",
+            description = "Línea de tiempo del pedido: alta y cada cambio de estado, con el usuario y el tiempo " +
+                         "que pasó en el estado anterior. Vacía para pedidos anteriores al historial"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Historial obtenido exitosamente")
+    })
+    @GetMapping("/{id}/historial")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<List<HistorialEstadoResponse>> getHistorialEstados(
+            @Parameter(description = "ID del pedido", required = true)
+            @PathVariable String id) {
+        log.info("GET /api/pedidos/{}/historial - Consultando historial de estados", id);
+
+        return ResponseEntity.ok(historialEstadoService.obtenerHistorial(id));
+    }
+
     @Operation(
             summary = "Obtener pedido por ID",
             description = "Consulta un pedido específico por su identificador"
@@ -108,7 +215,8 @@ public class PedidoController {
 
     @Operation(
             summary = "Obtener todos los pedidos",
-            description = "Consulta todos los pedidos registrados en el sistema"
+            description = "Consulta todos los pedidos registrados en el sistema. " +
+                         "Para volúmenes grandes usar /api/pedidos/pagina o /api/pedidos/export"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -126,9 +234,24 @@ public class PedidoController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Obtener todos los pedidos (solo campos indicados)",
+            description = "Con fields= solo se consultan y serializan las columnas pedidas, sin cargar las direcciones"
+    )
+    @GetMapping(params = "fields")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<List<Map<String, Object>>> getAllPedidosCampos(
+            @Parameter(description = "Campos separados por coma, p. ej. id,estado,prioridad,cobertura,fechaCreacion", required = true)
+            @RequestParam String fields) {
+        log.info("GET /api/pedidos?fields={} - Consultando todos los pedidos", fields);
+
+        return ResponseEntity.ok(pedidoService.getAllPedidos(CampoPedido.parsear(fields)));
+    }
+
     @Operation(
             summary = "Obtener pedidos por cliente",
-            description = "Consulta todos los pedidos de un cliente específico"
+            description = "Consulta todos los pedidos de un cliente específico. Con desde solo se devuelven " +
+                         "los creados a partir de esa fecha, lo que evita recorrer las particiones anteriores"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -140,14 +263,185 @@ public class PedidoController {
     @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
     public ResponseEntity<List<PedidoResponse>> getPedidosByCliente(
             @Parameter(description = "ID del cliente", required = true)
-            @PathVariable String clienteId) {
-        log.info("GET /api/pedidos/cliente/{} - Consultando pedidos del cliente", clienteId);
+            @PathVariable String clienteId,
+            @Parameter(description = "Fecha de creación mínima (ISO-8601, opcional)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde) {
+        log.info("GET /api/pedidos/cliente/{} - Consultando pedidos del cliente (desde={})", clienteId, desde);
+
+        List<PedidoResponse> response = desde == null
+                ? pedidoService.getPedidosByCliente(clienteId)
+                : pedidoService.getPedidosByCliente(clienteId, desde);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Obtener pedidos por cliente (solo campos indicados)",
+            description = "Con fields= solo se consultan y serializan las columnas pedidas, sin cargar las direcciones"
+    )
+    @GetMapping(value = "/cliente/{clienteId}", params = "fields")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<List<Map<String, Object>>> getPedidosByClienteCampos(
+            @Parameter(description = "ID del cliente", required = true)
+            @PathVariable String clienteId,
+            @Parameter(description = "Campos separados por coma, p. ej. id,estado,prioridad,cobertura,fechaCreacion", required = true)
+            @RequestParam String fields,
+            @Parameter(description = "Fecha de creación mínima (ISO-8601, opcional)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde) {
+        log.info("GET /api/pedidos/cliente/{}?fields={} - Consultando pedidos del cliente (desde={})", clienteId, fields, desde);
+
+        return ResponseEntity.ok(pedidoService.getPedidosByCliente(clienteId, CampoPedido.parsear(fields), desde));
+    }
+
+    @Operation(
+            summary = "Obtener pedidos paginados",
+            description = "Página de pedidos ordenada por fecha de creación (más recientes primero). " +
+                         "Para la siguiente página se envía el siguienteCursor de la respuesta anterior"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Página obtenida exitosamente",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PaginaPedidosResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Cursor inválido")
+    })
+    @GetMapping("/pagina")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<PaginaPedidosResponse> getPedidosPaginados(
+            @Parameter(description = "Cursor devuelto por la página anterior (vacío para la primera)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página (máximo 500)")
+            @RequestParam(defaultValue = "50") int limite) {
+        log.info("GET /api/pedidos/pagina - Consultando página de pedidos (limite={})", limite);
+
+        PaginaPedidosResponse response = pedidoService.getPedidosPaginados(null, cursor, limite);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Obtener pedidos de un cliente paginados",
+            description = "Página de pedidos del cliente ordenada por fecha de creación (más recientes primero)"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Página obtenida exitosamente",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PaginaPedidosResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Cursor inválido")
+    })
+    @GetMapping("/cliente/{clienteId}/pagina")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<PaginaPedidosResponse> getPedidosByClientePaginados(
+            @Parameter(description = "ID del cliente", required = true)
+            @PathVariable String clienteId,
+            @Parameter(description = "Cursor devuelto por la página anterior (vacío para la primera)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página (máximo 500)")
+            @RequestParam(defaultValue = "50") int limite) {
+        log.info("GET /api/pedidos/cliente/{}/pagina - Consultando página de pedidos (limite={})", clienteId, limite);
 
-        List<PedidoResponse> response = pedidoService.getPedidosByCliente(clienteId);
+        PaginaPedidosResponse response = pedidoService.getPedidosPaginados(clienteId, cursor, limite);
 
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Exportar pedidos (NDJSON)",
+            description = "Transmite los pedidos como application/x-ndjson, un pedido por línea, " +
+                         "leyendo la base de datos con un cursor. Uso: exportaciones y dashboards"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Flujo NDJSON de pedidos")
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<StreamingResponseBody> exportarPedidos(
+            @Parameter(description = "Filtrar por cliente (opcional)")
+            @RequestParam(required = false) String clienteId) {
+        log.info("GET /api/pedidos/export - Exportando pedidos (cliente={})", clienteId);
+
+        StreamingResponseBody body = salida -> pedidoService.exportarPedidos(clienteId, salida);
+
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @Operation(
+            summary = "KPIs de pedidos por cobertura",
+            description = "Conteo de pedidos por estado y tiempo promedio de entrega de cada cobertura. " +
+                         "Se lee de un rollup mantenido en cada cambio de estado, sin recorrer los pedidos"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "KPIs obtenidos exitosamente")
+    })
+    @GetMapping("/kpis")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<List<KpiCoberturaResponse>> getKpis(
+            @Parameter(description = "Filtrar por cobertura (opcional)")
+            @RequestParam(required = false) String cobertura) {
+        log.info("GET /api/pedidos/kpis - Consultando KPIs (cobertura={})", cobertura);
+
+        return ResponseEntity.ok(kpiPedidoService.obtenerKpis(cobertura));
+    }
+
+    @Operation(
+            summary = "Percentiles de tiempos por cobertura",
+            description = "p50/p90/p99 y máximo, en segundos, del tiempo desde la creación hasta la asignación " +
+                         "y hasta la entrega. Se leen de histogramas mantenidos en cada transición, sin recorrer " +
+                         "el historial"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Percentiles obtenidos exitosamente")
+    })
+    @GetMapping("/kpis/tiempos")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<List<TiemposCoberturaResponse>> getTiempos(
+            @Parameter(description = "Filtrar por cobertura (opcional)")
+            @RequestParam(required = false) String cobertura) {
+        log.info("GET /api/pedidos/kpis/tiempos - Consultando percentiles de tiempos (cobertura={})", cobertura);
+
+        return ResponseEntity.ok(historialEstadoService.obtenerTiempos(cobertura));
+    }
+
+    @Operation(
+            summary = "Cambiar el estado de varios pedidos",
+            description = "Aplica la misma transición a todos los pedidos indicados (p. ej. EN_TRANSITO → ENTREGADO " +
+                         "al cerrar una ruta). Los que la admiten se actualizan con un solo UPDATE; los que no, o no " +
+                         "existen, se informan por ID con su estado actual y no se modifican."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lote procesado (ver resultado por pedido)",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PedidoEstadoLoteResponse.class)
+                    )
+            ),
+            @ApiResponse(responseCode = "400", description = "Lote vacío, demasiado grande o sin estado destino")
+    })
+    @PatchMapping("/estado-lote")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<PedidoEstadoLoteResponse> cambiarEstadoLote(@Valid @RequestBody PedidoEstadoLoteRequest request) {
+        log.info("PATCH /api/pedidos/estado-lote - {} pedidos → {}", request.getIds().size(), request.getEstado());
+
+        PedidoEstadoLoteResponse response = pedidoService.cambiarEstadoLote(request);
+
+        log.info("PATCH /api/pedidos/estado-lote - Actualizados: {} | Rechazados: {}",
+                response.getActualizados(), response.getRechazados());
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
             summary = "Actualizar parcialmente un pedido (PATCH)",
             description = "Actualiza uno o más campos de un pedido existente. Solo los campos enviados serán actualizados."
@@ -162,7 +456,8 @@ public class PedidoController {
                     )
             ),
             @ApiResponse(responseCode = "404", description = "Pedido no encontrado"),
-            @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos")
+            @ApiResponse(responseCode = "400", description = "Datos de entrada inválidos"),
+            @ApiResponse(responseCode = "409", description = "Transición de estado no permitida o versión desactualizada")
     })
     @PatchMapping("/{id}")
     @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
@@ -191,7 +486,7 @@ public class PedidoController {
                     )
             ),
             @ApiResponse(responseCode = "404", description = "Pedido no encontrado"),
-            @ApiResponse(responseCode = "400", description = "El pedido no puede ser cancelado")
+            @ApiResponse(responseCode = "409", description = "El pedido no puede ser cancelado en su estado actual")
     })
     @PatchMapping("/{id}/cancelar")
     @PreAuthorize("hasAnyRole('CLIENTE', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
@@ -241,7 +536,7 @@ public class PedidoController {
                     )
             ),
             @ApiResponse(responseCode = "404", description = "Pedido no encontrado"),
-            @ApiResponse(responseCode = "400", description = "El pedido no está en estado PENDIENTE")
+            @ApiResponse(responseCode = "409", description = "El pedido no está en estado PENDIENTE")
     })
     @PostMapping("/{id}/reintentar-asignacion")
     @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
@@ -289,7 +584,7 @@ public class PedidoController {
                     )
             ),
             @ApiResponse(responseCode = "404", description = "Pedido no encontrado"),
-            @ApiResponse(responseCode = "400", description = "El pedido no puede ser asignado")
+            @ApiResponse(responseCode = "409", description = "El pedido no está en estado PENDIENTE o cambió en paralelo")
     })
     @PatchMapping("/{pedidoId}/asignar")
     @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
@@ -328,9 +623,24 @@ public class PedidoController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(
+            summary = "Obtener pedidos pendientes de asignación (solo campos indicados)",
+            description = "Con fields= solo se consultan y serializan las columnas pedidas, sin cargar las direcciones"
+    )
+    @GetMapping(value = "/pendientes-asignacion", params = "fields")
+    @PreAuthorize("hasAnyRole('SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
+    public ResponseEntity<List<Map<String, Object>>> getPedidosPendientesAsignacionCampos(
+            @Parameter(description = "Campos separados por coma, p. ej. id,estado,prioridad,cobertura,fechaCreacion", required = true)
+            @RequestParam String fields) {
+        log.info("GET /api/pedidos/pendientes-asignacion?fields={} - Consultando pedidos pendientes", fields);
+
+        return ResponseEntity.ok(pedidoService.getPedidosPendientesAsignacion(CampoPedido.parsear(fields)));
+    }
+
     @Operation(
             summary = "Obtener pedidos por repartidor",
-            description = "Consulta todos los pedidos asignados a un repartidor específico"
+            description = "Consulta todos los pedidos asignados a un repartidor específico. Con desde solo se " +
+                         "devuelven los creados a partir de esa fecha"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -342,10 +652,14 @@ public class PedidoController {
     @PreAuthorize("hasAnyRole('REPARTIDOR_MOTORIZADO', 'REPARTIDOR_VEHICULO', 'REPARTIDOR_CAMION', 'SUPERVISOR', 'GERENTE', 'ADMINISTRADOR_SISTEMA')")
     public ResponseEntity<List<PedidoResponse>> getPedidosByRepartidor(
             @Parameter(description = "ID del repartidor", required = true)
-            @PathVariable String repartidorId) {
-        log.info("GET /api/pedidos/repartidor/{} - Consultando pedidos del repartidor", repartidorId);
-
-        List<PedidoResponse> response = pedidoService.getPedidosByRepartidor(repartidorId);
+            @PathVariable String repartidorId,
+            @Parameter(description = "Fecha de creación mínima (ISO-8601, opcional)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde) {
+        log.info("GET /api/pedidos/repartidor/{} - Consultando pedidos del repartidor (desde={})", repartidorId, desde);
+
+        List<PedidoResponse> response = desde == null
+                ? pedidoService.getPedidosByRepartidor(repartidorId)
+                : pedidoService.getPedidosByRepartidor(repartidorId, desde);
 
         return ResponseEntity.ok(response);
     }
@@ -0,0 +1,25 @@
+package com.logiflow.pedidoservice.distancia;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ciudades y distancias por carretera tal como se leen del archivo JSON
+ *
+ * @param factorVial      corrección línea recta → carretera para pares sin distancia conocida
+ * @param ciudades        centro de cada ciudad
+ * @param distanciasViales km por carretera, clave "CIUDAD_A|CIUDAD_B" (el orden no importa)
+ */
+public record ConfiguracionDistancias(
+        Double factorVial,
+        List<Ciudad> ciudades,
+        Map<String, Double> distanciasViales) {
+
+    /**
+     * @param nombre   ciudad en mayúsculas, sin tildes
+     * @param latitud  centro aproximado
+     * @param longitud centro aproximado
+     */
+    public record Ciudad(String nombre, double latitud, double longitud) {
+    }
+}
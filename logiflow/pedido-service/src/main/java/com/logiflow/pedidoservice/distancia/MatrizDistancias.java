@@ -0,0 +1,136 @@
+package com.logiflow.pedidoservice.distancia;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Matriz inmutable de distancias entre ciudades
+ *
+ * Solo se guarda el triángulo superior (la distancia es simétrica) en dos float[]:
+ * km por carretera y factor vial del par. El factor es km carretera / km línea recta entre
+ * los centros; aplicado a la distancia haversine de dos direcciones concretas corrige
+ * rutas de montaña mejor que un factor único. Pares sin distancia conocida usan el
+ * factor vial por defecto sobre la línea recta entre centros.
+ */
+public final class MatrizDistancias {
+
+    private static final double FACTOR_VIAL_POR_DEFECTO = 1.3;
+    private static final double FACTOR_MINIMO = 1.0;
+    private static final double FACTOR_MAXIMO = 2.5;
+    // Por debajo de esto la línea recta entre centros no da un factor fiable
+    private static final double DISTANCIA_MINIMA_FACTOR_KM = 5.0;
+    private static final double RADIO_TIERRA_KM = 6371.0088;
+
+    private final Map<String, Integer> indices;
+    private final int n;
+    private final float[] km;
+    private final float[] factores;
+    private final double factorVial;
+
+    private MatrizDistancias(ConfiguracionDistancias config) {
+        List<ConfiguracionDistancias.Ciudad> ciudades = config.ciudades();
+        if (ciudades == null || ciudades.isEmpty()) {
+            throw new IllegalArgumentException("La configuración no define ciudades");
+        }
+        factorVial = config.factorVial() != null && config.factorVial() >= FACTOR_MINIMO
+                ? config.factorVial() : FACTOR_VIAL_POR_DEFECTO;
+        n = ciudades.size();
+        indices = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            if (indices.putIfAbsent(normalizar(ciudades.get(i).nombre()), i) != null) {
+                throw new IllegalArgumentException("Ciudad duplicada: " + ciudades.get(i).nombre());
+            }
+        }
+
+        int pares = n * (n - 1) / 2;
+        km = new float[pares];
+        factores = new float[pares];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double rectaKm = haversineKm(
+                        ciudades.get(i).latitud(), ciudades.get(i).longitud(),
+                        ciudades.get(j).latitud(), ciudades.get(j).longitud());
+                km[posicion(i, j)] = (float) (rectaKm * factorVial);
+                factores[posicion(i, j)] = (float) factorVial;
+            }
+        }
+
+        if (config.distanciasViales() != null) {
+            config.distanciasViales().forEach((par, distancia) -> {
+                String[] partes = par.split("\\|");
+                Integer a = partes.length == 2 ? indices.get(normalizar(partes[0])) : null;
+                Integer b = partes.length == 2 ? indices.get(normalizar(partes[1])) : null;
+                if (a == null || b == null || a.equals(b)) {
+                    throw new IllegalArgumentException("Par de ciudades inválido: " + par);
+                }
+                int p = posicion(Math.min(a, b), Math.max(a, b));
+                double rectaKm = km[p] / factorVial;
+                km[p] = distancia.floatValue();
+                if (rectaKm >= DISTANCIA_MINIMA_FACTOR_KM) {
+                    factores[p] = (float) Math.max(FACTOR_MINIMO, Math.min(FACTOR_MAXIMO, distancia / rectaKm));
+                }
+            });
+        }
+    }
+
+    public static MatrizDistancias construir(ConfiguracionDistancias config) {
+        return new MatrizDistancias(config);
+    }
+
+    public int totalCiudades() {
+        return n;
+    }
+
+    public double factorVial() {
+        return factorVial;
+    }
+
+    /**
+     * @return índice de la ciudad, o -1 si no está en la matriz
+     */
+    public int indice(String ciudad) {
+        Integer i = ciudad != null ? indices.get(normalizar(ciudad)) : null;
+        return i != null ? i : -1;
+    }
+
+    /**
+     * @return km por carretera entre dos ciudades distintas de la matriz
+     */
+    public double km(int a, int b) {
+        return km[posicion(Math.min(a, b), Math.max(a, b))];
+    }
+
+    /**
+     * @return factor vial del par; el por defecto para la misma ciudad
+     */
+    public double factor(int a, int b) {
+        return a == b ? factorVial : factores[posicion(Math.min(a, b), Math.max(a, b))];
+    }
+
+    /**
+     * Posición del par (i, j), i < j, en el triángulo superior aplanado por filas
+     */
+    private int posicion(int i, int j) {
+        return i * (2 * n - i - 1) / 2 + (j - i - 1);
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Mayúsculas, sin tildes y con espacios simples: "  Santo  Domingo " → "SANTO DOMINGO"
+     */
+    public static String normalizar(String ciudad) {
+        String sinTildes = Normalizer.normalize(ciudad, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinTildes.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,83 @@
+package com.logiflow.pedidoservice.dto;
+
+import com.logiflow.pedidoservice.exception.ParametroInvalidoException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Campos que se pueden pedir con fields= en los listados de pedidos
+ *
+ * Cada campo es una columna de pedidos (las ciudades salen de las direcciones embebidas):
+ * la consulta selecciona solo esas columnas y la respuesta solo contiene esas claves.
+ */
+public enum CampoPedido {
+    ID("id", "id"),
+    CLIENTE_ID("clienteId", "clienteId"),
+    ESTADO("estado", "estado"),
+    PRIORIDAD("prioridad", "prioridad"),
+    COBERTURA("cobertura", "cobertura"),
+    MODALIDAD_SERVICIO("modalidadServicio", "modalidadServicio"),
+    TIPO_ENTREGA("tipoEntrega", "tipoEntrega"),
+    PESO("peso", "peso"),
+    CIUDAD_ORIGEN("ciudadOrigen", "direccionOrigen.ciudad"),
+    CIUDAD_DESTINO("ciudadDestino", "direccionDestino.ciudad"),
+    REPARTIDOR_ID("repartidorId", "repartidorId"),
+    VEHICULO_ID("vehiculoId", "vehiculoId"),
+    FACTURA_ID("facturaId", "facturaId"),
+    TARIFA_CALCULADA("tarifaCalculada", "tarifaCalculada"),
+    FECHA_CREACION("fechaCreacion", "fechaCreacion"),
+    FECHA_ACTUALIZACION("fechaActualizacion", "fechaActualizacion"),
+    FECHA_ESTIMADA_ENTREGA("fechaEstimadaEntrega", "fechaEstimadaEntrega"),
+    FECHA_ENTREGA_REAL("fechaEntregaReal", "fechaEntregaReal"),
+    VERSION("version", "version");
+
+    private static final Map<String, CampoPedido> POR_NOMBRE = Arrays.stream(values())
+            .collect(Collectors.toMap(CampoPedido::getNombre, Function.identity()));
+
+    private final String nombre;    // Clave en el JSON y en fields=
+    private final String atributo;  // Ruta del atributo en la entidad Pedido
+
+    CampoPedido(String nombre, String atributo) {
+        this.nombre = nombre;
+        this.atributo = atributo;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getAtributo() {
+        return atributo;
+    }
+
+    /**
+     * @param fields lista separada por comas (p. ej. "id,estado,prioridad"); el orden se respeta
+     * @throws ParametroInvalidoException si hay un campo desconocido o la lista está vacía
+     */
+    public static List<CampoPedido> parsear(String fields) {
+        Set<CampoPedido> campos = new LinkedHashSet<>();
+        for (String nombre : fields.split(",")) {
+            String limpio = nombre.trim();
+            if (limpio.isEmpty()) {
+                continue;
+            }
+            CampoPedido campo = POR_NOMBRE.get(limpio);
+            if (campo == null) {
+                throw new ParametroInvalidoException("Campo desconocido en fields: '" + limpio
+                        + "'. Permitidos: " + String.join(", ", POR_NOMBRE.keySet().stream().sorted().toList()));
+            }
+            campos.add(campo);
+        }
+        if (campos.isEmpty()) {
+            throw new ParametroInvalidoException("fields debe indicar al menos un campo");
+        }
+        return new ArrayList<>(campos);
+    }
+}
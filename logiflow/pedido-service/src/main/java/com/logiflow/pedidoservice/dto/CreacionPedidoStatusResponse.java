@@ -0,0 +1,32 @@
+package com.logiflow.pedidoservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el progreso de la creación de un pedido en modo pipeline
+ * Se consulta en GET /api/pedidos/{id}/creacion cuando el pedido se creó con async=true
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreacionPedidoStatusResponse {
+
+    public enum EstadoPaso {
+        EN_PROCESO,
+        COMPLETADO,
+        FALLIDO,
+        PARCIAL,    // Solo estado global: un paso falló y el otro se completó
+        OMITIDO     // Integración deshabilitada por configuración
+    }
+
+    private String pedidoId;
+    private EstadoPaso estado;        // Estado global del pipeline
+    private EstadoPaso facturacion;   // Paso Billing Service
+    private EstadoPaso asignacion;    // Paso Fleet Service
+    private String mensaje;
+    private PedidoResponse pedido;    // Estado actual del pedido (cuando ya terminó)
+}
@@ -0,0 +1,26 @@
+package com.logiflow.pedidoservice.dto;
+
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada de la línea de tiempo de un pedido
+ * segundosEnEstadoAnterior es null en el alta
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialEstadoResponse {
+
+    private EstadoPedido estadoAnterior;
+    private EstadoPedido estadoNuevo;
+    private String usuario;
+    private LocalDateTime fecha;
+    private Long segundosEnEstadoAnterior;
+}
@@ -0,0 +1,26 @@
+package com.logiflow.pedidoservice.dto;
+
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * KPIs de pedidos de una cobertura, leídos del rollup incremental
+ * tiempoPromedioEntregaMinutos es null mientras no haya entregas medidas
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KpiCoberturaResponse {
+
+    private String cobertura;
+    private long pedidosTotal;
+    private Map<EstadoPedido, Long> pedidosPorEstado;
+    private long entregasMedidas;
+    private Double tiempoPromedioEntregaMinutos;
+}
@@ -0,0 +1,24 @@
+package com.logiflow.pedidoservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de pedidos con paginación por cursor (keyset)
+ * Para la siguiente página se envía siguienteCursor; es null cuando no hay más resultados
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaPedidosResponse {
+
+    private List<PedidoResponse> pedidos;
+    private int limite;
+    private boolean hayMas;
+    private String siguienteCursor;
+}
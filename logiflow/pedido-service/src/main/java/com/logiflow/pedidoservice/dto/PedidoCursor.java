@@ -0,0 +1,41 @@
+package com.logiflow.pedidoservice.dto;
+
+import com.logiflow.pedidoservice.exception.ParametroInvalidoException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición opaca dentro de un listado paginado de pedidos
+ * Codifica la clave de orden (fechaCreacion, id) del último pedido entregado
+ */
+public record PedidoCursor(LocalDateTime fechaCreacion, String id) {
+
+    private static final String SEPARADOR = "|";
+
+    public String codificar() {
+        String valor = fechaCreacion + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws ParametroInvalidoException si el cursor no fue generado por este servicio
+     */
+    public static PedidoCursor decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR);
+            if (separador <= 0 || separador == valor.length() - 1) {
+                throw new ParametroInvalidoException("Cursor de paginación inválido");
+            }
+            return new PedidoCursor(LocalDateTime.parse(valor.substring(0, separador)), valor.substring(separador + 1));
+        } catch (ParametroInvalidoException e) {
+            throw e;
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            // Incluye base64 mal formado: el detalle del decodificador no se expone
+            throw new ParametroInvalidoException("Cursor de paginación inválido", e);
+        }
+    }
+}
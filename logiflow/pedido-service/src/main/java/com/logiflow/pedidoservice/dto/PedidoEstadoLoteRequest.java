@@ -0,0 +1,31 @@
+package com.logiflow.pedidoservice.dto;
+
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO para cambiar el estado de muchos pedidos a la vez (p. ej. fin de ruta: EN_TRANSITO → ENTREGADO)
+ * Cada pedido se valida contra su estado actual: los que no admiten la transición no rechazan el lote
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoEstadoLoteRequest {
+
+    @NotEmpty(message = "El lote debe contener al menos un pedido")
+    @Size(max = 1000, message = "El lote no puede superar 1000 pedidos")
+    private List<@NotBlank String> ids;
+
+    @NotNull(message = "El estado destino es obligatorio")
+    private EstadoPedido estado;
+}
@@ -0,0 +1,45 @@
+package com.logiflow.pedidoservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resultado de un cambio de estado en lote, un resultado por pedido en el orden del request
+ * (los IDs repetidos se informan una sola vez)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoEstadoLoteResponse {
+
+    public enum EstadoItem {
+        ACTUALIZADO,
+        TRANSICION_NO_PERMITIDA,
+        NO_ENCONTRADO
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ResultadoItem {
+        private String pedidoId;
+        private EstadoItem estado;
+        private EstadoPedido estadoAnterior;  // Estado del pedido antes del lote (si existe)
+        private String error;                 // Motivo del rechazo
+    }
+
+    private EstadoPedido estadoDestino;
+    private int total;
+    private int actualizados;
+    private int rechazados;
+    private List<ResultadoItem> resultados;
+}
@@ -0,0 +1,25 @@
+package com.logiflow.pedidoservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO para la carga masiva de pedidos (integraciones de marketplaces)
+ * Cada pedido se valida por separado: un pedido inválido no rechaza el lote completo
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoLoteRequest {
+
+    @NotEmpty(message = "El lote debe contener al menos un pedido")
+    @Size(max = 5000, message = "El lote no puede superar 5000 pedidos")
+    private List<PedidoRequest> pedidos;
+}
@@ -0,0 +1,41 @@
+package com.logiflow.pedidoservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resultado de una carga masiva de pedidos, un resultado por pedido en el mismo orden del request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoLoteResponse {
+
+    public enum EstadoItem {
+        CREADO,
+        RECHAZADO
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ResultadoItem {
+        private int indice;           // Posición del pedido en el request
+        private EstadoItem estado;
+        private String pedidoId;      // Solo si fue creado
+        private String error;         // Motivo del rechazo
+    }
+
+    private int total;
+    private int creados;
+    private int rechazados;
+    private List<ResultadoItem> resultados;
+}
@@ -61,6 +61,7 @@ public class PedidoMapper {
                 .fechaCreacion(pedido.getFechaCreacion())
                 .fechaActualizacion(pedido.getFechaActualizacion())
                 .cobertura(pedido.getCobertura())
+                .version(pedido.getVersion())
                 .build();
     }
 
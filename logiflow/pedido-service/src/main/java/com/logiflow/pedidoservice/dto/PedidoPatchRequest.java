@@ -41,5 +41,8 @@ public class PedidoPatchRequest {
     private String nombreDestinatario;
 
     private LocalDateTime fechaEstimadaEntrega;
+
+    // Versión leída por el cliente (opcional); si no coincide con la actual el PATCH responde 409
+    private Long version;
 }
 
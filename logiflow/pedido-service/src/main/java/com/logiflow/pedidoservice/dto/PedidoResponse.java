@@ -34,4 +34,7 @@ public class PedidoResponse {
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaActualizacion;
     private String cobertura;
+
+    // Versión para PATCH condicionales del cliente
+    private Long version;
 }
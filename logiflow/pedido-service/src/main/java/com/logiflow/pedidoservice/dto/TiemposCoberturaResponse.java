@@ -0,0 +1,36 @@
+package com.logiflow.pedidoservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Percentiles de tiempo hasta la asignación y hasta la entrega de una cobertura
+ * Cada métrica es null mientras no tenga muestras
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TiemposCoberturaResponse {
+
+    private String cobertura;
+    private Percentiles asignacion;
+    private Percentiles entrega;
+
+    /**
+     * Segundos desde la creación del pedido; precisión de 2 dígitos significativos (±1%)
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Percentiles {
+        private long muestras;
+        private long p50Segundos;
+        private long p90Segundos;
+        private long p99Segundos;
+        private long maximoSegundos;
+    }
+}
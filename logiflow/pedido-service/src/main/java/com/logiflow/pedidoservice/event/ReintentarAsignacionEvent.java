@@ -41,6 +41,10 @@ public class ReintentarAsignacionEvent implements Serializable {
     private Double peso;
     private String ciudadOrigen;
     private String ciudadDestino;
+    private Double latitudOrigen;
+    private Double longitudOrigen;
+    private Double latitudDestino;
+    private Double longitudDestino;
     
     // Metadata del reintento
     private Integer numeroReintento;    // Para limitar intentos
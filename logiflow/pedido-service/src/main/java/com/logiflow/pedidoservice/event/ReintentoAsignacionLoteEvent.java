@@ -0,0 +1,30 @@
+package com.logiflow.pedidoservice.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lote de reintentos de asignación emitido por el scheduler en cada ciclo
+ * Un solo mensaje para todos los pedidos del ciclo, ordenados por prioridad y antigüedad;
+ * cada elemento conserva su propio messageId para la deduplicación en FleetService
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReintentoAsignacionLoteEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Control de idempotencia
+    private String messageId;
+    private LocalDateTime timestamp;
+
+    private String motivoReintento;
+    private List<ReintentarAsignacionEvent> pedidos;
+}
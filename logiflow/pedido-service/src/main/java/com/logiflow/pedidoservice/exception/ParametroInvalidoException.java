@@ -0,0 +1,17 @@
+package com.logiflow.pedidoservice.exception;
+
+/**
+ * Parámetro de la petición inválido (cursor, fields, cobertura...): se responde 400 con el mensaje.
+ * Solo este tipo se expone al cliente; cualquier otro IllegalArgumentException es un error
+ * interno y no debe filtrar su mensaje.
+ */
+public class ParametroInvalidoException extends IllegalArgumentException {
+
+    public ParametroInvalidoException(String mensaje) {
+        super(mensaje);
+    }
+
+    public ParametroInvalidoException(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
@@ -0,0 +1,13 @@
+package com.logiflow.pedidoservice.exception;
+
+/**
+ * El estado actual del pedido no admite la operación (máquina de estados de EstadoPedido):
+ * se responde 409 con el mensaje. Cualquier otro IllegalStateException es un error interno
+ * y no debe filtrar su mensaje.
+ */
+public class TransicionNoPermitidaException extends IllegalStateException {
+
+    public TransicionNoPermitidaException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,10 @@
+package com.logiflow.pedidoservice.model;
+
+/**
+ * Estados de un evento del outbox
+ */
+public enum EstadoOutbox {
+    PENDIENTE,      // Esperando publicación (o reintento)
+    PUBLICADO,      // Confirmado por el broker; se elimina al vencer la retención
+    FALLIDO         // Superó el máximo de intentos: apartado para revisión, ya no bloquea el lote
+}
@@ -1,7 +1,17 @@
 package com.logiflow.pedidoservice.model;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Estados del pedido en su ciclo de vida
+ *
+ * Las transiciones permitidas se declaran en una tabla explícita; los cambios de estado
+ * se aplican con UPDATE condicionales (WHERE estado = actual AND version = leída),
+ * así una transición inválida o concurrente nunca llega a escribirse.
  */
 public enum EstadoPedido {
     PENDIENTE,           // Creado, esperando asignación
@@ -12,6 +22,34 @@ public enum EstadoPedido {
     ENTREGADO,           // Entregado exitosamente
     FALLIDO,             // Intento de entrega fallido
     CANCELADO,           // Cancelado por cliente o sistema
-    DEVUELTO             // Devuelto al remitente
-}
+    DEVUELTO;            // Devuelto al remitente
+
+    private static final Map<EstadoPedido, Set<EstadoPedido>> TRANSICIONES = new EnumMap<>(EstadoPedido.class);
+
+    static {
+        TRANSICIONES.put(PENDIENTE, EnumSet.of(ASIGNADO, CANCELADO));
+        // ASIGNADO → PENDIENTE suelta repartidor y vehículo (PedidoTransicionRepository.SET_VUELTA_A_PENDIENTE)
+        TRANSICIONES.put(ASIGNADO, EnumSet.of(PENDIENTE, EN_PREPARACION, EN_TRANSITO, CANCELADO));
+        TRANSICIONES.put(EN_PREPARACION, EnumSet.of(EN_TRANSITO, CANCELADO));
+        TRANSICIONES.put(EN_TRANSITO, EnumSet.of(EN_DISTRIBUCION, ENTREGADO, FALLIDO));
+        TRANSICIONES.put(EN_DISTRIBUCION, EnumSet.of(EN_TRANSITO, ENTREGADO, FALLIDO));
+        TRANSICIONES.put(FALLIDO, EnumSet.of(EN_TRANSITO, DEVUELTO, CANCELADO));
+        // Estados finales: ENTREGADO, CANCELADO y DEVUELTO no admiten cambios
+        for (EstadoPedido estado : values()) {
+            TRANSICIONES.putIfAbsent(estado, EnumSet.noneOf(EstadoPedido.class));
+            TRANSICIONES.put(estado, Collections.unmodifiableSet(TRANSICIONES.get(estado)));
+        }
+    }
 
+    public boolean puedeTransicionarA(EstadoPedido destino) {
+        return TRANSICIONES.get(this).contains(destino);
+    }
+
+    public Set<EstadoPedido> siguientes() {
+        return TRANSICIONES.get(this);
+    }
+
+    public boolean esFinal() {
+        return TRANSICIONES.get(this).isEmpty();
+    }
+}
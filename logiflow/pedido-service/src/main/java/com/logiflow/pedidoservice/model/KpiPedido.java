@@ -0,0 +1,53 @@
+package com.logiflow.pedidoservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Rollup de pedidos por cobertura y estado
+ *
+ * Se mantiene de forma incremental en la misma transacción que cada alta o cambio de
+ * estado (ver KpiPedidoService), así los KPIs se leen en O(coberturas × estados)
+ * sin recorrer la tabla de pedidos. La duración de entrega (fechaEntregaReal -
+ * fechaCreacion) se acumula en la fila ENTREGADO de cada cobertura.
+ */
+@Entity
+@Table(name = "kpi_pedidos")
+@IdClass(KpiPedido.Clave.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KpiPedido {
+
+    @Id
+    @Column(nullable = false)
+    private String cobertura;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoPedido estado;
+
+    @Column(nullable = false)
+    private long cantidad;                  // Pedidos actualmente en este estado
+
+    @Column(nullable = false)
+    private long entregasMedidas;           // Entregas con duración conocida
+
+    @Column(nullable = false)
+    private long duracionEntregaSegundos;   // Suma de duraciones de esas entregas
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private String cobertura;
+        private EstadoPedido estado;
+    }
+}
@@ -0,0 +1,58 @@
+package com.logiflow.pedidoservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Distribución de tiempos de una cobertura, como HdrHistogram comprimido (segundos)
+ *
+ * ASIGNACION mide fechaCreacion → paso a ASIGNADO y ENTREGA fechaCreacion → paso a ENTREGADO.
+ * Los histogramas de cada transacción se fusionan con esta fila al confirmar, así los
+ * percentiles se calculan sin leer pedidos ni historial.
+ */
+@Entity
+@Table(name = "kpi_tiempos_pedidos")
+@IdClass(KpiTiempoPedido.Clave.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KpiTiempoPedido {
+
+    public enum Metrica {
+        ASIGNACION,
+        ENTREGA
+    }
+
+    @Id
+    @Column(nullable = false)
+    private String cobertura;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Metrica metrica;
+
+    @Column(nullable = false)
+    private long muestras;
+
+    @Column(nullable = false, length = 65536)
+    private byte[] sketch;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaActualizacion;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private String cobertura;
+        private Metrica metrica;
+    }
+}
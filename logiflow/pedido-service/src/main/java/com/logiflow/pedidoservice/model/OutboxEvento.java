@@ -0,0 +1,75 @@
+package com.logiflow.pedidoservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento pendiente de publicar en RabbitMQ (patrón Transactional Outbox)
+ *
+ * Se inserta en la misma transacción que el cambio del Pedido; OutboxRelay lo
+ * publica después en lotes, en orden de id. El id sale de la secuencia al insertar
+ * (allocationSize = 1, sin bloques por instancia) y las transacciones que escriben
+ * eventos de un mismo pedido se serializan por el bloqueo de su fila (o fallan por su
+ * versión), así que esos eventos tienen ids crecientes y salen en el orden en que se
+ * escribieron. Entre pedidos distintos el orden de id no es el de commit, ni hace falta.
+ */
+@Entity
+@Table(name = "pedido_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedido_outbox_seq")
+    @SequenceGenerator(name = "pedido_outbox_seq", sequenceName = "pedido_outbox_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false)
+    private String pedidoId;        // Clave de orden (agregado)
+
+    @Column(nullable = false, unique = true)
+    private String messageId;       // Id del evento, viaja como message-id AMQP
+
+    @Column(nullable = false)
+    private String exchange;
+
+    @Column(nullable = false)
+    private String routingKey;
+
+    @Column(nullable = false)
+    private String tipoEvento;      // Clase del evento, viaja como header __TypeId__
+
+    @Column(nullable = false, length = 8000)
+    private String payload;         // Evento serializado en JSON
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private EstadoOutbox estado = EstadoOutbox.PENDIENTE;
+
+    private LocalDateTime fechaPublicacion;
+
+    private LocalDateTime reclamadoHasta;   // Lote tomado por un relay hasta esta hora (null = libre)
+
+    private int intentos;
+
+    @Column(length = 500)
+    private String ultimoError;
+
+    @PrePersist
+    protected void onCreate() {
+        if (fechaCreacion == null) {
+            fechaCreacion = LocalDateTime.now();
+        }
+    }
+}
@@ -10,19 +10,31 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name= "pedidos")
+@Table(name= "pedidos", indexes = {
+        // Soportan la paginación keyset y la exportación ordenada
+        @Index(name = "idx_pedidos_fecha_id", columnList = "fechaCreacion DESC, id DESC"),
+        @Index(name = "idx_pedidos_cliente_fecha_id", columnList = "clienteId, fechaCreacion DESC, id DESC"),
+        // Recorrido del scheduler de reintentos: pendientes por prioridad, más antiguos primero
+        @Index(name = "idx_pedidos_estado_prioridad_fecha", columnList = "estado, prioridad, fechaCreacion, id"),
+        @Index(name = "idx_pedidos_prioridad_estado", columnList = "prioridad, estado"),
+        @Index(name = "idx_pedidos_cobertura_estado", columnList = "cobertura, estado")
+        // Los índices parciales (sin repartidor, sin factura, ...) solo existen en las migraciones de Flyway
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Pedido {
 
+    // UUID v7 con la fecha de creación: las búsquedas por id se acotan a su partición (RangoCreacion)
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @PedidoIdTemporal
     private String id;
 
     @NotBlank(message = "El ID del cliente es obligatorio")
@@ -109,13 +121,28 @@ public class Pedido {
     @Enumerated(EnumType.STRING)
     private Prioridad prioridad;
 
+    // Reintentos de asignación automática (backoff exponencial entre intentos)
+    private Integer intentosAsignacion;
+    private LocalDateTime proximoReintento;
+
+    // Control de concurrencia optimista: toda escritura (entidad o UPDATE condicional) incrementa la versión
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
-        fechaCreacion = LocalDateTime.now();
-        fechaActualizacion = LocalDateTime.now();
+        // Precisión de la columna (microsegundos): la entidad en memoria y la fila guardada
+        // deben tener la misma clave, si no un cursor keyset repetiría la última fila
+        fechaCreacion = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        fechaActualizacion = fechaCreacion;
         if (estado == null) {
             estado = EstadoPedido.PENDIENTE;
         }
+        if (intentosAsignacion == null) {
+            intentosAsignacion = 0;
+        }
         if (prioridad == null) {
             prioridad = tipoEntrega == TipoEntrega.EXPRESS
                 ? Prioridad.ALTA
@@ -0,0 +1,50 @@
+package com.logiflow.pedidoservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada append-only del historial de estados de un pedido
+ *
+ * Se escribe una por alta (estadoAnterior null) y otra por cada transición, en la misma
+ * transacción que el UPDATE del pedido (ver HistorialEstadoService). Nunca se modifica:
+ * el tiempo en cada estado es la diferencia entre fechas de filas consecutivas.
+ */
+@Entity
+@Table(name = "pedido_estado_historial",
+        indexes = @Index(name = "idx_historial_pedido_fecha", columnList = "pedidoId, fecha, id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoEstadoHistorial {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private String pedidoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private EstadoPedido estadoAnterior;    // null en el alta
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private EstadoPedido estadoNuevo;
+
+    @Column(updatable = false)
+    private String cobertura;
+
+    @Column(updatable = false)
+    private String usuario;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime fecha;
+}
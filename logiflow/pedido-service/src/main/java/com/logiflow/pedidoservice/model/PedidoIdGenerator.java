@@ -0,0 +1,72 @@
+package com.logiflow.pedidoservice.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Genera los ids de Pedido como UUID versión 7 (RFC 9562) a partir de su fechaCreacion
+ *
+ * La tabla pedidos está particionada por fecha_creacion y su PK es (id, fecha_creacion):
+ * una búsqueda solo por id visita todas las particiones. Con la fecha codificada en el id,
+ * RangoCreacion.de(id) acota fecha_creacion y PostgreSQL poda al mes del pedido.
+ * Sigue siendo un UUID válido para fleet y billing; los ids anteriores (versión 4) no llevan
+ * fecha y se buscan sin acotar.
+ */
+public class PedidoIdGenerator implements BeforeExecutionGenerator {
+
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    public PedidoIdGenerator(PedidoIdTemporal config, Member idMember, CustomIdGeneratorCreationContext contexto) {
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        // @PrePersist ya fijó fechaCreacion (Hibernate invoca los callbacks antes de generar el id)
+        LocalDateTime creacion = owner instanceof Pedido pedido ? pedido.getFechaCreacion() : null;
+        return nuevoId(creacion != null ? creacion : LocalDateTime.now());
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    public static String nuevoId(LocalDateTime creacion) {
+        long milis = creacion.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // 48 bits de milisegundos | versión 7 | 12 bits aleatorios
+        long altos = (milis << 16) | 0x7000L | (ALEATORIO.nextInt() & 0x0FFFL);
+        // variante RFC (10) | 62 bits aleatorios
+        long bajos = (ALEATORIO.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(altos, bajos).toString();
+    }
+
+    /**
+     * Fecha de creación codificada en el id; vacío si no es un UUID versión 7
+     */
+    public static Optional<LocalDateTime> fechaCreacion(String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Optional.empty();
+        }
+        if (uuid.version() != 7) {
+            return Optional.empty();
+        }
+        return Optional.of(LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(uuid.getMostSignificantBits() >>> 16), ZoneId.systemDefault()));
+    }
+}
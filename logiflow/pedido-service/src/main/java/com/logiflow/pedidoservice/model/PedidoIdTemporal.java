@@ -0,0 +1,17 @@
+package com.logiflow.pedidoservice.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Id de pedido UUID versión 7 con la fecha de creación en sus primeros 48 bits (PedidoIdGenerator)
+ */
+@IdGeneratorType(PedidoIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PedidoIdTemporal {
+}
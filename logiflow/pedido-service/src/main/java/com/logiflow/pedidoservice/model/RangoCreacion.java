@@ -0,0 +1,40 @@
+package com.logiflow.pedidoservice.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Intervalo [desde, hasta) de fecha_creacion en el que está un pedido (o un lote de pedidos)
+ *
+ * Las búsquedas y UPDATE por id lo agregan como filtro para que PostgreSQL solo lea la
+ * partición mensual del pedido. El margen absorbe diferencias de zona horaria entre
+ * instancias: el intervalo cubre a lo sumo dos particiones.
+ */
+public record RangoCreacion(LocalDateTime desde, LocalDateTime hasta) {
+
+    static final Duration MARGEN = Duration.ofDays(1);
+
+    // Ids sin fecha (anteriores a PedidoIdGenerator): se recorren todas las particiones
+    public static final RangoCreacion SIN_LIMITE = new RangoCreacion(
+            LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.of(9999, 1, 1, 0, 0));
+
+    public static RangoCreacion de(String id) {
+        return PedidoIdGenerator.fechaCreacion(id)
+                .map(creacion -> new RangoCreacion(creacion.minus(MARGEN), creacion.plus(MARGEN)))
+                .orElse(SIN_LIMITE);
+    }
+
+    /**
+     * Menor intervalo que contiene los rangos de todos los ids del lote
+     */
+    public static RangoCreacion cubriendo(Collection<String> ids) {
+        Optional<RangoCreacion> union = ids.stream()
+                .map(RangoCreacion::de)
+                .reduce((a, b) -> new RangoCreacion(
+                        a.desde().isBefore(b.desde()) ? a.desde() : b.desde(),
+                        a.hasta().isAfter(b.hasta()) ? a.hasta() : b.hasta()));
+        return union.orElse(SIN_LIMITE);
+    }
+}
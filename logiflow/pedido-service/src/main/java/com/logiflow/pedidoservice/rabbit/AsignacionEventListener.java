@@ -2,11 +2,13 @@ package com.logiflow.pedidoservice.rabbit;
 
 import com.logiflow.pedidoservice.event.AsignacionCompletadaEvent;
 import com.logiflow.pedidoservice.service.PedidoService;
+import com.logiflow.pedidoservice.service.impl.AsignacionLoteProcessor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -23,6 +25,10 @@ import java.util.UUID;
  * - Desacoplamiento total entre servicios
  * - Resiliente a caídas (mensajes quedan en cola)
  * - Auditoría automática (logs de eventos)
+ *
+ * Modos (pedido.asignacion.lote.enabled):
+ * - true (por defecto): consumo en lote, una transacción y un batch de UPDATEs por entrega
+ * - false: un mensaje por vez, como antes
  */
 @Service
 @Slf4j
@@ -30,6 +36,22 @@ import java.util.UUID;
 public class AsignacionEventListener {
 
     private final PedidoService pedidoService;
+    private final AsignacionLoteProcessor asignacionLoteProcessor;
+
+    /**
+     * Consume asignaciones completadas en lote
+     * Si la transacción falla el lote completo se reintenta (política de retry del listener)
+     * y no se confirma al broker
+     */
+    @RabbitListener(queues = "${rabbitmq.queue.asignacion-completada}",
+            containerFactory = "asignacionLoteContainerFactory",
+            autoStartup = "${pedido.asignacion.lote.enabled:true}")
+    public void handleAsignacionesCompletadas(List<AsignacionCompletadaEvent> eventos) {
+        long inicio = System.nanoTime();
+        List<String> asignados = asignacionLoteProcessor.aplicar(eventos);
+        log.info("[ASIGNACION-LOTE] Lote procesado | Recibidos: {} | Asignados: {} | Duración: {} ms",
+                eventos.size(), asignados.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
 
     /**
      * Consume eventos de asignación completada desde FleetService
@@ -37,7 +59,8 @@ public class AsignacionEventListener {
      * Exchange: fleet.exchange
      * Routing Key: asignacion.completada
      */
-    @RabbitListener(queues = "${rabbitmq.queue.asignacion-completada}")
+    @RabbitListener(queues = "${rabbitmq.queue.asignacion-completada}",
+            autoStartup = "#{!${pedido.asignacion.lote.enabled:true}}")
     public void handleAsignacionCompletada(AsignacionCompletadaEvent event) {
         try {
             log.info("=== EVENTO RECIBIDO: asignacion.completada ===");
@@ -0,0 +1,259 @@
+package com.logiflow.pedidoservice.rabbit;
+
+import com.logiflow.pedidoservice.model.OutboxEvento;
+import com.logiflow.pedidoservice.repository.OutboxEventoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relay del outbox de pedidos hacia RabbitMQ
+ *
+ * Cada ciclo:
+ * 1. Reclama la cabeza de la cola (transacción corta con FOR UPDATE NOWAIT): marca el lote
+ *    con reclamado_hasta y confirma. Las filas quedan libres mientras se espera al broker.
+ * 2. Publica el lote por un único canal y espera los publisher confirms una sola vez.
+ * 3. Si el broker rechaza el lote, reintenta los eventos de a uno: un evento malo no arrastra
+ *    al resto. Tras un fallo, los eventos siguientes del mismo pedido esperan al próximo
+ *    ciclo, así el orden por pedido se conserva.
+ * 4. Cada evento que falla suma un intento; al llegar a maximo-intentos pasa a FALLIDO
+ *    (con alerta en el log y el contador pedido.outbox.fallidos) y deja de bloquear la cola.
+ *
+ * Mientras un lote está reclamado, otra instancia que encuentre la cabeza de la cola
+ * reclamada omite el ciclo: solo hay un lote en vuelo y el orden se mantiene. Si el relay
+ * que lo reclamó muere, el reclamo vence y el lote se vuelve a publicar.
+ * Si el broker no está accesible el lote se libera sin consumir intentos.
+ *
+ * Garantía: at-least-once. Los consumidores deduplican por messageId.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "pedido.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+
+    private final OutboxEventoRepository outboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter fallidos;
+
+    @Value("${pedido.outbox.relay.tamano-lote:500}")
+    private int tamanoLote;
+
+    @Value("${pedido.outbox.relay.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${pedido.outbox.relay.maximo-intentos:10}")
+    private int maximoIntentos;
+
+    @Value("${pedido.outbox.relay.reclamo-segundos:60}")
+    private long reclamoSegundos;
+
+    @Value("${pedido.outbox.retencion-horas:24}")
+    private long retencionHoras;
+
+    public OutboxRelay(OutboxEventoRepository outboxRepository,
+                       @Lazy RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.fallidos = Counter.builder("pedido.outbox.fallidos")
+                .description("Eventos del outbox apartados como FALLIDO tras agotar los intentos")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Drena el outbox: mientras los lotes vengan llenos sigue publicando en el mismo ciclo
+     */
+    @Scheduled(fixedDelayString = "${pedido.outbox.relay.intervalo-ms:200}")
+    public void publicarPendientes() {
+        int publicados;
+        do {
+            publicados = publicarLote();
+        } while (publicados == tamanoLote);
+    }
+
+    /**
+     * Reclama un lote, lo publica fuera de toda transacción y registra el resultado
+     * @return eventos publicados (0 si no había pendientes, el lote falló u otra instancia lo tiene)
+     */
+    int publicarLote() {
+        long inicio = System.nanoTime();
+        List<OutboxEvento> lote;
+        try {
+            lote = transactionTemplate.execute(status -> reclamar());
+        } catch (PessimisticLockingFailureException e) {
+            log.debug("[OUTBOX-RELAY] Otra instancia está reclamando, se omite el ciclo");
+            return 0;
+        }
+        if (lote == null || lote.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = lote.stream().map(OutboxEvento::getId).toList();
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (OutboxEvento evento : lote) {
+                    operations.send(evento.getExchange(), evento.getRoutingKey(), toMessage(evento));
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+        } catch (AmqpConnectException e) {
+            log.error("[OUTBOX-RELAY] Broker no disponible, lote de {} eventos liberado (desde id={}): {}",
+                    lote.size(), ids.get(0), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.registrarError(ids, truncar(e.getMessage())));
+            return 0;
+        } catch (Exception e) {
+            log.warn("[OUTBOX-RELAY] Lote de {} eventos no confirmado por el broker (desde id={}), se reintenta de a uno: {}",
+                    lote.size(), ids.get(0), e.getMessage());
+            return publicarDeAUno(lote, inicio);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.marcarPublicados(ids, LocalDateTime.now()));
+        log.debug("[OUTBOX-RELAY] {} eventos publicados y confirmados (ids {}..{})",
+                lote.size(), ids.get(0), ids.get(ids.size() - 1));
+        return lote.size();
+    }
+
+    /**
+     * Toma la cabeza de la cola si nadie la tiene reclamada
+     */
+    private List<OutboxEvento> reclamar() {
+        List<OutboxEvento> lote = outboxRepository.findPendientesParaPublicar(Limit.of(tamanoLote));
+        if (lote.isEmpty()) {
+            return lote;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        boolean reclamado = lote.stream()
+                .anyMatch(evento -> evento.getReclamadoHasta() != null && evento.getReclamadoHasta().isAfter(ahora));
+        if (reclamado) {
+            log.debug("[OUTBOX-RELAY] Lote en vuelo en otra instancia, se omite el ciclo");
+            return List.of();
+        }
+        outboxRepository.reclamar(lote.stream().map(OutboxEvento::getId).toList(), ahora.plusSeconds(reclamoSegundos));
+        return lote;
+    }
+
+    /**
+     * Segundo intento de un lote rechazado, un evento y un confirm por vez.
+     * Se detiene antes de que venza el reclamo: lo no intentado vuelve a la cola sin costo.
+     */
+    private int publicarDeAUno(List<OutboxEvento> lote, long inicio) {
+        long limiteNanos = inicio + TimeUnit.SECONDS.toNanos(reclamoSegundos) - TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        List<Long> publicados = new ArrayList<>();
+        Map<Long, String> errores = new LinkedHashMap<>();
+        List<OutboxEvento> agotados = new ArrayList<>();
+        List<Long> postergados = new ArrayList<>();
+        Set<String> pedidosDetenidos = new HashSet<>();
+        boolean brokerCaido = false;
+
+        for (OutboxEvento evento : lote) {
+            if (brokerCaido || pedidosDetenidos.contains(evento.getPedidoId()) || System.nanoTime() > limiteNanos) {
+                postergados.add(evento.getId());
+                continue;
+            }
+            try {
+                rabbitTemplate.invoke(operations -> {
+                    operations.send(evento.getExchange(), evento.getRoutingKey(), toMessage(evento));
+                    operations.waitForConfirmsOrDie(confirmTimeoutMs);
+                    return null;
+                });
+                publicados.add(evento.getId());
+            } catch (AmqpConnectException e) {
+                // Se perdió la conexión: el resto vuelve a la cola sin consumir intentos
+                brokerCaido = true;
+                postergados.add(evento.getId());
+            } catch (Exception e) {
+                pedidosDetenidos.add(evento.getPedidoId());
+                errores.put(evento.getId(), truncar(e.getMessage()));
+                if (evento.getIntentos() + 1 >= maximoIntentos) {
+                    agotados.add(evento);
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!publicados.isEmpty()) {
+                outboxRepository.marcarPublicados(publicados, LocalDateTime.now());
+            }
+            errores.forEach((id, error) -> outboxRepository.registrarFallo(List.of(id), error));
+            if (!agotados.isEmpty()) {
+                outboxRepository.marcarFallidos(agotados.stream().map(OutboxEvento::getId).toList());
+            }
+            if (!postergados.isEmpty()) {
+                outboxRepository.liberarReclamo(postergados);
+            }
+        });
+
+        for (OutboxEvento evento : agotados) {
+            fallidos.increment();
+            log.error("[OUTBOX-RELAY][ALERTA] Evento apartado como FALLIDO tras {} intentos | id={} | MessageID: {} | PedidoID: {} | RoutingKey: {} | Error: {}",
+                    maximoIntentos, evento.getId(), evento.getMessageId(), evento.getPedidoId(),
+                    evento.getRoutingKey(), errores.get(evento.getId()));
+        }
+        log.info("[OUTBOX-RELAY] Reintento individual: {} publicados, {} fallidos ({} apartados), {} postergados",
+                publicados.size(), errores.size(), agotados.size(), postergados.size());
+        return publicados.size();
+    }
+
+    /**
+     * Elimina eventos ya publicados más antiguos que la retención configurada
+     */
+    @Scheduled(cron = "${pedido.outbox.limpieza-cron:0 0 * * * *}")
+    public void limpiarPublicados() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(retencionHoras);
+        Integer eliminados = transactionTemplate.execute(status -> outboxRepository.eliminarPublicadosAntesDe(limite));
+        log.info("[OUTBOX-RELAY] Limpieza: {} eventos publicados eliminados (anteriores a {})", eliminados, limite);
+    }
+
+    /**
+     * Mensaje con el mismo formato que produce Jackson2JsonMessageConverter,
+     * así los consumidores existentes no notan diferencia
+     */
+    private Message toMessage(OutboxEvento evento) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setMessageId(evento.getMessageId());
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setHeader(TYPE_ID_HEADER, evento.getTipoEvento());
+
+        byte[] body = evento.getPayload().getBytes(StandardCharsets.UTF_8);
+        properties.setContentLength(body.length);
+        return new Message(body, properties);
+    }
+
+    private String truncar(String mensaje) {
+        if (mensaje == null) {
+            return null;
+        }
+        return mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje;
+    }
+}
@@ -1,19 +1,37 @@
 package com.logiflow.pedidoservice.rabbit;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.logiflow.pedidoservice.event.PedidoCreadoEvent;
 import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
 import com.logiflow.pedidoservice.event.ReintentarAsignacionEvent;
+import com.logiflow.pedidoservice.event.ReintentoAsignacionLoteEvent;
+import com.logiflow.pedidoservice.model.OutboxEvento;
+import com.logiflow.pedidoservice.repository.OutboxEventoRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
+/**
+ * Publicador de eventos de pedido (patrón Transactional Outbox)
+ *
+ * Los eventos NO se envían al broker aquí: se insertan en pedido_outbox dentro de la
+ * transacción del cambio de negocio. Si la transacción hace rollback el evento
+ * desaparece con ella; si confirma, OutboxRelay lo publicará (con confirms del broker).
+ */
 @Service
 @Slf4j
+@Transactional(propagation = Propagation.MANDATORY)
 public class PedidoEventPublisher {
 
-    private final RabbitTemplate rabbitTemplate;
+    private static final String CLAVE_LOTE_REINTENTO = "REINTENTO-LOTE";
+
+    private final OutboxEventoRepository outboxRepository;
+    private final ObjectMapper objectMapper;
 
     @Value("${rabbitmq.exchange.pedidos:pedidos.exchange}")
     private String pedidosExchange;
@@ -27,13 +45,17 @@ public class PedidoEventPublisher {
     @Value("${rabbitmq.routing-key.reintento-asignacion:pedido.reintento.asignacion}")
     private String reintentoAsignacionRoutingKey;
 
-    public PedidoEventPublisher(@Lazy RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    @Value("${rabbitmq.routing-key.reintento-asignacion-lote:pedido.reintento.asignacion.lote}")
+    private String reintentoAsignacionLoteRoutingKey;
+
+    public PedidoEventPublisher(OutboxEventoRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
     }
 
     public void publishPedidoCreadoEvent(PedidoCreadoEvent event) {
         log.info("=====================================================");
-        log.info("[RABBIT-PRODUCER] Publicando evento PEDIDO CREADO");
+        log.info("[OUTBOX] Encolando evento PEDIDO CREADO");
         log.info("Message ID     : {}", event.getMessageId());
         log.info("Timestamp      : {}", event.getTimestamp());
         log.info("Pedido ID      : {}", event.getPedidoId());
@@ -50,24 +72,32 @@ public class PedidoEventPublisher {
         log.info("RoutingKey     : {}", pedidoCreadoRoutingKey);
         log.info("=====================================================");
 
-        try {
-            rabbitTemplate.convertAndSend(pedidosExchange, pedidoCreadoRoutingKey, event);
-            log.info("[RABBIT-PRODUCER] Evento pedido.creado enviado EXITOSAMENTE");
-            log.info("[CORRELACION] MessageID={} | PedidoID={} | Usuario={}", 
-                event.getMessageId(), event.getPedidoId(), event.getUsuarioCreador());
-        } catch (Exception e) {
-            log.error("[RABBIT-PRODUCER] ERROR enviando evento pedido.creado para pedidoId={}",
-                    event.getPedidoId(), e);
-            log.error("[ERROR-DETAILS] MessageID={} | Usuario={} | Error={}", 
-                event.getMessageId(), event.getUsuarioCreador(), e.getMessage());
-            // NO relanzamos la excepción para evitar rollback de la transacción DB
-            // El pedido se guarda aunque el evento falle (se puede reintentar después)
+        encolar(event.getPedidoId(), event.getMessageId(), pedidoCreadoRoutingKey, event);
+        log.info("[OUTBOX] Evento pedido.creado encolado | MessageID={} | PedidoID={} | Usuario={}", 
+            event.getMessageId(), event.getPedidoId(), event.getUsuarioCreador());
+    }
+
+    /**
+     * Encola los eventos pedido.creado de una carga masiva
+     * Un único log de resumen y un saveAll (inserciones en batch JDBC)
+     */
+    public void publishPedidosCreadosEvents(List<PedidoCreadoEvent> events) {
+        if (events.isEmpty()) {
+            return;
         }
+
+        List<OutboxEvento> filas = events.stream()
+                .map(event -> toOutbox(event.getPedidoId(), event.getMessageId(), pedidoCreadoRoutingKey, event))
+                .toList();
+        outboxRepository.saveAll(filas);
+
+        log.info("[OUTBOX] Lote de {} eventos pedido.creado encolado | Exchange={} | RoutingKey={} | Primer MessageID={}",
+            events.size(), pedidosExchange, pedidoCreadoRoutingKey, events.get(0).getMessageId());
     }
 
     public void publishPedidoEstadoEvent(PedidoEstadoEvent event) {
         log.info("=====================================================");
-        log.info("[RABBIT-PRODUCER] Publicando evento ESTADO ACTUALIZADO");
+        log.info("[OUTBOX] Encolando evento ESTADO ACTUALIZADO");
         log.info("Message ID     : {}", event.getMessageId());
         log.info("Timestamp      : {}", event.getTimestamp());
         log.info("Pedido ID      : {}", event.getPedidoId());
@@ -80,26 +110,33 @@ public class PedidoEventPublisher {
         log.info("RoutingKey     : {}", pedidoEstadoRoutingKey);
         log.info("=====================================================");
 
-        try {
-            rabbitTemplate.convertAndSend(pedidosExchange, pedidoEstadoRoutingKey, event);
-            log.info("[RABBIT-PRODUCER] Evento pedido.estado.actualizado enviado EXITOSAMENTE");
-            log.info("[CORRELACION] MessageID={} | PedidoID={} | {}\u2192{} | Usuario={}", 
-                event.getMessageId(), event.getPedidoId(), event.getEstadoAnterior(), 
-                event.getEstadoNuevo(), event.getUsuarioModificador());
-        } catch (Exception e) {
-            log.error("[RABBIT-PRODUCER] ERROR enviando evento pedido.estado.actualizado para pedidoId={}",
-                    event.getPedidoId(), e);
-            log.error("[ERROR-DETAILS] MessageID={} | Usuario={} | {}\u2192{} | Error={}", 
-                event.getMessageId(), event.getUsuarioModificador(), event.getEstadoAnterior(), 
-                event.getEstadoNuevo(), e.getMessage());
-            // NO relanzamos la excepción para evitar rollback de la transacción DB
-            // El pedido se guarda aunque el evento falle (se puede reintentar después)
+        encolar(event.getPedidoId(), event.getMessageId(), pedidoEstadoRoutingKey, event);
+        log.info("[OUTBOX] Evento pedido.estado.actualizado encolado | MessageID={} | PedidoID={} | {}\u2192{} | Usuario={}", 
+            event.getMessageId(), event.getPedidoId(), event.getEstadoAnterior(), 
+            event.getEstadoNuevo(), event.getUsuarioModificador());
+    }
+
+    /**
+     * Encola los eventos de cambio de estado de un lote (p. ej. asignaciones recibidas en batch)
+     * Un único log de resumen y un saveAll (inserciones en batch JDBC)
+     */
+    public void publishPedidoEstadoEvents(List<PedidoEstadoEvent> events) {
+        if (events.isEmpty()) {
+            return;
         }
+
+        List<OutboxEvento> filas = events.stream()
+                .map(event -> toOutbox(event.getPedidoId(), event.getMessageId(), pedidoEstadoRoutingKey, event))
+                .toList();
+        outboxRepository.saveAll(filas);
+
+        log.info("[OUTBOX] Lote de {} eventos pedido.estado.actualizado encolado | Exchange={} | RoutingKey={} | Primer MessageID={}",
+            events.size(), pedidosExchange, pedidoEstadoRoutingKey, events.get(0).getMessageId());
     }
 
     public void publishReintentarAsignacionEvent(ReintentarAsignacionEvent event) {
         log.info("=====================================================");
-        log.info("[RABBIT-PRODUCER] Publicando evento REINTENTAR ASIGNACION");
+        log.info("[OUTBOX] Encolando evento REINTENTAR ASIGNACION");
         log.info("Message ID     : {}", event.getMessageId());
         log.info("Timestamp      : {}", event.getTimestamp());
         log.info("Pedido ID      : {}", event.getPedidoId());
@@ -116,16 +153,44 @@ public class PedidoEventPublisher {
         log.info("RoutingKey     : {}", reintentoAsignacionRoutingKey);
         log.info("=====================================================");
 
+        encolar(event.getPedidoId(), event.getMessageId(), reintentoAsignacionRoutingKey, event);
+        log.info("[OUTBOX] Evento pedido.reintento.asignacion encolado | MessageID={} | PedidoID={} | Reintento#{} | Motivo={}", 
+            event.getMessageId(), event.getPedidoId(), event.getNumeroReintento(), event.getMotivoReintento());
+    }
+
+    /**
+     * Encola el lote de reintentos de un ciclo del scheduler como un único mensaje
+     * La clave de orden del outbox es fija: los lotes se publican en el orden en que se generan
+     */
+    public void publishReintentoAsignacionLoteEvent(ReintentoAsignacionLoteEvent event) {
+        encolar(CLAVE_LOTE_REINTENTO, event.getMessageId(), reintentoAsignacionLoteRoutingKey, event);
+        log.info("[OUTBOX] Lote de {} reintentos de asignación encolado | MessageID={} | Motivo={} | RoutingKey={}",
+            event.getPedidos().size(), event.getMessageId(), event.getMotivoReintento(), reintentoAsignacionLoteRoutingKey);
+    }
+
+    /**
+     * Inserta el evento en el outbox dentro de la transacción actual
+     * Un error de serialización o de base de datos se propaga y revierte el cambio de negocio
+     */
+    private void encolar(String pedidoId, String messageId, String routingKey, Object event) {
+        outboxRepository.save(toOutbox(pedidoId, messageId, routingKey, event));
+    }
+
+    private OutboxEvento toOutbox(String pedidoId, String messageId, String routingKey, Object event) {
+        String payload;
         try {
-            rabbitTemplate.convertAndSend(pedidosExchange, reintentoAsignacionRoutingKey, event);
-            log.info("[RABBIT-PRODUCER] Evento pedido.reintento.asignacion enviado EXITOSAMENTE");
-            log.info("[CORRELACION] MessageID={} | PedidoID={} | Reintento#{} | Motivo={}", 
-                event.getMessageId(), event.getPedidoId(), event.getNumeroReintento(), event.getMotivoReintento());
-        } catch (Exception e) {
-            log.error("[RABBIT-PRODUCER] ERROR enviando evento pedido.reintento.asignacion para pedidoId={}",
-                    event.getPedidoId(), e);
-            log.error("[ERROR-DETAILS] MessageID={} | Usuario={} | Error={}", 
-                event.getMessageId(), event.getUsuarioSolicitante(), e.getMessage());
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + messageId, e);
         }
+
+        return OutboxEvento.builder()
+                .pedidoId(pedidoId)
+                .messageId(messageId)
+                .exchange(pedidosExchange)
+                .routingKey(routingKey)
+                .tipoEvento(event.getClass().getName())
+                .payload(payload)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -4,11 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -45,6 +47,12 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-key.repartidor-ubicacion:repartidor.ubicacion.actualizada}")
     private String repartidorUbicacionRoutingKey;
 
+    @Value("${pedido.asignacion.lote.tamano:100}")
+    private int asignacionLoteTamano;
+
+    @Value("${pedido.asignacion.lote.espera-ms:200}")
+    private long asignacionLoteEsperaMs;
+
     // 1. Definición del Exchange (Topic para permitir ruteo flexible)
     @Bean
     public TopicExchange pedidosExchange() {
@@ -115,6 +123,21 @@ public class RabbitMQConfig {
                 .with(repartidorUbicacionRoutingKey);
     }
 
+    // Contenedor en modo batch para asignacion.completada: entrega hasta N mensajes por llamada
+    // (o los que lleguen en espera-ms) y confirma el lote completo cuando el listener retorna
+    @Bean
+    public SimpleRabbitListenerContainerFactory asignacionLoteContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(asignacionLoteTamano);
+        factory.setPrefetchCount(asignacionLoteTamano);
+        factory.setReceiveTimeout(asignacionLoteEsperaMs);
+        return factory;
+    }
+
     // 4. Conversor JSON (Corregido para evitar error de compilación y manejar LocalDateTime)
     @Bean
     public MessageConverter jsonMessageConverter() {
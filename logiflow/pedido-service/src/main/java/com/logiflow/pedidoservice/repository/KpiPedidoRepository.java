@@ -0,0 +1,9 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.model.KpiPedido;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface KpiPedidoRepository extends JpaRepository<KpiPedido, KpiPedido.Clave> {
+}
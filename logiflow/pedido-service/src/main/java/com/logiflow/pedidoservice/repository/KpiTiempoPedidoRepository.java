@@ -0,0 +1,13 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.model.KpiTiempoPedido;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface KpiTiempoPedidoRepository extends JpaRepository<KpiTiempoPedido, KpiTiempoPedido.Clave> {
+
+    List<KpiTiempoPedido> findByCobertura(String cobertura);
+}
@@ -0,0 +1,73 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.model.EstadoOutbox;
+import com.logiflow.pedidoservice.model.OutboxEvento;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventoRepository extends JpaRepository<OutboxEvento, Long> {
+
+    /**
+     * Cabeza de la cola: siguiente lote de eventos pendientes, en orden de escritura.
+     * FOR UPDATE NOWAIT solo dura la transacción corta del reclamo: si otra instancia está
+     * reclamando, esta falla de inmediato (y reintenta en el siguiente ciclo) en vez de
+     * saltar filas, lo que rompería el orden por pedido.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "0"))
+    @Query("SELECT o FROM OutboxEvento o WHERE o.estado = com.logiflow.pedidoservice.model.EstadoOutbox.PENDIENTE ORDER BY o.id")
+    List<OutboxEvento> findPendientesParaPublicar(Limit limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvento o SET o.reclamadoHasta = :hasta WHERE o.id IN :ids")
+    int reclamar(@Param("ids") Collection<Long> ids, @Param("hasta") LocalDateTime hasta);
+
+    @Modifying
+    @Query("UPDATE OutboxEvento o SET o.reclamadoHasta = NULL WHERE o.id IN :ids")
+    int liberarReclamo(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE OutboxEvento o SET o.estado = com.logiflow.pedidoservice.model.EstadoOutbox.PUBLICADO, " +
+           "o.fechaPublicacion = :ahora, o.reclamadoHasta = NULL WHERE o.id IN :ids")
+    int marcarPublicados(@Param("ids") Collection<Long> ids, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Fallo atribuible a los eventos (nack, rechazo, timeout individual): suma un intento
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvento o SET o.intentos = o.intentos + 1, o.ultimoError = :error, " +
+           "o.reclamadoHasta = NULL WHERE o.id IN :ids")
+    int registrarFallo(@Param("ids") Collection<Long> ids, @Param("error") String error);
+
+    /**
+     * Fallo del broker (sin conexión): no es culpa de los eventos, no consume intentos
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvento o SET o.ultimoError = :error, o.reclamadoHasta = NULL WHERE o.id IN :ids")
+    int registrarError(@Param("ids") Collection<Long> ids, @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE OutboxEvento o SET o.estado = com.logiflow.pedidoservice.model.EstadoOutbox.FALLIDO, " +
+           "o.reclamadoHasta = NULL WHERE o.id IN :ids")
+    int marcarFallidos(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvento o WHERE o.estado = com.logiflow.pedidoservice.model.EstadoOutbox.PUBLICADO " +
+           "AND o.fechaPublicacion < :limite")
+    int eliminarPublicadosAntesDe(@Param("limite") LocalDateTime limite);
+
+    long countByEstado(EstadoOutbox estado);
+}
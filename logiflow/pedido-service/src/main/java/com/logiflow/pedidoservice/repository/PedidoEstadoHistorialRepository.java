@@ -0,0 +1,14 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.model.PedidoEstadoHistorial;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PedidoEstadoHistorialRepository extends JpaRepository<PedidoEstadoHistorial, Long> {
+
+    // Usa idx_historial_pedido_fecha
+    List<PedidoEstadoHistorial> findByPedidoIdOrderByFechaAscIdAsc(String pedidoId);
+}
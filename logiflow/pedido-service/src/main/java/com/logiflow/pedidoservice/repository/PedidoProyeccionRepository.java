@@ -0,0 +1,22 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.dto.CampoPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Listados de pedidos con solo las columnas pedidas (fields=)
+ * Fragmento de PedidoRepository; implementación en PedidoProyeccionRepositoryImpl
+ */
+public interface PedidoProyeccionRepository {
+
+    /**
+     * @param filtro condición del listado
+     * @param campos columnas a seleccionar, en el orden de las claves de cada fila
+     * @return una fila por pedido (sin entidades administradas: no hay dirty checking)
+     */
+    List<Map<String, Object>> proyectar(Specification<Pedido> filtro, List<CampoPedido> campos);
+}
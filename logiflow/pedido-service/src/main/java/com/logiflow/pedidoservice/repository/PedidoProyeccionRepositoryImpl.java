@@ -0,0 +1,64 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.dto.CampoPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consulta Criteria de tuplas: SELECT solo de las columnas de los campos pedidos,
+ * sin hidratar Pedido ni sus dos Direccion embebidas
+ */
+public class PedidoProyeccionRepositoryImpl implements PedidoProyeccionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> proyectar(Specification<Pedido> filtro, List<CampoPedido> campos) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Pedido> pedido = query.from(Pedido.class);
+
+        List<Selection<?>> columnas = new ArrayList<>(campos.size());
+        for (CampoPedido campo : campos) {
+            columnas.add(ruta(pedido, campo.getAtributo()).alias(campo.getNombre()));
+        }
+        query.multiselect(columnas);
+        if (filtro != null) {
+            query.where(filtro.toPredicate(pedido, query, cb));
+        }
+
+        List<Tuple> filas = entityManager.createQuery(query).getResultList();
+        List<Map<String, Object>> resultado = new ArrayList<>(filas.size());
+        for (Tuple fila : filas) {
+            Map<String, Object> valores = new LinkedHashMap<>();
+            for (CampoPedido campo : campos) {
+                valores.put(campo.getNombre(), fila.get(campo.getNombre()));
+            }
+            resultado.add(valores);
+        }
+        return resultado;
+    }
+
+    // "direccionOrigen.ciudad" → pedido.get("direccionOrigen").get("ciudad")
+    private static Path<?> ruta(Root<Pedido> pedido, String atributo) {
+        Path<?> ruta = pedido;
+        for (String parte : atributo.split("\\.")) {
+            ruta = ruta.get(parte);
+        }
+        return ruta;
+    }
+}
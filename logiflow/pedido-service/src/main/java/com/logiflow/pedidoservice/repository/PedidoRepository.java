@@ -4,17 +4,45 @@ import com.logiflow.pedidoservice.model.EstadoPedido;
 import com.logiflow.pedidoservice.model.ModalidadServicio;
 import com.logiflow.pedidoservice.model.Pedido;
 import com.logiflow.pedidoservice.model.Prioridad;
+import com.logiflow.pedidoservice.model.RangoCreacion;
 import com.logiflow.pedidoservice.model.TipoEntrega;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-@Repository
-public interface PedidoRepository extends JpaRepository<Pedido, String> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
-    // Búsquedas básicas
+@Repository
+public interface PedidoRepository extends JpaRepository<Pedido, String>, PedidoProyeccionRepository,
+        PedidoTransicionRepository {
+
+    // Búsqueda por id acotada a la partición del pedido. findById (solo id) recorre todas las
+    // particiones: la PK es (id, fecha_creacion) y el id solo no permite podar
+    @Query("SELECT p FROM Pedido p WHERE p.id = :id AND p.fechaCreacion >= :desde AND p.fechaCreacion < :hasta")
+    Optional<Pedido> findByIdEnRango(@Param("id") String id,
+                                     @Param("desde") LocalDateTime desde,
+                                     @Param("hasta") LocalDateTime hasta);
+
+    default Optional<Pedido> buscarPorId(String id) {
+        RangoCreacion rango = RangoCreacion.de(id);
+        return findByIdEnRango(id, rango.desde(), rango.hasta());
+    }
+
+    // Búsquedas básicas. Sin filtro por fechaCreacion recorren todas las particiones mensuales:
+    // los listados de la API usan las variantes con ventana de abajo cuando el cliente envía desde
     List<Pedido> findByClienteId(String clienteId);
 
     List<Pedido> findByEstado(EstadoPedido estado);
@@ -31,10 +59,48 @@ public interface PedidoRepository extends JpaRepository<Pedido, String> {
 
     List<Pedido> findByVehiculoId(String vehiculoId);
 
+    // Variantes con ventana: fechaCreacion >= desde poda las particiones de meses anteriores
+    List<Pedido> findByClienteIdAndFechaCreacionGreaterThanEqual(String clienteId, LocalDateTime desde);
+
+    List<Pedido> findByEstadoAndFechaCreacionGreaterThanEqual(EstadoPedido estado, LocalDateTime desde);
+
+    List<Pedido> findByRepartidorIdAndFechaCreacionGreaterThanEqual(String repartidorId, LocalDateTime desde);
+
     // Pedidos pendientes de asignación (sin repartidor ni vehículo)
     @Query("SELECT p FROM Pedido p WHERE p.repartidorId IS NULL AND p.vehiculoId IS NULL AND p.estado = 'PENDIENTE'")
     List<Pedido> findPedidosPendientesAsignacion();
 
+    // Reintento automático de asignación: pendientes de una prioridad cuyo backoff venció,
+    // más antiguos primero, con cursor keyset sobre (fechaCreacion, id).
+    // SKIP LOCKED: varias instancias del scheduler se reparten los pedidos sin esperarse entre sí
+
+    String PENDIENTES_REINTENTO = "SELECT p FROM Pedido p WHERE " +
+           "p.estado = com.logiflow.pedidoservice.model.EstadoPedido.PENDIENTE " +
+           "AND p.repartidorId IS NULL AND p.vehiculoId IS NULL AND p.prioridad = :prioridad " +
+           "AND p.fechaCreacion <= :creadoAntesDe AND COALESCE(p.intentosAsignacion, 0) < :maximoIntentos " +
+           "AND (p.proximoReintento IS NULL OR p.proximoReintento <= :ahora) ";
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query(PENDIENTES_REINTENTO + "ORDER BY p.fechaCreacion, p.id")
+    List<Pedido> findPendientesReintento(@Param("prioridad") Prioridad prioridad,
+                                         @Param("creadoAntesDe") LocalDateTime creadoAntesDe,
+                                         @Param("maximoIntentos") int maximoIntentos,
+                                         @Param("ahora") LocalDateTime ahora,
+                                         Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query(PENDIENTES_REINTENTO + "AND (p.fechaCreacion > :fecha OR (p.fechaCreacion = :fecha AND p.id > :id)) " +
+           "ORDER BY p.fechaCreacion, p.id")
+    List<Pedido> findPendientesReintentoDespuesDe(@Param("prioridad") Prioridad prioridad,
+                                                  @Param("creadoAntesDe") LocalDateTime creadoAntesDe,
+                                                  @Param("maximoIntentos") int maximoIntentos,
+                                                  @Param("ahora") LocalDateTime ahora,
+                                                  @Param("fecha") LocalDateTime fecha,
+                                                  @Param("id") String id,
+                                                  Limit limit);
+
     // Pedidos en tránsito por repartidor
     List<Pedido> findByRepartidorIdAndEstado(String repartidorId, EstadoPedido estado);
 
@@ -54,6 +120,99 @@ public interface PedidoRepository extends JpaRepository<Pedido, String> {
 
     // Contar pedidos por estado
     long countByEstado(EstadoPedido estado);
-}
-
 
+    // Actualizaciones puntuales (una sola sentencia, sin cargar la entidad)
+    // Usadas por el pipeline de creación para aplicar resultados de billing/fleet en transacciones cortas
+    // y por la asignación manual (UPDATE primero; 0 filas = inexistente, no PENDIENTE o carrera)
+
+    // El filtro por fechaCreacion (RangoCreacion del id) limita el UPDATE a la partición del pedido
+
+    @Modifying
+    @Query("UPDATE Pedido p SET p.facturaId = :facturaId, p.tarifaCalculada = :tarifa, " +
+           "p.fechaActualizacion = :ahora, p.version = p.version + 1 " +
+           "WHERE p.id = :id AND p.fechaCreacion >= :desde AND p.fechaCreacion < :hasta")
+    int actualizarFacturaEnRango(@Param("id") String id,
+                                 @Param("desde") LocalDateTime desde,
+                                 @Param("hasta") LocalDateTime hasta,
+                                 @Param("facturaId") String facturaId,
+                                 @Param("tarifa") Double tarifa,
+                                 @Param("ahora") LocalDateTime ahora);
+
+    default int actualizarFactura(String id, String facturaId, Double tarifa, LocalDateTime ahora) {
+        RangoCreacion rango = RangoCreacion.de(id);
+        return actualizarFacturaEnRango(id, rango.desde(), rango.hasta(), facturaId, tarifa, ahora);
+    }
+
+    @Modifying
+    @Query("UPDATE Pedido p SET p.repartidorId = :repartidorId, p.vehiculoId = :vehiculoId, " +
+           "p.estado = com.logiflow.pedidoservice.model.EstadoPedido.ASIGNADO, p.fechaActualizacion = :ahora, " +
+           "p.version = p.version + 1 " +
+           "WHERE p.id = :id AND p.fechaCreacion >= :desde AND p.fechaCreacion < :hasta " +
+           "AND p.estado = com.logiflow.pedidoservice.model.EstadoPedido.PENDIENTE")
+    int asignarRecursosSiPendienteEnRango(@Param("id") String id,
+                                          @Param("desde") LocalDateTime desde,
+                                          @Param("hasta") LocalDateTime hasta,
+                                          @Param("repartidorId") String repartidorId,
+                                          @Param("vehiculoId") String vehiculoId,
+                                          @Param("ahora") LocalDateTime ahora);
+
+    default int asignarRecursosSiPendiente(String id, String repartidorId, String vehiculoId, LocalDateTime ahora) {
+        RangoCreacion rango = RangoCreacion.de(id);
+        return asignarRecursosSiPendienteEnRango(id, rango.desde(), rango.hasta(), repartidorId, vehiculoId, ahora);
+    }
+
+    // Reconstrucción del rollup de KPIs (solo cuando la tabla kpi_pedidos está vacía)
+
+    @Query("SELECT p.cobertura, p.estado, COUNT(p) FROM Pedido p GROUP BY p.cobertura, p.estado")
+    List<Object[]> contarPorCoberturaYEstado();
+
+    @Query("SELECT p.cobertura, COUNT(p), SUM((p.fechaEntregaReal - p.fechaCreacion) BY SECOND) FROM Pedido p " +
+           "WHERE p.estado = com.logiflow.pedidoservice.model.EstadoPedido.ENTREGADO " +
+           "AND p.fechaEntregaReal IS NOT NULL GROUP BY p.cobertura")
+    List<Object[]> sumarDuracionEntregasPorCobertura();
+
+    // Pedidos finalizados que el archivado ya movió a la tabla fría (solo lectura)
+    @Query(value = "SELECT * FROM pedidos_archivo WHERE id = :id", nativeQuery = true)
+    Optional<Pedido> findArchivadoById(@Param("id") String id);
+
+    // Paginación keyset sobre (fechaCreacion, id), más recientes primero
+    // El id desempata pedidos con la misma fecha, así el orden es estable entre páginas.
+    // El filtro por fechaCreacion también poda particiones: las páginas siguientes no leen los meses más nuevos
+
+    @Query("SELECT p FROM Pedido p ORDER BY p.fechaCreacion DESC, p.id DESC")
+    List<Pedido> findPrimeraPagina(Limit limit);
+
+    @Query("SELECT p FROM Pedido p WHERE p.fechaCreacion < :fecha " +
+           "OR (p.fechaCreacion = :fecha AND p.id < :id) " +
+           "ORDER BY p.fechaCreacion DESC, p.id DESC")
+    List<Pedido> findPaginaDespuesDe(@Param("fecha") LocalDateTime fecha,
+                                     @Param("id") String id,
+                                     Limit limit);
+
+    @Query("SELECT p FROM Pedido p WHERE p.clienteId = :clienteId ORDER BY p.fechaCreacion DESC, p.id DESC")
+    List<Pedido> findPrimeraPaginaByCliente(@Param("clienteId") String clienteId, Limit limit);
+
+    @Query("SELECT p FROM Pedido p WHERE p.clienteId = :clienteId AND (p.fechaCreacion < :fecha " +
+           "OR (p.fechaCreacion = :fecha AND p.id < :id)) " +
+           "ORDER BY p.fechaCreacion DESC, p.id DESC")
+    List<Pedido> findPaginaByClienteDespuesDe(@Param("clienteId") String clienteId,
+                                              @Param("fecha") LocalDateTime fecha,
+                                              @Param("id") String id,
+                                              Limit limit);
+
+    // Exportación: cursor del lado del servidor (requiere transacción abierta mientras se consume)
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Pedido p ORDER BY p.fechaCreacion DESC, p.id DESC")
+    Stream<Pedido> streamTodos();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Pedido p WHERE p.clienteId = :clienteId ORDER BY p.fechaCreacion DESC, p.id DESC")
+    Stream<Pedido> streamByCliente(@Param("clienteId") String clienteId);
+}
@@ -0,0 +1,29 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.model.EstadoPedido;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface PedidoTransicionRepository {
+
+    // Al volver a PENDIENTE el pedido suelta repartidor y vehículo y reinicia el backoff:
+    // sin esto no cumple el filtro de los pendientes (repartidorId/vehiculoId IS NULL) y nunca se reintenta
+    String SET_VUELTA_A_PENDIENTE =
+            ", repartidor_id = NULL, vehiculo_id = NULL, intentos_asignacion = 0, proximo_reintento = NULL";
+
+    /**
+     * Cambio de estado sin lectura previa: un UPDATE condicional por estado de origen
+     * (WHERE id = ? AND estado = origen [AND version = ?]) enviados en un solo batch JDBC.
+     * El WHERE también filtra por RangoCreacion.de(id) para leer solo la partición del pedido.
+     * El destino nunca es origen de sí mismo, así que a lo sumo una sentencia toca la fila.
+     * Si el destino es PENDIENTE la misma sentencia aplica SET_VUELTA_A_PENDIENTE.
+     *
+     * @param origenes estados desde los que se admite la transición
+     * @param version versión leída por el cliente; null si no la envió
+     * @return estado desde el que se transicionó; vacío si la fila no existe o no cumplió la condición
+     */
+    Optional<EstadoPedido> transicionarDesde(String id, Collection<EstadoPedido> origenes, Long version,
+                                             EstadoPedido nuevo, LocalDateTime fechaEntrega, LocalDateTime ahora);
+}
@@ -0,0 +1,71 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.RangoCreacion;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Batch JDBC de UPDATEs condicionales (mismo patrón que AsignacionLoteProcessor):
+ * un round trip, y el conteo por sentencia dice desde qué estado se transicionó
+ */
+public class PedidoTransicionRepositoryImpl implements PedidoTransicionRepository {
+
+    private static final String SQL_TRANSICIONAR =
+            "UPDATE pedidos SET estado = ?, fecha_actualizacion = ?, " +
+            "fecha_entrega_real = COALESCE(fecha_entrega_real, ?), version = version + 1%s " +
+            "WHERE id = ? AND fecha_creacion >= ? AND fecha_creacion < ? AND estado = ?";
+
+    private static final String SQL_VERSION = " AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PedidoTransicionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<EstadoPedido> transicionarDesde(String id, Collection<EstadoPedido> origenes, Long version,
+                                                    EstadoPedido nuevo, LocalDateTime fechaEntrega,
+                                                    LocalDateTime ahora) {
+        if (origenes.isEmpty()) {
+            return Optional.empty();
+        }
+        List<EstadoPedido> candidatos = new ArrayList<>(origenes);
+        Timestamp actualizacion = Timestamp.valueOf(ahora);
+        Timestamp entrega = fechaEntrega != null ? Timestamp.valueOf(fechaEntrega) : null;
+        // Acota el UPDATE a la partición del pedido (fecha codificada en el id)
+        RangoCreacion rango = RangoCreacion.de(id);
+        Timestamp desde = Timestamp.valueOf(rango.desde());
+        Timestamp hasta = Timestamp.valueOf(rango.hasta());
+
+        String sql = String.format(SQL_TRANSICIONAR, nuevo == EstadoPedido.PENDIENTE ? SET_VUELTA_A_PENDIENTE : "")
+                + (version != null ? SQL_VERSION : "");
+
+        int[] filas = jdbcTemplate.batchUpdate(sql, candidatos, candidatos.size(), (ps, origen) -> {
+            ps.setString(1, nuevo.name());
+            ps.setTimestamp(2, actualizacion);
+            ps.setTimestamp(3, entrega);
+            ps.setString(4, id);
+            ps.setTimestamp(5, desde);
+            ps.setTimestamp(6, hasta);
+            ps.setString(7, origen.name());
+            if (version != null) {
+                ps.setLong(8, version);
+            }
+        })[0];
+
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] > 0) {
+                return Optional.of(candidatos.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+}
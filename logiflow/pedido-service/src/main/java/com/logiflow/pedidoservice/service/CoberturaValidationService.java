@@ -1,7 +1,11 @@
 package com.logiflow.pedidoservice.service;
 
+import com.logiflow.pedidoservice.cobertura.ResolucionCobertura;
+import com.logiflow.pedidoservice.model.Direccion;
 import com.logiflow.pedidoservice.model.TipoEntrega;
 
+import java.util.Optional;
+
 /**
  * Servicio para validar la cobertura geográfica
  * Patrón: Strategy - permite diferentes implementaciones de validación
@@ -22,5 +26,12 @@ public interface CoberturaValidationService {
      * @return true si está disponible
      */
     boolean isTipoEntregaDisponible(TipoEntrega tipoEntrega, String cobertura);
-}
 
+    /**
+     * Resuelve la cobertura de la ruta ubicando origen y destino en los polígonos de zonas
+     * @param origen dirección de recogida
+     * @param destino dirección de entrega
+     * @return cobertura y tipos de entrega admitidos, o vacío si algún punto cae fuera de las zonas
+     */
+    Optional<ResolucionCobertura> resolverCobertura(Direccion origen, Direccion destino);
+}
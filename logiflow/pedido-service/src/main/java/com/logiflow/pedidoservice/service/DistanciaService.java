@@ -0,0 +1,19 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.model.Direccion;
+import com.logiflow.pedidoservice.model.ModalidadServicio;
+
+/**
+ * Servicio para estimar la distancia por carretera de un pedido (base de la tarifa)
+ */
+public interface DistanciaService {
+
+    /**
+     * Estima los km por carretera entre origen y destino
+     * @param origen dirección de recogida
+     * @param destino dirección de entrega
+     * @param modalidad modalidad del servicio, usada solo si no hay coordenadas ni ciudades conocidas
+     * @return distancia estimada en km, redondeada a 0.1
+     */
+    Double estimarKm(Direccion origen, Direccion destino, ModalidadServicio modalidad);
+}
@@ -0,0 +1,37 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.dto.HistorialEstadoResponse;
+import com.logiflow.pedidoservice.dto.TiemposCoberturaResponse;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Historial append-only de estados y percentiles de tiempos por cobertura
+ *
+ * Igual que KpiPedidoService, los registrar* deben llamarse dentro de la transacción que
+ * escribe el pedido (junto al UPDATE condicional): historial y percentiles se escriben al
+ * confirmar y se descartan si hay rollback.
+ */
+public interface HistorialEstadoService {
+
+    void registrarCreaciones(Collection<Pedido> pedidos, String usuario);
+
+    /**
+     * @param pedido pedido ya transicionado; se usan id, cobertura, fechaCreacion y,
+     *               al pasar a ENTREGADO, fechaEntregaReal
+     */
+    void registrarTransicion(Pedido pedido, EstadoPedido desde, EstadoPedido hacia, String usuario);
+
+    /**
+     * @return entradas del pedido en orden cronológico; vacía si no tiene historial
+     */
+    List<HistorialEstadoResponse> obtenerHistorial(String pedidoId);
+
+    /**
+     * @param cobertura filtra una cobertura; null = todas
+     */
+    List<TiemposCoberturaResponse> obtenerTiempos(String cobertura);
+}
@@ -0,0 +1,32 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.dto.KpiCoberturaResponse;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Contadores de pedidos por cobertura y estado, mantenidos en cada alta y transición
+ *
+ * Los registrar* deben llamarse dentro de la transacción que escribe el pedido:
+ * los deltas se aplican al rollup al confirmar y se descartan si hay rollback.
+ */
+public interface KpiPedidoService {
+
+    void registrarCreaciones(Collection<Pedido> pedidos);
+
+    /**
+     * @param pedido pedido ya transicionado; se usan su cobertura y, al pasar a ENTREGADO,
+     *               fechaCreacion/fechaEntregaReal para la duración de la entrega
+     */
+    void registrarTransicion(Pedido pedido, EstadoPedido desde, EstadoPedido hacia);
+
+    void registrarTransicion(String cobertura, EstadoPedido desde, EstadoPedido hacia);
+
+    /**
+     * @param cobertura filtra una cobertura; null = todas
+     */
+    List<KpiCoberturaResponse> obtenerKpis(String cobertura);
+}
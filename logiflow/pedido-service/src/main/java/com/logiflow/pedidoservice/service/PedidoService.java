@@ -1,11 +1,22 @@
 package com.logiflow.pedidoservice.service;
 
+import com.logiflow.pedidoservice.dto.CampoPedido;
+import com.logiflow.pedidoservice.dto.CreacionPedidoStatusResponse;
+import com.logiflow.pedidoservice.dto.PaginaPedidosResponse;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteRequest;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse;
+import com.logiflow.pedidoservice.dto.PedidoLoteRequest;
+import com.logiflow.pedidoservice.dto.PedidoLoteResponse;
 import com.logiflow.pedidoservice.dto.PedidoPatchRequest;
 import com.logiflow.pedidoservice.dto.PedidoRequest;
 import com.logiflow.pedidoservice.dto.PedidoResponse;
 import com.logiflow.pedidoservice.model.ModalidadServicio;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio de negocio para gestión de pedidos
@@ -20,6 +31,30 @@ public interface PedidoService {
      */
     PedidoResponse createPedido(PedidoRequest request);
 
+    /**
+     * Crear un pedido sin esperar a Billing/Fleet
+     * El pedido queda confirmado y las integraciones continúan en segundo plano
+     * @param request datos del pedido
+     * @return pedido confirmado (estado PENDIENTE)
+     */
+    PedidoResponse createPedidoAsync(PedidoRequest request);
+
+    /**
+     * Crear pedidos en lote (carga masiva)
+     * Valida cada pedido por separado, inserta en batch y encola los eventos pedido.creado;
+     * billing y fleet los procesan de forma asíncrona (sin llamadas HTTP por pedido)
+     * @param request pedidos a crear
+     * @return resultado por pedido, en el orden recibido
+     */
+    PedidoLoteResponse crearPedidosLote(PedidoLoteRequest request);
+
+    /**
+     * Consultar el progreso de la creación de un pedido
+     * @param id identificador del pedido
+     * @return estado de los pasos de facturación y asignación
+     */
+    CreacionPedidoStatusResponse getEstadoCreacion(String id);
+
     /**
      * Obtener pedido por ID
      * @param id identificador del pedido
@@ -34,12 +69,50 @@ public interface PedidoService {
     List<PedidoResponse> getAllPedidos();
 
     /**
-     * Obtener pedidos por cliente
+     * Obtener todos los pedidos con solo los campos indicados (fields=)
+     * @param campos columnas a seleccionar y serializar
+     * @return una fila por pedido con las claves pedidas
+     */
+    List<Map<String, Object>> getAllPedidos(List<CampoPedido> campos);
+
+    /**
+     * Obtener todos los pedidos de un cliente
      * @param clienteId identificador del cliente
      * @return lista de pedidos del cliente
      */
     List<PedidoResponse> getPedidosByCliente(String clienteId);
 
+    /**
+     * Obtener pedidos de un cliente creados a partir de una fecha. Con desde las consultas
+     * en PostgreSQL solo recorren las particiones mensuales desde esa fecha
+     * @param clienteId identificador del cliente
+     * @param desde fecha de creación mínima (null = sin límite)
+     * @return lista de pedidos del cliente
+     */
+    List<PedidoResponse> getPedidosByCliente(String clienteId, LocalDateTime desde);
+
+    /**
+     * Obtener pedidos por cliente con solo los campos indicados (fields=)
+     * @param desde fecha de creación mínima (null = sin límite)
+     */
+    List<Map<String, Object>> getPedidosByCliente(String clienteId, List<CampoPedido> campos, LocalDateTime desde);
+
+    /**
+     * Obtener una página de pedidos (más recientes primero)
+     * @param clienteId filtra por cliente; null para todos
+     * @param cursor cursor devuelto por la página anterior; null para la primera
+     * @param limite tamaño de página
+     * @return página con el cursor de la siguiente
+     */
+    PaginaPedidosResponse getPedidosPaginados(String clienteId, String cursor, int limite);
+
+    /**
+     * Exportar pedidos como NDJSON (un pedido por línea) con memoria constante
+     * @param clienteId filtra por cliente; null para todos
+     * @param salida flujo de la respuesta HTTP
+     */
+    void exportarPedidos(String clienteId, OutputStream salida) throws IOException;
+
     /**
      * Actualización parcial de un pedido (PATCH)
      * @param id identificador del pedido
@@ -48,6 +121,14 @@ public interface PedidoService {
      */
     PedidoResponse patchPedido(String id, PedidoPatchRequest patchRequest);
 
+    /**
+     * Cambiar el estado de muchos pedidos a la vez (fin de ruta de un supervisor)
+     * Un solo UPDATE para los pedidos que admiten la transición y un lote de eventos de estado
+     * @param request IDs y estado destino
+     * @return resultado por pedido; los que no admiten la transición se informan sin modificarse
+     */
+    PedidoEstadoLoteResponse cambiarEstadoLote(PedidoEstadoLoteRequest request);
+
     /**
      * Cancelar un pedido
      * @param id identificador del pedido
@@ -78,6 +159,11 @@ public interface PedidoService {
      */
     List<PedidoResponse> getPedidosPendientesAsignacion();
 
+    /**
+     * Obtener pedidos pendientes de asignación con solo los campos indicados (fields=)
+     */
+    List<Map<String, Object>> getPedidosPendientesAsignacion(List<CampoPedido> campos);
+
     /**
      * Obtener pedidos por repartidor
      * @param repartidorId ID del repartidor
@@ -85,6 +171,14 @@ public interface PedidoService {
      */
     List<PedidoResponse> getPedidosByRepartidor(String repartidorId);
 
+    /**
+     * Obtener pedidos de un repartidor creados a partir de una fecha (poda particiones)
+     * @param repartidorId ID del repartidor
+     * @param desde fecha de creación mínima (null = sin límite)
+     * @return lista de pedidos del repartidor
+     */
+    List<PedidoResponse> getPedidosByRepartidor(String repartidorId, LocalDateTime desde);
+
     /**
      * Obtener pedidos por modalidad de servicio
      * @param modalidad modalidad del servicio
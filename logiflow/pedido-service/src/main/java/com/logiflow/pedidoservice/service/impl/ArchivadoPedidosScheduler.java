@@ -0,0 +1,166 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Archivado de pedidos finalizados y mantenimiento de particiones de pedidos
+ *
+ * - Los pedidos en estado final (ENTREGADO, CANCELADO, DEVUELTO) sin cambios desde hace
+ *   más de pedido.archivo.antiguedad-dias se mueven a pedidos_archivo en lotes: INSERT ...
+ *   SELECT y DELETE en la misma transacción. El filtro por fecha_creacion deja que
+ *   PostgreSQL descarte las particiones recientes sin leerlas.
+ * - En PostgreSQL además se crean por anticipado las particiones mensuales de los próximos
+ *   meses y se eliminan las antiguas que quedaron vacías, así la tabla caliente tiene
+ *   siempre pocas particiones sin importar cuánto historial se guarde.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "pedido.archivo.enabled", havingValue = "true", matchIfMissing = true)
+public class ArchivadoPedidosScheduler {
+
+    private static final String ESTADOS_FINALES = Arrays.stream(EstadoPedido.values())
+            .filter(EstadoPedido::esFinal)
+            .map(estado -> "'" + estado.name() + "'")
+            .collect(Collectors.joining(", "));
+
+    // SKIP LOCKED: filas que otra transacción está modificando quedan para el próximo lote
+    private static final String SQL_CANDIDATOS =
+            "SELECT id FROM pedidos WHERE estado IN (" + ESTADOS_FINALES + ") " +
+            "AND fecha_creacion < ? AND fecha_actualizacion < ? " +
+            "ORDER BY fecha_creacion LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String SQL_COPIAR = "INSERT INTO pedidos_archivo (%1$s) SELECT %1$s FROM pedidos " +
+            "WHERE fecha_creacion < ? AND id IN (%2$s)";
+
+    private static final String SQL_ELIMINAR = "DELETE FROM pedidos WHERE fecha_creacion < ? AND id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${pedido.archivo.antiguedad-dias:90}")
+    private int antiguedadDias;
+
+    @Value("${pedido.archivo.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @Value("${pedido.archivo.meses-adelantados:3}")
+    private int mesesAdelantados;
+
+    private boolean particionado;
+    private volatile String columnas;
+
+    public ArchivadoPedidosScheduler(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void inicializar() {
+        String motor = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        particionado = "PostgreSQL".equalsIgnoreCase(motor);
+    }
+
+    @Scheduled(cron = "${pedido.archivo.cron:0 30 3 * * *}")
+    public void ejecutar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        try {
+            if (particionado) {
+                crearParticionesFuturas(ahora.toLocalDate());
+            }
+            int archivados = archivar(ahora.minusDays(antiguedadDias));
+            log.info("[ARCHIVO] {} pedidos finalizados movidos a pedidos_archivo", archivados);
+            if (particionado) {
+                eliminarParticionesVacias(ahora.minusDays(antiguedadDias).toLocalDate());
+            }
+        } catch (RuntimeException e) {
+            log.error("[ARCHIVO] Falló el archivado de pedidos: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mueve lotes hasta que no queden pedidos finalizados anteriores al corte
+     * @return total de pedidos archivados
+     */
+    public int archivar(LocalDateTime corte) {
+        int total = 0;
+        int movidos;
+        do {
+            movidos = archivarLote(corte);
+            total += movidos;
+        } while (movidos == tamanoLote);
+        return total;
+    }
+
+    /**
+     * Un lote en una transacción: bloquea los candidatos, los copia y los elimina de pedidos
+     */
+    int archivarLote(LocalDateTime corte) {
+        Timestamp limite = Timestamp.valueOf(corte);
+        Integer movidos = transactionTemplate.execute(status -> {
+            List<String> ids = jdbcTemplate.queryForList(SQL_CANDIDATOS, String.class, limite, limite, tamanoLote);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+            List<Object> parametros = new ArrayList<>(ids.size() + 1);
+            parametros.add(limite);
+            parametros.addAll(ids);
+
+            jdbcTemplate.update(String.format(SQL_COPIAR, columnas(), marcadores), parametros.toArray());
+            return jdbcTemplate.update(String.format(SQL_ELIMINAR, marcadores), parametros.toArray());
+        });
+        return movidos != null ? movidos : 0;
+    }
+
+    /**
+     * Columnas de pedidos_archivo (las mismas de pedidos); lista explícita para no depender del orden
+     */
+    private String columnas() {
+        if (columnas == null) {
+            columnas = jdbcTemplate.query("SELECT * FROM pedidos_archivo WHERE 1 = 0", rs -> {
+                ResultSetMetaData meta = rs.getMetaData();
+                List<String> nombres = new ArrayList<>(meta.getColumnCount());
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    nombres.add(meta.getColumnName(i).toLowerCase());
+                }
+                return String.join(", ", nombres);
+            });
+        }
+        return columnas;
+    }
+
+    private void crearParticionesFuturas(LocalDate hoy) {
+        LocalDate mes = hoy.withDayOfMonth(1);
+        for (int i = 0; i <= mesesAdelantados; i++) {
+            jdbcTemplate.queryForObject("SELECT crear_particion_pedidos(?)", String.class, Date.valueOf(mes.plusMonths(i)));
+        }
+    }
+
+    private void eliminarParticionesVacias(LocalDate antesDe) {
+        Integer eliminadas = jdbcTemplate.queryForObject(
+                "SELECT eliminar_particiones_pedidos_vacias(?)", Integer.class, Date.valueOf(antesDe.withDayOfMonth(1)));
+        if (eliminadas != null && eliminadas > 0) {
+            log.info("[ARCHIVO] {} particiones antiguas sin pedidos eliminadas", eliminadas);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.event.AsignacionCompletadaEvent;
+import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+import com.logiflow.pedidoservice.model.RangoCreacion;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.service.HistorialEstadoService;
+import com.logiflow.pedidoservice.service.KpiPedidoService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Aplica un lote de asignaciones completadas (asignacion.completada) en una sola transacción
+ *
+ * 1. Descarta eventos con IDs inválidos y deduplica por pedido (gana el último del lote)
+ * 2. Un UPDATE condicional por pedido enviado como batch JDBC (un round trip):
+ *    solo pasan a ASIGNADO los pedidos que siguen PENDIENTE; redeliveries y pedidos
+ *    cancelados mientras tanto no se tocan
+ * 3. Los PedidoEstadoEvent de los pedidos actualizados se encolan en el outbox con un saveAll
+ * 4. Una consulta por lote trae cobertura y fecha de creación de los asignados para el
+ *    rollup de KPIs y el historial de estados
+ */
+@Slf4j
+@Component
+public class AsignacionLoteProcessor {
+
+    private static final String SQL_ASIGNAR =
+            "UPDATE pedidos SET repartidor_id = ?, vehiculo_id = ?, estado = 'ASIGNADO', fecha_actualizacion = ?, " +
+            "version = version + 1 " +
+            "WHERE id = ? AND fecha_creacion >= ? AND fecha_creacion < ? AND estado = 'PENDIENTE'";
+
+    // El rango de fecha_creacion (RangoCreacion) limita cada sentencia a las particiones de los pedidos
+    private static final String SQL_COBERTURAS = "SELECT id, cobertura, fecha_creacion FROM pedidos " +
+            "WHERE id IN (%s) AND fecha_creacion >= ? AND fecha_creacion < ?";
+
+    private static final String USUARIO_FLEET = "FLEET_SERVICE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PedidoEventPublisher pedidoEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final KpiPedidoService kpiPedidoService;
+    private final HistorialEstadoService historialEstadoService;
+
+    public AsignacionLoteProcessor(JdbcTemplate jdbcTemplate,
+                                   PedidoEventPublisher pedidoEventPublisher,
+                                   TransactionTemplate transactionTemplate,
+                                   CacheManager cacheManager,
+                                   KpiPedidoService kpiPedidoService,
+                                   HistorialEstadoService historialEstadoService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pedidoEventPublisher = pedidoEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.kpiPedidoService = kpiPedidoService;
+        this.historialEstadoService = historialEstadoService;
+    }
+
+    /**
+     * @return IDs de los pedidos que quedaron ASIGNADOS por este lote
+     */
+    public List<String> aplicar(List<AsignacionCompletadaEvent> eventos) {
+        Map<String, AsignacionCompletadaEvent> porPedido = new LinkedHashMap<>();
+        for (AsignacionCompletadaEvent evento : eventos) {
+            if (esValido(evento)) {
+                porPedido.put(evento.getPedidoId(), evento);
+            }
+        }
+        if (porPedido.isEmpty()) {
+            return List.of();
+        }
+
+        List<AsignacionCompletadaEvent> asignaciones = new ArrayList<>(porPedido.values());
+        return transactionTemplate.execute(status -> {
+            Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+            int[] filas = jdbcTemplate.batchUpdate(SQL_ASIGNAR, asignaciones, asignaciones.size(), (ps, a) -> {
+                ps.setString(1, a.getRepartidorId());
+                ps.setString(2, a.getVehiculoId());
+                ps.setTimestamp(3, ahora);
+                ps.setString(4, a.getPedidoId());
+                RangoCreacion rango = RangoCreacion.de(a.getPedidoId());
+                ps.setTimestamp(5, Timestamp.valueOf(rango.desde()));
+                ps.setTimestamp(6, Timestamp.valueOf(rango.hasta()));
+            })[0];
+
+            List<String> asignados = new ArrayList<>(asignaciones.size());
+            List<PedidoEstadoEvent> estados = new ArrayList<>(asignaciones.size());
+            Cache cache = cacheManager.getCache(CacheConfig.PEDIDOS_CACHE);
+            for (int i = 0; i < asignaciones.size(); i++) {
+                AsignacionCompletadaEvent a = asignaciones.get(i);
+                if (filas[i] == 0) {
+                    log.warn("[ASIGNACION-LOTE] Pedido {} ya no está PENDIENTE: se ignora la asignación (MessageID: {})",
+                        a.getPedidoId(), a.getMessageId());
+                    continue;
+                }
+                asignados.add(a.getPedidoId());
+                estados.add(new PedidoEstadoEvent(a.getPedidoId(), EstadoPedido.PENDIENTE.name(),
+                    EstadoPedido.ASIGNADO.name(), USUARIO_FLEET, a.getRepartidorId(), a.getVehiculoId()));
+                if (cache != null) {
+                    // Diferido al commit por TransactionAwareCacheManagerProxy
+                    cache.evict(a.getPedidoId());
+                }
+            }
+            pedidoEventPublisher.publishPedidoEstadoEvents(estados);
+            registrarTransiciones(asignados);
+            return asignados;
+        });
+    }
+
+    private void registrarTransiciones(List<String> asignados) {
+        if (asignados.isEmpty()) {
+            return;
+        }
+        String marcadores = String.join(", ", Collections.nCopies(asignados.size(), "?"));
+        RangoCreacion rango = RangoCreacion.cubriendo(asignados);
+        List<Object> parametros = new ArrayList<>(asignados);
+        parametros.add(Timestamp.valueOf(rango.desde()));
+        parametros.add(Timestamp.valueOf(rango.hasta()));
+        jdbcTemplate.query(String.format(SQL_COBERTURAS, marcadores), rs -> {
+            String cobertura = rs.getString("cobertura");
+            Timestamp creacion = rs.getTimestamp("fecha_creacion");
+            kpiPedidoService.registrarTransicion(cobertura, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO);
+            historialEstadoService.registrarTransicion(Pedido.builder()
+                .id(rs.getString("id"))
+                .cobertura(cobertura)
+                .fechaCreacion(creacion != null ? creacion.toLocalDateTime() : null)
+                .build(), EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, USUARIO_FLEET);
+        }, parametros.toArray());
+    }
+
+    private boolean esValido(AsignacionCompletadaEvent evento) {
+        try {
+            UUID.fromString(evento.getPedidoId());
+            UUID.fromString(evento.getRepartidorId());
+            UUID.fromString(evento.getVehiculoId());
+            return true;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            log.error("[ERROR-UUID] Asignación descartada por IDs inválidos [MessageID: {}] Pedido: {} | Repartidor: {} | Vehículo: {}",
+                evento.getMessageId(), evento.getPedidoId(), evento.getRepartidorId(), evento.getVehiculoId());
+            return false;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.logiflow.pedidoservice.service.impl;
 
+import com.logiflow.pedidoservice.cobertura.MotorCobertura;
+import com.logiflow.pedidoservice.cobertura.ResolucionCobertura;
+import com.logiflow.pedidoservice.model.Direccion;
 import com.logiflow.pedidoservice.model.TipoEntrega;
 import com.logiflow.pedidoservice.service.CoberturaValidationService;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -9,6 +13,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Implementación simple de validación de cobertura
@@ -18,11 +23,17 @@ import java.util.Map;
  * - URBANA-{CIUDAD}: Entregas dentro de la misma ciudad (acepta cualquier ciudad)
  * - INTERMUNICIPAL-{PROVINCIA}: Entregas dentro de la misma provincia (acepta cualquier provincia)
  * - NACIONAL: Entregas entre provincias diferentes
+ *
+ * Cuando las coordenadas caen dentro de las zonas configuradas, la cobertura se resuelve
+ * espacialmente con {@link MotorCobertura}; la validación por nombres queda como respaldo.
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class CoberturaValidationServiceImpl implements CoberturaValidationService {
 
+    private final MotorCobertura motorCobertura;
+
     // Tipos de entrega disponibles por patrón de cobertura
     private static final Map<String, List<TipoEntrega>> TIPOS_POR_PATRON = new HashMap<>();
 
@@ -116,5 +127,13 @@ public class CoberturaValidationServiceImpl implements CoberturaValidationServic
 
         return disponible;
     }
-}
 
+    @Override
+    public Optional<ResolucionCobertura> resolverCobertura(Direccion origen, Direccion destino) {
+        Optional<ResolucionCobertura> resolucion = motorCobertura.resolver(origen, destino);
+        resolucion.ifPresentOrElse(
+                r -> log.debug("Cobertura por zonas: {} -> {} = {}", r.zonaOrigen(), r.zonaDestino(), r.cobertura()),
+                () -> log.debug("Ruta fuera de las zonas configuradas, se usa la cobertura por nombres"));
+        return resolucion;
+    }
+}
@@ -0,0 +1,329 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.logiflow.pedidoservice.client.BillingClient;
+import com.logiflow.pedidoservice.client.FleetClient;
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.dto.AsignacionRequest;
+import com.logiflow.pedidoservice.dto.AsignacionResponse;
+import com.logiflow.pedidoservice.dto.CreacionPedidoStatusResponse.EstadoPaso;
+import com.logiflow.pedidoservice.dto.FacturaRequest;
+import com.logiflow.pedidoservice.dto.FacturaResponse;
+import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.HistorialEstadoService;
+import com.logiflow.pedidoservice.service.KpiPedidoService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipeline de creación de pedidos
+ *
+ * Flujo:
+ * 1. PedidoServiceImpl confirma (commit) el Pedido en su propia transacción
+ * 2. Este pipeline lanza en paralelo, sobre hilos virtuales, la llamada a Billing y a Fleet
+ * 3. Cada resultado se aplica con un UPDATE puntual en una transacción corta
+ *
+ * Ninguna conexión del pool de Hikari queda retenida durante los round trips HTTP.
+ */
+@Slf4j
+@Component
+public class CreacionPedidoPipeline {
+
+    private final BillingClient billingClient;
+    private final FleetClient fleetClient;
+    private final PedidoRepository pedidoRepository;
+    private final PedidoEventPublisher pedidoEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final CacheManager cacheManager;
+    private final KpiPedidoService kpiPedidoService;
+    private final HistorialEstadoService historialEstadoService;
+
+    // Progreso de pipelines en curso (y recién terminados) por pedidoId
+    private final Map<String, ProgresoCreacion> progresos = new ConcurrentHashMap<>();
+
+    @Value("${integration.billing.enabled:true}")
+    private boolean billingIntegrationEnabled;
+
+    @Value("${integration.fleet.enabled:true}")
+    private boolean fleetIntegrationEnabled;
+
+    @Value("${pedido.creacion.retencion-estado-segundos:300}")
+    private long retencionEstadoSegundos;
+
+    public CreacionPedidoPipeline(BillingClient billingClient,
+                                  FleetClient fleetClient,
+                                  PedidoRepository pedidoRepository,
+                                  PedidoEventPublisher pedidoEventPublisher,
+                                  TransactionTemplate transactionTemplate,
+                                  @Qualifier("pedidoPipelineExecutor") ExecutorService executor,
+                                  CacheManager cacheManager,
+                                  KpiPedidoService kpiPedidoService,
+                                  HistorialEstadoService historialEstadoService) {
+        this.billingClient = billingClient;
+        this.fleetClient = fleetClient;
+        this.pedidoRepository = pedidoRepository;
+        this.pedidoEventPublisher = pedidoEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.cacheManager = cacheManager;
+        this.kpiPedidoService = kpiPedidoService;
+        this.historialEstadoService = historialEstadoService;
+    }
+
+    /**
+     * Progreso mutable de un pipeline; los pasos escriben su estado al terminar
+     */
+    public static final class ProgresoCreacion {
+        private final CompletableFuture<Pedido> resultado;
+        private volatile EstadoPaso facturacion;
+        private volatile EstadoPaso asignacion;
+        private volatile String mensaje;
+
+        private ProgresoCreacion(CompletableFuture<Pedido> resultado, EstadoPaso facturacion, EstadoPaso asignacion) {
+            this.resultado = resultado;
+            this.facturacion = facturacion;
+            this.asignacion = asignacion;
+        }
+
+        public CompletableFuture<Pedido> getResultado() {
+            return resultado;
+        }
+
+        public EstadoPaso getFacturacion() {
+            return facturacion;
+        }
+
+        public EstadoPaso getAsignacion() {
+            return asignacion;
+        }
+
+        public String getMensaje() {
+            return mensaje;
+        }
+
+        // Billing y Fleet pueden fallar a la vez: se conservan ambos motivos
+        private synchronized void agregarMensaje(String detalle) {
+            mensaje = mensaje == null ? detalle : mensaje + " | " + detalle;
+        }
+
+        /**
+         * Estado global: COMPLETADO solo si ningún paso falló; PARCIAL si uno falló y el otro
+         * se completó; FALLIDO si fallaron todos los pasos habilitados
+         */
+        public EstadoPaso getEstado() {
+            if (!resultado.isDone()) {
+                return EstadoPaso.EN_PROCESO;
+            }
+            EstadoPaso facturacionActual = facturacion;
+            EstadoPaso asignacionActual = asignacion;
+            boolean algunoFallido = facturacionActual == EstadoPaso.FALLIDO || asignacionActual == EstadoPaso.FALLIDO;
+            if (!algunoFallido) {
+                return EstadoPaso.COMPLETADO;
+            }
+            boolean algunoCompletado = facturacionActual == EstadoPaso.COMPLETADO || asignacionActual == EstadoPaso.COMPLETADO;
+            return algunoCompletado ? EstadoPaso.PARCIAL : EstadoPaso.FALLIDO;
+        }
+    }
+
+    /**
+     * Ejecuta los pasos de integración de un pedido ya confirmado en base de datos
+     *
+     * @param pedido pedido recién guardado (estado PENDIENTE)
+     * @param distanciaEstimada distancia usada para facturar
+     * @param token JWT del usuario (capturado antes de salir del hilo de la petición)
+     * @param usuario usuario que creó el pedido
+     * @param correlacionId id de correlación para logs
+     * @return progreso del pipeline; su futuro completa con el pedido recargado
+     */
+    public ProgresoCreacion ejecutar(Pedido pedido, Double distanciaEstimada, String token,
+                                     String usuario, String correlacionId) {
+        CompletableFuture<Pedido> resultado = new CompletableFuture<>();
+        ProgresoCreacion progreso = new ProgresoCreacion(resultado,
+                billingIntegrationEnabled ? EstadoPaso.EN_PROCESO : EstadoPaso.OMITIDO,
+                fleetIntegrationEnabled ? EstadoPaso.EN_PROCESO : EstadoPaso.OMITIDO);
+        progresos.put(pedido.getId(), progreso);
+
+        CompletableFuture<Void> billing = billingIntegrationEnabled
+                ? CompletableFuture.runAsync(() -> pasoBilling(pedido, distanciaEstimada, token, correlacionId, progreso), executor)
+                : CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> fleet = fleetIntegrationEnabled
+                ? CompletableFuture.runAsync(() -> pasoFleet(pedido, token, usuario, correlacionId, progreso), executor)
+                : CompletableFuture.completedFuture(null);
+
+        if (!billingIntegrationEnabled) {
+            log.warn("[BILLING-DISABLED] Integración con Billing deshabilitada | PedidoID: {} | CorrelacionID: {}",
+                pedido.getId(), correlacionId);
+        }
+        if (!fleetIntegrationEnabled) {
+            log.warn("[FLEET-DISABLED] Integración con Fleet deshabilitada | PedidoID: {} | CorrelacionID: {}",
+                pedido.getId(), correlacionId);
+        }
+
+        CompletableFuture.allOf(billing, fleet)
+                .thenApplyAsync(v -> pedidoRepository.buscarPorId(pedido.getId()).orElse(pedido), executor)
+                .whenComplete((pedidoFinal, error) -> {
+                    if (error != null) {
+                        log.error("[PIPELINE-ERROR] Error recargando pedido {} | CorrelacionID: {}",
+                            pedido.getId(), correlacionId, error);
+                        resultado.complete(pedido);
+                    } else {
+                        resultado.complete(pedidoFinal);
+                    }
+                    // El progreso se conserva un tiempo para que el cliente pueda consultarlo
+                    CompletableFuture.delayedExecutor(retencionEstadoSegundos, TimeUnit.SECONDS, executor)
+                            .execute(() -> progresos.remove(pedido.getId(), progreso));
+                });
+
+        return progreso;
+    }
+
+    /**
+     * Progreso de un pipeline en curso o terminado recientemente
+     * @return null si no hay pipeline registrado para el pedido
+     */
+    public ProgresoCreacion obtenerProgreso(String pedidoId) {
+        return progresos.get(pedidoId);
+    }
+
+    // ============= BILLING SERVICE =============
+
+    private void pasoBilling(Pedido pedido, Double distanciaEstimada, String token,
+                             String correlacionId, ProgresoCreacion progreso) {
+        try {
+            log.info("💳 [BILLING-SYNC] Iniciando integración con Billing Service | PedidoID: {} | CorrelacionID: {}",
+                pedido.getId(), correlacionId);
+
+            FacturaRequest facturaRequest = FacturaRequest.builder()
+                    .pedidoId(pedido.getId())
+                    .tipoEntrega(pedido.getTipoEntrega().name())
+                    .distanciaKm(distanciaEstimada)
+                    .build();
+
+            log.info("🔗 [BILLING-CALL] Llamando a billing-service | PedidoID: {} | Token presente: {} | CorrelacionID: {}",
+                pedido.getId(), token != null, correlacionId);
+
+            FacturaResponse facturaResponse = billingClient.crearFactura(facturaRequest, token);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                pedidoRepository.actualizarFactura(
+                        pedido.getId(),
+                        facturaResponse.getId(),
+                        facturaResponse.getMontoTotal().doubleValue(),
+                        LocalDateTime.now());
+                invalidarCache(pedido.getId());
+            });
+
+            progreso.facturacion = EstadoPaso.COMPLETADO;
+            log.info("💰 [FACTURA-ASOCIADA] Factura asociada al pedido | FacturaID: {} | PedidoID: {} | Monto: ${} | CorrelacionID: {}",
+                facturaResponse.getId(), pedido.getId(), facturaResponse.getMontoTotal(), correlacionId);
+        } catch (Exception e) {
+            progreso.facturacion = EstadoPaso.FALLIDO;
+            progreso.agregarMensaje("Billing: " + e.getMessage());
+            log.error("[BILLING-ERROR] Error en integración con Billing Service | PedidoID: {} | Error: {} | CorrelacionID: {}",
+                pedido.getId(), e.getMessage(), correlacionId, e);
+        }
+    }
+
+    // ============= FLEET SERVICE =============
+
+    private void pasoFleet(Pedido pedido, String token, String usuario,
+                           String correlacionId, ProgresoCreacion progreso) {
+        try {
+            log.info("🚛 [FLEET-SYNC] Iniciando integración con Fleet Service | PedidoID: {} | CorrelacionID: {}",
+                pedido.getId(), correlacionId);
+
+            AsignacionRequest asignacionRequest = AsignacionRequest.builder()
+                    .pedidoId(pedido.getId())
+                    .modalidadServicio(pedido.getModalidadServicio().name())
+                    .tipoEntrega(pedido.getTipoEntrega().name())
+                    .prioridad(pedido.getPrioridad().name())
+                    .ciudadOrigen(pedido.getDireccionOrigen().getCiudad())
+                    .ciudadDestino(pedido.getDireccionDestino().getCiudad())
+                    .peso(pedido.getPeso())
+                    .build();
+
+            log.info("🔗 [FLEET-CALL] Llamando a fleet-service | PedidoID: {} | Token presente: {} | CorrelacionID: {}",
+                pedido.getId(), token != null, correlacionId);
+
+            AsignacionResponse asignacionResponse = fleetClient.asignarRepartidor(asignacionRequest, token);
+
+            if (!"ASIGNADO".equals(asignacionResponse.getEstado())) {
+                progreso.asignacion = EstadoPaso.FALLIDO;
+                progreso.agregarMensaje("Fleet: " + asignacionResponse.getMensaje());
+                log.warn("[FLEET-WARNING] No se pudo asignar repartidor | Estado recibido: {} | PedidoID: {} | CorrelacionID: {}",
+                    asignacionResponse.getEstado(), pedido.getId(), correlacionId);
+                return;
+            }
+
+            // Solo transiciona si sigue PENDIENTE (la asignación por eventos pudo adelantarse)
+            boolean aplicado = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                int filas = pedidoRepository.asignarRecursosSiPendiente(
+                        pedido.getId(),
+                        asignacionResponse.getRepartidorId(),
+                        asignacionResponse.getVehiculoId(),
+                        LocalDateTime.now());
+                if (filas == 0) {
+                    return false;
+                }
+                invalidarCache(pedido.getId());
+                kpiPedidoService.registrarTransicion(pedido, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO);
+                historialEstadoService.registrarTransicion(pedido, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, usuario);
+
+                // PUBLICAR EVENTO ESTADO ACTUALIZADO: PENDIENTE -> ASIGNADO
+                PedidoEstadoEvent asignadoEvent = new PedidoEstadoEvent(
+                    pedido.getId(),
+                    EstadoPedido.PENDIENTE.name(),
+                    EstadoPedido.ASIGNADO.name(),
+                    usuario,
+                    asignacionResponse.getRepartidorId(),
+                    asignacionResponse.getVehiculoId()
+                );
+                log.info("[EVENT-PUBLISH] Publicando evento pedido.estado.actualizado | MessageID: {} | PENDIENTE→ASIGNADO | PedidoID: {} | CorrelacionID: {}",
+                    asignadoEvent.getMessageId(), pedido.getId(), correlacionId);
+                pedidoEventPublisher.publishPedidoEstadoEvent(asignadoEvent);
+                return true;
+            }));
+
+            progreso.asignacion = EstadoPaso.COMPLETADO;
+            if (aplicado) {
+                log.info("[FLEET-SUCCESS] Repartidor asignado exitosamente - RepartidorID: {} | VehiculoID: {} | PedidoID: {} | CorrelacionID: {}",
+                    asignacionResponse.getRepartidorId(), asignacionResponse.getVehiculoId(), pedido.getId(), correlacionId);
+            } else {
+                log.warn("[FLEET-SKIP] El pedido ya no estaba PENDIENTE, asignación síncrona descartada | PedidoID: {} | CorrelacionID: {}",
+                    pedido.getId(), correlacionId);
+            }
+        } catch (Exception e) {
+            progreso.asignacion = EstadoPaso.FALLIDO;
+            progreso.agregarMensaje("Fleet: " + e.getMessage());
+            log.error("[FLEET-ERROR] Error en integración con Fleet Service | PedidoID: {} | Error: {} | CorrelacionID: {}",
+                pedido.getId(), e.getMessage(), correlacionId, e);
+        }
+    }
+
+    /**
+     * Invalida la lectura en caché del pedido; dentro de una transacción se aplica tras el commit
+     */
+    private void invalidarCache(String pedidoId) {
+        Cache cache = cacheManager.getCache(CacheConfig.PEDIDOS_CACHE);
+        if (cache != null) {
+            cache.evict(pedidoId);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logiflow.pedidoservice.distancia.ConfiguracionDistancias;
+import com.logiflow.pedidoservice.distancia.MatrizDistancias;
+import com.logiflow.pedidoservice.model.Direccion;
+import com.logiflow.pedidoservice.model.ModalidadServicio;
+import com.logiflow.pedidoservice.service.DistanciaService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Estimación de distancia por carretera
+ *
+ * 1. Con coordenadas en ambas direcciones: haversine × factor vial del par de ciudades
+ *    (calibrado con la distancia real por carretera entre sus centros).
+ * 2. Sin coordenadas: distancia de la matriz ciudad-ciudad.
+ * 3. Ciudades desconocidas o misma ciudad sin coordenadas: valor fijo por modalidad.
+ *
+ * La resolución del par de ciudades (normalizar nombres, buscar índices, leer la matriz)
+ * se memoiza en una caché acotada con clave "ORIGEN|DESTINO" tal como llegan en el pedido,
+ * así el camino caliente de creación y la carga masiva hacen una sola búsqueda por par.
+ */
+@Slf4j
+@Service
+public class DistanciaServiceImpl implements DistanciaService {
+
+    private static final double FACTOR_VIAL_POR_DEFECTO = 1.3;
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+
+    @Value("${pedido.distancia.ciudades:classpath:distancia/ciudades.json}")
+    private String ubicacionCiudades;
+
+    @Value("${pedido.distancia.memo-maximo:10000}")
+    private long memoMaximo;
+
+    @Value("${pedido.distancia.minima-km:1.0}")
+    private double distanciaMinimaKm;
+
+    private MatrizDistancias matriz;
+    private Cache<String, Tramo> tramos;
+
+    /**
+     * @param km     km por carretera entre las ciudades, NaN si no se conoce
+     * @param factor corrección línea recta → carretera para el par
+     */
+    private record Tramo(double km, double factor) {
+    }
+
+    public DistanciaServiceImpl(ResourceLoader resourceLoader, ObjectMapper objectMapper) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void inicializar() {
+        tramos = Caffeine.newBuilder().maximumSize(memoMaximo).build();
+        Resource recurso = resourceLoader.getResource(ubicacionCiudades);
+        try (InputStream in = recurso.getInputStream()) {
+            matriz = MatrizDistancias.construir(objectMapper.readValue(in, ConfiguracionDistancias.class));
+            log.info("[DISTANCIA] Matriz de {} ciudades cargada desde {}", matriz.totalCiudades(), ubicacionCiudades);
+        } catch (IOException | RuntimeException e) {
+            log.warn("[DISTANCIA] No se pudo cargar {}: solo haversine y valores por modalidad: {}",
+                    ubicacionCiudades, e.getMessage());
+        }
+    }
+
+    @Override
+    public Double estimarKm(Direccion origen, Direccion destino, ModalidadServicio modalidad) {
+        Tramo tramo = tramo(
+                origen != null ? origen.getCiudad() : null,
+                destino != null ? destino.getCiudad() : null);
+
+        if (tieneCoordenadas(origen) && tieneCoordenadas(destino)) {
+            double rectaKm = MatrizDistancias.haversineKm(
+                    origen.getLatitud(), origen.getLongitud(), destino.getLatitud(), destino.getLongitud());
+            return redondear(Math.max(distanciaMinimaKm, rectaKm * tramo.factor()));
+        }
+        if (!Double.isNaN(tramo.km())) {
+            return redondear(tramo.km());
+        }
+        return porModalidad(modalidad);
+    }
+
+    private Tramo tramo(String ciudadOrigen, String ciudadDestino) {
+        MatrizDistancias actual = matriz;
+        if (actual == null || ciudadOrigen == null || ciudadDestino == null) {
+            return new Tramo(Double.NaN, actual != null ? actual.factorVial() : FACTOR_VIAL_POR_DEFECTO);
+        }
+        return tramos.get(ciudadOrigen + "|" + ciudadDestino, clave -> {
+            int a = actual.indice(ciudadOrigen);
+            int b = actual.indice(ciudadDestino);
+            if (a < 0 || b < 0) {
+                return new Tramo(Double.NaN, actual.factorVial());
+            }
+            return new Tramo(a == b ? Double.NaN : actual.km(a, b), actual.factor(a, b));
+        });
+    }
+
+    private boolean tieneCoordenadas(Direccion direccion) {
+        return direccion != null && direccion.getLatitud() != null && direccion.getLongitud() != null;
+    }
+
+    private Double porModalidad(ModalidadServicio modalidad) {
+        return switch (modalidad) {
+            case URBANA_RAPIDA -> 10.0;
+            case INTERMUNICIPAL -> 50.0;
+            case NACIONAL -> 200.0;
+        };
+    }
+
+    private static double redondear(double km) {
+        return Math.round(km * 10.0) / 10.0;
+    }
+}
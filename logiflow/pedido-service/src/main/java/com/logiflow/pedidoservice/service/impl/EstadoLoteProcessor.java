@@ -0,0 +1,209 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse.EstadoItem;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse.ResultadoItem;
+import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+import com.logiflow.pedidoservice.model.RangoCreacion;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoTransicionRepository;
+import com.logiflow.pedidoservice.service.HistorialEstadoService;
+import com.logiflow.pedidoservice.service.KpiPedidoService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aplica la misma transición de estado a muchos pedidos en una sola transacción
+ *
+ * 1. Una lectura con FOR UPDATE trae y bloquea los pedidos del lote (ordenados por id,
+ *    así dos lotes solapados no se bloquean en orden cruzado) con su estado actual.
+ *    Ambas sentencias filtran por fecha_creacion (RangoCreacion del lote en la lectura, las
+ *    fechas leídas en el UPDATE) para no recorrer todas las particiones
+ * 2. Se valida la transición de cada uno contra la tabla de EstadoPedido; los que no la
+ *    admiten, o no existen, se informan por ID y no se tocan
+ * 3. Un único UPDATE por conjunto (WHERE id IN (...) AND estado IN (orígenes válidos))
+ *    escribe todos los pedidos válidos
+ * 4. Los PedidoEstadoEvent se encolan en el outbox con un saveAll; KPIs e historial de
+ *    estados se registran con los datos de la misma lectura
+ */
+@Slf4j
+@Component
+public class EstadoLoteProcessor {
+
+    private static final String SQL_BLOQUEAR =
+            "SELECT id, estado, cobertura, repartidor_id, vehiculo_id, fecha_creacion FROM pedidos " +
+            "WHERE id IN (%s) AND fecha_creacion >= ? AND fecha_creacion < ? ORDER BY id FOR UPDATE";
+
+    private static final String SQL_TRANSICIONAR =
+            "UPDATE pedidos SET estado = ?, fecha_actualizacion = ?, " +
+            "fecha_entrega_real = COALESCE(fecha_entrega_real, ?), version = version + 1%s " +
+            "WHERE id IN (%s) AND fecha_creacion >= ? AND fecha_creacion <= ? AND estado IN (%s)";
+
+    private record Fila(String id, EstadoPedido estado, String cobertura,
+                        String repartidorId, String vehiculoId, LocalDateTime fechaCreacion) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PedidoEventPublisher pedidoEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final KpiPedidoService kpiPedidoService;
+    private final HistorialEstadoService historialEstadoService;
+
+    public EstadoLoteProcessor(JdbcTemplate jdbcTemplate,
+                               PedidoEventPublisher pedidoEventPublisher,
+                               TransactionTemplate transactionTemplate,
+                               CacheManager cacheManager,
+                               KpiPedidoService kpiPedidoService,
+                               HistorialEstadoService historialEstadoService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pedidoEventPublisher = pedidoEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.kpiPedidoService = kpiPedidoService;
+        this.historialEstadoService = historialEstadoService;
+    }
+
+    public PedidoEstadoLoteResponse aplicar(Collection<String> ids, EstadoPedido destino, String usuario) {
+        List<String> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        List<ResultadoItem> resultados = transactionTemplate.execute(status -> {
+            Map<String, Fila> filas = bloquear(unicos);
+
+            List<ResultadoItem> items = new ArrayList<>(unicos.size());
+            List<Fila> validas = new ArrayList<>();
+            for (String id : unicos) {
+                Fila fila = filas.get(id);
+                if (fila == null) {
+                    items.add(rechazo(id, EstadoItem.NO_ENCONTRADO, null, "Pedido no encontrado"));
+                } else if (!fila.estado().puedeTransicionarA(destino)) {
+                    items.add(rechazo(id, EstadoItem.TRANSICION_NO_PERMITIDA, fila.estado(),
+                            String.format("Transición de estado no permitida: %s → %s", fila.estado(), destino)));
+                } else {
+                    validas.add(fila);
+                    items.add(ResultadoItem.builder()
+                            .pedidoId(id)
+                            .estado(EstadoItem.ACTUALIZADO)
+                            .estadoAnterior(fila.estado())
+                            .build());
+                }
+            }
+
+            if (!validas.isEmpty()) {
+                transicionar(validas, destino, usuario);
+            }
+            return items;
+        });
+
+        int actualizados = (int) resultados.stream().filter(r -> r.getEstado() == EstadoItem.ACTUALIZADO).count();
+        log.info("[ESTADO-LOTE] {} pedidos → {} | Actualizados: {} | Rechazados: {} | Usuario: {}",
+                unicos.size(), destino, actualizados, unicos.size() - actualizados, usuario);
+
+        return PedidoEstadoLoteResponse.builder()
+                .estadoDestino(destino)
+                .total(unicos.size())
+                .actualizados(actualizados)
+                .rechazados(unicos.size() - actualizados)
+                .resultados(resultados)
+                .build();
+    }
+
+    private Map<String, Fila> bloquear(List<String> ids) {
+        Map<String, Fila> filas = new HashMap<>();
+        RangoCreacion rango = RangoCreacion.cubriendo(ids);
+        List<Object> parametros = new ArrayList<>(ids);
+        parametros.add(Timestamp.valueOf(rango.desde()));
+        parametros.add(Timestamp.valueOf(rango.hasta()));
+        jdbcTemplate.query(String.format(SQL_BLOQUEAR, marcadores(ids.size())), rs -> {
+            Timestamp creacion = rs.getTimestamp("fecha_creacion");
+            Fila fila = new Fila(rs.getString("id"), EstadoPedido.valueOf(rs.getString("estado")),
+                    rs.getString("cobertura"), rs.getString("repartidor_id"), rs.getString("vehiculo_id"),
+                    creacion != null ? creacion.toLocalDateTime() : null);
+            filas.put(fila.id(), fila);
+        }, parametros.toArray());
+        return filas;
+    }
+
+    private void transicionar(List<Fila> validas, EstadoPedido destino, String usuario) {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime fechaEntrega = destino == EstadoPedido.ENTREGADO ? ahora : null;
+        List<String> origenes = Arrays.stream(EstadoPedido.values())
+                .filter(estado -> estado.puedeTransicionarA(destino))
+                .map(Enum::name)
+                .toList();
+
+        LocalDateTime primera = validas.stream().map(Fila::fechaCreacion).min(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime ultima = validas.stream().map(Fila::fechaCreacion).max(LocalDateTime::compareTo).orElseThrow();
+
+        List<Object> parametros = new ArrayList<>(5 + validas.size() + origenes.size());
+        parametros.add(destino.name());
+        parametros.add(Timestamp.valueOf(ahora));
+        parametros.add(fechaEntrega != null ? Timestamp.valueOf(fechaEntrega) : null);
+        validas.forEach(fila -> parametros.add(fila.id()));
+        parametros.add(Timestamp.valueOf(primera));
+        parametros.add(Timestamp.valueOf(ultima));
+        parametros.addAll(origenes);
+
+        String vueltaAPendiente = destino == EstadoPedido.PENDIENTE
+                ? PedidoTransicionRepository.SET_VUELTA_A_PENDIENTE : "";
+        int actualizadas = jdbcTemplate.update(String.format(SQL_TRANSICIONAR, vueltaAPendiente,
+                marcadores(validas.size()), marcadores(origenes.size())), parametros.toArray());
+        if (actualizadas != validas.size()) {
+            // Las filas están bloqueadas desde la lectura: solo pasa si algo escribió fuera del lock
+            throw new OptimisticLockingFailureException(String.format(
+                    "Cambio de estado en lote: se esperaban %d filas y se actualizaron %d", validas.size(), actualizadas));
+        }
+
+        List<PedidoEstadoEvent> eventos = new ArrayList<>(validas.size());
+        Cache cache = cacheManager.getCache(CacheConfig.PEDIDOS_CACHE);
+        for (Fila fila : validas) {
+            eventos.add(new PedidoEstadoEvent(fila.id(), fila.estado().name(), destino.name(),
+                    usuario, fila.repartidorId(), fila.vehiculoId()));
+            Pedido transicionado = Pedido.builder()
+                    .id(fila.id())
+                    .cobertura(fila.cobertura())
+                    .fechaCreacion(fila.fechaCreacion())
+                    .fechaEntregaReal(fechaEntrega)
+                    .build();
+            kpiPedidoService.registrarTransicion(transicionado, fila.estado(), destino);
+            historialEstadoService.registrarTransicion(transicionado, fila.estado(), destino, usuario);
+            if (cache != null) {
+                // Diferido al commit por TransactionAwareCacheManagerProxy
+                cache.evict(fila.id());
+            }
+        }
+        pedidoEventPublisher.publishPedidoEstadoEvents(eventos);
+    }
+
+    private static ResultadoItem rechazo(String id, EstadoItem estado, EstadoPedido actual, String error) {
+        return ResultadoItem.builder()
+                .pedidoId(id)
+                .estado(estado)
+                .estadoAnterior(actual)
+                .error(error)
+                .build();
+    }
+
+    private static String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+}
@@ -0,0 +1,317 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.logiflow.pedidoservice.dto.HistorialEstadoResponse;
+import com.logiflow.pedidoservice.dto.TiemposCoberturaResponse;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.KpiTiempoPedido;
+import com.logiflow.pedidoservice.model.KpiTiempoPedido.Metrica;
+import com.logiflow.pedidoservice.model.Pedido;
+import com.logiflow.pedidoservice.model.PedidoEstadoHistorial;
+import com.logiflow.pedidoservice.repository.KpiTiempoPedidoRepository;
+import com.logiflow.pedidoservice.repository.PedidoEstadoHistorialRepository;
+import com.logiflow.pedidoservice.service.HistorialEstadoService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+
+/**
+ * Historial de estados y percentiles de tiempos por cobertura
+ *
+ * - Cada alta o transición agrega una fila de historial y, si corresponde, una muestra a un
+ *   HdrHistogram local; ambos quedan ligados a la transacción en curso.
+ * - En beforeCommit las filas se insertan en batch y cada histograma local se fusiona con
+ *   el de kpi_tiempos_pedidos (SELECT ... FOR UPDATE, suma, UPDATE), en orden de clave para
+ *   que dos transacciones nunca se bloqueen en orden cruzado. Un rollback descarta todo.
+ * - Los percentiles se calculan desde los histogramas guardados: una fila por cobertura
+ *   y métrica, sin recorrer el historial.
+ */
+@Slf4j
+@Service
+public class HistorialEstadoServiceImpl implements HistorialEstadoService {
+
+    // 90 días: una muestra mayor se registra en el tope
+    static final long MAXIMO_SEGUNDOS = Duration.ofDays(90).getSeconds();
+    private static final int DIGITOS_SIGNIFICATIVOS = 2;
+
+    private static final String SQL_INSERTAR_HISTORIAL =
+            "INSERT INTO pedido_estado_historial (pedido_id, estado_anterior, estado_nuevo, cobertura, usuario, fecha) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_BLOQUEAR_SKETCH =
+            "SELECT sketch FROM kpi_tiempos_pedidos WHERE cobertura = ? AND metrica = ? FOR UPDATE";
+
+    private static final String SQL_ACTUALIZAR_SKETCH =
+            "UPDATE kpi_tiempos_pedidos SET muestras = ?, sketch = ?, fecha_actualizacion = ? " +
+            "WHERE cobertura = ? AND metrica = ?";
+
+    private static final String SQL_INSERTAR_SKETCH =
+            "INSERT INTO kpi_tiempos_pedidos (cobertura, metrica, muestras, sketch, fecha_actualizacion) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    // Si otra transacción creó la fila entre el SELECT y el INSERT, no inserta y se vuelve a leer
+    private static final String SQL_INSERTAR_SKETCH_POSTGRES = SQL_INSERTAR_SKETCH +
+            " ON CONFLICT (cobertura, metrica) DO NOTHING";
+
+    private static final Comparator<Clave> ORDEN_CLAVES =
+            Comparator.comparing(Clave::cobertura).thenComparing(Clave::metrica);
+
+    record Clave(String cobertura, Metrica metrica) {
+    }
+
+    private record Pendientes(List<PedidoEstadoHistorial> filas, Map<Clave, Histogram> tiempos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PedidoEstadoHistorialRepository historialRepository;
+    private final KpiTiempoPedidoRepository kpiTiempoPedidoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private boolean upsertNativo;
+
+    public HistorialEstadoServiceImpl(JdbcTemplate jdbcTemplate,
+                                      PedidoEstadoHistorialRepository historialRepository,
+                                      KpiTiempoPedidoRepository kpiTiempoPedidoRepository,
+                                      TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.historialRepository = historialRepository;
+        this.kpiTiempoPedidoRepository = kpiTiempoPedidoRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void inicializar() {
+        String motor = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        upsertNativo = "PostgreSQL".equalsIgnoreCase(motor);
+    }
+
+    @Override
+    public void registrarCreaciones(Collection<Pedido> pedidos, String usuario) {
+        LocalDateTime ahora = LocalDateTime.now();
+        for (Pedido pedido : pedidos) {
+            registrar(fila(pedido, null, pedido.getEstado(), usuario,
+                    pedido.getFechaCreacion() != null ? pedido.getFechaCreacion() : ahora), null, 0);
+        }
+    }
+
+    @Override
+    public void registrarTransicion(Pedido pedido, EstadoPedido desde, EstadoPedido hacia, String usuario) {
+        if (desde == hacia) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        PedidoEstadoHistorial fila = fila(pedido, desde, hacia, usuario, ahora);
+
+        Metrica metrica = null;
+        long segundos = 0;
+        if (pedido.getFechaCreacion() != null) {
+            if (desde == EstadoPedido.PENDIENTE && hacia == EstadoPedido.ASIGNADO) {
+                // Una reasignación vuelve a medir desde la creación: cuenta la espera total del cliente
+                metrica = Metrica.ASIGNACION;
+                segundos = Duration.between(pedido.getFechaCreacion(), ahora).getSeconds();
+            } else if (hacia == EstadoPedido.ENTREGADO) {
+                // En el camino por entidad @PreUpdate fija fechaEntregaReal recién en el flush
+                LocalDateTime fin = pedido.getFechaEntregaReal() != null ? pedido.getFechaEntregaReal() : ahora;
+                metrica = Metrica.ENTREGA;
+                segundos = Duration.between(pedido.getFechaCreacion(), fin).getSeconds();
+            }
+        }
+        registrar(fila, metrica, segundos);
+    }
+
+    @Override
+    public List<HistorialEstadoResponse> obtenerHistorial(String pedidoId) {
+        List<PedidoEstadoHistorial> filas = historialRepository.findByPedidoIdOrderByFechaAscIdAsc(pedidoId);
+        List<HistorialEstadoResponse> historial = new ArrayList<>(filas.size());
+        LocalDateTime anterior = null;
+        for (PedidoEstadoHistorial fila : filas) {
+            historial.add(HistorialEstadoResponse.builder()
+                    .estadoAnterior(fila.getEstadoAnterior())
+                    .estadoNuevo(fila.getEstadoNuevo())
+                    .usuario(fila.getUsuario())
+                    .fecha(fila.getFecha())
+                    .segundosEnEstadoAnterior(anterior != null
+                            ? Math.max(0, Duration.between(anterior, fila.getFecha()).getSeconds())
+                            : null)
+                    .build());
+            anterior = fila.getFecha();
+        }
+        return historial;
+    }
+
+    @Override
+    public List<TiemposCoberturaResponse> obtenerTiempos(String cobertura) {
+        List<KpiTiempoPedido> filas = cobertura != null
+                ? kpiTiempoPedidoRepository.findByCobertura(cobertura)
+                : kpiTiempoPedidoRepository.findAll();
+
+        Map<String, TiemposCoberturaResponse> porCobertura = new TreeMap<>();
+        for (KpiTiempoPedido fila : filas) {
+            TiemposCoberturaResponse tiempos = porCobertura.computeIfAbsent(fila.getCobertura(),
+                    nombre -> TiemposCoberturaResponse.builder().cobertura(nombre).build());
+            TiemposCoberturaResponse.Percentiles percentiles = percentiles(decodificar(fila.getSketch()));
+            if (fila.getMetrica() == Metrica.ASIGNACION) {
+                tiempos.setAsignacion(percentiles);
+            } else {
+                tiempos.setEntrega(percentiles);
+            }
+        }
+        return new ArrayList<>(porCobertura.values());
+    }
+
+    // ======= MÉTODOS AUXILIARES =======
+
+    private void registrar(PedidoEstadoHistorial fila, Metrica metrica, long segundos) {
+        Pendientes pendientes = pendientesDeTransaccion();
+        if (pendientes == null) {
+            // Fuera de transacción: se escribe de inmediato
+            Pendientes unico = new Pendientes(new ArrayList<>(), new TreeMap<>(ORDEN_CLAVES));
+            acumular(unico, fila, metrica, segundos);
+            transactionTemplate.executeWithoutResult(status -> escribir(unico));
+            return;
+        }
+        acumular(pendientes, fila, metrica, segundos);
+    }
+
+    private void acumular(Pendientes pendientes, PedidoEstadoHistorial fila, Metrica metrica, long segundos) {
+        pendientes.filas().add(fila);
+        if (metrica == null) {
+            return;
+        }
+        if (fila.getCobertura() == null) {
+            log.warn("[HISTORIAL] Muestra de {} sin cobertura ignorada: pedido={}", metrica, fila.getPedidoId());
+            return;
+        }
+        pendientes.tiempos()
+                .computeIfAbsent(new Clave(fila.getCobertura(), metrica), clave -> nuevoHistograma())
+                .recordValue(Math.min(Math.max(segundos, 0), MAXIMO_SEGUNDOS));
+    }
+
+    /**
+     * Pendientes de la transacción actual, registrando la sincronización en el primer uso
+     * @return null si no hay una transacción con sincronización activa
+     */
+    private Pendientes pendientesDeTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pendientes pendientes = (Pendientes) TransactionSynchronizationManager.getResource(this);
+        if (pendientes != null) {
+            return pendientes;
+        }
+        Pendientes nuevos = new Pendientes(new ArrayList<>(), new TreeMap<>(ORDEN_CLAVES));
+        TransactionSynchronizationManager.bindResource(this, nuevos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                escribir(nuevos);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(HistorialEstadoServiceImpl.this);
+            }
+        });
+        return nuevos;
+    }
+
+    private void escribir(Pendientes pendientes) {
+        List<PedidoEstadoHistorial> filas = pendientes.filas();
+        if (!filas.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERTAR_HISTORIAL, filas, filas.size(), (ps, f) -> {
+                ps.setString(1, f.getPedidoId());
+                ps.setString(2, f.getEstadoAnterior() != null ? f.getEstadoAnterior().name() : null);
+                ps.setString(3, f.getEstadoNuevo().name());
+                ps.setString(4, f.getCobertura());
+                ps.setString(5, f.getUsuario());
+                ps.setTimestamp(6, Timestamp.valueOf(f.getFecha()));
+            });
+        }
+        // TreeMap con ORDEN_CLAVES: los bloqueos se toman siempre en el mismo orden
+        pendientes.tiempos().forEach(this::fusionar);
+    }
+
+    private void fusionar(Clave clave, Histogram delta) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<byte[]> actual = bloquearSketch(clave);
+        if (actual.isEmpty()) {
+            int insertadas = jdbcTemplate.update(upsertNativo ? SQL_INSERTAR_SKETCH_POSTGRES : SQL_INSERTAR_SKETCH,
+                    clave.cobertura(), clave.metrica().name(), delta.getTotalCount(), codificar(delta), ahora);
+            if (insertadas == 1) {
+                return;
+            }
+            actual = bloquearSketch(clave);
+        }
+        Histogram total = nuevoHistograma();
+        total.add(decodificar(actual.get(0)));
+        total.add(delta);
+        jdbcTemplate.update(SQL_ACTUALIZAR_SKETCH, total.getTotalCount(), codificar(total), ahora,
+                clave.cobertura(), clave.metrica().name());
+    }
+
+    private List<byte[]> bloquearSketch(Clave clave) {
+        return jdbcTemplate.query(SQL_BLOQUEAR_SKETCH, (rs, i) -> rs.getBytes("sketch"),
+                clave.cobertura(), clave.metrica().name());
+    }
+
+    private static PedidoEstadoHistorial fila(Pedido pedido, EstadoPedido desde, EstadoPedido hacia,
+                                              String usuario, LocalDateTime fecha) {
+        return PedidoEstadoHistorial.builder()
+                .pedidoId(pedido.getId())
+                .estadoAnterior(desde)
+                .estadoNuevo(hacia)
+                .cobertura(pedido.getCobertura())
+                .usuario(usuario)
+                .fecha(fecha)
+                .build();
+    }
+
+    private static TiemposCoberturaResponse.Percentiles percentiles(Histogram histograma) {
+        if (histograma.getTotalCount() == 0) {
+            return null;
+        }
+        return TiemposCoberturaResponse.Percentiles.builder()
+                .muestras(histograma.getTotalCount())
+                .p50Segundos(histograma.getValueAtPercentile(50.0))
+                .p90Segundos(histograma.getValueAtPercentile(90.0))
+                .p99Segundos(histograma.getValueAtPercentile(99.0))
+                .maximoSegundos(histograma.getMaxValue())
+                .build();
+    }
+
+    static Histogram nuevoHistograma() {
+        return new Histogram(1, MAXIMO_SEGUNDOS, DIGITOS_SIGNIFICATIVOS);
+    }
+
+    static byte[] codificar(Histogram histograma) {
+        ByteBuffer buffer = ByteBuffer.allocate(histograma.getNeededByteBufferCapacity());
+        int largo = histograma.encodeIntoCompressedByteBuffer(buffer);
+        return Arrays.copyOf(buffer.array(), largo);
+    }
+
+    static Histogram decodificar(byte[] sketch) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(sketch), MAXIMO_SEGUNDOS);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Sketch de tiempos corrupto", e);
+        }
+    }
+}
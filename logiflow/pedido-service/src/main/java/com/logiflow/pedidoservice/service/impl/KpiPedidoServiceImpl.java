@@ -0,0 +1,308 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.logiflow.pedidoservice.dto.KpiCoberturaResponse;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.KpiPedido;
+import com.logiflow.pedidoservice.model.Pedido;
+import com.logiflow.pedidoservice.repository.KpiPedidoRepository;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.KpiPedidoService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rollup incremental de pedidos por cobertura × estado
+ *
+ * - Cada alta o transición suma deltas a un mapa ligado a la transacción en curso.
+ * - En beforeCommit los deltas se escriben en kpi_pedidos con un batch de upserts,
+ *   ordenados por clave para que dos transacciones nunca se bloqueen en orden cruzado.
+ * - En afterCommit se aplican al espejo en memoria; un rollback los descarta.
+ * - El espejo se recarga periódicamente desde la tabla para incluir lo escrito por
+ *   otras instancias. Las lecturas de KPIs salen del espejo: O(coberturas × estados).
+ */
+@Slf4j
+@Service
+public class KpiPedidoServiceImpl implements KpiPedidoService {
+
+    private static final String SQL_UPSERT_POSTGRES =
+            "INSERT INTO kpi_pedidos (cobertura, estado, cantidad, entregas_medidas, duracion_entrega_segundos) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT (cobertura, estado) DO UPDATE SET " +
+            "cantidad = kpi_pedidos.cantidad + EXCLUDED.cantidad, " +
+            "entregas_medidas = kpi_pedidos.entregas_medidas + EXCLUDED.entregas_medidas, " +
+            "duracion_entrega_segundos = kpi_pedidos.duracion_entrega_segundos + EXCLUDED.duracion_entrega_segundos";
+
+    // Alternativa sin ON CONFLICT (H2 en tests/local): UPDATE y, si no existe la fila, INSERT
+    private static final String SQL_ACUMULAR =
+            "UPDATE kpi_pedidos SET cantidad = cantidad + ?, entregas_medidas = entregas_medidas + ?, " +
+            "duracion_entrega_segundos = duracion_entrega_segundos + ? WHERE cobertura = ? AND estado = ?";
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO kpi_pedidos (cobertura, estado, cantidad, entregas_medidas, duracion_entrega_segundos) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final Comparator<Clave> ORDEN_CLAVES =
+            Comparator.comparing(Clave::cobertura).thenComparing(Clave::estado);
+
+    record Clave(String cobertura, EstadoPedido estado) {
+    }
+
+    record Acumulado(long cantidad, long entregasMedidas, long duracionEntregaSegundos) {
+
+        Acumulado sumar(Acumulado otro) {
+            return new Acumulado(cantidad + otro.cantidad,
+                    entregasMedidas + otro.entregasMedidas,
+                    duracionEntregaSegundos + otro.duracionEntregaSegundos);
+        }
+
+        boolean esCero() {
+            return cantidad == 0 && entregasMedidas == 0 && duracionEntregaSegundos == 0;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final KpiPedidoRepository kpiPedidoRepository;
+    private final PedidoRepository pedidoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Map<Clave, Acumulado> espejo = new ConcurrentHashMap<>();
+    private boolean upsertNativo;
+
+    public KpiPedidoServiceImpl(JdbcTemplate jdbcTemplate,
+                                KpiPedidoRepository kpiPedidoRepository,
+                                PedidoRepository pedidoRepository,
+                                TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.kpiPedidoRepository = kpiPedidoRepository;
+        this.pedidoRepository = pedidoRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void inicializar() {
+        String motor = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        upsertNativo = "PostgreSQL".equalsIgnoreCase(motor);
+        reconstruirSiVacio();
+        recargar();
+    }
+
+    @Override
+    public void registrarCreaciones(Collection<Pedido> pedidos) {
+        for (Pedido pedido : pedidos) {
+            acumular(pedido.getCobertura(), pedido.getEstado(), new Acumulado(1, 0, 0));
+        }
+    }
+
+    @Override
+    public void registrarTransicion(Pedido pedido, EstadoPedido desde, EstadoPedido hacia) {
+        if (desde == hacia) {
+            return;
+        }
+        acumular(pedido.getCobertura(), desde, new Acumulado(-1, 0, 0));
+        if (hacia == EstadoPedido.ENTREGADO && pedido.getFechaCreacion() != null) {
+            // En el camino por entidad @PreUpdate fija fechaEntregaReal recién en el flush
+            LocalDateTime fin = pedido.getFechaEntregaReal() != null ? pedido.getFechaEntregaReal() : LocalDateTime.now();
+            long segundos = Math.max(0, Duration.between(pedido.getFechaCreacion(), fin).getSeconds());
+            acumular(pedido.getCobertura(), hacia, new Acumulado(1, 1, segundos));
+        } else {
+            acumular(pedido.getCobertura(), hacia, new Acumulado(1, 0, 0));
+        }
+    }
+
+    @Override
+    public void registrarTransicion(String cobertura, EstadoPedido desde, EstadoPedido hacia) {
+        if (desde == hacia) {
+            return;
+        }
+        acumular(cobertura, desde, new Acumulado(-1, 0, 0));
+        acumular(cobertura, hacia, new Acumulado(1, 0, 0));
+    }
+
+    @Override
+    public List<KpiCoberturaResponse> obtenerKpis(String cobertura) {
+        Map<String, Map<EstadoPedido, Acumulado>> porCobertura = new TreeMap<>();
+        espejo.forEach((clave, acumulado) -> {
+            if (cobertura == null || cobertura.equals(clave.cobertura())) {
+                porCobertura.computeIfAbsent(clave.cobertura(), k -> new EnumMap<>(EstadoPedido.class))
+                        .put(clave.estado(), acumulado);
+            }
+        });
+
+        List<KpiCoberturaResponse> kpis = new ArrayList<>(porCobertura.size());
+        porCobertura.forEach((nombre, estados) -> {
+            Map<EstadoPedido, Long> conteos = new EnumMap<>(EstadoPedido.class);
+            long total = 0;
+            for (EstadoPedido estado : EstadoPedido.values()) {
+                Acumulado a = estados.get(estado);
+                long cantidad = a != null ? Math.max(0, a.cantidad()) : 0;
+                conteos.put(estado, cantidad);
+                total += cantidad;
+            }
+            Acumulado entregados = estados.getOrDefault(EstadoPedido.ENTREGADO, new Acumulado(0, 0, 0));
+            Double promedioMinutos = entregados.entregasMedidas() > 0
+                    ? Math.round(entregados.duracionEntregaSegundos() / 6.0 / entregados.entregasMedidas()) / 10.0
+                    : null;
+            kpis.add(KpiCoberturaResponse.builder()
+                    .cobertura(nombre)
+                    .pedidosTotal(total)
+                    .pedidosPorEstado(conteos)
+                    .entregasMedidas(entregados.entregasMedidas())
+                    .tiempoPromedioEntregaMinutos(promedioMinutos)
+                    .build());
+        });
+        return kpis;
+    }
+
+    /**
+     * Reemplaza el espejo con el contenido de kpi_pedidos (incluye lo escrito por otras instancias)
+     */
+    @Scheduled(fixedDelayString = "${pedido.kpi.recarga-ms:30000}", initialDelayString = "${pedido.kpi.recarga-ms:30000}")
+    public void recargar() {
+        try {
+            Map<Clave, Acumulado> nuevo = new ConcurrentHashMap<>();
+            for (KpiPedido fila : kpiPedidoRepository.findAll()) {
+                nuevo.put(new Clave(fila.getCobertura(), fila.getEstado()),
+                        new Acumulado(fila.getCantidad(), fila.getEntregasMedidas(), fila.getDuracionEntregaSegundos()));
+            }
+            espejo = nuevo;
+        } catch (RuntimeException e) {
+            log.error("[KPI] No se pudo recargar el rollup: {}", e.getMessage());
+        }
+    }
+
+    // ======= MÉTODOS AUXILIARES =======
+
+    private void acumular(String cobertura, EstadoPedido estado, Acumulado delta) {
+        if (cobertura == null || estado == null) {
+            log.warn("[KPI] Delta sin cobertura/estado ignorado: cobertura={} estado={}", cobertura, estado);
+            return;
+        }
+        Clave clave = new Clave(cobertura, estado);
+        Map<Clave, Acumulado> deltas = deltasDeTransaccion();
+        if (deltas != null) {
+            deltas.merge(clave, delta, Acumulado::sumar);
+            return;
+        }
+        // Fuera de transacción: se escribe y se refleja de inmediato
+        Map<Clave, Acumulado> unico = Map.of(clave, delta);
+        transactionTemplate.executeWithoutResult(status -> escribir(unico));
+        aplicarEnEspejo(unico);
+    }
+
+    /**
+     * Deltas acumulados por la transacción actual, registrando la sincronización en el primer uso
+     * @return null si no hay una transacción con sincronización activa
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Clave, Acumulado> deltasDeTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Clave, Acumulado> deltas = (Map<Clave, Acumulado>) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+        Map<Clave, Acumulado> nuevos = new TreeMap<>(ORDEN_CLAVES);
+        TransactionSynchronizationManager.bindResource(this, nuevos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                escribir(nuevos);
+            }
+
+            @Override
+            public void afterCommit() {
+                aplicarEnEspejo(nuevos);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(KpiPedidoServiceImpl.this);
+            }
+        });
+        return nuevos;
+    }
+
+    private void escribir(Map<Clave, Acumulado> deltas) {
+        List<Map.Entry<Clave, Acumulado>> filas = deltas.entrySet().stream()
+                .filter(e -> !e.getValue().esCero())
+                .sorted(Map.Entry.comparingByKey(ORDEN_CLAVES))
+                .toList();
+        if (filas.isEmpty()) {
+            return;
+        }
+        if (upsertNativo) {
+            jdbcTemplate.batchUpdate(SQL_UPSERT_POSTGRES, filas, filas.size(), (ps, e) -> {
+                ps.setString(1, e.getKey().cobertura());
+                ps.setString(2, e.getKey().estado().name());
+                ps.setLong(3, e.getValue().cantidad());
+                ps.setLong(4, e.getValue().entregasMedidas());
+                ps.setLong(5, e.getValue().duracionEntregaSegundos());
+            });
+            return;
+        }
+        for (Map.Entry<Clave, Acumulado> e : filas) {
+            Acumulado a = e.getValue();
+            int actualizadas = jdbcTemplate.update(SQL_ACUMULAR, a.cantidad(), a.entregasMedidas(),
+                    a.duracionEntregaSegundos(), e.getKey().cobertura(), e.getKey().estado().name());
+            if (actualizadas == 0) {
+                jdbcTemplate.update(SQL_INSERTAR, e.getKey().cobertura(), e.getKey().estado().name(),
+                        a.cantidad(), a.entregasMedidas(), a.duracionEntregaSegundos());
+            }
+        }
+    }
+
+    private void aplicarEnEspejo(Map<Clave, Acumulado> deltas) {
+        deltas.forEach((clave, delta) -> espejo.merge(clave, delta, Acumulado::sumar));
+    }
+
+    /**
+     * Primer arranque con pedidos existentes: el rollup se calcula una vez con GROUP BY
+     */
+    private void reconstruirSiVacio() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (kpiPedidoRepository.count() > 0) {
+                    return;
+                }
+                Map<Clave, Acumulado> filas = new HashMap<>();
+                for (Object[] fila : pedidoRepository.contarPorCoberturaYEstado()) {
+                    filas.put(new Clave((String) fila[0], (EstadoPedido) fila[1]),
+                            new Acumulado(((Number) fila[2]).longValue(), 0, 0));
+                }
+                for (Object[] fila : pedidoRepository.sumarDuracionEntregasPorCobertura()) {
+                    long segundos = fila[2] != null ? ((Number) fila[2]).longValue() : 0;
+                    filas.merge(new Clave((String) fila[0], EstadoPedido.ENTREGADO),
+                            new Acumulado(0, ((Number) fila[1]).longValue(), segundos), Acumulado::sumar);
+                }
+                if (filas.isEmpty()) {
+                    return;
+                }
+                escribir(filas);
+                log.info("[KPI] Rollup reconstruido desde pedidos: {} combinaciones cobertura/estado", filas.size());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia lo reconstruyó al mismo tiempo
+            log.info("[KPI] Rollup ya reconstruido por otra instancia");
+        }
+    }
+}
@@ -1,26 +1,55 @@
 package com.logiflow.pedidoservice.service.impl;
 
-import com.logiflow.pedidoservice.client.BillingClient;
-import com.logiflow.pedidoservice.client.FleetClient;
+import com.logiflow.pedidoservice.config.CacheConfig;
 import com.logiflow.pedidoservice.dto.*;
 import com.logiflow.pedidoservice.event.PedidoCreadoEvent;
 import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.exception.ParametroInvalidoException;
+import com.logiflow.pedidoservice.exception.TransicionNoPermitidaException;
 import com.logiflow.pedidoservice.model.*;
 import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
 import com.logiflow.pedidoservice.repository.PedidoRepository;
 import com.logiflow.pedidoservice.service.CoberturaValidationService;
+import com.logiflow.pedidoservice.service.DistanciaService;
+import com.logiflow.pedidoservice.service.HistorialEstadoService;
+import com.logiflow.pedidoservice.service.KpiPedidoService;
 import com.logiflow.pedidoservice.service.PedidoService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
@@ -30,15 +59,28 @@ public class PedidoServiceImpl implements PedidoService {
     private final PedidoRepository pedidoRepository;
     private final PedidoMapper pedidoMapper;
     private final CoberturaValidationService coberturaValidationService;
-    private final BillingClient billingClient;
-    private final FleetClient fleetClient;
+    private final DistanciaService distanciaService;
     private final PedidoEventPublisher pedidoEventPublisher; 
+    private final KpiPedidoService kpiPedidoService;
+    private final HistorialEstadoService historialEstadoService;
+    private final CreacionPedidoPipeline creacionPedidoPipeline;
+    private final EstadoLoteProcessor estadoLoteProcessor;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${pedido.creacion.timeout-ms:15000}")
+    private long creacionTimeoutMs;
+
+    @Value("${pedido.lote.tamano-chunk:500}")
+    private int loteTamanoChunk;
 
-    @Value("${integration.billing.enabled:true}")
-    private boolean billingIntegrationEnabled;
+    @Value("${pedido.listado.limite-maximo:500}")
+    private int limiteMaximoPagina;
 
-    @Value("${integration.fleet.enabled:true}")
-    private boolean fleetIntegrationEnabled;
+    @Value("${pedido.listado.exportacion.flush-cada:500}")
+    private int exportacionFlushCada;
 
     private String obtenerTokenActual() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -59,40 +101,250 @@ public class PedidoServiceImpl implements PedidoService {
     }
 
     @Override
-    @Transactional
     public PedidoResponse createPedido(PedidoRequest request) {
+        CreacionIniciada creacion = iniciarCreacion(request);
+        Pedido savedPedido = creacion.pedido();
+
+        // Modo "esperar ambos": se espera a billing y fleet, con tope de tiempo
+        try {
+            Pedido pedidoFinal = creacion.progreso().getResultado()
+                    .get(creacionTimeoutMs, TimeUnit.MILLISECONDS);
+            log.info("[COMPLETION] Pedido creado exitosamente | PedidoID: {} | Estado final: {} | CorrelacionID: {}",
+                pedidoFinal.getId(), pedidoFinal.getEstado(), creacion.correlacionId());
+            return pedidoMapper.toResponse(pedidoFinal);
+        } catch (TimeoutException e) {
+            log.warn("[PIPELINE-TIMEOUT] Billing/Fleet no respondieron en {} ms, se retorna el pedido confirmado | PedidoID: {} | CorrelacionID: {}",
+                creacionTimeoutMs, savedPedido.getId(), creacion.correlacionId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("[PIPELINE-ERROR] Error inesperado en pipeline | PedidoID: {} | CorrelacionID: {}",
+                savedPedido.getId(), creacion.correlacionId(), e);
+        }
+        return pedidoMapper.toResponse(savedPedido);
+    }
+
+    @Override
+    public PedidoResponse createPedidoAsync(PedidoRequest request) {
+        CreacionIniciada creacion = iniciarCreacion(request);
+        log.info("[ACCEPTED] Pedido confirmado, integraciones en curso | PedidoID: {} | CorrelacionID: {}",
+            creacion.pedido().getId(), creacion.correlacionId());
+        return pedidoMapper.toResponse(creacion.pedido());
+    }
+
+    @Override
+    public PedidoLoteResponse crearPedidosLote(PedidoLoteRequest request) {
+        String correlacionId = java.util.UUID.randomUUID().toString();
+        String usuario = obtenerUsuarioActual();
+        List<PedidoRequest> items = request.getPedidos();
+        log.info("[LOTE-INICIO] Carga masiva de {} pedidos | Usuario: {} | CorrelacionID: {}",
+            items.size(), usuario, correlacionId);
+
+        PedidoLoteResponse.ResultadoItem[] resultados = new PedidoLoteResponse.ResultadoItem[items.size()];
+        List<Integer> indicesValidos = new ArrayList<>(items.size());
+        List<Pedido> pedidosValidos = new ArrayList<>(items.size());
+
+        // 1. Validación por pedido; cobertura/tipo de entrega se consulta una vez por combinación
+        Map<String, String> erroresCobertura = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            PedidoRequest item = items.get(i);
+            String error = validarRequest(item);
+            Pedido pedido = null;
+            if (error == null) {
+                pedido = pedidoMapper.toEntity(item);
+                error = validarCoberturaLote(pedido, item.getTipoEntrega(), erroresCobertura);
+            }
+            if (error != null) {
+                resultados[i] = rechazado(i, error);
+                continue;
+            }
+            indicesValidos.add(i);
+            pedidosValidos.add(pedido);
+        }
+
+        // 2. Inserción por chunks: una transacción corta por chunk (pedidos + eventos en batch JDBC)
+        for (int desde = 0; desde < pedidosValidos.size(); desde += loteTamanoChunk) {
+            int hasta = Math.min(desde + loteTamanoChunk, pedidosValidos.size());
+            List<Pedido> chunk = pedidosValidos.subList(desde, hasta);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Pedido> guardados = pedidoRepository.saveAll(chunk);
+                    kpiPedidoService.registrarCreaciones(guardados);
+                    historialEstadoService.registrarCreaciones(guardados, usuario);
+                    pedidoEventPublisher.publishPedidosCreadosEvents(guardados.stream()
+                        .map(p -> construirPedidoCreadoEvent(p, distanciaService.estimarKm(
+                            p.getDireccionOrigen(), p.getDireccionDestino(), p.getModalidadServicio()), usuario))
+                        .toList());
+                });
+                for (int j = desde; j < hasta; j++) {
+                    int indice = indicesValidos.get(j);
+                    resultados[indice] = PedidoLoteResponse.ResultadoItem.builder()
+                        .indice(indice)
+                        .estado(PedidoLoteResponse.EstadoItem.CREADO)
+                        .pedidoId(pedidosValidos.get(j).getId())
+                        .build();
+                }
+            } catch (RuntimeException e) {
+                log.error("[LOTE-ERROR] Falló el chunk [{}, {}) | CorrelacionID: {} | Error: {}",
+                    desde, hasta, correlacionId, e.getMessage());
+                for (int j = desde; j < hasta; j++) {
+                    int indice = indicesValidos.get(j);
+                    resultados[indice] = rechazado(indice, "Error al guardar: " + e.getMessage());
+                }
+            }
+        }
+
+        List<PedidoLoteResponse.ResultadoItem> lista = List.of(resultados);
+        int creados = (int) lista.stream().filter(r -> r.getEstado() == PedidoLoteResponse.EstadoItem.CREADO).count();
+        log.info("[LOTE-FIN] Carga masiva finalizada | Creados: {} | Rechazados: {} | CorrelacionID: {}",
+            creados, items.size() - creados, correlacionId);
+
+        return PedidoLoteResponse.builder()
+            .total(items.size())
+            .creados(creados)
+            .rechazados(items.size() - creados)
+            .resultados(lista)
+            .build();
+    }
+
+    /**
+     * Bean Validation del pedido (mismas reglas que POST /api/pedidos)
+     * @return motivo del rechazo, o null si el pedido es válido
+     */
+    private String validarRequest(PedidoRequest item) {
+        if (item == null) {
+            return "Pedido vacío";
+        }
+        var violaciones = validator.validate(item);
+        if (violaciones.isEmpty()) {
+            return null;
+        }
+        return violaciones.stream()
+            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * @return motivo del rechazo, o null si la cobertura admite el tipo de entrega
+     */
+    private String validarCoberturaLote(Pedido pedido, TipoEntrega tipoEntrega, Map<String, String> erroresCobertura) {
+        var resolucion = coberturaValidationService.resolverCobertura(
+            pedido.getDireccionOrigen(), pedido.getDireccionDestino());
+        if (resolucion.isPresent()) {
+            pedido.setCobertura(resolucion.get().cobertura());
+            return resolucion.get().admite(tipoEntrega)
+                ? null
+                : "Tipo de entrega no disponible para cobertura: " + pedido.getCobertura();
+        }
+        String cobertura = pedido.getCobertura();
+        String clave = cobertura + "|" + tipoEntrega;
+        // "" = combinación válida ya verificada
+        String error = erroresCobertura.computeIfAbsent(clave, k -> {
+            try {
+                validateCobertura(cobertura);
+                validateTipoEntrega(tipoEntrega, cobertura);
+                return "";
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        });
+        return error.isEmpty() ? null : error;
+    }
+
+    private PedidoLoteResponse.ResultadoItem rechazado(int indice, String error) {
+        return PedidoLoteResponse.ResultadoItem.builder()
+            .indice(indice)
+            .estado(PedidoLoteResponse.EstadoItem.RECHAZADO)
+            .error(error)
+            .build();
+    }
+
+    @Override
+    public CreacionPedidoStatusResponse getEstadoCreacion(String id) {
+        CreacionPedidoPipeline.ProgresoCreacion progreso = creacionPedidoPipeline.obtenerProgreso(id);
+        if (progreso == null) {
+            // Pipeline ya expirado (o pedido creado por otra vía): el pedido es la fuente de verdad
+            Pedido pedido = findPedidoOrThrow(id);
+            return CreacionPedidoStatusResponse.builder()
+                    .pedidoId(id)
+                    .estado(CreacionPedidoStatusResponse.EstadoPaso.COMPLETADO)
+                    .pedido(pedidoMapper.toResponse(pedido))
+                    .build();
+        }
+
+        Pedido pedidoFinal = progreso.getResultado().getNow(null);
+        return CreacionPedidoStatusResponse.builder()
+                .pedidoId(id)
+                .estado(progreso.getEstado())
+                .facturacion(progreso.getFacturacion())
+                .asignacion(progreso.getAsignacion())
+                .mensaje(progreso.getMensaje())
+                .pedido(pedidoFinal != null ? pedidoMapper.toResponse(pedidoFinal) : null)
+                .build();
+    }
+
+    private record CreacionIniciada(Pedido pedido, CreacionPedidoPipeline.ProgresoCreacion progreso, String correlacionId) {
+    }
+
+    /**
+     * Confirma el pedido en una transacción corta y lanza el pipeline de integraciones
+     * La transacción termina antes de cualquier llamada HTTP a billing/fleet
+     */
+    private CreacionIniciada iniciarCreacion(PedidoRequest request) {
         String correlacionId = java.util.UUID.randomUUID().toString();
         log.info("[INICIO-TRANSACCION] Creando nuevo pedido para cliente: {} | CorrelacionID: {}", 
             request.getClienteId(), correlacionId);
 
-        // 1. Extraer información de contexto de seguridad
+        // 1. Extraer información de contexto de seguridad (antes de salir del hilo de la petición)
         String token = obtenerTokenActual();
         String usuario = obtenerUsuarioActual();
         log.info("[AUTH-CONTEXT] Usuario: {} | Token presente: {} | CorrelacionID: {}", 
             usuario, token != null, correlacionId);
 
         Pedido pedido = pedidoMapper.toEntity(request);
-        validateCobertura(pedido.getCobertura());
-        validateTipoEntrega(request.getTipoEntrega(), pedido.getCobertura());
-
-        Pedido savedPedido = pedidoRepository.save(pedido);
-        log.info(" Pedido guardado exitosamente - ID: {} | Usuario: {} | CorrelacionID: {}", 
-            savedPedido.getId(), usuario, correlacionId);
-
-        // 2. Calcular distancia para el evento
-        Double distanciaEstimada = calcularDistanciaEstimada(
-            savedPedido.getDireccionOrigen().getCiudad(), 
-            savedPedido.getDireccionDestino().getCiudad(), 
-            savedPedido.getModalidadServicio()
+        aplicarCobertura(pedido, request.getTipoEntrega());
+
+        // 2. Calcular distancia (usada por el evento y por billing)
+        Double distanciaEstimada = distanciaService.estimarKm(
+            pedido.getDireccionOrigen(),
+            pedido.getDireccionDestino(),
+            pedido.getModalidadServicio()
         );
-        log.info(" Distancia estimada: {} km | PedidoID: {} | CorrelacionID: {}", 
-            distanciaEstimada, savedPedido.getId(), correlacionId);
+        log.info(" Distancia estimada: {} km | CorrelacionID: {}", distanciaEstimada, correlacionId);
+
+        // 3. Transacción corta: guardar + evento pedido.creado
+        Pedido savedPedido = transactionTemplate.execute(status -> {
+            Pedido guardado = pedidoRepository.save(pedido);
+            log.info(" Pedido guardado exitosamente - ID: {} | Usuario: {} | CorrelacionID: {}", 
+                guardado.getId(), usuario, correlacionId);
+            publicarPedidoCreado(guardado, distanciaEstimada, usuario, correlacionId);
+            kpiPedidoService.registrarCreaciones(List.of(guardado));
+            historialEstadoService.registrarCreaciones(List.of(guardado), usuario);
+            return guardado;
+        });
+
+        // 4. Billing y Fleet en paralelo, fuera de la transacción
+        CreacionPedidoPipeline.ProgresoCreacion progreso = creacionPedidoPipeline.ejecutar(
+            savedPedido, distanciaEstimada, token, usuario, correlacionId);
+
+        return new CreacionIniciada(savedPedido, progreso, correlacionId);
+    }
 
-        // 3. PUBLICAR EVENTO PEDIDO.CREADO PRIMERO (para billing-service)
+    private void publicarPedidoCreado(Pedido savedPedido, Double distanciaEstimada, String usuario, String correlacionId) {
+        // PUBLICAR EVENTO PEDIDO.CREADO PRIMERO (para billing-service)
         log.info("📤 [EVENT-PREPARATION] Preparando evento pedido.creado | PedidoID: {} | CorrelacionID: {}", 
             savedPedido.getId(), correlacionId);
             
-        PedidoCreadoEvent creadoEvent = new PedidoCreadoEvent(
+        PedidoCreadoEvent creadoEvent = construirPedidoCreadoEvent(savedPedido, distanciaEstimada, usuario);
+        
+        log.info("[EVENT-PUBLISH] Publicando evento pedido.creado | MessageID: {} | PedidoID: {} | Usuario: {} | CorrelacionID: {}", 
+            creadoEvent.getMessageId(), savedPedido.getId(), usuario, correlacionId);
+        pedidoEventPublisher.publishPedidoCreadoEvent(creadoEvent);
+    }
+
+    private PedidoCreadoEvent construirPedidoCreadoEvent(Pedido savedPedido, Double distanciaEstimada, String usuario) {
+        PedidoCreadoEvent event = new PedidoCreadoEvent(
             savedPedido.getId(),
             savedPedido.getClienteId(),
             usuario, // Usuario que creó el pedido
@@ -108,111 +360,21 @@ public class PedidoServiceImpl implements PedidoService {
             distanciaEstimada,
             null // tarifaCalculada se calculará después por billing-service
         );
-        
-        log.info("[EVENT-PUBLISH] Publicando evento pedido.creado | MessageID: {} | PedidoID: {} | Usuario: {} | CorrelacionID: {}", 
-            creadoEvent.getMessageId(), savedPedido.getId(), usuario, correlacionId);
-        pedidoEventPublisher.publishPedidoCreadoEvent(creadoEvent);
-
-        // 4. ============= BILLING SERVICE (SINCRONO) =============
-        if (billingIntegrationEnabled) {
-            try {
-                log.info("💳 [BILLING-SYNC] Iniciando integración síncrona con Billing Service | PedidoID: {} | CorrelacionID: {}", 
-                    savedPedido.getId(), correlacionId);
-                    
-                FacturaRequest facturaRequest = FacturaRequest.builder()
-                        .pedidoId(savedPedido.getId())
-                        .tipoEntrega(savedPedido.getTipoEntrega().name())
-                        .distanciaKm(distanciaEstimada)
-                        .build();
-
-                log.info("🔗 [BILLING-CALL] Llamando a billing-service | PedidoID: {} | Token presente: {} | CorrelacionID: {}", 
-                    savedPedido.getId(), token != null, correlacionId);
-                    
-                FacturaResponse facturaResponse = billingClient.crearFactura(facturaRequest, token);
-
-                savedPedido.setFacturaId(facturaResponse.getId());
-                savedPedido.setTarifaCalculada(facturaResponse.getMontoTotal().doubleValue());
-                savedPedido = pedidoRepository.save(savedPedido);
-                
-                log.info("💰 [FACTURA-ASOCIADA] Factura asociada al pedido | FacturaID: {} | PedidoID: {} | Monto: ${} | CorrelacionID: {}", 
-                    facturaResponse.getId(), savedPedido.getId(), facturaResponse.getMontoTotal(), correlacionId);
-                log.info("🎯 [PEDIDO-COMPLETO] Pedido creado con factura | PedidoID: {} tiene FacturaID: {} por valor de ${}",
-                    savedPedido.getId(), facturaResponse.getId(), facturaResponse.getMontoTotal());
-            } catch (Exception e) {
-                log.error("[BILLING-ERROR] Error en integración con Billing Service | PedidoID: {} | Error: {} | CorrelacionID: {}", 
-                    savedPedido.getId(), e.getMessage(), correlacionId, e);
-            }
-        } else {
-            log.warn("[BILLING-DISABLED] Integración con Billing deshabilitada | PedidoID: {} | CorrelacionID: {}", 
-                savedPedido.getId(), correlacionId);
-        }
-
-        // 5. ============= FLEET SERVICE (SINCRONO) =============
-        if (fleetIntegrationEnabled) {
-            try {
-                log.info("🚛 [FLEET-SYNC] Iniciando integración síncrona con Fleet Service | PedidoID: {} | CorrelacionID: {}", 
-                    savedPedido.getId(), correlacionId);
-                    
-                AsignacionRequest asignacionRequest = AsignacionRequest.builder()
-                        .pedidoId(savedPedido.getId())
-                        .modalidadServicio(savedPedido.getModalidadServicio().name())
-                        .tipoEntrega(savedPedido.getTipoEntrega().name())
-                        .prioridad(savedPedido.getPrioridad().name())
-                        .ciudadOrigen(savedPedido.getDireccionOrigen().getCiudad())
-                        .ciudadDestino(savedPedido.getDireccionDestino().getCiudad())
-                        .peso(savedPedido.getPeso())
-                        .build();
-
-                log.info("🔗 [FLEET-CALL] Llamando a fleet-service | PedidoID: {} | Token presente: {} | CorrelacionID: {}", 
-                    savedPedido.getId(), token != null, correlacionId);
-                    
-                AsignacionResponse asignacionResponse = fleetClient.asignarRepartidor(asignacionRequest, token);
-
-                if ("ASIGNADO".equals(asignacionResponse.getEstado())) {
-                    String estadoAnterior = savedPedido.getEstado().name();
-                    savedPedido.setRepartidorId(asignacionResponse.getRepartidorId());
-                    savedPedido.setVehiculoId(asignacionResponse.getVehiculoId());
-                    savedPedido.setEstado(EstadoPedido.ASIGNADO);
-                    savedPedido = pedidoRepository.save(savedPedido);
-
-                    log.info("[FLEET-SUCCESS] Repartidor asignado exitosamente - RepartidorID: {} | VehiculoID: {} | PedidoID: {} | CorrelacionID: {}", 
-                        asignacionResponse.getRepartidorId(), asignacionResponse.getVehiculoId(), savedPedido.getId(), correlacionId);
-
-                    // PUBLICAR EVENTO ESTADO ACTUALIZADO: CREADO -> ASIGNADO
-                    PedidoEstadoEvent asignadoEvent = new PedidoEstadoEvent(
-                        savedPedido.getId(), 
-                        estadoAnterior, 
-                        savedPedido.getEstado().name(), 
-                        usuario, // Usuario que modificó (sistema en este caso)
-                        savedPedido.getRepartidorId(), 
-                        savedPedido.getVehiculoId()
-                    );
-                    
-                    log.info("[EVENT-PUBLISH] Publicando evento pedido.estado.actualizado | MessageID: {} | {}\u2192{} | PedidoID: {} | CorrelacionID: {}", 
-                        asignadoEvent.getMessageId(), estadoAnterior, savedPedido.getEstado().name(), savedPedido.getId(), correlacionId);
-                    pedidoEventPublisher.publishPedidoEstadoEvent(asignadoEvent);
-                    
-                } else {
-                    log.warn("[FLEET-WARNING] No se pudo asignar repartidor | Estado recibido: {} | PedidoID: {} | CorrelacionID: {}", 
-                        asignacionResponse.getEstado(), savedPedido.getId(), correlacionId);
-                }
-            } catch (Exception e) {
-                log.error("[FLEET-ERROR] Error en integración con Fleet Service | PedidoID: {} | Error: {} | CorrelacionID: {}", 
-                    savedPedido.getId(), e.getMessage(), correlacionId, e);
-            }
-        } else {
-            log.warn("[FLEET-DISABLED] Integración con Fleet deshabilitada | PedidoID: {} | CorrelacionID: {}", 
-                savedPedido.getId(), correlacionId);
-        }
-
-        log.info("[COMPLETION] Pedido creado exitosamente | PedidoID: {} | Estado final: {} | CorrelacionID: {}",
-            savedPedido.getId(), savedPedido.getEstado(), correlacionId);
-        return pedidoMapper.toResponse(savedPedido);
+        event.setLatitudOrigen(savedPedido.getDireccionOrigen().getLatitud());
+        event.setLongitudOrigen(savedPedido.getDireccionOrigen().getLongitud());
+        event.setLatitudDestino(savedPedido.getDireccionDestino().getLatitud());
+        event.setLongitudDestino(savedPedido.getDireccionDestino().getLongitud());
+        return event;
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.PEDIDOS_CACHE, key = "#id")
     public PedidoResponse getPedidoById(String id) {
-        return null;
+        log.debug("Consultando pedido {} en la base de datos (no estaba en caché)", id);
+        Pedido pedido = pedidoRepository.buscarPorId(id)
+                .or(() -> pedidoRepository.findArchivadoById(id))
+                .orElseThrow(() -> new EntityNotFoundException("Pedido no encontrado con ID: " + id));
+        return pedidoMapper.toResponse(pedido);
     }
 
     @Override
@@ -225,44 +387,176 @@ public class PedidoServiceImpl implements PedidoService {
                 .toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllPedidos(List<CampoPedido> campos) {
+        log.info("Consultando todos los pedidos (campos={})", campos.size());
+        return pedidoRepository.proyectar(null, campos);
+    }
+
     @Override
     public List<PedidoResponse> getPedidosByCliente(String clienteId) {
-        log.info("Consultando pedidos del cliente: {}", clienteId);
-        List<Pedido> pedidos = pedidoRepository.findByClienteId(clienteId);
+        return getPedidosByCliente(clienteId, (LocalDateTime) null);
+    }
+
+    @Override
+    public List<PedidoResponse> getPedidosByCliente(String clienteId, LocalDateTime desde) {
+        log.info("Consultando pedidos del cliente: {} (desde={})", clienteId, desde);
+        List<Pedido> pedidos = desde == null
+                ? pedidoRepository.findByClienteId(clienteId)
+                : pedidoRepository.findByClienteIdAndFechaCreacionGreaterThanEqual(clienteId, desde);
         log.info("Encontrados {} pedidos para cliente {}", pedidos.size(), clienteId);
         return pedidos.stream()
                 .map(pedidoMapper::toResponse)
                 .toList();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getPedidosByCliente(String clienteId, List<CampoPedido> campos,
+                                                         LocalDateTime desde) {
+        log.info("Consultando pedidos del cliente: {} (campos={}, desde={})", clienteId, campos.size(), desde);
+        Specification<Pedido> delCliente = (pedido, query, cb) -> desde == null
+                ? cb.equal(pedido.get("clienteId"), clienteId)
+                : cb.and(
+                        cb.equal(pedido.get("clienteId"), clienteId),
+                        cb.greaterThanOrEqualTo(pedido.get("fechaCreacion"), desde));
+        return pedidoRepository.proyectar(delCliente, campos);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaPedidosResponse getPedidosPaginados(String clienteId, String cursor, int limite) {
+        int tamano = Math.max(1, Math.min(limite, limiteMaximoPagina));
+        // Se pide uno extra para saber si existe una página siguiente sin hacer COUNT
+        Limit consulta = Limit.of(tamano + 1);
+
+        List<Pedido> pedidos;
+        if (cursor == null || cursor.isBlank()) {
+            pedidos = clienteId == null
+                    ? pedidoRepository.findPrimeraPagina(consulta)
+                    : pedidoRepository.findPrimeraPaginaByCliente(clienteId, consulta);
+        } else {
+            PedidoCursor desde = PedidoCursor.decodificar(cursor);
+            pedidos = clienteId == null
+                    ? pedidoRepository.findPaginaDespuesDe(desde.fechaCreacion(), desde.id(), consulta)
+                    : pedidoRepository.findPaginaByClienteDespuesDe(clienteId, desde.fechaCreacion(), desde.id(), consulta);
+        }
+
+        boolean hayMas = pedidos.size() > tamano;
+        List<Pedido> pagina = hayMas ? pedidos.subList(0, tamano) : pedidos;
+        String siguienteCursor = null;
+        if (hayMas) {
+            Pedido ultimo = pagina.get(pagina.size() - 1);
+            siguienteCursor = new PedidoCursor(ultimo.getFechaCreacion(), ultimo.getId()).codificar();
+        }
+
+        log.debug("Página de pedidos | cliente={} | tamaño={} | hayMas={}", clienteId, pagina.size(), hayMas);
+        return PaginaPedidosResponse.builder()
+                .pedidos(pagina.stream().map(pedidoMapper::toResponse).toList())
+                .limite(tamano)
+                .hayMas(hayMas)
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportarPedidos(String clienteId, OutputStream salida) throws IOException {
+        log.info("[EXPORT] Iniciando exportación NDJSON de pedidos | cliente={}", clienteId);
+        long exportados = 0;
+
+        // Sin flush por objeto: se vacía el buffer cada N pedidos
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generador = objectMapper.getFactory().createGenerator(salida);
+        // Un objeto por línea; el flujo HTTP lo cierra el contenedor
+        generador.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        generador.setRootValueSeparator(null);
+
+        try (Stream<Pedido> pedidos = clienteId == null
+                ? pedidoRepository.streamTodos()
+                : pedidoRepository.streamByCliente(clienteId)) {
+            Iterator<Pedido> it = pedidos.iterator();
+            while (it.hasNext()) {
+                Pedido pedido = it.next();
+                writer.writeValue(generador, pedidoMapper.toResponse(pedido));
+                generador.writeRaw('\n');
+                // Se suelta la entidad para que el contexto de persistencia no crezca con la exportación
+                entityManager.detach(pedido);
+
+                if (++exportados % exportacionFlushCada == 0) {
+                    generador.flush();
+                }
+            }
+        }
+        generador.flush();
+        log.info("[EXPORT] Exportación finalizada | cliente={} | pedidos={}", clienteId, exportados);
+    }
+
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PEDIDOS_CACHE, key = "#id")
     public PedidoResponse patchPedido(String id, PedidoPatchRequest patchRequest) {
         String correlacionId = java.util.UUID.randomUUID().toString();
         String usuario = obtenerUsuarioActual();
         log.info("[INICIO-PATCH] Actualizando pedido {} | Usuario: {} | CorrelacionID: {}", id, usuario, correlacionId);
 
-        // 1. Buscar pedido
-        Pedido pedido = pedidoRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Pedido no encontrado: " + id));
-
-        String estadoAnterior = pedido.getEstado().name();
-        boolean estadoCambio = false;
-
-        // 2. Aplicar cambios parciales
-        if (patchRequest.getEstado() != null) {
-            EstadoPedido nuevoEstado = patchRequest.getEstado();
-            log.info("[PATCH-ESTADO] Cambiando estado: {} \u2192 {} | PedidoID: {} | CorrelacionID: {}",
-                estadoAnterior, nuevoEstado, id, correlacionId);
-            pedido.setEstado(nuevoEstado);
-            estadoCambio = true;
+        EstadoPedido nuevoEstado = patchRequest.getEstado();
+        String estadoAnterior;
+        Pedido updatedPedido;
+        boolean estadoCambio;
+        if (soloCambiaEstado(patchRequest) && nuevoEstado != null) {
+            // 1. Solo estado: UPDATE condicional primero; la fila se lee después
+            Optional<EstadoPedido> origen = transicionarSinLectura(id, nuevoEstado, patchRequest.getVersion());
+            updatedPedido = findPedidoOrThrow(id);
+            estadoCambio = origen.isPresent();
+            if (estadoCambio) {
+                estadoAnterior = origen.get().name();
+                registrarTransicion(updatedPedido, origen.get(), nuevoEstado, usuario);
+                log.info("[PATCH-ESTADO] Cambiando estado: {} \u2192 {} | PedidoID: {} | CorrelacionID: {}",
+                    estadoAnterior, nuevoEstado, id, correlacionId);
+            } else {
+                // 0 filas: estado final, versión vieja, mismo estado (no-op), transición inválida o carrera
+                validarModificable(updatedPedido, patchRequest.getVersion());
+                if (updatedPedido.getEstado() != nuevoEstado) {
+                    validarTransicion(updatedPedido.getEstado(), nuevoEstado);
+                    throw conflictoConcurrente(id);
+                }
+                estadoAnterior = updatedPedido.getEstado().name();
+            }
+        } else {
+            // 1. Otros campos: el mapper aplica el patch sobre la entidad cargada, con @Version
+            Pedido pedido = findPedidoOrThrow(id);
+            EstadoPedido estadoActual = pedido.getEstado();
+            validarModificable(pedido, patchRequest.getVersion());
+            estadoAnterior = estadoActual.name();
+            estadoCambio = nuevoEstado != null && nuevoEstado != estadoActual;
+            if (estadoCambio) {
+                validarTransicion(estadoActual, nuevoEstado);
+                log.info("[PATCH-ESTADO] Cambiando estado: {} \u2192 {} | PedidoID: {} | CorrelacionID: {}",
+                    estadoAnterior, nuevoEstado, id, correlacionId);
+            }
+            if (soloCambiaEstado(patchRequest)) {
+                // Solo versión: nada que escribir
+                updatedPedido = pedido;
+            } else {
+                pedidoMapper.updateEntityFromPatch(pedido, patchRequest);
+                if (estadoCambio && nuevoEstado == EstadoPedido.PENDIENTE) {
+                    // Igual que PedidoTransicionRepository.SET_VUELTA_A_PENDIENTE
+                    pedido.setRepartidorId(null);
+                    pedido.setVehiculoId(null);
+                    pedido.setIntentosAsignacion(0);
+                    pedido.setProximoReintento(null);
+                }
+                updatedPedido = pedidoRepository.save(pedido);
+                if (estadoCambio) {
+                    registrarTransicion(updatedPedido, estadoActual, nuevoEstado, usuario);
+                }
+            }
         }
-
-        // 3. Guardar cambios
-        Pedido updatedPedido = pedidoRepository.save(pedido);
         log.info("[DATABASE] Pedido actualizado | PedidoID: {} | CorrelacionID: {}", id, correlacionId);
 
-        // 4. Si cambió el estado, publicar evento
+        // 2. Si cambió el estado, publicar evento
         if (estadoCambio) {
             PedidoEstadoEvent estadoEvent = new PedidoEstadoEvent(
                 updatedPedido.getId(),
@@ -284,8 +578,16 @@ public class PedidoServiceImpl implements PedidoService {
         return pedidoMapper.toResponse(updatedPedido);
     }
 
+    @Override
+    public PedidoEstadoLoteResponse cambiarEstadoLote(PedidoEstadoLoteRequest request) {
+        String usuario = obtenerUsuarioActual();
+        log.info("[INICIO-ESTADO-LOTE] {} pedidos → {} | Usuario: {}", request.getIds().size(), request.getEstado(), usuario);
+        return estadoLoteProcessor.aplicar(request.getIds(), request.getEstado(), usuario);
+    }
+
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PEDIDOS_CACHE, key = "#id")
     public PedidoResponse cancelarPedido(String id) {
         String correlacionId = java.util.UUID.randomUUID().toString();
         String usuario = obtenerUsuarioActual();
@@ -293,29 +595,36 @@ public class PedidoServiceImpl implements PedidoService {
         log.info(" Iniciando cancelación de pedido | PedidoID: {} | Usuario: {} | CorrelacionID: {}", 
             id, usuario, correlacionId);
 
+        // UPDATE condicional primero; la fila se lee después para la respuesta o para explicar el rechazo
+        Optional<EstadoPedido> origen = transicionarSinLectura(id, EstadoPedido.CANCELADO, null);
         Pedido pedido = findPedidoOrThrow(id);
 
-        if (pedido.getEstado() == EstadoPedido.CANCELADO) {
-            log.warn("Pedido ya está cancelado | PedidoID: {} | CorrelacionID: {}", 
-                id, correlacionId);
-            throw new IllegalStateException("El pedido ya está cancelado");
+        if (origen.isEmpty()) {
+            if (pedido.getEstado() == EstadoPedido.CANCELADO) {
+                log.warn("Pedido ya está cancelado | PedidoID: {} | CorrelacionID: {}", 
+                    id, correlacionId);
+                throw new TransicionNoPermitidaException("El pedido ya está cancelado");
+            }
+            if (pedido.getEstado() == EstadoPedido.ENTREGADO) {
+                throw new TransicionNoPermitidaException("No se puede cancelar un pedido ya entregado");
+            }
+            validarTransicion(pedido.getEstado(), EstadoPedido.CANCELADO);
+            throw conflictoConcurrente(id);
         }
 
-        String estadoAnterior = pedido.getEstado().name();
-        log.info("Estado actual: {} | PedidoID: {} | CorrelacionID: {}", 
+        String estadoAnterior = origen.get().name();
+        log.info("Estado anterior: {} | PedidoID: {} | CorrelacionID: {}", 
             estadoAnterior, id, correlacionId);
-
-        pedido.setEstado(EstadoPedido.CANCELADO);
-        Pedido canceledPedido = pedidoRepository.save(pedido);
+        registrarTransicion(pedido, origen.get(), EstadoPedido.CANCELADO, usuario);
 
         // PUBLICAR EVENTO: X \u2192 CANCELADO
         PedidoEstadoEvent canceladoEvent = new PedidoEstadoEvent(
-            canceledPedido.getId(),
+            pedido.getId(),
             estadoAnterior,
             "CANCELADO",
             usuario,
-            canceledPedido.getRepartidorId(),
-            canceledPedido.getVehiculoId()
+            pedido.getRepartidorId(),
+            pedido.getVehiculoId()
         );
 
         log.info("Publicando evento cancelación | MessageID: {} | {}→CANCELADO | PedidoID: {} | Usuario: {} | CorrelacionID: {}", 
@@ -325,7 +634,7 @@ public class PedidoServiceImpl implements PedidoService {
         log.info("Pedido cancelado exitosamente | PedidoID: {} | Usuario: {} | CorrelacionID: {}", 
             id, usuario, correlacionId);
 
-        return pedidoMapper.toResponse(canceledPedido);
+        return pedidoMapper.toResponse(pedido);
     }
 
     @Override
@@ -335,36 +644,37 @@ public class PedidoServiceImpl implements PedidoService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PEDIDOS_CACHE, key = "#pedidoId")
     public PedidoResponse asignarRepartidorYVehiculo(String pedidoId, String repartidorId, String vehiculoId) {
         String correlacionId = java.util.UUID.randomUUID().toString();
         String usuario = obtenerUsuarioActual();
         log.info("[INICIO-ASIGNACION] Asignando repartidor {} y vehículo {} al pedido {} | Usuario: {} | CorrelacionID: {}",
             repartidorId, vehiculoId, pedidoId, usuario, correlacionId);
 
-        // 1. Buscar pedido
-        Pedido pedido = pedidoRepository.findById(pedidoId)
-                .orElseThrow(() -> new RuntimeException("Pedido no encontrado: " + pedidoId));
+        // 1. UPDATE condicional primero: solo si sigue PENDIENTE
+        int filas = pedidoRepository.asignarRecursosSiPendiente(pedidoId, repartidorId, vehiculoId, LocalDateTime.now());
 
-        String estadoAnterior = pedido.getEstado().name();
-        log.info("[ASSIGN-INFO] Estado actual: {} | PedidoID: {} | CorrelacionID: {}",
-            estadoAnterior, pedidoId, correlacionId);
-
-        // 2. Actualizar pedido
-        pedido.setRepartidorId(repartidorId);
-        pedido.setVehiculoId(vehiculoId);
-        pedido.setEstado(EstadoPedido.ASIGNADO);
-        Pedido updatedPedido = pedidoRepository.save(pedido);
+        // 2. Leer la fila: respuesta y evento, o distinguir inexistente / no PENDIENTE / carrera
+        Pedido pedido = findPedidoOrThrow(pedidoId);
+        if (filas == 0) {
+            if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
+                throw new TransicionNoPermitidaException("Solo se pueden asignar recursos a pedidos en estado PENDIENTE");
+            }
+            throw conflictoConcurrente(pedidoId);
+        }
+        String estadoAnterior = EstadoPedido.PENDIENTE.name();
+        registrarTransicion(pedido, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, usuario);
         log.info("[DATABASE] Pedido actualizado - Estado: {} \u2192 ASIGNADO | RepartidorID: {} | VehiculoID: {} | CorrelacionID: {}",
             estadoAnterior, repartidorId, vehiculoId, correlacionId);
 
         // 3. PUBLICAR EVENTO: X \u2192 ASIGNADO
         PedidoEstadoEvent asignadoEvent = new PedidoEstadoEvent(
-            updatedPedido.getId(),
+            pedido.getId(),
             estadoAnterior,
             "ASIGNADO",
             usuario,
-            updatedPedido.getRepartidorId(),
-            updatedPedido.getVehiculoId()
+            pedido.getRepartidorId(),
+            pedido.getVehiculoId()
         );
 
         log.info("[EVENT-PUBLISH] Publicando evento asignación | MessageID: {} | {}\u2192ASIGNADO | PedidoID: {} | Repartidor: {} | Vehiculo: {} | Usuario: {} | CorrelacionID: {}",
@@ -374,7 +684,7 @@ public class PedidoServiceImpl implements PedidoService {
         log.info("[ASSIGN-SUCCESS] Pedido asignado exitosamente | PedidoID: {} | Repartidor: {} | Vehiculo: {} | Usuario: {} | CorrelacionID: {}",
             pedidoId, repartidorId, vehiculoId, usuario, correlacionId);
 
-        return pedidoMapper.toResponse(updatedPedido);
+        return pedidoMapper.toResponse(pedido);
     }
 
     @Override
@@ -388,8 +698,34 @@ public class PedidoServiceImpl implements PedidoService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getPedidosPendientesAsignacion(List<CampoPedido> campos) {
+        log.info("[QUERY] Consultando pedidos pendientes de asignación (campos={})", campos.size());
+        // Mismo filtro que findPedidosPendientesAsignacion
+        Specification<Pedido> pendientes = (pedido, query, cb) -> cb.and(
+                cb.isNull(pedido.get("repartidorId")),
+                cb.isNull(pedido.get("vehiculoId")),
+                cb.equal(pedido.get("estado"), EstadoPedido.PENDIENTE));
+        return pedidoRepository.proyectar(pendientes, campos);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<PedidoResponse> getPedidosByRepartidor(String repartidorId) {
-        return List.of();
+        return getPedidosByRepartidor(repartidorId, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PedidoResponse> getPedidosByRepartidor(String repartidorId, LocalDateTime desde) {
+        log.info("Consultando pedidos del repartidor: {} (desde={})", repartidorId, desde);
+        List<Pedido> pedidos = desde == null
+                ? pedidoRepository.findByRepartidorId(repartidorId)
+                : pedidoRepository.findByRepartidorIdAndFechaCreacionGreaterThanEqual(repartidorId, desde);
+        log.info("Encontrados {} pedidos para repartidor {}", pedidos.size(), repartidorId);
+        return pedidos.stream()
+                .map(pedidoMapper::toResponse)
+                .toList();
     }
 
     @Override
@@ -414,6 +750,7 @@ public class PedidoServiceImpl implements PedidoService {
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PEDIDOS_CACHE, key = "#pedidoId")
     public PedidoResponse reintentarAsignacionAutomatica(String pedidoId, String usuarioSolicitante) {
         String correlacionId = java.util.UUID.randomUUID().toString();
         log.info("[REINTENTO-ASIGNACION] Iniciando reintento para pedido={} | Usuario={} | CorrelacionID={}", 
@@ -426,28 +763,16 @@ public class PedidoServiceImpl implements PedidoService {
         if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
             log.warn("[REINTENTO-ASIGNACION] Pedido {} no está en estado PENDIENTE. Estado actual: {}", 
                 pedidoId, pedido.getEstado());
-            throw new IllegalStateException(
+            throw new TransicionNoPermitidaException(
                 String.format("El pedido debe estar en estado PENDIENTE para reintentar asignación. Estado actual: %s", 
                     pedido.getEstado()));
         }
 
-        // 3. Construir evento de reintento
-        com.logiflow.pedidoservice.event.ReintentarAsignacionEvent evento = 
-            com.logiflow.pedidoservice.event.ReintentarAsignacionEvent.builder()
-                .messageId(java.util.UUID.randomUUID().toString())
-                .timestamp(java.time.LocalDateTime.now())
-                .pedidoId(pedido.getId())
-                .clienteId(pedido.getClienteId())
-                .usuarioSolicitante(usuarioSolicitante)
-                .modalidadServicio(pedido.getModalidadServicio().name())
-                .tipoEntrega(pedido.getTipoEntrega().name())
-                .prioridad(pedido.getPrioridad().name())
-                .peso(pedido.getPeso())
-                .ciudadOrigen(pedido.getDireccionOrigen().getCiudad())
-                .ciudadDestino(pedido.getDireccionDestino().getCiudad())
-                .numeroReintento(1) // Aquí podrías implementar un contador de reintentos
-                .motivoReintento("SOLICITUD_MANUAL")
-                .build();
+        // 3. Contar el intento y construir evento de reintento
+        int intentos = pedido.getIntentosAsignacion() != null ? pedido.getIntentosAsignacion() : 0;
+        pedido.setIntentosAsignacion(intentos + 1);
+        com.logiflow.pedidoservice.event.ReintentarAsignacionEvent evento =
+            ReintentoAsignacionScheduler.construirEvento(pedido, usuarioSolicitante, "SOLICITUD_MANUAL");
 
         // 4. Publicar evento a RabbitMQ
         log.info("[REINTENTO-ASIGNACION] Publicando evento pedido.reintento.asignacion para pedido={}", pedidoId);
@@ -456,36 +781,97 @@ public class PedidoServiceImpl implements PedidoService {
         log.info("[REINTENTO-ASIGNACION] Evento publicado exitosamente. PedidoID={} | MessageID={} | CorrelacionID={}", 
             pedidoId, evento.getMessageId(), correlacionId);
 
-        // 5. Retornar estado actual del pedido
+        // 5. Retornar estado actual del pedido (flush: la respuesta lleva la version nueva)
+        pedidoRepository.flush();
         return pedidoMapper.toResponse(pedido);
     }
 
     // ======= MÉTODOS AUXILIARES =======
 
     private Pedido findPedidoOrThrow(String id) {
-        return pedidoRepository.findById(id)
+        return pedidoRepository.buscarPorId(id)
                 .orElseThrow(() ->
                         new EntityNotFoundException("Pedido no encontrado: " + id));
     }
 
+    private void validarTransicion(EstadoPedido actual, EstadoPedido nuevo) {
+        if (!actual.puedeTransicionarA(nuevo)) {
+            throw new TransicionNoPermitidaException(
+                    String.format("Transición de estado no permitida: %s → %s", actual, nuevo));
+        }
+    }
+
+    /**
+     * Cambia el estado con UPDATEs condicionales sin leer antes la fila: uno por cada estado
+     * desde el que se admite el destino (y la versión del cliente, si la envió), en un solo batch.
+     * @return estado de origen si la fila cambió; vacío si no existe o no cumplía la condición
+     */
+    private Optional<EstadoPedido> transicionarSinLectura(String id, EstadoPedido nuevo, Long version) {
+        List<EstadoPedido> origenes = Arrays.stream(EstadoPedido.values())
+                .filter(estado -> estado.puedeTransicionarA(nuevo))
+                .toList();
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime fechaEntrega = nuevo == EstadoPedido.ENTREGADO ? ahora : null;
+        return pedidoRepository.transicionarDesde(id, origenes, version, nuevo, fechaEntrega, ahora);
+    }
+
+    private void registrarTransicion(Pedido pedido, EstadoPedido anterior, EstadoPedido nuevo, String usuario) {
+        kpiPedidoService.registrarTransicion(pedido, anterior, nuevo);
+        historialEstadoService.registrarTransicion(pedido, anterior, nuevo, usuario);
+    }
+
+    private void validarModificable(Pedido pedido, Long versionEsperada) {
+        if (pedido.getEstado().esFinal()) {
+            throw new TransicionNoPermitidaException("No se puede modificar un pedido " + pedido.getEstado().name().toLowerCase());
+        }
+        if (versionEsperada != null && !versionEsperada.equals(pedido.getVersion())) {
+            throw conflictoConcurrente(pedido.getId());
+        }
+    }
+
+    private static OptimisticLockingFailureException conflictoConcurrente(String id) {
+        log.warn("[CONFLICTO] Pedido {} modificado por otra operación entre la lectura y la escritura", id);
+        return new OptimisticLockingFailureException(
+                "El pedido " + id + " fue modificado por otra operación, vuelva a consultarlo");
+    }
+
+    private static boolean soloCambiaEstado(PedidoPatchRequest patchRequest) {
+        return PedidoPatchRequest.builder()
+                .estado(patchRequest.getEstado())
+                .version(patchRequest.getVersion())
+                .build()
+                .equals(patchRequest);
+    }
+
+    /**
+     * Resuelve la cobertura por coordenadas sobre los polígonos de zonas; si la ruta cae fuera
+     * de las zonas configuradas se valida la cobertura por nombres calculada por el mapper
+     */
+    private void aplicarCobertura(Pedido pedido, TipoEntrega tipoEntrega) {
+        var resolucion = coberturaValidationService.resolverCobertura(
+            pedido.getDireccionOrigen(), pedido.getDireccionDestino());
+        if (resolucion.isEmpty()) {
+            validateCobertura(pedido.getCobertura());
+            validateTipoEntrega(tipoEntrega, pedido.getCobertura());
+            return;
+        }
+        pedido.setCobertura(resolucion.get().cobertura());
+        if (!resolucion.get().admite(tipoEntrega)) {
+            throw new ParametroInvalidoException(
+                    "Tipo de entrega no disponible para cobertura: " + pedido.getCobertura());
+        }
+    }
+
     private void validateCobertura(String cobertura) {
         if (!coberturaValidationService.isValidCobertura(cobertura)) {
-            throw new IllegalArgumentException("Cobertura no válida: " + cobertura);
+            throw new ParametroInvalidoException("Cobertura no válida: " + cobertura);
         }
     }
 
     private void validateTipoEntrega(TipoEntrega tipoEntrega, String cobertura) {
         if (!coberturaValidationService.isTipoEntregaDisponible(tipoEntrega, cobertura)) {
-            throw new IllegalArgumentException(
+            throw new ParametroInvalidoException(
                     "Tipo de entrega no disponible para cobertura: " + cobertura);
         }
     }
-
-    private Double calcularDistanciaEstimada(String origen, String destino, ModalidadServicio modalidad) {
-        return switch (modalidad) {
-            case URBANA_RAPIDA -> 10.0;
-            case INTERMUNICIPAL -> 50.0;
-            case NACIONAL -> 200.0;
-        };
-    }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.logiflow.pedidoservice.service.impl;
+
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.event.ReintentarAsignacionEvent;
+import com.logiflow.pedidoservice.event.ReintentoAsignacionLoteEvent;
+import com.logiflow.pedidoservice.model.Pedido;
+import com.logiflow.pedidoservice.model.Prioridad;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reintento automático de asignación para pedidos PENDIENTE sin repartidor
+ *
+ * Cada ciclo recorre los pendientes por prioridad (URGENTE → BAJA) y, dentro de cada
+ * prioridad, del más antiguo al más reciente con un cursor keyset. Por pedido se lleva
+ * un contador de intentos y la fecha del próximo reintento (backoff exponencial), así
+ * un pedido que FleetService no puede asignar no se reenvía en cada ciclo.
+ *
+ * Todo el ciclo es una transacción: las actualizaciones de los pedidos y un único
+ * ReintentoAsignacionLoteEvent en el outbox se confirman juntos. Cada pedido cambia de
+ * version, así que su entrada de la caché de lecturas se invalida al confirmar.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "pedido.reintento.enabled", havingValue = "true", matchIfMissing = true)
+public class ReintentoAsignacionScheduler {
+
+    static final String MOTIVO_AUTOMATICO = "REINTENTO_AUTOMATICO";
+    private static final String USUARIO_SISTEMA = "SISTEMA";
+
+    // Orden de atención: primero lo más urgente
+    private static final Prioridad[] PRIORIDADES = {
+            Prioridad.URGENTE, Prioridad.ALTA, Prioridad.NORMAL, Prioridad.BAJA
+    };
+
+    private final PedidoRepository pedidoRepository;
+    private final PedidoEventPublisher pedidoEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+
+    @Value("${pedido.reintento.maximo-por-ciclo:1000}")
+    private int maximoPorCiclo;
+
+    @Value("${pedido.reintento.tamano-pagina:200}")
+    private int tamanoPagina;
+
+    @Value("${pedido.reintento.maximo-intentos:10}")
+    private int maximoIntentos;
+
+    @Value("${pedido.reintento.espera-inicial-segundos:30}")
+    private long esperaInicialSegundos;
+
+    @Value("${pedido.reintento.backoff-base-segundos:30}")
+    private long backoffBaseSegundos;
+
+    @Value("${pedido.reintento.backoff-maximo-segundos:1800}")
+    private long backoffMaximoSegundos;
+
+    public ReintentoAsignacionScheduler(PedidoRepository pedidoRepository,
+                                        PedidoEventPublisher pedidoEventPublisher,
+                                        TransactionTemplate transactionTemplate,
+                                        CacheManager cacheManager) {
+        this.pedidoRepository = pedidoRepository;
+        this.pedidoEventPublisher = pedidoEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+    }
+
+    @Scheduled(fixedDelayString = "${pedido.reintento.intervalo-ms:5000}")
+    public void reintentarPendientes() {
+        try {
+            int enviados = ejecutarCiclo(LocalDateTime.now());
+            if (enviados > 0) {
+                log.info("[REINTENTO-AUTO] {} pedidos enviados a reasignación en un lote", enviados);
+            }
+        } catch (RuntimeException e) {
+            log.error("[REINTENTO-AUTO] Falló el ciclo de reintentos: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return cantidad de pedidos incluidos en el lote del ciclo
+     */
+    public int ejecutarCiclo(LocalDateTime ahora) {
+        Integer enviados = transactionTemplate.execute(status -> {
+            List<ReintentarAsignacionEvent> lote = new ArrayList<>();
+            LocalDateTime creadoAntesDe = ahora.minusSeconds(esperaInicialSegundos);
+
+            for (Prioridad prioridad : PRIORIDADES) {
+                Pedido ultimo = null;
+                while (lote.size() < maximoPorCiclo) {
+                    Limit limite = Limit.of(Math.min(tamanoPagina, maximoPorCiclo - lote.size()));
+                    List<Pedido> pagina = ultimo == null
+                            ? pedidoRepository.findPendientesReintento(
+                                    prioridad, creadoAntesDe, maximoIntentos, ahora, limite)
+                            : pedidoRepository.findPendientesReintentoDespuesDe(
+                                    prioridad, creadoAntesDe, maximoIntentos, ahora,
+                                    ultimo.getFechaCreacion(), ultimo.getId(), limite);
+                    if (pagina.isEmpty()) {
+                        break;
+                    }
+                    for (Pedido pedido : pagina) {
+                        lote.add(programarReintento(pedido, ahora));
+                    }
+                    ultimo = pagina.get(pagina.size() - 1);
+                }
+            }
+
+            if (!lote.isEmpty()) {
+                Cache cache = cacheManager.getCache(CacheConfig.PEDIDOS_CACHE);
+                if (cache != null) {
+                    // Diferido al commit por TransactionAwareCacheManagerProxy
+                    lote.forEach(evento -> cache.evict(evento.getPedidoId()));
+                }
+                pedidoEventPublisher.publishReintentoAsignacionLoteEvent(ReintentoAsignacionLoteEvent.builder()
+                        .messageId(UUID.randomUUID().toString())
+                        .timestamp(ahora)
+                        .motivoReintento(MOTIVO_AUTOMATICO)
+                        .pedidos(lote)
+                        .build());
+            }
+            return lote.size();
+        });
+        return enviados != null ? enviados : 0;
+    }
+
+    /**
+     * Cuenta el intento y agenda el siguiente; el UPDATE sale en el flush del commit (batch JDBC)
+     */
+    private ReintentarAsignacionEvent programarReintento(Pedido pedido, LocalDateTime ahora) {
+        int intento = (pedido.getIntentosAsignacion() != null ? pedido.getIntentosAsignacion() : 0) + 1;
+        pedido.setIntentosAsignacion(intento);
+        pedido.setProximoReintento(ahora.plus(retraso(intento)));
+        return construirEvento(pedido, USUARIO_SISTEMA, MOTIVO_AUTOMATICO);
+    }
+
+    /**
+     * Backoff exponencial: base, 2·base, 4·base, ... hasta el máximo
+     */
+    Duration retraso(int intento) {
+        int exponente = Math.min(intento - 1, 30);
+        long segundos = Math.min(backoffMaximoSegundos, backoffBaseSegundos << exponente);
+        return Duration.ofSeconds(segundos);
+    }
+
+    /**
+     * Evento de reintento de un pedido; numeroReintento es el contador persistido en el pedido
+     */
+    static ReintentarAsignacionEvent construirEvento(Pedido pedido, String usuarioSolicitante, String motivo) {
+        return ReintentarAsignacionEvent.builder()
+                .messageId(UUID.randomUUID().toString())
+                .timestamp(LocalDateTime.now())
+                .pedidoId(pedido.getId())
+                .clienteId(pedido.getClienteId())
+                .usuarioSolicitante(usuarioSolicitante)
+                .modalidadServicio(pedido.getModalidadServicio().name())
+                .tipoEntrega(pedido.getTipoEntrega().name())
+                .prioridad(pedido.getPrioridad().name())
+                .peso(pedido.getPeso())
+                .ciudadOrigen(pedido.getDireccionOrigen().getCiudad())
+                .ciudadDestino(pedido.getDireccionDestino().getCiudad())
+                .latitudOrigen(pedido.getDireccionOrigen().getLatitud())
+                .longitudOrigen(pedido.getDireccionOrigen().getLongitud())
+                .latitudDestino(pedido.getDireccionDestino().getLatitud())
+                .longitudDestino(pedido.getDireccionDestino().getLongitud())
+                .numeroReintento(pedido.getIntentosAsignacion())
+                .motivoReintento(motivo)
+                .build();
+    }
+}
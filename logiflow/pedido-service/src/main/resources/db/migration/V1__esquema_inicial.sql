@@ -0,0 +1,78 @@
+-- Esquema que hasta ahora generaba Hibernate (ddl-auto: update)
+-- IF NOT EXISTS: en bases existentes (baseline-on-migrate, versión 0) las tablas se conservan
+-- y los ALTER de abajo les agregan las columnas que ddl-auto nunca llegó a crear
+
+CREATE TABLE IF NOT EXISTS pedidos (
+    id                      VARCHAR(255)     NOT NULL,
+    cliente_id              VARCHAR(255)     NOT NULL,
+    origen_calle            VARCHAR(255),
+    origen_numero           VARCHAR(255),
+    origen_ciudad           VARCHAR(255),
+    origen_provincia        VARCHAR(255),
+    origen_latitud          DOUBLE PRECISION,
+    origen_longitud         DOUBLE PRECISION,
+    destino_calle           VARCHAR(255),
+    destino_numero          VARCHAR(255),
+    destino_ciudad          VARCHAR(255),
+    destino_provincia       VARCHAR(255),
+    destino_latitud         DOUBLE PRECISION,
+    destino_longitud        DOUBLE PRECISION,
+    modalidad_servicio      VARCHAR(255)     NOT NULL,
+    tipo_entrega            VARCHAR(255)     NOT NULL,
+    estado                  VARCHAR(255)     NOT NULL,
+    peso                    DOUBLE PRECISION NOT NULL,
+    volumen                 DOUBLE PRECISION,
+    cobertura               VARCHAR(255)     NOT NULL,
+    descripcion             VARCHAR(255),
+    repartidor_id           VARCHAR(255),
+    vehiculo_id             VARCHAR(255),
+    factura_id              VARCHAR(255),
+    tarifa_calculada        DOUBLE PRECISION,
+    telefono_contacto       VARCHAR(255)     NOT NULL,
+    nombre_destinatario     VARCHAR(255),
+    fecha_creacion          TIMESTAMP(6)     NOT NULL,
+    fecha_actualizacion     TIMESTAMP(6),
+    fecha_estimada_entrega  TIMESTAMP(6),
+    fecha_entrega_real      TIMESTAMP(6),
+    prioridad               VARCHAR(255),
+    intentos_asignacion     INTEGER,
+    proximo_reintento       TIMESTAMP(6),
+    version                 BIGINT           DEFAULT 0 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Bases creadas por ddl-auto antes de estas columnas: V2 copia la tabla con LIKE, así que
+-- tienen que existir antes de particionar (y ddl-auto: validate las exige)
+ALTER TABLE pedidos ADD COLUMN IF NOT EXISTS intentos_asignacion INTEGER;
+ALTER TABLE pedidos ADD COLUMN IF NOT EXISTS proximo_reintento TIMESTAMP(6);
+ALTER TABLE pedidos ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_pedidos_fecha_id ON pedidos (fecha_creacion DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_pedidos_cliente_fecha_id ON pedidos (cliente_id, fecha_creacion DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_pedidos_estado_prioridad_fecha ON pedidos (estado, prioridad, fecha_creacion, id);
+
+CREATE SEQUENCE IF NOT EXISTS pedido_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS pedido_outbox (
+    id                  BIGINT        NOT NULL,
+    pedido_id           VARCHAR(255)  NOT NULL,
+    message_id          VARCHAR(255)  NOT NULL UNIQUE,
+    exchange            VARCHAR(255)  NOT NULL,
+    routing_key         VARCHAR(255)  NOT NULL,
+    tipo_evento         VARCHAR(255)  NOT NULL,
+    payload             VARCHAR(8000) NOT NULL,
+    fecha_creacion      TIMESTAMP(6)  NOT NULL,
+    fecha_publicacion   TIMESTAMP(6),
+    intentos            INTEGER       NOT NULL,
+    ultimo_error        VARCHAR(500),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS kpi_pedidos (
+    cobertura                   VARCHAR(255) NOT NULL,
+    estado                      VARCHAR(255) NOT NULL,
+    cantidad                    BIGINT       NOT NULL,
+    entregas_medidas            BIGINT       NOT NULL,
+    duracion_entrega_segundos   BIGINT       NOT NULL,
+    PRIMARY KEY (cobertura, estado)
+);
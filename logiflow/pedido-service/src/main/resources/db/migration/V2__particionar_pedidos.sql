@@ -0,0 +1,92 @@
+-- Particionado mensual de pedidos por fecha_creacion y tabla fría para pedidos archivados
+--
+-- - pedidos pasa a ser una tabla particionada por RANGE (fecha_creacion), una partición por
+--   mes (pedidos_pAAAAMM) más una DEFAULT de respaldo. La PK incluye la clave de partición.
+-- - pedidos_archivo recibe los pedidos en estado final ya antiguos (ArchivadoPedidosScheduler),
+--   así las particiones calientes solo guardan el trabajo vivo y las recientes.
+-- - Las particiones futuras y la eliminación de las vacías las hace el mismo scheduler
+--   llamando a las funciones de abajo.
+
+-- Crea la partición del mes de "mes" si no existe. Si la DEFAULT ya tiene filas de ese mes,
+-- se mueven a la nueva tabla antes de adjuntarla (ATTACH falla si quedan filas en rango)
+CREATE OR REPLACE FUNCTION crear_particion_pedidos(mes DATE) RETURNS TEXT AS $$
+DECLARE
+    desde  DATE := date_trunc('month', mes)::date;
+    hasta  DATE := (date_trunc('month', mes) + INTERVAL '1 month')::date;
+    nombre TEXT := 'pedidos_p' || to_char(desde, 'YYYYMM');
+BEGIN
+    IF to_regclass(nombre) IS NOT NULL THEN
+        RETURN nombre;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE pedidos INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', nombre);
+    EXECUTE format('WITH movidos AS (DELETE FROM pedidos_default WHERE fecha_creacion >= %L AND fecha_creacion < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM movidos', desde, hasta, nombre);
+    EXECUTE format('ALTER TABLE pedidos ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', nombre, desde, hasta);
+    RETURN nombre;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Elimina las particiones mensuales que terminan antes de "antes_de" y ya no tienen filas
+-- (todo su contenido fue archivado). Devuelve cuántas eliminó
+CREATE OR REPLACE FUNCTION eliminar_particiones_pedidos_vacias(antes_de DATE) RETURNS INTEGER AS $$
+DECLARE
+    particion  RECORD;
+    vacia      BOOLEAN;
+    eliminadas INTEGER := 0;
+BEGIN
+    FOR particion IN
+        SELECT c.relname AS nombre
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'pedidos'::regclass
+          AND c.relname ~ '^pedidos_p[0-9]{6}$'
+          AND to_date(substring(c.relname FROM 10), 'YYYYMM') + INTERVAL '1 month' <= antes_de
+    LOOP
+        EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I)', particion.nombre) INTO vacia;
+        IF vacia THEN
+            EXECUTE format('DROP TABLE %I', particion.nombre);
+            eliminadas := eliminadas + 1;
+        END IF;
+    END LOOP;
+    RETURN eliminadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- La tabla actual se renombra; sus índices y su PK se descartan para liberar los nombres
+ALTER TABLE pedidos RENAME TO pedidos_sin_particionar;
+ALTER TABLE pedidos_sin_particionar DROP CONSTRAINT IF EXISTS pedidos_pkey;
+DROP INDEX IF EXISTS idx_pedidos_fecha_id;
+DROP INDEX IF EXISTS idx_pedidos_cliente_fecha_id;
+DROP INDEX IF EXISTS idx_pedidos_estado_prioridad_fecha;
+
+-- Mismas columnas y en el mismo orden (INSERT ... SELECT * más abajo)
+CREATE TABLE pedidos (LIKE pedidos_sin_particionar INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+    PARTITION BY RANGE (fecha_creacion);
+ALTER TABLE pedidos ADD PRIMARY KEY (id, fecha_creacion);
+CREATE TABLE pedidos_default PARTITION OF pedidos DEFAULT;
+
+-- Particiones desde el mes del pedido más antiguo hasta tres meses adelante
+DO $$
+DECLARE
+    mes DATE := date_trunc('month', COALESCE((SELECT MIN(fecha_creacion) FROM pedidos_sin_particionar),
+                                             CURRENT_DATE))::date;
+BEGIN
+    WHILE mes <= (date_trunc('month', CURRENT_DATE) + INTERVAL '3 months')::date LOOP
+        PERFORM crear_particion_pedidos(mes);
+        mes := (mes + INTERVAL '1 month')::date;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO pedidos SELECT * FROM pedidos_sin_particionar;
+DROP TABLE pedidos_sin_particionar;
+
+-- Índices particionados: cada partición (actual o futura) recibe el suyo
+CREATE INDEX idx_pedidos_fecha_id ON pedidos (fecha_creacion DESC, id DESC);
+CREATE INDEX idx_pedidos_cliente_fecha_id ON pedidos (cliente_id, fecha_creacion DESC, id DESC);
+CREATE INDEX idx_pedidos_estado_prioridad_fecha ON pedidos (estado, prioridad, fecha_creacion, id);
+
+-- Tabla fría: mismas columnas que pedidos, sin particionar (solo consultas por id o cliente)
+CREATE TABLE pedidos_archivo (LIKE pedidos INCLUDING DEFAULTS INCLUDING CONSTRAINTS);
+ALTER TABLE pedidos_archivo ADD PRIMARY KEY (id);
+CREATE INDEX idx_pedidos_archivo_cliente_fecha ON pedidos_archivo (cliente_id, fecha_creacion DESC);
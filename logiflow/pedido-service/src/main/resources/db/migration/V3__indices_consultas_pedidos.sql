@@ -0,0 +1,38 @@
+-- Índices para las consultas de PedidoRepository
+--
+-- Se crean sobre la tabla particionada: cada partición mensual (actual o futura) recibe el suyo.
+-- Los parciales cubren solo las filas que la consulta puede devolver, así se mantienen chicos
+-- aunque la mayoría de los pedidos esté ENTREGADO. PedidoRepositoryPlanesTest verifica con
+-- EXPLAIN que ninguna consulta vuelva a un recorrido secuencial.
+--
+-- Ya existentes (V2): (fecha_creacion, id), (cliente_id, fecha_creacion, id) y
+-- (estado, prioridad, fecha_creacion, id), que sirven a findByEstado y countByEstado.
+
+-- findPedidosPendientesAsignacion y el scheduler de reintentos: PENDIENTE sin repartidor,
+-- por prioridad y antigüedad
+CREATE INDEX IF NOT EXISTS idx_pedidos_sin_repartidor
+    ON pedidos (estado, prioridad, fecha_creacion, id) WHERE repartidor_id IS NULL;
+
+-- findByRepartidorId y findByRepartidorIdAndEstado
+CREATE INDEX IF NOT EXISTS idx_pedidos_repartidor_estado
+    ON pedidos (repartidor_id, estado) WHERE repartidor_id IS NOT NULL;
+
+-- findByVehiculoId
+CREATE INDEX IF NOT EXISTS idx_pedidos_vehiculo
+    ON pedidos (vehiculo_id) WHERE vehiculo_id IS NOT NULL;
+
+-- findByFacturaId
+CREATE INDEX IF NOT EXISTS idx_pedidos_factura
+    ON pedidos (factura_id) WHERE factura_id IS NOT NULL;
+
+-- findPedidosSinFactura
+CREATE INDEX IF NOT EXISTS idx_pedidos_sin_factura
+    ON pedidos (fecha_creacion) WHERE factura_id IS NULL;
+
+-- findByPrioridad y findPedidosAltaPrioridadPendientes (prioridad IN (...) AND estado IN (...))
+CREATE INDEX IF NOT EXISTS idx_pedidos_prioridad_estado
+    ON pedidos (prioridad, estado);
+
+-- findByCobertura
+CREATE INDEX IF NOT EXISTS idx_pedidos_cobertura_estado
+    ON pedidos (cobertura, estado);
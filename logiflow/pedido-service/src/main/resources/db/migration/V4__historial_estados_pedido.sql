@@ -0,0 +1,32 @@
+-- Historial de estados y percentiles de tiempos por cobertura
+--
+-- pedido_estado_historial es append-only: una fila por alta (estado_anterior NULL) y por
+-- transición, escrita en la misma transacción que el UPDATE del pedido. Sin FK hacia pedidos:
+-- la tabla está particionada y el historial debe sobrevivir al archivado.
+
+CREATE TABLE IF NOT EXISTS pedido_estado_historial (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    pedido_id           VARCHAR(255)  NOT NULL,
+    estado_anterior     VARCHAR(255),
+    estado_nuevo        VARCHAR(255)  NOT NULL,
+    cobertura           VARCHAR(255),
+    usuario             VARCHAR(255),
+    fecha               TIMESTAMP(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Línea de tiempo de un pedido (GET /api/pedidos/{id}/historial)
+CREATE INDEX IF NOT EXISTS idx_historial_pedido_fecha
+    ON pedido_estado_historial (pedido_id, fecha, id);
+
+-- Un HdrHistogram comprimido por cobertura y métrica (ASIGNACION, ENTREGA), en segundos.
+-- Se fusiona con los de cada transacción al confirmar; las consultas de percentiles
+-- leen solo estas filas.
+CREATE TABLE IF NOT EXISTS kpi_tiempos_pedidos (
+    cobertura           VARCHAR(255)  NOT NULL,
+    metrica             VARCHAR(255)  NOT NULL,
+    muestras            BIGINT        NOT NULL,
+    sketch              BYTEA         NOT NULL,
+    fecha_actualizacion TIMESTAMP(6)  NOT NULL,
+    PRIMARY KEY (cobertura, metrica)
+);
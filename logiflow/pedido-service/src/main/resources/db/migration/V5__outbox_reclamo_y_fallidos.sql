@@ -0,0 +1,10 @@
+-- Outbox: estado explícito (FALLIDO aparta eventos que el broker rechaza una y otra vez)
+-- y reclamo por lote (reclamado_hasta) para publicar sin mantener filas bloqueadas
+
+ALTER TABLE pedido_outbox ADD COLUMN IF NOT EXISTS estado VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE';
+ALTER TABLE pedido_outbox ADD COLUMN IF NOT EXISTS reclamado_hasta TIMESTAMP(6);
+
+UPDATE pedido_outbox SET estado = 'PUBLICADO' WHERE fecha_publicacion IS NOT NULL AND estado = 'PENDIENTE';
+
+-- El relay solo recorre la cabeza de la cola de pendientes, en orden de id
+CREATE INDEX IF NOT EXISTS idx_pedido_outbox_pendientes ON pedido_outbox (id) WHERE estado = 'PENDIENTE';
@@ -0,0 +1,6 @@
+-- Outbox: la secuencia entrega un id por evento (allocationSize = 1 en OutboxEvento)
+--
+-- Con bloques de 50 cada instancia reservaba su propio rango y una instancia podía escribir
+-- después un evento con id menor que otro ya escrito por otra: el relay, que publica en
+-- orden de id, invertía el orden de los eventos de un mismo pedido.
+ALTER SEQUENCE pedido_outbox_seq INCREMENT BY 1;
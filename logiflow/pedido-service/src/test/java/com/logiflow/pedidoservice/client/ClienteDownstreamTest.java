@@ -0,0 +1,137 @@
+package com.logiflow.pedidoservice.client;
+
+import com.logiflow.pedidoservice.dto.AsignacionRequest;
+import com.logiflow.pedidoservice.dto.AsignacionResponse;
+import com.logiflow.pedidoservice.dto.FacturaResponse;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withBadRequest;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@DisplayName("Tests del circuit breaker y bulkhead hacia servicios downstream")
+class ClienteDownstreamTest {
+
+    private static final String URL = "http://fleet.test";
+
+    private MockRestServiceServer servidor;
+    private ClienteDownstream cliente;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(URL));
+        servidor = MockRestServiceServer.bindTo(restTemplate).build();
+
+        CircuitBreaker circuitBreaker = CircuitBreaker.of("fleet", CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build());
+        Bulkhead bulkhead = Bulkhead.of("fleet", BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        cliente = new ClienteDownstream("fleet", restTemplate, circuitBreaker, bulkhead);
+    }
+
+    private void llamar() {
+        cliente.ejecutar(restTemplate -> restTemplate.postForObject("/api/asignaciones", "{}", String.class));
+    }
+
+    @Test
+    @DisplayName("Los 5xx abren el circuito y la siguiente llamada falla sin salir a la red")
+    void erroresDelServidor_abrenCircuito() {
+        servidor.expect(ExpectedCount.times(4), requestTo(URL + "/api/asignaciones"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withServerError());
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class, this::llamar);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, cliente.getCircuitBreaker().getState());
+        assertThrows(ServicioNoDisponibleException.class, this::llamar);
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("Los 4xx son respuestas válidas y no abren el circuito")
+    void erroresDelCliente_noAbrenCircuito() {
+        servidor.expect(ExpectedCount.times(5), requestTo(URL + "/api/asignaciones"))
+                .andRespond(withBadRequest());
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(HttpClientErrorException.class, this::llamar);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, cliente.getCircuitBreaker().getState());
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("Con el bulkhead lleno la llamada se rechaza de inmediato, sin encolarse")
+    void bulkheadLleno_rechazaSinEsperar() {
+        assertTrue(cliente.getBulkhead().tryAcquirePermission());
+        try {
+            assertThrows(ServicioNoDisponibleException.class, this::llamar);
+        } finally {
+            cliente.getBulkhead().onComplete();
+        }
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("FleetClient devuelve RECHAZADO con el circuito abierto")
+    void fleetClient_circuitoAbierto_devuelveRechazado() {
+        cliente.getCircuitBreaker().transitionToOpenState();
+        FleetClient fleetClient = new FleetClient(cliente);
+
+        AsignacionResponse response = fleetClient.asignarRepartidor(
+                AsignacionRequest.builder().pedidoId("p-1").build(), "token");
+
+        assertEquals("RECHAZADO", response.getEstado());
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("BillingClient consulta las facturas de varios pedidos en un solo request")
+    void billingClient_facturasEnLote_unSoloRequest() {
+        servidor.expect(ExpectedCount.once(), requestTo(URL + "/api/facturas?pedidoIds=p-1%2Cp-2%2Cp-3"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[{\"id\":\"f-1\",\"pedidoId\":\"p-1\"},{\"id\":\"f-3\",\"pedidoId\":\"p-3\"}]",
+                        MediaType.APPLICATION_JSON));
+        BillingClient billingClient = new BillingClient(cliente);
+
+        Map<String, FacturaResponse> facturas =
+                billingClient.obtenerFacturasPorPedidoIds(new LinkedHashSet<>(List.of("p-1", "p-2", "p-3")));
+
+        assertEquals(Set.of("p-1", "p-3"), facturas.keySet());
+        servidor.verify();
+    }
+}
@@ -0,0 +1,131 @@
+package com.logiflow.pedidoservice.cobertura;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logiflow.pedidoservice.model.Direccion;
+import com.logiflow.pedidoservice.model.TipoEntrega;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para el motor de cobertura por zonas")
+class MotorCoberturaTest {
+
+    private MotorCobertura motor;
+
+    @BeforeEach
+    void setUp() {
+        motor = nuevoMotor("classpath:cobertura/zonas.json");
+    }
+
+    private MotorCobertura nuevoMotor(String ubicacion) {
+        MotorCobertura m = new MotorCobertura(new DefaultResourceLoader(), new ObjectMapper());
+        ReflectionTestUtils.setField(m, "ubicacionZonas", ubicacion);
+        m.cargarInicial();
+        return m;
+    }
+
+    private Direccion punto(double lat, double lon) {
+        return Direccion.builder().latitud(lat).longitud(lon).build();
+    }
+
+    @Test
+    @DisplayName("Origen y destino en la misma ciudad resuelven cobertura urbana")
+    void mismaCiudad_Urbana() {
+        Optional<ResolucionCobertura> r = motor.resolver(punto(-0.18, -78.47), punto(-0.30, -78.50));
+
+        assertTrue(r.isPresent());
+        assertEquals("URBANA-QUITO", r.get().cobertura());
+        assertTrue(r.get().admite(TipoEntrega.EXPRESS));
+    }
+
+    @Test
+    @DisplayName("Ciudades de la misma provincia resuelven cobertura intermunicipal")
+    void mismaProvincia_Intermunicipal() {
+        Optional<ResolucionCobertura> r = motor.resolver(punto(-2.17, -79.92), punto(-2.17, -79.80));
+
+        assertEquals("INTERMUNICIPAL-GUAYAS", r.orElseThrow().cobertura());
+    }
+
+    @Test
+    @DisplayName("Provincias distintas resuelven cobertura nacional")
+    void provinciasDistintas_Nacional() {
+        Optional<ResolucionCobertura> r = motor.resolver(punto(-0.18, -78.47), punto(-2.90, -79.00));
+
+        assertEquals("NACIONAL", r.orElseThrow().cobertura());
+    }
+
+    @Test
+    @DisplayName("Un punto fuera de toda zona o sin coordenadas no se resuelve")
+    void fueraDeZonas_Vacio() {
+        assertTrue(motor.resolver(punto(-0.18, -78.47), punto(-1.67, -78.65)).isEmpty());
+        assertTrue(motor.resolver(punto(-0.18, -78.47), Direccion.builder().build()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("El test punto-en-polígono descarta puntos dentro del rectángulo pero fuera del polígono")
+    void puntoEnEsquinaDelRectangulo_FueraDelPoligono() {
+        // Quito tiene la esquina noreste recortada: (0.02, -78.37) cae en el rectángulo, no en el polígono
+        assertTrue(motor.resolver(punto(0.02, -78.37), punto(-0.18, -78.47)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Las restricciones de la zona se intersectan con las del tipo de cobertura")
+    void restriccionDeZona() {
+        ConfiguracionZonas config = new ConfiguracionZonas(0.1,
+                Map.of("URBANA", List.of(TipoEntrega.EXPRESS, TipoEntrega.NORMAL),
+                       "NACIONAL", List.of(TipoEntrega.NORMAL, TipoEntrega.PROGRAMADA)),
+                List.of(
+                        new ConfiguracionZonas.Zona("A", "ALFA", "UNO", List.of(TipoEntrega.NORMAL),
+                                List.of(new double[]{0, 0}, new double[]{0, 1}, new double[]{1, 1}, new double[]{1, 0})),
+                        new ConfiguracionZonas.Zona("B", "BETA", "DOS", null,
+                                List.of(new double[]{2, 2}, new double[]{2, 3}, new double[]{3, 3}, new double[]{3, 2}))));
+        IndiceZonas indice = IndiceZonas.construir(config);
+
+        int a = indice.localizar(0.5, 0.5);
+        int b = indice.localizar(2.5, 2.5);
+        assertEquals(-1, indice.localizar(1.5, 1.5));
+
+        assertFalse(indice.resolucion(a, a).admite(TipoEntrega.EXPRESS));
+        assertTrue(indice.resolucion(a, a).admite(TipoEntrega.NORMAL));
+        assertEquals("NACIONAL", indice.resolucion(a, b).cobertura());
+        assertFalse(indice.resolucion(b, b).admite(TipoEntrega.PROGRAMADA));
+        assertTrue(indice.resolucion(b, a).admite(TipoEntrega.NORMAL));
+    }
+
+    @Test
+    @DisplayName("Recarga en caliente: aplica el archivo nuevo y conserva el anterior si es inválido")
+    void recargaEnCaliente(@TempDir Path dir) throws Exception {
+        Path archivo = dir.resolve("zonas.json");
+        Files.writeString(archivo, """
+                {"zonas": [{"id": "A", "ciudad": "ALFA", "provincia": "UNO",
+                            "poligono": [[0, 0], [0, 1], [1, 1], [1, 0]]}]}
+                """);
+        MotorCobertura local = nuevoMotor(archivo.toUri().toString());
+        assertEquals("URBANA-ALFA", local.resolver(punto(0.5, 0.5), punto(0.2, 0.2)).orElseThrow().cobertura());
+
+        Files.writeString(archivo, """
+                {"zonas": [{"id": "B", "ciudad": "BETA", "provincia": "DOS",
+                            "poligono": [[0, 0], [0, 1], [1, 1], [1, 0]]}]}
+                """);
+        Files.setLastModifiedTime(archivo, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        local.recargarSiCambio();
+        assertEquals("URBANA-BETA", local.resolver(punto(0.5, 0.5), punto(0.2, 0.2)).orElseThrow().cobertura());
+
+        Files.writeString(archivo, "{\"zonas\": [");
+        Files.setLastModifiedTime(archivo, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        local.recargarSiCambio();
+        assertEquals("URBANA-BETA", local.resolver(punto(0.5, 0.5), punto(0.2, 0.2)).orElseThrow().cobertura());
+    }
+}
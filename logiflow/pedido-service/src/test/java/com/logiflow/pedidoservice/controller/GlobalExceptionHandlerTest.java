@@ -0,0 +1,62 @@
+package com.logiflow.pedidoservice.controller;
+
+import com.logiflow.pedidoservice.exception.TransicionNoPermitidaException;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Mapeo de excepciones sin contexto de Spring: MockMvc standalone con un controlador que solo lanza
+ */
+@DisplayName("GlobalExceptionHandler")
+class GlobalExceptionHandlerTest {
+
+    @RestController
+    static class ControladorQueFalla {
+
+        @GetMapping("/transicion")
+        String transicion() {
+            throw new TransicionNoPermitidaException("Transición de estado no permitida: ENTREGADO → PENDIENTE");
+        }
+
+        @GetMapping("/interno")
+        String interno() {
+            throw new IllegalStateException("No se pudo serializar el evento msg-1");
+        }
+    }
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ControladorQueFalla())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Una transición no permitida responde 409 con el mensaje")
+    void transicionNoPermitida_Conflicto() throws Exception {
+        mockMvc.perform(get("/transicion"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("Transición de estado no permitida: ENTREGADO → PENDIENTE"));
+    }
+
+    @Test
+    @DisplayName("Otro IllegalStateException no se mapea a 409 ni expone su mensaje")
+    void otroIllegalState_NoSeMapea() {
+        ServletException ex = assertThrows(ServletException.class, () -> mockMvc.perform(get("/interno")));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+}
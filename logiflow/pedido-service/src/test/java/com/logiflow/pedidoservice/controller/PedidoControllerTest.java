@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.logiflow.pedidoservice.dto.PedidoRequest;
 import com.logiflow.pedidoservice.dto.PedidoResponse;
 import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.service.HistorialEstadoService;
+import com.logiflow.pedidoservice.service.KpiPedidoService;
 import com.logiflow.pedidoservice.service.PedidoService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -37,6 +39,12 @@ class PedidoControllerTest {
     @MockBean
     private PedidoService pedidoService;
 
+    @MockBean
+    private KpiPedidoService kpiPedidoService;
+
+    @MockBean
+    private HistorialEstadoService historialEstadoService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
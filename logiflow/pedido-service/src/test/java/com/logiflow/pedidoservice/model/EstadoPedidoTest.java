@@ -0,0 +1,45 @@
+package com.logiflow.pedidoservice.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la tabla de transiciones de EstadoPedido")
+class EstadoPedidoTest {
+
+    @Test
+    @DisplayName("Debería permitir el flujo normal de entrega")
+    void deberiaPermitirFlujoNormal() {
+        assertTrue(EstadoPedido.PENDIENTE.puedeTransicionarA(EstadoPedido.ASIGNADO));
+        assertTrue(EstadoPedido.ASIGNADO.puedeTransicionarA(EstadoPedido.EN_TRANSITO));
+        assertTrue(EstadoPedido.EN_TRANSITO.puedeTransicionarA(EstadoPedido.ENTREGADO));
+    }
+
+    @Test
+    @DisplayName("Debería rechazar saltos y retrocesos no declarados")
+    void deberiaRechazarTransicionesNoDeclaradas() {
+        assertFalse(EstadoPedido.PENDIENTE.puedeTransicionarA(EstadoPedido.ENTREGADO));
+        assertFalse(EstadoPedido.EN_TRANSITO.puedeTransicionarA(EstadoPedido.CANCELADO));
+        assertFalse(EstadoPedido.PENDIENTE.puedeTransicionarA(EstadoPedido.PENDIENTE));
+    }
+
+    @Test
+    @DisplayName("Los estados finales no admiten transiciones")
+    void estadosFinalesSinTransiciones() {
+        for (EstadoPedido estado : EnumSet.of(EstadoPedido.ENTREGADO, EstadoPedido.CANCELADO, EstadoPedido.DEVUELTO)) {
+            assertTrue(estado.esFinal());
+            assertTrue(estado.siguientes().isEmpty());
+        }
+        assertFalse(EstadoPedido.FALLIDO.esFinal());
+    }
+
+    @Test
+    @DisplayName("La tabla no se puede modificar desde fuera")
+    void tablaInmutable() {
+        assertThrows(UnsupportedOperationException.class,
+                () -> EstadoPedido.PENDIENTE.siguientes().add(EstadoPedido.ENTREGADO));
+    }
+}
@@ -0,0 +1,63 @@
+package com.logiflow.pedidoservice.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para los ids de pedido con fecha de creación (UUID v7)")
+class PedidoIdGeneratorTest {
+
+    @Test
+    @DisplayName("El id es un UUID v7 del que se recupera la fecha de creación")
+    void deberiaCodificarFechaCreacion() {
+        LocalDateTime creacion = LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000);
+
+        String id = PedidoIdGenerator.nuevoId(creacion);
+
+        UUID uuid = UUID.fromString(id);
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(creacion.truncatedTo(ChronoUnit.MILLIS), PedidoIdGenerator.fechaCreacion(id).orElseThrow());
+        assertNotEquals(id, PedidoIdGenerator.nuevoId(creacion));
+    }
+
+    @Test
+    @DisplayName("Los ids anteriores (UUID v4 u otros) no tienen fecha y se buscan sin acotar")
+    void idsSinFechaSinLimite() {
+        assertTrue(PedidoIdGenerator.fechaCreacion(UUID.randomUUID().toString()).isEmpty());
+        assertTrue(PedidoIdGenerator.fechaCreacion("ped-123").isEmpty());
+        assertEquals(RangoCreacion.SIN_LIMITE, RangoCreacion.de("ped-123"));
+    }
+
+    @Test
+    @DisplayName("El rango de un id contiene su fecha de creación con margen")
+    void rangoContieneFechaCreacion() {
+        LocalDateTime creacion = LocalDateTime.of(2025, 3, 31, 23, 59);
+
+        RangoCreacion rango = RangoCreacion.de(PedidoIdGenerator.nuevoId(creacion));
+
+        assertFalse(creacion.isBefore(rango.desde()));
+        assertTrue(creacion.isBefore(rango.hasta()));
+        assertEquals(creacion.plus(RangoCreacion.MARGEN), rango.hasta());
+    }
+
+    @Test
+    @DisplayName("El rango de un lote cubre a todos sus pedidos; un id sin fecha lo deja sin límite")
+    void rangoDeLote() {
+        LocalDateTime enero = LocalDateTime.of(2025, 1, 10, 8, 0);
+        LocalDateTime marzo = LocalDateTime.of(2025, 3, 5, 8, 0);
+        List<String> ids = List.of(PedidoIdGenerator.nuevoId(marzo), PedidoIdGenerator.nuevoId(enero));
+
+        RangoCreacion rango = RangoCreacion.cubriendo(ids);
+
+        assertEquals(enero.minus(RangoCreacion.MARGEN), rango.desde());
+        assertEquals(marzo.plus(RangoCreacion.MARGEN), rango.hasta());
+        assertEquals(RangoCreacion.SIN_LIMITE, RangoCreacion.cubriendo(List.of(ids.get(0), "ped-legado")));
+    }
+}
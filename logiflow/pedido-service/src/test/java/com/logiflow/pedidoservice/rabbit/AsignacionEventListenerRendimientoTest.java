@@ -0,0 +1,239 @@
+package com.logiflow.pedidoservice.rabbit;
+
+import com.logiflow.pedidoservice.event.AsignacionCompletadaEvent;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.repository.OutboxEventoRepository;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara el consumo de asignacion.completada en lote contra el listener de a un mensaje
+ * sobre el datasource de tests (H2), sin broker: se invocan los métodos del listener directamente
+ *
+ * Cada modo procesa los mismos pedidos PENDIENTE tras un calentamiento. Lo que se verifica es
+ * determinista: sentencias JDBC (round trips) y commits por modo, contados envolviendo el
+ * DataSource. Throughput (mensajes/s) y latencia por entrega (p50/p99) solo se registran en
+ * el log: dependen de la máquina y compararlos haría el test inestable en CI compartido.
+ * El log SQL se baja a WARN para que los tiempos reflejen el trabajo de base de datos.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "logging.level.com.logiflow.pedidoservice=INFO",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+})
+@ActiveProfiles("test")
+@DisplayName("Rendimiento del consumo de asignaciones: lote vs mensaje a mensaje")
+class AsignacionEventListenerRendimientoTest {
+
+    private static final int CALENTAMIENTO = 200;
+    private static final int MENSAJES = 1000;
+    private static final String CLIENTE = "cli-rendimiento";
+
+    @Autowired
+    private AsignacionEventListener listener;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private OutboxEventoRepository outboxEventoRepository;
+
+    @Value("${pedido.asignacion.lote.tamano:100}")
+    private int tamanoLote;
+
+    @AfterEach
+    void limpiar() {
+        outboxEventoRepository.deleteAll();
+        pedidoRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("El lote asigna los mismos pedidos con menos sentencias y commits que el listener de a uno")
+    void loteVsMensajeAMensaje() {
+        medir(pendientes(CALENTAMIENTO), 1, eventos -> listener.handleAsignacionCompletada(eventos.get(0)));
+        medir(pendientes(CALENTAMIENTO), tamanoLote, listener::handleAsignacionesCompletadas);
+
+        Medicion individual = medir(pendientes(MENSAJES), 1,
+                eventos -> listener.handleAsignacionCompletada(eventos.get(0)));
+        Medicion lote = medir(pendientes(MENSAJES), tamanoLote, listener::handleAsignacionesCompletadas);
+
+        log.info("[RENDIMIENTO] Mensaje a mensaje | {}", individual);
+        log.info("[RENDIMIENTO] Lote de {}        | {}", tamanoLote, lote);
+        log.info("[RENDIMIENTO] Aceleración de throughput: {}x",
+                String.format("%.1f", lote.mensajesPorSegundo() / individual.mensajesPorSegundo()));
+
+        List<Pedido> pedidos = pedidoRepository.findByClienteId(CLIENTE);
+        assertEquals(2 * (CALENTAMIENTO + MENSAJES), pedidos.size());
+        assertTrue(pedidos.stream().allMatch(pedido -> pedido.getEstado() == EstadoPedido.ASIGNADO));
+
+        // Mensaje a mensaje: al menos un commit por mensaje. Lote: uno por entrega
+        int entregasLote = (MENSAJES + tamanoLote - 1) / tamanoLote;
+        assertTrue(individual.commits() >= MENSAJES, "individual: " + individual);
+        assertEquals(entregasLote, lote.commits(), "lote: " + lote);
+        assertTrue(lote.sentencias() * 5 < individual.sentencias(),
+                "lote: " + lote + " | individual: " + individual);
+    }
+
+    private Medicion medir(List<AsignacionCompletadaEvent> eventos, int porEntrega,
+                           Consumer<List<AsignacionCompletadaEvent>> entrega) {
+        int entregas = (eventos.size() + porEntrega - 1) / porEntrega;
+        long[] latencias = new long[entregas];
+        ContadorJdbc.reiniciar();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < entregas; i++) {
+            List<AsignacionCompletadaEvent> parte =
+                    eventos.subList(i * porEntrega, Math.min(eventos.size(), (i + 1) * porEntrega));
+            long t0 = System.nanoTime();
+            entrega.accept(parte);
+            latencias[i] = System.nanoTime() - t0;
+        }
+        long total = System.nanoTime() - inicio;
+        long sentencias = ContadorJdbc.SENTENCIAS.get();
+        long commits = ContadorJdbc.COMMITS.get();
+        Arrays.sort(latencias);
+        return new Medicion(eventos.size(), sentencias, commits, total,
+                percentil(latencias, 50), percentil(latencias, 99));
+    }
+
+    private static long percentil(long[] ordenadas, int p) {
+        int indice = (int) Math.ceil(p / 100.0 * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, indice)];
+    }
+
+    private List<AsignacionCompletadaEvent> pendientes(int cantidad) {
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        List<Pedido> pedidos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            pedidos.add(Pedido.builder()
+                    .clienteId(CLIENTE)
+                    .direccionOrigen(direccion)
+                    .direccionDestino(direccion)
+                    .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                    .tipoEntrega(TipoEntrega.NORMAL)
+                    .estado(EstadoPedido.PENDIENTE)
+                    .peso(1.0)
+                    .cobertura("URBANA-QUITO")
+                    .telefonoContacto("0987654321")
+                    .build());
+        }
+        List<AsignacionCompletadaEvent> eventos = new ArrayList<>(cantidad);
+        for (Pedido pedido : pedidoRepository.saveAll(pedidos)) {
+            eventos.add(AsignacionCompletadaEvent.builder()
+                    .messageId(UUID.randomUUID().toString())
+                    .pedidoId(pedido.getId())
+                    .repartidorId(UUID.randomUUID().toString())
+                    .vehiculoId(UUID.randomUUID().toString())
+                    .estadoPedido("ASIGNADO")
+                    .build());
+        }
+        return eventos;
+    }
+
+    private record Medicion(int mensajes, long sentencias, long commits, long totalNanos, long p50Nanos,
+                            long p99Nanos) {
+
+        double mensajesPorSegundo() {
+            return mensajes * 1_000_000_000.0 / totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d mensajes | %d sentencias, %d commits | en %d ms, %.0f msg/s | "
+                            + "latencia por entrega p50 %.2f ms, p99 %.2f ms",
+                    mensajes, sentencias, commits, totalNanos / 1_000_000, mensajesPorSegundo(),
+                    p50Nanos / 1e6, p99Nanos / 1e6);
+        }
+    }
+
+    /**
+     * Envuelve el DataSource y cuenta los round trips: cada execute* / executeBatch de una
+     * sentencia y cada commit de una conexión. Solo cuenta el hilo que mide, así las recargas
+     * programadas (coberturas, KPIs) no alteran el resultado.
+     */
+    @TestConfiguration
+    static class ContadorJdbc {
+
+        static final AtomicLong SENTENCIAS = new AtomicLong();
+        static final AtomicLong COMMITS = new AtomicLong();
+        private static volatile Thread hiloMedido;
+
+        static void reiniciar() {
+            hiloMedido = Thread.currentThread();
+            SENTENCIAS.set(0);
+            COMMITS.set(0);
+        }
+
+        @Bean
+        static BeanPostProcessor contadorJdbcPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    return bean instanceof DataSource dataSource ? envolver(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T envolver(Class<T> tipo, T destino) {
+            return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+                String nombre = metodo.getName();
+                if (Thread.currentThread() == hiloMedido) {
+                    if (Statement.class.isAssignableFrom(tipo) && nombre.startsWith("execute")) {
+                        SENTENCIAS.incrementAndGet();
+                    } else if (tipo == Connection.class && nombre.equals("commit")) {
+                        COMMITS.incrementAndGet();
+                    }
+                }
+                Object resultado;
+                try {
+                    resultado = metodo.invoke(destino, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (resultado instanceof Connection conexion && nombre.equals("getConnection")) {
+                    return envolver(Connection.class, conexion);
+                }
+                if (resultado instanceof PreparedStatement sentencia && nombre.equals("prepareStatement")) {
+                    return envolver(PreparedStatement.class, sentencia);
+                }
+                if (resultado instanceof Statement sentencia && nombre.equals("createStatement")) {
+                    return envolver(Statement.class, sentencia);
+                }
+                return resultado;
+            });
+        }
+    }
+}
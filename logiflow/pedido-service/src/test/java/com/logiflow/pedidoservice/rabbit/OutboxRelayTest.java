@@ -0,0 +1,220 @@
+package com.logiflow.pedidoservice.rabbit;
+
+import com.logiflow.pedidoservice.model.OutboxEvento;
+import com.logiflow.pedidoservice.repository.OutboxEventoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.rabbit.core.AmqpNackReceivedException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitarios para OutboxRelay")
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventoRepository outboxRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations operations;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay relay;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(rabbitTemplate.invoke(any())).thenAnswer(inv ->
+                inv.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxRepository, rabbitTemplate, new TransactionTemplate(transactionManager), meterRegistry);
+        ReflectionTestUtils.setField(relay, "tamanoLote", 2);
+        ReflectionTestUtils.setField(relay, "confirmTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(relay, "maximoIntentos", 3);
+        ReflectionTestUtils.setField(relay, "reclamoSegundos", 60L);
+    }
+
+    private OutboxEvento evento(long id) {
+        return evento(id, "ped-" + id);
+    }
+
+    private OutboxEvento evento(long id, String pedidoId) {
+        return OutboxEvento.builder()
+                .id(id)
+                .pedidoId(pedidoId)
+                .messageId("msg-" + id)
+                .exchange("pedidos.exchange")
+                .routingKey("pedido.creado")
+                .tipoEvento("com.logiflow.pedidoservice.event.PedidoCreadoEvent")
+                .payload("{\"pedidoId\":\"ped-" + id + "\"}")
+                .build();
+    }
+
+    @Test
+    @DisplayName("Publica el lote en orden, espera confirms una vez y lo marca como publicado")
+    void publicarLote_ConfirmadoMarcaPublicados() {
+        when(outboxRepository.findPendientesParaPublicar(any())).thenReturn(List.of(evento(1), evento(2)));
+
+        assertEquals(2, relay.publicarLote());
+
+        ArgumentCaptor<Message> mensajes = ArgumentCaptor.forClass(Message.class);
+        InOrder orden = inOrder(operations, outboxRepository);
+        orden.verify(outboxRepository).reclamar(eq(List.of(1L, 2L)), any());
+        orden.verify(operations, times(2)).send(eq("pedidos.exchange"), eq("pedido.creado"), mensajes.capture());
+        orden.verify(operations).waitForConfirmsOrDie(1000L);
+        orden.verify(outboxRepository).marcarPublicados(eq(List.of(1L, 2L)), any());
+
+        Message primero = mensajes.getAllValues().get(0);
+        assertEquals("msg-1", primero.getMessageProperties().getMessageId());
+        assertEquals("com.logiflow.pedidoservice.event.PedidoCreadoEvent",
+                primero.getMessageProperties().getHeader("__TypeId__"));
+    }
+
+    @Test
+    @DisplayName("Si el broker no confirma, reintenta de a uno y registra el fallo del evento")
+    void publicarLote_SinConfirmReintentaDeAUno() {
+        when(outboxRepository.findPendientesParaPublicar(any())).thenReturn(List.of(evento(1)));
+        doThrow(new AmqpTimeoutException("timeout")).when(operations).waitForConfirmsOrDie(anyLong());
+
+        assertEquals(0, relay.publicarLote());
+
+        verify(rabbitTemplate, times(2)).invoke(any());
+        verify(outboxRepository).registrarFallo(eq(List.of(1L)), eq("timeout"));
+        verify(outboxRepository, never()).marcarPublicados(any(), any());
+        verify(outboxRepository, never()).marcarFallidos(any());
+    }
+
+    @Test
+    @DisplayName("Un evento rechazado no hunde al resto del lote; los siguientes de su pedido esperan")
+    void publicarLote_EventoMaloNoBloqueaOtrosPedidos() {
+        OutboxEvento malo = evento(1, "ped-a");
+        when(outboxRepository.findPendientesParaPublicar(any()))
+                .thenReturn(List.of(malo, evento(2, "ped-a"), evento(3, "ped-b")));
+        AtomicReference<String> enviado = new AtomicReference<>();
+        doAnswer(inv -> {
+            enviado.set(inv.<Message>getArgument(2).getMessageProperties().getMessageId());
+            return null;
+        }).when(operations).send(anyString(), anyString(), any(Message.class));
+        AtomicInteger esperas = new AtomicInteger();
+        doAnswer(inv -> {
+            // Nack para el lote completo (primera espera) y para el evento 1 por separado
+            if (esperas.getAndIncrement() == 0 || "msg-1".equals(enviado.get())) {
+                throw new AmqpNackReceivedException("nack", null);
+            }
+            return null;
+        }).when(operations).waitForConfirmsOrDie(anyLong());
+
+        assertEquals(1, relay.publicarLote());
+
+        verify(outboxRepository).marcarPublicados(eq(List.of(3L)), any());
+        verify(outboxRepository).registrarFallo(eq(List.of(1L)), eq("nack"));
+        verify(outboxRepository).liberarReclamo(List.of(2L));
+    }
+
+    @Test
+    @DisplayName("Al agotar los intentos el evento pasa a FALLIDO y se cuenta la alerta")
+    void publicarLote_AgotaIntentosMarcaFallido() {
+        OutboxEvento malo = evento(1);
+        malo.setIntentos(2);
+        when(outboxRepository.findPendientesParaPublicar(any())).thenReturn(List.of(malo));
+        doThrow(new AmqpNackReceivedException("nack", null)).when(operations).waitForConfirmsOrDie(anyLong());
+
+        relay.publicarLote();
+
+        verify(outboxRepository).registrarFallo(eq(List.of(1L)), eq("nack"));
+        verify(outboxRepository).marcarFallidos(List.of(1L));
+        assertEquals(1.0, meterRegistry.counter("pedido.outbox.fallidos").count());
+    }
+
+    @Test
+    @DisplayName("Broker caído: el lote se libera sin consumir intentos")
+    void publicarLote_BrokerCaidoNoConsumeIntentos() {
+        when(outboxRepository.findPendientesParaPublicar(any())).thenReturn(List.of(evento(1), evento(2)));
+        doThrow(new AmqpConnectException(new java.net.ConnectException("refused"))).when(rabbitTemplate).invoke(any());
+
+        assertEquals(0, relay.publicarLote());
+
+        verify(outboxRepository).registrarError(eq(List.of(1L, 2L)), any());
+        verify(outboxRepository, never()).registrarFallo(any(), any());
+    }
+
+    @Test
+    @DisplayName("Lote reclamado por otra instancia y vigente: no se publica")
+    void publicarLote_LoteReclamadoEnOtraInstancia() {
+        OutboxEvento enVuelo = evento(1);
+        enVuelo.setReclamadoHasta(LocalDateTime.now().plusSeconds(30));
+        when(outboxRepository.findPendientesParaPublicar(any())).thenReturn(List.of(enVuelo));
+
+        assertEquals(0, relay.publicarLote());
+
+        verify(outboxRepository, never()).reclamar(any(), any());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    @DisplayName("Las filas se liberan (commit del reclamo) antes de esperar los confirms")
+    void publicarLote_ReclamoConfirmadoAntesDePublicar() {
+        when(outboxRepository.findPendientesParaPublicar(any())).thenReturn(List.of(evento(1)));
+
+        relay.publicarLote();
+
+        InOrder orden = inOrder(transactionManager, operations);
+        orden.verify(transactionManager).commit(any());
+        orden.verify(operations).waitForConfirmsOrDie(anyLong());
+        orden.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Filas bloqueadas por otra instancia: se omite el ciclo sin publicar")
+    void publicarLote_FilasBloqueadas() {
+        when(outboxRepository.findPendientesParaPublicar(any())).thenThrow(new CannotAcquireLockException("nowait"));
+
+        assertEquals(0, relay.publicarLote());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    @DisplayName("Drena el outbox mientras los lotes vengan llenos")
+    void publicarPendientes_DrenaLotesLlenos() {
+        when(outboxRepository.findPendientesParaPublicar(any()))
+                .thenReturn(List.of(evento(1), evento(2)))
+                .thenReturn(List.of(evento(3)));
+
+        relay.publicarPendientes();
+
+        verify(outboxRepository, times(2)).findPendientesParaPublicar(any());
+        verify(outboxRepository).marcarPublicados(eq(List.of(3L)), any());
+    }
+}
@@ -0,0 +1,107 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.model.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Actualización de una base creada por ddl-auto: update antes de Flyway (db/legado/pedidos_ddl_auto.sql).
+ * Flyway arranca con la configuración de application.yaml (baseline-on-migrate, versión 0),
+ * aplica V1..Vn sobre la tabla existente y Hibernate valida el esquema resultante
+ * (ddl-auto: validate): si falta una columna de la entidad el contexto no levanta.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DisplayName("Migración desde el esquema previo a Flyway en PostgreSQL")
+class MigracionEsquemaLegadoTest {
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) {
+        String url = PostgresEmbebido.nuevaBase("migracion_legado");
+        new ResourceDatabasePopulator(new ClassPathResource("db/legado/pedidos_ddl_auto.sql"))
+                .execute(new DriverManagerDataSource(url, PostgresEmbebido.USUARIO, ""));
+
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> PostgresEmbebido.USUARIO);
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.defer-datasource-initialization", () -> "false");
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.sql.init.mode", () -> "never");
+    }
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Baseline en 0 y todas las migraciones aplicadas sobre la tabla existente")
+    void aplicaTodasLasMigraciones() {
+        List<String> versiones = jdbcTemplate.queryForList(
+                "SELECT version FROM flyway_schema_history WHERE success ORDER BY installed_rank", String.class);
+
+        assertEquals("0", versiones.get(0));
+        assertEquals(List.of("1", "2", "3", "4", "5", "6"), versiones.subList(1, versiones.size()));
+        assertEquals("p", jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE relname = 'pedidos'", String.class));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = 'pedido_outbox_seq'", Long.class));
+    }
+
+    @Test
+    @DisplayName("Los pedidos existentes se conservan, repartidos por mes y con las columnas nuevas")
+    void conservaPedidosExistentes() {
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT tableoid) FROM pedidos WHERE cliente_id = 'cli-legado'", Integer.class));
+
+        Pedido legado = pedidoRepository.findById("legado-1").orElseThrow();
+        assertEquals(EstadoPedido.PENDIENTE, legado.getEstado());
+        assertEquals(0L, legado.getVersion());
+        assertNull(legado.getIntentosAsignacion());
+        assertNull(legado.getProximoReintento());
+    }
+
+    @Test
+    @DisplayName("Las escrituras de la serie funcionan sobre las filas migradas")
+    void escribeSobreFilasMigradas() {
+        LocalDateTime ahora = LocalDateTime.now();
+
+        assertEquals(Optional.of(EstadoPedido.ASIGNADO), pedidoRepository.transicionarDesde("legado-3",
+                List.of(EstadoPedido.ASIGNADO), 0L, EstadoPedido.EN_TRANSITO, null, ahora));
+        assertEquals(1, jdbcTemplate.update(
+                "UPDATE pedidos SET intentos_asignacion = 1, proximo_reintento = ? WHERE id = 'legado-1'", ahora));
+
+        Pedido nuevo = pedidoRepository.saveAndFlush(Pedido.builder()
+                .clienteId("cli-legado")
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.NORMAL)
+                .estado(EstadoPedido.PENDIENTE)
+                .peso(1.0)
+                .cobertura("URBANA-QUITO")
+                .telefonoContacto("0987654321")
+                .build());
+        assertEquals(0L, nuevo.getVersion());
+        assertEquals(4, pedidoRepository.findByClienteId("cli-legado").size());
+    }
+}
@@ -0,0 +1,117 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.dto.PedidoCursor;
+import com.logiflow.pedidoservice.exception.ParametroInvalidoException;
+import com.logiflow.pedidoservice.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Tests para la paginación keyset y el streaming de PedidoRepository")
+class PedidoRepositoryPaginacionTest {
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 7; i++) {
+            pedidoRepository.save(pedido(i % 2 == 0 ? "cli-par" : "cli-impar"));
+        }
+        pedidoRepository.flush();
+    }
+
+    private Pedido pedido(String clienteId) {
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        return Pedido.builder()
+                .clienteId(clienteId)
+                .direccionOrigen(direccion)
+                .direccionDestino(direccion)
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.EXPRESS)
+                .peso(1.0)
+                .cobertura("URBANA")
+                .telefonoContacto("0987654321")
+                .build();
+    }
+
+    private static final Comparator<Pedido> ORDEN_KEYSET = Comparator
+            .comparing(Pedido::getFechaCreacion)
+            .thenComparing(Pedido::getId)
+            .reversed();
+
+    @Test
+    @DisplayName("Recorrer las páginas devuelve cada pedido una sola vez y en orden estable")
+    void paginasCubrenTodosLosPedidosEnOrden() {
+        List<Pedido> recorridos = new ArrayList<>();
+        List<Pedido> pagina = pedidoRepository.findPrimeraPagina(Limit.of(3));
+        while (!pagina.isEmpty()) {
+            recorridos.addAll(pagina);
+            assertTrue(recorridos.size() <= 7, "El cursor no avanzó: páginas repetidas");
+            Pedido ultimo = pagina.get(pagina.size() - 1);
+            pagina = pedidoRepository.findPaginaDespuesDe(ultimo.getFechaCreacion(), ultimo.getId(), Limit.of(3));
+        }
+
+        List<Pedido> esperado = pedidoRepository.findAll().stream().sorted(ORDEN_KEYSET).toList();
+        assertEquals(esperado.stream().map(Pedido::getId).toList(),
+                recorridos.stream().map(Pedido::getId).toList());
+    }
+
+    @Test
+    @DisplayName("La paginación por cliente solo devuelve pedidos de ese cliente")
+    void paginaPorClienteFiltraCliente() {
+        List<Pedido> primera = pedidoRepository.findPrimeraPaginaByCliente("cli-par", Limit.of(2));
+        Pedido ultimo = primera.get(1);
+        List<Pedido> segunda = pedidoRepository.findPaginaByClienteDespuesDe(
+                "cli-par", ultimo.getFechaCreacion(), ultimo.getId(), Limit.of(10));
+
+        assertEquals(2, primera.size());
+        assertEquals(2, segunda.size());
+        assertTrue(Stream.concat(primera.stream(), segunda.stream())
+                .allMatch(p -> "cli-par".equals(p.getClienteId())));
+    }
+
+    @Test
+    @DisplayName("El stream de exportación entrega todos los pedidos en el mismo orden que las páginas")
+    void streamEntregaTodosEnOrden() {
+        List<String> ids;
+        try (Stream<Pedido> pedidos = pedidoRepository.streamTodos()) {
+            ids = pedidos.map(Pedido::getId).toList();
+        }
+
+        assertEquals(pedidoRepository.findAll().stream().sorted(ORDEN_KEYSET).map(Pedido::getId).toList(), ids);
+    }
+
+    @Test
+    @DisplayName("Un cursor manipulado o con base64 inválido se rechaza como parámetro inválido")
+    void cursorInvalidoEsParametroInvalido() {
+        PedidoCursor cursor = new PedidoCursor(LocalDateTime.of(2026, 1, 15, 10, 30), "ped-1");
+        assertEquals(cursor, PedidoCursor.decodificar(cursor.codificar()));
+
+        ParametroInvalidoException base64 = assertThrows(ParametroInvalidoException.class,
+                () -> PedidoCursor.decodificar("%%%no-es-base64"));
+        assertEquals("Cursor de paginación inválido", base64.getMessage());
+        assertThrows(ParametroInvalidoException.class, () -> PedidoCursor.decodificar("c2luLXNlcGFyYWRvcg"));
+    }
+}
@@ -0,0 +1,329 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logiflow.pedidoservice.dto.CampoPedido;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.PedidoIdGenerator;
+import com.logiflow.pedidoservice.model.Prioridad;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Regresión de planes: cada consulta de PedidoRepository se ejecuta contra PostgreSQL 16
+ * (esquema de Flyway, con particiones) sembrado con 50.000 pedidos, se captura el SQL con
+ * los valores enlazados y se corre EXPLAIN. Falla si el plan recorre secuencialmente una
+ * partición grande, es decir, si falta o dejó de usarse el índice de la consulta.
+ * Las variantes con ventana por fechaCreacion además no deben leer particiones de meses anteriores,
+ * y la búsqueda por id (UUID v7) solo debe leer la partición del pedido.
+ *
+ * Los valores consultados son selectivos (como en producción: pocos pendientes, muchos
+ * entregados). findAll, findByTipoEntrega y findByModalidadServicio no se incluyen: devuelven
+ * una fracción grande de la tabla y ahí el recorrido secuencial es el plan correcto.
+ *
+ * PostgreSQL es el embebido de PostgresEmbebido: no hace falta Docker y la clase nunca se omite.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Planes de ejecución de PedidoRepository en PostgreSQL")
+class PedidoRepositoryPlanesTest {
+
+    private static final int PEDIDOS = 50_000;
+
+    // Un Seq Scan sobre una tabla (partición) con más filas que esto es una regresión
+    private static final long FILAS_MAXIMAS_SEQ_SCAN = 1_000;
+
+    private static final List<CampoPedido> CAMPOS_RESUMEN = CampoPedido.parsear("id,estado,prioridad,cobertura,fechaCreacion");
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) {
+        String url = PostgresEmbebido.nuevaBase("planes_pedidos");
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> PostgresEmbebido.USUARIO);
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.defer-datasource-initialization", () -> "false");
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.sql.init.mode", () -> "never");
+    }
+
+    private static boolean sembrado;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Distribución parecida a producción: 2% PENDIENTE sin repartidor, 4% asignados o en
+     * tránsito, 1% CANCELADO y el resto ENTREGADO, repartidos en los últimos dos meses
+     */
+    @BeforeEach
+    void sembrar() {
+        if (sembrado) {
+            return;
+        }
+        for (int meses = 1; meses <= 3; meses++) {
+            jdbcTemplate.queryForObject(
+                    "SELECT crear_particion_pedidos((date_trunc('month', now()) - make_interval(months => ?))::date)",
+                    String.class, meses);
+        }
+        jdbcTemplate.update("""
+                INSERT INTO pedidos (id, cliente_id, modalidad_servicio, tipo_entrega, estado, peso, cobertura,
+                                     telefono_contacto, prioridad, repartidor_id, vehiculo_id, factura_id,
+                                     intentos_asignacion, fecha_creacion, fecha_actualizacion, version)
+                SELECT 'p-' || g,
+                       'cli-' || (g % 5000),
+                       'URBANA_RAPIDA',
+                       'NORMAL',
+                       CASE WHEN g % 100 < 2 THEN 'PENDIENTE'
+                            WHEN g % 100 < 4 THEN 'ASIGNADO'
+                            WHEN g % 100 < 6 THEN 'EN_TRANSITO'
+                            WHEN g % 100 = 6 THEN 'CANCELADO'
+                            ELSE 'ENTREGADO' END,
+                       1.0,
+                       'COB-' || (g % 97),
+                       '0987654321',
+                       CASE g % 100 WHEN 0 THEN 'URGENTE' WHEN 1 THEN 'ALTA' WHEN 2 THEN 'ALTA' ELSE 'NORMAL' END,
+                       CASE WHEN g % 100 < 2 THEN NULL ELSE 'rep-' || (g % 500) END,
+                       CASE WHEN g % 100 < 2 THEN NULL ELSE 'veh-' || (g % 300) END,
+                       CASE WHEN g % 100 IN (0, 1, 6) THEN NULL ELSE 'fac-' || g END,
+                       0,
+                       now() - (g % 60) * INTERVAL '1 day' - (g % 1440) * INTERVAL '1 minute',
+                       now() - (g % 60) * INTERVAL '1 day' - (g % 1440) * INTERVAL '1 minute',
+                       0
+                FROM generate_series(1, ?) AS g
+                """, PEDIDOS);
+        jdbcTemplate.execute("VACUUM ANALYZE pedidos");
+        sembrado = true;
+    }
+
+    static Stream<Arguments> consultas() {
+        LocalDateTime ahora = LocalDateTime.now();
+        return Stream.of(
+                consulta("findById", r -> r.findById("p-4242")),
+                consulta("buscarPorId", r -> r.buscarPorId(PedidoIdGenerator.nuevoId(ahora.minusDays(40)))),
+                consulta("findByClienteId", r -> r.findByClienteId("cli-42")),
+                consulta("findByClienteIdAndFechaCreacionGreaterThanEqual",
+                        r -> r.findByClienteIdAndFechaCreacionGreaterThanEqual("cli-42", ahora.minusDays(7))),
+                consulta("findByEstado", r -> r.findByEstado(EstadoPedido.PENDIENTE)),
+                consulta("findByEstadoAndFechaCreacionGreaterThanEqual",
+                        r -> r.findByEstadoAndFechaCreacionGreaterThanEqual(EstadoPedido.PENDIENTE, ahora.minusDays(7))),
+                consulta("countByEstado", r -> r.countByEstado(EstadoPedido.PENDIENTE)),
+                consulta("findByCobertura", r -> r.findByCobertura("COB-42")),
+                consulta("findByRepartidorId", r -> r.findByRepartidorId("rep-42")),
+                consulta("findByRepartidorIdAndFechaCreacionGreaterThanEqual",
+                        r -> r.findByRepartidorIdAndFechaCreacionGreaterThanEqual("rep-42", ahora.minusDays(7))),
+                consulta("findByRepartidorIdAndEstado",
+                        r -> r.findByRepartidorIdAndEstado("rep-42", EstadoPedido.EN_TRANSITO)),
+                consulta("findByVehiculoId", r -> r.findByVehiculoId("veh-42")),
+                consulta("findByFacturaId", r -> r.findByFacturaId("fac-4242")),
+                consulta("findPedidosSinFactura", PedidoRepository::findPedidosSinFactura),
+                consulta("findByPrioridad", r -> r.findByPrioridad(Prioridad.URGENTE)),
+                consulta("findPedidosAltaPrioridadPendientes", PedidoRepository::findPedidosAltaPrioridadPendientes),
+                consulta("findPedidosPendientesAsignacion", PedidoRepository::findPedidosPendientesAsignacion),
+                consulta("findPendientesReintento",
+                        r -> r.findPendientesReintento(Prioridad.URGENTE, ahora, 10, ahora, Limit.of(200))),
+                consulta("findPrimeraPagina", r -> r.findPrimeraPagina(Limit.of(20))),
+                consulta("findPaginaDespuesDe",
+                        r -> r.findPaginaDespuesDe(ahora.minusDays(30), "p-1", Limit.of(20))),
+                consulta("findPrimeraPaginaByCliente", r -> r.findPrimeraPaginaByCliente("cli-42", Limit.of(20))),
+                consulta("findPaginaByClienteDespuesDe",
+                        r -> r.findPaginaByClienteDespuesDe("cli-42", ahora.minusDays(30), "p-1", Limit.of(20))),
+                consulta("proyectar (cliente)", r -> r.proyectar(
+                        (p, q, cb) -> cb.equal(p.get("clienteId"), "cli-42"), CAMPOS_RESUMEN)),
+                consulta("proyectar (pendientes de asignación)", r -> r.proyectar(
+                        (p, q, cb) -> cb.and(cb.isNull(p.get("repartidorId")), cb.isNull(p.get("vehiculoId")),
+                                cb.equal(p.get("estado"), EstadoPedido.PENDIENTE)), CAMPOS_RESUMEN))
+        );
+    }
+
+    private static Arguments consulta(String nombre, Consumer<PedidoRepository> invocacion) {
+        return Arguments.of(nombre, invocacion);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("consultas")
+    @DisplayName("La consulta usa índices (sin Seq Scan sobre particiones grandes)")
+    void consulta_SinRecorridoSecuencial(String nombre, Consumer<PedidoRepository> invocacion) throws Exception {
+        String sql = sqlEjecutado(nombre, invocacion);
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class);
+        List<String> recorridos = new ArrayList<>();
+        buscarSeqScans(objectMapper.readTree(plan).get(0).get("Plan"), recorridos);
+
+        assertTrue(recorridos.isEmpty(), () -> String.format(
+                "%s recorre secuencialmente %s%nSQL: %s%nPlan: %s", nombre, recorridos, sql, plan));
+    }
+
+    static Stream<Arguments> consultasConVentana() {
+        LocalDateTime desde = LocalDateTime.now().minusDays(7);
+        return Stream.of(
+                consulta("findByClienteIdAndFechaCreacionGreaterThanEqual",
+                        r -> r.findByClienteIdAndFechaCreacionGreaterThanEqual("cli-42", desde)),
+                consulta("findByEstadoAndFechaCreacionGreaterThanEqual",
+                        r -> r.findByEstadoAndFechaCreacionGreaterThanEqual(EstadoPedido.PENDIENTE, desde)),
+                consulta("findByRepartidorIdAndFechaCreacionGreaterThanEqual",
+                        r -> r.findByRepartidorIdAndFechaCreacionGreaterThanEqual("rep-42", desde))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("consultasConVentana")
+    @DisplayName("La ventana por fechaCreacion poda las particiones de meses anteriores")
+    void consultaConVentana_PodaParticiones(String nombre, Consumer<PedidoRepository> invocacion) throws Exception {
+        // Los datos sembrados llegan hasta hace 60 días: la partición de hace dos meses tiene filas
+        String antigua = jdbcTemplate.queryForObject(
+                "SELECT 'pedidos_p' || to_char(date_trunc('month', now()) - INTERVAL '2 months', 'YYYYMM')",
+                String.class);
+
+        String sql = sqlEjecutado(nombre, invocacion);
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class);
+        List<String> particiones = new ArrayList<>();
+        buscarRelaciones(objectMapper.readTree(plan).get(0).get("Plan"), particiones);
+
+        assertFalse(particiones.isEmpty(), () -> nombre + " no leyó ninguna partición\nPlan: " + plan);
+        assertFalse(particiones.contains(antigua), () -> String.format(
+                "%s lee %s, anterior a la ventana%nSQL: %s%nPlan: %s", nombre, antigua, sql, plan));
+    }
+
+    @Test
+    @DisplayName("La búsqueda por id lee solo la partición del mes en que se creó el pedido")
+    void buscarPorId_LeeSoloLaParticionDelPedido() throws Exception {
+        // A mitad de mes: el margen de RangoCreacion (un día) no alcanza a la partición vecina
+        LocalDateTime creacion = LocalDateTime.now().minusMonths(1).withDayOfMonth(15);
+        String id = PedidoIdGenerator.nuevoId(creacion);
+        jdbcTemplate.update("""
+                INSERT INTO pedidos (id, cliente_id, modalidad_servicio, tipo_entrega, estado, peso, cobertura,
+                                     telefono_contacto, prioridad, intentos_asignacion, fecha_creacion,
+                                     fecha_actualizacion, version)
+                VALUES (?, 'cli-id', 'URBANA_RAPIDA', 'NORMAL', 'PENDIENTE', 1.0, 'COB-1', '0987654321',
+                        'NORMAL', 0, ?, ?, 0)
+                """, id, creacion, creacion);
+        String particion = jdbcTemplate.queryForObject(
+                "SELECT 'pedidos_p' || to_char(?::timestamp, 'YYYYMM')", String.class, creacion);
+
+        String sql = sqlEjecutado("buscarPorId", r -> assertTrue(r.buscarPorId(id).isPresent()));
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class);
+        List<String> particiones = new ArrayList<>();
+        buscarRelaciones(objectMapper.readTree(plan).get(0).get("Plan"), particiones);
+
+        assertEquals(List.of(particion), particiones, () -> "SQL: " + sql + "\nPlan: " + plan);
+    }
+
+    private String sqlEjecutado(String nombre, Consumer<PedidoRepository> invocacion) {
+        RegistroSentencias.EJECUTADAS.clear();
+        transactionTemplate.executeWithoutResult(status -> invocacion.accept(pedidoRepository));
+
+        return RegistroSentencias.EJECUTADAS.stream()
+                .filter(s -> s.toLowerCase().startsWith("select") && s.contains("pedidos"))
+                .reduce((primera, ultima) -> ultima)
+                .orElseThrow(() -> new AssertionError(nombre + " no ejecutó ninguna consulta sobre pedidos"));
+    }
+
+    private void buscarRelaciones(JsonNode nodo, List<String> relaciones) {
+        if (nodo.hasNonNull("Relation Name")) {
+            relaciones.add(nodo.get("Relation Name").asText());
+        }
+        for (JsonNode hijo : nodo.path("Plans")) {
+            buscarRelaciones(hijo, relaciones);
+        }
+    }
+
+    private void buscarSeqScans(JsonNode nodo, List<String> recorridos) {
+        if ("Seq Scan".equals(nodo.path("Node Type").asText())) {
+            String tabla = nodo.path("Relation Name").asText();
+            Long filas = jdbcTemplate.queryForObject(
+                    "SELECT reltuples::bigint FROM pg_class WHERE relname = ?", Long.class, tabla);
+            if (filas != null && filas > FILAS_MAXIMAS_SEQ_SCAN) {
+                recorridos.add(tabla + " (" + filas + " filas)");
+            }
+        }
+        for (JsonNode hijo : nodo.path("Plans")) {
+            buscarSeqScans(hijo, recorridos);
+        }
+    }
+
+    /**
+     * Envuelve el DataSource: al ejecutar un PreparedStatement guarda su SQL con los valores
+     * ya enlazados (toString del PreparedStatement de pgjdbc), listo para pasarlo a EXPLAIN
+     */
+    @TestConfiguration
+    static class RegistroSentencias {
+
+        static final List<String> EJECUTADAS = new CopyOnWriteArrayList<>();
+
+        @Bean
+        static BeanPostProcessor registroSentenciasPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    return bean instanceof DataSource dataSource ? envolver(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T envolver(Class<T> tipo, T destino) {
+            return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+                if (tipo == PreparedStatement.class && metodo.getName().startsWith("execute")) {
+                    EJECUTADAS.add(((PreparedStatement) destino).unwrap(PreparedStatement.class).toString());
+                }
+                Object resultado;
+                try {
+                    resultado = metodo.invoke(destino, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (resultado instanceof Connection conexion && metodo.getName().equals("getConnection")) {
+                    return envolver(Connection.class, conexion);
+                }
+                if (resultado instanceof PreparedStatement sentencia && metodo.getName().equals("prepareStatement")) {
+                    return envolver(PreparedStatement.class, sentencia);
+                }
+                return resultado;
+            });
+        }
+    }
+}
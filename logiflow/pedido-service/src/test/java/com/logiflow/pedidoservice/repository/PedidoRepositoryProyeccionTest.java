@@ -0,0 +1,108 @@
+package com.logiflow.pedidoservice.repository;
+
+import com.logiflow.pedidoservice.dto.CampoPedido;
+import com.logiflow.pedidoservice.exception.ParametroInvalidoException;
+import com.logiflow.pedidoservice.model.*;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("Tests para los listados de pedidos con campos seleccionados (fields=)")
+class PedidoRepositoryProyeccionTest {
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Pedido pendiente;
+
+    @BeforeEach
+    void setUp() {
+        pendiente = pedidoRepository.save(pedido("cli-1", EstadoPedido.PENDIENTE));
+        pedidoRepository.save(pedido("cli-1", EstadoPedido.ENTREGADO));
+        pedidoRepository.save(pedido("cli-2", EstadoPedido.PENDIENTE));
+        pedidoRepository.flush();
+        entityManager.clear();
+    }
+
+    private Pedido pedido(String clienteId, EstadoPedido estado) {
+        Direccion origen = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        Direccion destino = Direccion.builder()
+                .calle("Av Central")
+                .numero("45")
+                .ciudad("Cuenca")
+                .provincia("Azuay")
+                .latitud(-2.9)
+                .longitud(-79.0)
+                .build();
+        return Pedido.builder()
+                .clienteId(clienteId)
+                .direccionOrigen(origen)
+                .direccionDestino(destino)
+                .modalidadServicio(ModalidadServicio.INTERMUNICIPAL)
+                .tipoEntrega(TipoEntrega.EXPRESS)
+                .estado(estado)
+                .peso(1.0)
+                .cobertura("INTERMUNICIPAL")
+                .telefonoContacto("0987654321")
+                .build();
+    }
+
+    @Test
+    @DisplayName("Cada fila trae solo las claves pedidas, en el orden de fields=")
+    void proyectar_SoloCamposPedidos() {
+        List<CampoPedido> campos = CampoPedido.parsear("id,estado,prioridad,ciudadDestino,fechaCreacion");
+        Specification<Pedido> delCliente = (p, q, cb) -> cb.equal(p.get("clienteId"), "cli-1");
+
+        List<Map<String, Object>> filas = pedidoRepository.proyectar(delCliente, campos);
+
+        assertEquals(2, filas.size());
+        Map<String, Object> fila = filas.stream()
+                .filter(f -> f.get("id").equals(pendiente.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(List.of("id", "estado", "prioridad", "ciudadDestino", "fechaCreacion"), List.copyOf(fila.keySet()));
+        assertEquals(EstadoPedido.PENDIENTE, fila.get("estado"));
+        assertEquals("Cuenca", fila.get("ciudadDestino"));
+        assertNotNull(fila.get("fechaCreacion"));
+    }
+
+    @Test
+    @DisplayName("La proyección no deja entidades en el contexto de persistencia")
+    void proyectar_SinEntidadesAdministradas() {
+        List<Map<String, Object>> filas = pedidoRepository.proyectar(null, List.of(CampoPedido.ID, CampoPedido.ESTADO));
+
+        assertEquals(3, filas.size());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    @DisplayName("fields con un campo desconocido o vacío se rechaza")
+    void parsear_CampoDesconocido() {
+        assertThrows(ParametroInvalidoException.class, () -> CampoPedido.parsear("id,direccionOrigen"));
+        assertThrows(ParametroInvalidoException.class, () -> CampoPedido.parsear(" , "));
+        assertEquals(List.of(CampoPedido.ESTADO, CampoPedido.ID), CampoPedido.parsear("estado, id, estado"));
+    }
+}
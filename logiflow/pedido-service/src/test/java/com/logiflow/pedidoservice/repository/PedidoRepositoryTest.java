@@ -1,6 +1,7 @@
 package com.logiflow.pedidoservice.repository;
 
 import com.logiflow.pedidoservice.model.*;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +9,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.MethodOrderer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +30,9 @@ class PedidoRepositoryTest {
     @Autowired
     private PedidoRepository pedidoRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private Pedido pedidoSample;
     private Direccion direccionOrigen;
     private Direccion direccionDestino;
@@ -257,6 +262,105 @@ class PedidoRepositoryTest {
                 .build();
     }
 
+    @Test
+    @DisplayName("Transición condicional - aplica desde un origen permitido, informa cuál e incrementa la versión")
+    void deberiaTransicionarEstadoConVersionVigente() {
+        Pedido guardado = pedidoRepository.saveAndFlush(crearPedidoGeolocalizado(EstadoPedido.ASIGNADO));
+        assertEquals(0L, guardado.getVersion());
+        entityManager.clear();
+
+        Optional<EstadoPedido> origen = pedidoRepository.transicionarDesde(guardado.getId(),
+                List.of(EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO), 0L,
+                EstadoPedido.CANCELADO, null, LocalDateTime.now());
+
+        assertEquals(Optional.of(EstadoPedido.ASIGNADO), origen);
+        entityManager.clear();
+        Pedido actualizado = pedidoRepository.findById(guardado.getId()).orElseThrow();
+        assertEquals(EstadoPedido.CANCELADO, actualizado.getEstado());
+        assertEquals(1L, actualizado.getVersion());
+    }
+
+    @Test
+    @DisplayName("Transición condicional - no escribe si la versión o el estado cambiaron")
+    void deberiaRechazarTransicionConVersionObsoleta() {
+        Pedido guardado = pedidoRepository.saveAndFlush(crearPedidoGeolocalizado(EstadoPedido.PENDIENTE));
+        entityManager.clear();
+        // Otro escritor asigna el pedido primero
+        assertEquals(1, pedidoRepository.asignarRecursosSiPendiente(guardado.getId(), "rep-1", "veh-1",
+                LocalDateTime.now()));
+
+        assertTrue(pedidoRepository.transicionarDesde(guardado.getId(), List.of(EstadoPedido.ASIGNADO), 0L,
+                EstadoPedido.CANCELADO, null, LocalDateTime.now()).isEmpty());
+        assertTrue(pedidoRepository.transicionarDesde(guardado.getId(), List.of(EstadoPedido.PENDIENTE), null,
+                EstadoPedido.CANCELADO, null, LocalDateTime.now()).isEmpty());
+        assertEquals(0, pedidoRepository.asignarRecursosSiPendiente(guardado.getId(), "rep-2", "veh-2",
+                LocalDateTime.now()));
+        assertTrue(pedidoRepository.transicionarDesde("no-existe", List.of(EstadoPedido.PENDIENTE), null,
+                EstadoPedido.CANCELADO, null, LocalDateTime.now()).isEmpty());
+
+        entityManager.clear();
+        Pedido actual = pedidoRepository.findById(guardado.getId()).orElseThrow();
+        assertEquals(EstadoPedido.ASIGNADO, actual.getEstado());
+        assertEquals("rep-1", actual.getRepartidorId());
+    }
+
+    @Test
+    @DisplayName("Transición condicional - ENTREGADO registra la fecha de entrega real")
+    void deberiaRegistrarFechaEntregaAlTransicionarAEntregado() {
+        Pedido guardado = pedidoRepository.saveAndFlush(crearPedidoGeolocalizado(EstadoPedido.EN_TRANSITO));
+        entityManager.clear();
+        LocalDateTime ahora = LocalDateTime.now();
+
+        pedidoRepository.transicionarDesde(guardado.getId(),
+                List.of(EstadoPedido.EN_TRANSITO, EstadoPedido.EN_DISTRIBUCION), null,
+                EstadoPedido.ENTREGADO, ahora, ahora);
+
+        entityManager.clear();
+        assertNotNull(pedidoRepository.findById(guardado.getId()).orElseThrow().getFechaEntregaReal());
+    }
+
+    @Test
+    @DisplayName("Transición condicional - volver a PENDIENTE suelta los recursos y el pedido se reintenta")
+    void deberiaSoltarRecursosAlVolverAPendiente() {
+        Pedido guardado = crearPedidoGeolocalizado(EstadoPedido.PENDIENTE);
+        guardado.setIntentosAsignacion(2);
+        guardado.setProximoReintento(LocalDateTime.now().plusHours(1));
+        guardado = pedidoRepository.saveAndFlush(guardado);
+        entityManager.clear();
+        assertEquals(1, pedidoRepository.asignarRecursosSiPendiente(guardado.getId(), "rep-1", "veh-1",
+                LocalDateTime.now()));
+
+        LocalDateTime ahora = LocalDateTime.now();
+        assertEquals(Optional.of(EstadoPedido.ASIGNADO), pedidoRepository.transicionarDesde(guardado.getId(),
+                List.of(EstadoPedido.ASIGNADO), null, EstadoPedido.PENDIENTE, null, ahora));
+
+        entityManager.clear();
+        Pedido pendiente = pedidoRepository.findById(guardado.getId()).orElseThrow();
+        assertEquals(EstadoPedido.PENDIENTE, pendiente.getEstado());
+        assertNull(pendiente.getRepartidorId());
+        assertNull(pendiente.getVehiculoId());
+        assertEquals(0, pendiente.getIntentosAsignacion());
+        assertNull(pendiente.getProximoReintento());
+        assertEquals(List.of(guardado.getId()), pedidoRepository.findPendientesReintento(Prioridad.NORMAL,
+                        ahora.plusMinutes(1), 5, ahora.plusMinutes(1), Limit.of(10))
+                .stream().map(Pedido::getId).toList());
+    }
+
+    private Pedido crearPedidoGeolocalizado(EstadoPedido estado) {
+        Pedido pedido = crearPedidoConEstado(estado);
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        pedido.setDireccionOrigen(direccion);
+        pedido.setDireccionDestino(direccion);
+        return pedido;
+    }
+
     private Pedido crearPedidoConEstado(EstadoPedido estado) {
         return Pedido.builder()
                 .clienteId("cli-test")
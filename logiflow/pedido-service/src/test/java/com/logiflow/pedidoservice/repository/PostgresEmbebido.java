@@ -0,0 +1,58 @@
+package com.logiflow.pedidoservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PostgreSQL 16 embebido (binarios de io.zonky), compartido por los tests que necesitan
+ * PostgreSQL real: se arranca una vez por JVM y cada test trabaja en su propia base.
+ * No depende de Docker; si el servidor no puede arrancar el test falla, no se omite.
+ */
+final class PostgresEmbebido {
+
+    static final String USUARIO = "postgres";
+
+    private static EmbeddedPostgres servidor;
+
+    private PostgresEmbebido() {
+    }
+
+    /**
+     * Crea la base (vacía) y devuelve su URL JDBC
+     */
+    static synchronized String nuevaBase(String nombre) {
+        EmbeddedPostgres postgres = servidor();
+        try (Connection conexion = postgres.getPostgresDatabase().getConnection();
+             Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("DROP DATABASE IF EXISTS " + nombre);
+            sentencia.execute("CREATE DATABASE " + nombre);
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo crear la base " + nombre, e);
+        }
+        return postgres.getJdbcUrl(USUARIO, nombre);
+    }
+
+    private static EmbeddedPostgres servidor() {
+        if (servidor == null) {
+            try {
+                servidor = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("No arrancó PostgreSQL embebido", e);
+            }
+            EmbeddedPostgres iniciado = servidor;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    iniciado.close();
+                } catch (IOException ignorada) {
+                    // la JVM termina igual
+                }
+            }));
+        }
+        return servidor;
+    }
+}
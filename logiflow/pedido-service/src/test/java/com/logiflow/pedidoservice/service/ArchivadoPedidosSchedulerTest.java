@@ -0,0 +1,88 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.ArchivadoPedidosScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ArchivadoPedidosScheduler.class)
+@TestPropertySource(properties = "pedido.archivo.enabled=true")
+@DisplayName("Tests del archivado de pedidos finalizados")
+class ArchivadoPedidosSchedulerTest {
+
+    @Autowired
+    private ArchivadoPedidosScheduler scheduler;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "tamanoLote", 2);
+    }
+
+    private Pedido guardar(EstadoPedido estado) {
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        return pedidoRepository.saveAndFlush(Pedido.builder()
+                .clienteId("cli-1")
+                .direccionOrigen(direccion)
+                .direccionDestino(direccion)
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.NORMAL)
+                .estado(estado)
+                .peso(1.0)
+                .cobertura("URBANA-QUITO")
+                .telefonoContacto("0987654321")
+                .build());
+    }
+
+    @Test
+    @DisplayName("Mueve en lotes solo los pedidos en estado final anteriores al corte")
+    void archivar_SoloEstadosFinales() {
+        List<Pedido> finalizados = List.of(
+                guardar(EstadoPedido.ENTREGADO), guardar(EstadoPedido.CANCELADO), guardar(EstadoPedido.DEVUELTO));
+        Pedido activo = guardar(EstadoPedido.EN_TRANSITO);
+
+        assertEquals(3, scheduler.archivar(LocalDateTime.now().plusMinutes(1)));
+
+        assertEquals(List.of(activo.getId()), pedidoRepository.findAll().stream().map(Pedido::getId).toList());
+        for (Pedido pedido : finalizados) {
+            Pedido archivado = pedidoRepository.findArchivadoById(pedido.getId()).orElseThrow();
+            assertEquals(pedido.getEstado(), archivado.getEstado());
+            assertEquals(pedido.getDireccionDestino(), archivado.getDireccionDestino());
+        }
+    }
+
+    @Test
+    @DisplayName("Los pedidos más recientes que el corte quedan en la tabla caliente")
+    void archivar_RespetaAntiguedad() {
+        Pedido entregado = guardar(EstadoPedido.ENTREGADO);
+
+        assertEquals(0, scheduler.archivar(LocalDateTime.now().minusDays(1)));
+
+        assertTrue(pedidoRepository.findById(entregado.getId()).isPresent());
+        assertTrue(pedidoRepository.findArchivadoById(entregado.getId()).isEmpty());
+    }
+}
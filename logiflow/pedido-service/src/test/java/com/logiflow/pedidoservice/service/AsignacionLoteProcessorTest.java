@@ -0,0 +1,151 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.event.AsignacionCompletadaEvent;
+import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.AsignacionLoteProcessor;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({AsignacionLoteProcessor.class, CacheConfig.class})
+@DisplayName("Tests para la aplicación en lote de asignaciones completadas")
+class AsignacionLoteProcessorTest {
+
+    @Autowired
+    private AsignacionLoteProcessor processor;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private PedidoEventPublisher pedidoEventPublisher;
+
+    @MockBean
+    private KpiPedidoService kpiPedidoService;
+
+    @MockBean
+    private HistorialEstadoService historialEstadoService;
+
+    private Pedido guardar(EstadoPedido estado) {
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        return pedidoRepository.saveAndFlush(Pedido.builder()
+                .clienteId("cli-1")
+                .direccionOrigen(direccion)
+                .direccionDestino(direccion)
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.NORMAL)
+                .estado(estado)
+                .peso(1.0)
+                .cobertura("URBANA-QUITO")
+                .telefonoContacto("0987654321")
+                .build());
+    }
+
+    private AsignacionCompletadaEvent asignacion(String pedidoId, String repartidorId) {
+        return AsignacionCompletadaEvent.builder()
+                .messageId(UUID.randomUUID().toString())
+                .pedidoId(pedidoId)
+                .repartidorId(repartidorId)
+                .vehiculoId(UUID.randomUUID().toString())
+                .estadoPedido("ASIGNADO")
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PedidoEstadoEvent> eventosPublicados() {
+        ArgumentCaptor<List<PedidoEstadoEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(pedidoEventPublisher).publishPedidoEstadoEvents(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    @DisplayName("Asigna todos los pendientes del lote y publica un evento por pedido en un solo llamado")
+    void aplicar_AsignaPendientes() {
+        Pedido p1 = guardar(EstadoPedido.PENDIENTE);
+        Pedido p2 = guardar(EstadoPedido.PENDIENTE);
+        String repartidor = UUID.randomUUID().toString();
+
+        List<String> asignados = processor.aplicar(List.of(asignacion(p1.getId(), repartidor), asignacion(p2.getId(), repartidor)));
+
+        assertEquals(List.of(p1.getId(), p2.getId()), asignados);
+        entityManager.clear();
+        Pedido actualizado = pedidoRepository.findById(p1.getId()).orElseThrow();
+        assertEquals(EstadoPedido.ASIGNADO, actualizado.getEstado());
+        assertEquals(repartidor, actualizado.getRepartidorId());
+
+        verify(kpiPedidoService, times(2))
+                .registrarTransicion("URBANA-QUITO", EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO);
+
+        List<PedidoEstadoEvent> eventos = eventosPublicados();
+        assertEquals(2, eventos.size());
+        assertEquals("PENDIENTE", eventos.get(0).getEstadoAnterior());
+        assertEquals("ASIGNADO", eventos.get(0).getEstadoNuevo());
+    }
+
+    @Test
+    @DisplayName("Pedidos que ya no están PENDIENTE no se modifican ni generan evento")
+    void aplicar_IgnoraNoPendientes() {
+        Pedido pendiente = guardar(EstadoPedido.PENDIENTE);
+        Pedido cancelado = guardar(EstadoPedido.CANCELADO);
+
+        List<String> asignados = processor.aplicar(List.of(
+                asignacion(cancelado.getId(), UUID.randomUUID().toString()),
+                asignacion(pendiente.getId(), UUID.randomUUID().toString())));
+
+        assertEquals(List.of(pendiente.getId()), asignados);
+        entityManager.clear();
+        assertEquals(EstadoPedido.CANCELADO, pedidoRepository.findById(cancelado.getId()).orElseThrow().getEstado());
+        assertEquals(1, eventosPublicados().size());
+    }
+
+    @Test
+    @DisplayName("Duplicados e IDs inválidos: gana la última asignación válida del pedido")
+    void aplicar_DeduplicaYDescartaInvalidos() {
+        Pedido pedido = guardar(EstadoPedido.PENDIENTE);
+        String ultimo = UUID.randomUUID().toString();
+
+        List<String> asignados = processor.aplicar(List.of(
+                asignacion(pedido.getId(), UUID.randomUUID().toString()),
+                asignacion("no-es-uuid", UUID.randomUUID().toString()),
+                asignacion(pedido.getId(), ultimo)));
+
+        assertEquals(List.of(pedido.getId()), asignados);
+        entityManager.clear();
+        assertEquals(ultimo, pedidoRepository.findById(pedido.getId()).orElseThrow().getRepartidorId());
+    }
+
+    @Test
+    @DisplayName("Un lote sin asignaciones válidas no abre transacción ni publica")
+    void aplicar_SinValidos() {
+        assertTrue(processor.aplicar(List.of(asignacion("x", "y"))).isEmpty());
+        verifyNoInteractions(pedidoEventPublisher);
+    }
+}
@@ -0,0 +1,185 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.client.BillingClient;
+import com.logiflow.pedidoservice.client.FleetClient;
+import com.logiflow.pedidoservice.dto.AsignacionResponse;
+import com.logiflow.pedidoservice.dto.CreacionPedidoStatusResponse.EstadoPaso;
+import com.logiflow.pedidoservice.dto.FacturaResponse;
+import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.CreacionPedidoPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitarios para CreacionPedidoPipeline")
+class CreacionPedidoPipelineTest {
+
+    @Mock
+    private BillingClient billingClient;
+
+    @Mock
+    private FleetClient fleetClient;
+
+    @Mock
+    private PedidoRepository pedidoRepository;
+
+    @Mock
+    private PedidoEventPublisher pedidoEventPublisher;
+
+    @Mock
+    private KpiPedidoService kpiPedidoService;
+
+    @Mock
+    private HistorialEstadoService historialEstadoService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExecutorService executor;
+    private CreacionPedidoPipeline pipeline;
+    private Pedido pedido;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        pipeline = new CreacionPedidoPipeline(billingClient, fleetClient, pedidoRepository,
+                pedidoEventPublisher, new TransactionTemplate(transactionManager), executor,
+                new ConcurrentMapCacheManager(), kpiPedidoService, historialEstadoService);
+        ReflectionTestUtils.setField(pipeline, "billingIntegrationEnabled", true);
+        ReflectionTestUtils.setField(pipeline, "fleetIntegrationEnabled", true);
+        ReflectionTestUtils.setField(pipeline, "retencionEstadoSegundos", 60L);
+
+        pedido = Pedido.builder()
+                .id("ped-123")
+                .clienteId("cli-12345")
+                .direccionOrigen(Direccion.builder().calle("Av Principal").numero("123").ciudad("Quito").provincia("Pichincha").build())
+                .direccionDestino(Direccion.builder().calle("Calle Secundaria").numero("456").ciudad("Quito").provincia("Pichincha").build())
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.EXPRESS)
+                .prioridad(Prioridad.ALTA)
+                .estado(EstadoPedido.PENDIENTE)
+                .peso(2.5)
+                .build();
+        lenient().when(pedidoRepository.buscarPorId("ped-123")).thenReturn(Optional.of(pedido));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Billing y Fleet se ejecutan en paralelo")
+    void ejecutar_BillingYFleetEnParalelo() throws Exception {
+        // Billing solo puede terminar si Fleet ya arrancó: en secuencia esto expiraría
+        CountDownLatch fleetIniciado = new CountDownLatch(1);
+        when(billingClient.crearFactura(any(), any())).thenAnswer(inv -> {
+            assertTrue(fleetIniciado.await(5, TimeUnit.SECONDS), "Fleet no se ejecutó en paralelo");
+            return FacturaResponse.builder().id("fac-1").montoTotal(new BigDecimal("12.50")).build();
+        });
+        when(fleetClient.asignarRepartidor(any(), any())).thenAnswer(inv -> {
+            fleetIniciado.countDown();
+            return AsignacionResponse.builder().estado("ASIGNADO").repartidorId("rep-1").vehiculoId("veh-1").build();
+        });
+        when(pedidoRepository.asignarRecursosSiPendiente(eq("ped-123"), eq("rep-1"), eq("veh-1"), any())).thenReturn(1);
+
+        CreacionPedidoPipeline.ProgresoCreacion progreso = pipeline.ejecutar(pedido, 10.0, "token", "user", "corr");
+        Pedido resultado = progreso.getResultado().get(10, TimeUnit.SECONDS);
+
+        assertEquals("ped-123", resultado.getId());
+        assertEquals(EstadoPaso.COMPLETADO, progreso.getEstado());
+        assertEquals(EstadoPaso.COMPLETADO, progreso.getFacturacion());
+        assertEquals(EstadoPaso.COMPLETADO, progreso.getAsignacion());
+        verify(pedidoRepository).actualizarFactura(eq("ped-123"), eq("fac-1"), eq(12.5), any());
+        verify(pedidoEventPublisher).publishPedidoEstadoEvent(any(PedidoEstadoEvent.class));
+    }
+
+    @Test
+    @DisplayName("Asignación ya aplicada por eventos no publica un segundo cambio de estado")
+    void ejecutar_PedidoYaNoPendiente_NoPublicaEvento() throws Exception {
+        ReflectionTestUtils.setField(pipeline, "billingIntegrationEnabled", false);
+        when(fleetClient.asignarRepartidor(any(), any())).thenReturn(
+                AsignacionResponse.builder().estado("ASIGNADO").repartidorId("rep-1").vehiculoId("veh-1").build());
+        when(pedidoRepository.asignarRecursosSiPendiente(any(), any(), any(), any())).thenReturn(0);
+
+        CreacionPedidoPipeline.ProgresoCreacion progreso = pipeline.ejecutar(pedido, 10.0, "token", "user", "corr");
+        progreso.getResultado().get(10, TimeUnit.SECONDS);
+
+        assertEquals(EstadoPaso.OMITIDO, progreso.getFacturacion());
+        verifyNoInteractions(billingClient);
+        verify(pedidoEventPublisher, never()).publishPedidoEstadoEvent(any());
+    }
+
+    @Test
+    @DisplayName("Un fallo en Billing no impide completar la asignación")
+    void ejecutar_FalloBilling_NoBloqueaFleet() throws Exception {
+        when(billingClient.crearFactura(any(), any())).thenThrow(new RuntimeException("billing caído"));
+        when(fleetClient.asignarRepartidor(any(), any())).thenReturn(
+                AsignacionResponse.builder().estado("RECHAZADO").mensaje("sin repartidores").build());
+
+        CreacionPedidoPipeline.ProgresoCreacion progreso = pipeline.ejecutar(pedido, 10.0, "token", "user", "corr");
+        progreso.getResultado().get(10, TimeUnit.SECONDS);
+
+        assertEquals(EstadoPaso.FALLIDO, progreso.getFacturacion());
+        assertEquals(EstadoPaso.FALLIDO, progreso.getAsignacion());
+        assertEquals(EstadoPaso.FALLIDO, progreso.getEstado());
+        assertTrue(progreso.getMensaje().contains("billing caído"));
+        assertTrue(progreso.getMensaje().contains("sin repartidores"));
+        assertSame(progreso, pipeline.obtenerProgreso("ped-123"));
+        verify(pedidoRepository, never()).actualizarFactura(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Si solo falla un paso el estado global es PARCIAL, no COMPLETADO")
+    void ejecutar_FalloUnPaso_EstadoParcial() throws Exception {
+        when(billingClient.crearFactura(any(), any())).thenReturn(
+                FacturaResponse.builder().id("fac-1").montoTotal(new BigDecimal("12.50")).build());
+        when(fleetClient.asignarRepartidor(any(), any())).thenThrow(new RuntimeException("fleet caído"));
+
+        CreacionPedidoPipeline.ProgresoCreacion progreso = pipeline.ejecutar(pedido, 10.0, "token", "user", "corr");
+        progreso.getResultado().get(10, TimeUnit.SECONDS);
+
+        assertEquals(EstadoPaso.COMPLETADO, progreso.getFacturacion());
+        assertEquals(EstadoPaso.FALLIDO, progreso.getAsignacion());
+        assertEquals(EstadoPaso.PARCIAL, progreso.getEstado());
+    }
+
+    @Test
+    @DisplayName("Con Billing omitido y Fleet fallido el estado global es FALLIDO")
+    void ejecutar_OmitidoYFallido_EstadoFallido() throws Exception {
+        ReflectionTestUtils.setField(pipeline, "billingIntegrationEnabled", false);
+        when(fleetClient.asignarRepartidor(any(), any())).thenThrow(new RuntimeException("fleet caído"));
+
+        CreacionPedidoPipeline.ProgresoCreacion progreso = pipeline.ejecutar(pedido, 10.0, "token", "user", "corr");
+        progreso.getResultado().get(10, TimeUnit.SECONDS);
+
+        assertEquals(EstadoPaso.OMITIDO, progreso.getFacturacion());
+        assertEquals(EstadoPaso.FALLIDO, progreso.getEstado());
+    }
+}
@@ -0,0 +1,91 @@
+package com.logiflow.pedidoservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logiflow.pedidoservice.model.Direccion;
+import com.logiflow.pedidoservice.model.ModalidadServicio;
+import com.logiflow.pedidoservice.service.impl.DistanciaServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests para la estimación de distancias")
+class DistanciaServiceImplTest {
+
+    private DistanciaServiceImpl distanciaService;
+
+    @BeforeEach
+    void setUp() {
+        distanciaService = new DistanciaServiceImpl(new DefaultResourceLoader(), new ObjectMapper());
+        ReflectionTestUtils.setField(distanciaService, "ubicacionCiudades", "classpath:distancia/ciudades.json");
+        ReflectionTestUtils.setField(distanciaService, "memoMaximo", 100L);
+        ReflectionTestUtils.setField(distanciaService, "distanciaMinimaKm", 1.0);
+        ReflectionTestUtils.invokeMethod(distanciaService, "inicializar");
+    }
+
+    private Direccion direccion(String ciudad, Double lat, Double lon) {
+        return Direccion.builder().ciudad(ciudad).latitud(lat).longitud(lon).build();
+    }
+
+    @Test
+    @DisplayName("Entre centros de ciudades con distancia conocida devuelve la distancia por carretera")
+    void coordenadasDeCentros_DistanciaVialConocida() {
+        Double km = distanciaService.estimarKm(
+                direccion("Quito", -0.1807, -78.4678),
+                direccion("Guayaquil", -2.1894, -79.8891),
+                ModalidadServicio.NACIONAL);
+
+        assertEquals(420.0, km, 1.0);
+    }
+
+    @Test
+    @DisplayName("Dentro de la misma ciudad aplica el factor vial por defecto sobre la línea recta")
+    void mismaCiudad_FactorPorDefecto() {
+        Direccion norte = direccion("Quito", -0.10, -78.48);
+        Direccion sur = direccion("Quito", -0.28, -78.54);
+
+        double recta = 21.1; // ≈ haversine entre ambos puntos
+        assertEquals(recta * 1.3, distanciaService.estimarKm(norte, sur, ModalidadServicio.URBANA_RAPIDA), 0.5);
+    }
+
+    @Test
+    @DisplayName("Sin coordenadas usa la matriz; acepta nombres con tildes y espacios")
+    void sinCoordenadas_Matriz() {
+        Double km = distanciaService.estimarKm(
+                direccion(" cuenca ", null, null),
+                direccion("Lojá", null, null),
+                ModalidadServicio.NACIONAL);
+
+        assertEquals(205.0, km);
+    }
+
+    @Test
+    @DisplayName("La distancia es simétrica")
+    void simetrica() {
+        Direccion a = direccion("Ambato", null, null);
+        Direccion b = direccion("Santo Domingo", null, null);
+
+        assertEquals(distanciaService.estimarKm(a, b, ModalidadServicio.NACIONAL),
+                distanciaService.estimarKm(b, a, ModalidadServicio.NACIONAL));
+    }
+
+    @Test
+    @DisplayName("Ciudad desconocida sin coordenadas usa el valor por modalidad")
+    void ciudadDesconocida_PorModalidad() {
+        assertEquals(50.0, distanciaService.estimarKm(
+                direccion("Tena", null, null), direccion("Quito", null, null), ModalidadServicio.INTERMUNICIPAL));
+        assertEquals(10.0, distanciaService.estimarKm(
+                direccion("Quito", null, null), direccion("Quito", null, null), ModalidadServicio.URBANA_RAPIDA));
+    }
+
+    @Test
+    @DisplayName("Puntos casi iguales devuelven la distancia mínima")
+    void distanciaMinima() {
+        Direccion punto = direccion("Quito", -0.18, -78.47);
+
+        assertEquals(1.0, distanciaService.estimarKm(punto, punto, ModalidadServicio.URBANA_RAPIDA));
+    }
+}
@@ -0,0 +1,175 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse.EstadoItem;
+import com.logiflow.pedidoservice.dto.PedidoEstadoLoteResponse.ResultadoItem;
+import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.EstadoLoteProcessor;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EstadoLoteProcessor.class, CacheConfig.class})
+@DisplayName("Tests del cambio de estado en lote")
+class EstadoLoteProcessorTest {
+
+    @Autowired
+    private EstadoLoteProcessor processor;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private PedidoEventPublisher pedidoEventPublisher;
+
+    @MockBean
+    private KpiPedidoService kpiPedidoService;
+
+    @MockBean
+    private HistorialEstadoService historialEstadoService;
+
+    private Pedido guardar(EstadoPedido estado) {
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        return pedidoRepository.saveAndFlush(Pedido.builder()
+                .clienteId("cli-1")
+                .direccionOrigen(direccion)
+                .direccionDestino(direccion)
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.NORMAL)
+                .estado(estado)
+                .peso(1.0)
+                .cobertura("URBANA-QUITO")
+                .telefonoContacto("0987654321")
+                .repartidorId(UUID.randomUUID().toString())
+                .build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PedidoEstadoEvent> eventosPublicados() {
+        ArgumentCaptor<List<PedidoEstadoEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(pedidoEventPublisher).publishPedidoEstadoEvents(captor.capture());
+        return captor.getValue();
+    }
+
+    private Pedido recargar(Pedido pedido) {
+        return pedidoRepository.findById(pedido.getId()).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Entrega todos los pedidos en ruta con un UPDATE y publica sus eventos en un solo llamado")
+    void aplicar_EntregaPedidosEnRuta() {
+        Pedido p1 = guardar(EstadoPedido.EN_TRANSITO);
+        Pedido p2 = guardar(EstadoPedido.EN_DISTRIBUCION);
+        Long versionAnterior = p1.getVersion();
+
+        PedidoEstadoLoteResponse response = processor.aplicar(
+                List.of(p1.getId(), p2.getId()), EstadoPedido.ENTREGADO, "supervisor");
+
+        assertEquals(2, response.getActualizados());
+        assertEquals(0, response.getRechazados());
+        entityManager.clear();
+        Pedido entregado = recargar(p1);
+        assertEquals(EstadoPedido.ENTREGADO, entregado.getEstado());
+        assertNotNull(entregado.getFechaEntregaReal());
+        assertEquals(versionAnterior + 1, entregado.getVersion());
+        assertEquals(EstadoPedido.ENTREGADO, recargar(p2).getEstado());
+
+        List<PedidoEstadoEvent> eventos = eventosPublicados();
+        assertEquals(2, eventos.size());
+        assertEquals("EN_TRANSITO", eventos.get(0).getEstadoAnterior());
+        assertEquals("ENTREGADO", eventos.get(0).getEstadoNuevo());
+        assertEquals(p1.getRepartidorId(), eventos.get(0).getRepartidorId());
+        assertEquals("supervisor", eventos.get(0).getUsuarioModificador());
+        verify(kpiPedidoService).registrarTransicion(any(Pedido.class), eq(EstadoPedido.EN_TRANSITO), eq(EstadoPedido.ENTREGADO));
+        verify(kpiPedidoService).registrarTransicion(any(Pedido.class), eq(EstadoPedido.EN_DISTRIBUCION), eq(EstadoPedido.ENTREGADO));
+        verify(historialEstadoService, times(2)).registrarTransicion(
+                any(Pedido.class), any(EstadoPedido.class), eq(EstadoPedido.ENTREGADO), eq("supervisor"));
+    }
+
+    @Test
+    @DisplayName("Devolver pedidos asignados a PENDIENTE suelta repartidor y vehículo para el reintento")
+    void aplicar_VueltaAPendienteSueltaRecursos() {
+        Pedido asignado = guardar(EstadoPedido.ASIGNADO);
+
+        PedidoEstadoLoteResponse response = processor.aplicar(
+                List.of(asignado.getId()), EstadoPedido.PENDIENTE, "supervisor");
+
+        assertEquals(1, response.getActualizados());
+        entityManager.clear();
+        Pedido pendiente = recargar(asignado);
+        assertEquals(EstadoPedido.PENDIENTE, pendiente.getEstado());
+        assertNull(pendiente.getRepartidorId());
+        assertNull(pendiente.getVehiculoId());
+        assertEquals(List.of(asignado.getId()), pedidoRepository.findPedidosPendientesAsignacion()
+                .stream().map(Pedido::getId).toList());
+        // El evento lleva el repartidor anterior: FleetService debe liberarlo
+        assertEquals(asignado.getRepartidorId(), eventosPublicados().get(0).getRepartidorId());
+    }
+
+    @Test
+    @DisplayName("Pedidos que no admiten la transición o no existen se informan por ID y no se modifican")
+    void aplicar_InformaRechazos() {
+        Pedido enRuta = guardar(EstadoPedido.EN_TRANSITO);
+        Pedido pendiente = guardar(EstadoPedido.PENDIENTE);
+        String inexistente = UUID.randomUUID().toString();
+
+        PedidoEstadoLoteResponse response = processor.aplicar(
+                List.of(pendiente.getId(), enRuta.getId(), inexistente, enRuta.getId()), EstadoPedido.ENTREGADO, "supervisor");
+
+        assertEquals(3, response.getTotal());
+        assertEquals(1, response.getActualizados());
+        assertEquals(2, response.getRechazados());
+        List<ResultadoItem> resultados = response.getResultados();
+        assertEquals(EstadoItem.TRANSICION_NO_PERMITIDA, resultados.get(0).getEstado());
+        assertEquals(EstadoPedido.PENDIENTE, resultados.get(0).getEstadoAnterior());
+        assertEquals(EstadoItem.ACTUALIZADO, resultados.get(1).getEstado());
+        assertEquals(EstadoItem.NO_ENCONTRADO, resultados.get(2).getEstado());
+
+        entityManager.clear();
+        assertEquals(EstadoPedido.PENDIENTE, recargar(pendiente).getEstado());
+        assertEquals(EstadoPedido.ENTREGADO, recargar(enRuta).getEstado());
+        assertEquals(1, eventosPublicados().size());
+    }
+
+    @Test
+    @DisplayName("Un lote sin transiciones válidas no escribe ni publica")
+    void aplicar_SinValidos() {
+        Pedido entregado = guardar(EstadoPedido.ENTREGADO);
+
+        PedidoEstadoLoteResponse response = processor.aplicar(
+                List.of(entregado.getId()), EstadoPedido.EN_TRANSITO, "supervisor");
+
+        assertEquals(0, response.getActualizados());
+        verifyNoInteractions(pedidoEventPublisher, kpiPedidoService, historialEstadoService);
+    }
+}
@@ -0,0 +1,138 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.dto.HistorialEstadoResponse;
+import com.logiflow.pedidoservice.dto.TiemposCoberturaResponse;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.repository.KpiTiempoPedidoRepository;
+import com.logiflow.pedidoservice.repository.PedidoEstadoHistorialRepository;
+import com.logiflow.pedidoservice.service.impl.HistorialEstadoServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(HistorialEstadoServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Tests del historial de estados y los percentiles de tiempos por cobertura")
+class HistorialEstadoServiceImplTest {
+
+    @Autowired
+    private HistorialEstadoServiceImpl historialEstadoService;
+
+    @Autowired
+    private PedidoEstadoHistorialRepository historialRepository;
+
+    @Autowired
+    private KpiTiempoPedidoRepository kpiTiempoPedidoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void limpiar() {
+        historialRepository.deleteAll();
+        kpiTiempoPedidoRepository.deleteAll();
+    }
+
+    private Pedido pedido(String cobertura, int minutosDesdeCreacion) {
+        return Pedido.builder()
+                .id(UUID.randomUUID().toString())
+                .cobertura(cobertura)
+                .estado(EstadoPedido.PENDIENTE)
+                .fechaCreacion(LocalDateTime.now().minusMinutes(minutosDesdeCreacion))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Alta y transiciones confirmadas forman la línea de tiempo del pedido")
+    void transiciones_EscribenHistorial() {
+        Pedido pedido = pedido("URBANA-QUITO", 30);
+
+        transactionTemplate.executeWithoutResult(s ->
+                historialEstadoService.registrarCreaciones(List.of(pedido), "cliente-1"));
+        transactionTemplate.executeWithoutResult(s -> historialEstadoService
+                .registrarTransicion(pedido, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, "FLEET_SERVICE"));
+
+        List<HistorialEstadoResponse> historial = historialEstadoService.obtenerHistorial(pedido.getId());
+        assertEquals(2, historial.size());
+        assertNull(historial.get(0).getEstadoAnterior());
+        assertEquals(EstadoPedido.PENDIENTE, historial.get(0).getEstadoNuevo());
+        assertNull(historial.get(0).getSegundosEnEstadoAnterior());
+        assertEquals(EstadoPedido.ASIGNADO, historial.get(1).getEstadoNuevo());
+        assertEquals("FLEET_SERVICE", historial.get(1).getUsuario());
+        assertEquals(30 * 60, historial.get(1).getSegundosEnEstadoAnterior(), 5);
+    }
+
+    @Test
+    @DisplayName("Los histogramas de cada transacción se fusionan en percentiles por cobertura")
+    void entregas_PercentilesFusionados() {
+        // 100 entregas de 1..100 minutos, en transacciones de 10
+        for (int lote = 0; lote < 10; lote++) {
+            int base = lote * 10;
+            transactionTemplate.executeWithoutResult(s -> {
+                for (int i = 1; i <= 10; i++) {
+                    Pedido pedido = pedido("NACIONAL", 0);
+                    pedido.setFechaEntregaReal(pedido.getFechaCreacion().plusMinutes(base + i));
+                    historialEstadoService.registrarTransicion(
+                            pedido, EstadoPedido.EN_TRANSITO, EstadoPedido.ENTREGADO, "repartidor-1");
+                }
+            });
+        }
+
+        List<TiemposCoberturaResponse> tiempos = historialEstadoService.obtenerTiempos("NACIONAL");
+        assertEquals(1, tiempos.size());
+        assertNull(tiempos.get(0).getAsignacion());
+        TiemposCoberturaResponse.Percentiles entrega = tiempos.get(0).getEntrega();
+        assertEquals(100, entrega.getMuestras());
+        // Precisión del histograma: 2 dígitos significativos
+        assertEquals(50 * 60, entrega.getP50Segundos(), 50 * 60 * 0.01);
+        assertEquals(90 * 60, entrega.getP90Segundos(), 90 * 60 * 0.01);
+        assertEquals(99 * 60, entrega.getP99Segundos(), 99 * 60 * 0.01);
+        assertEquals(1, kpiTiempoPedidoRepository.count());
+    }
+
+    @Test
+    @DisplayName("Un rollback descarta historial y muestras de la transacción")
+    void rollback_DescartaTodo() {
+        Pedido pedido = pedido("URBANA-QUITO", 10);
+
+        transactionTemplate.executeWithoutResult(s -> {
+            historialEstadoService.registrarTransicion(pedido, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, "u");
+            s.setRollbackOnly();
+        });
+
+        assertTrue(historialEstadoService.obtenerHistorial(pedido.getId()).isEmpty());
+        assertTrue(historialEstadoService.obtenerTiempos(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Sin filtro se devuelven todas las coberturas, cada una con sus métricas")
+    void obtenerTiempos_TodasLasCoberturas() {
+        transactionTemplate.executeWithoutResult(s -> {
+            historialEstadoService.registrarTransicion(pedido("URBANA-QUITO", 5),
+                    EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, "u");
+            historialEstadoService.registrarTransicion(pedido("INTERCANTONAL", 20),
+                    EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, "u");
+        });
+
+        List<TiemposCoberturaResponse> tiempos = historialEstadoService.obtenerTiempos(null);
+        assertEquals(List.of("INTERCANTONAL", "URBANA-QUITO"),
+                tiempos.stream().map(TiemposCoberturaResponse::getCobertura).toList());
+        assertEquals(20 * 60, tiempos.get(0).getAsignacion().getP50Segundos(), 20 * 60 * 0.01);
+        assertNull(tiempos.get(0).getEntrega());
+    }
+}
@@ -0,0 +1,155 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.dto.KpiCoberturaResponse;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.repository.KpiPedidoRepository;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.KpiPedidoServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(KpiPedidoServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Tests del rollup incremental de KPIs por cobertura y estado")
+class KpiPedidoServiceImplTest {
+
+    @Autowired
+    private KpiPedidoServiceImpl kpiPedidoService;
+
+    @Autowired
+    private KpiPedidoRepository kpiPedidoRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void limpiar() {
+        kpiPedidoRepository.deleteAll();
+        pedidoRepository.deleteAll();
+        kpiPedidoService.recargar();
+    }
+
+    private Pedido pedido(String cobertura, EstadoPedido estado) {
+        return Pedido.builder()
+                .id(java.util.UUID.randomUUID().toString())
+                .cobertura(cobertura)
+                .estado(estado)
+                .fechaCreacion(LocalDateTime.now().minusMinutes(90))
+                .build();
+    }
+
+    private KpiCoberturaResponse kpi(String cobertura) {
+        List<KpiCoberturaResponse> kpis = kpiPedidoService.obtenerKpis(cobertura);
+        assertEquals(1, kpis.size());
+        return kpis.get(0);
+    }
+
+    @Test
+    @DisplayName("Altas y transiciones confirmadas mueven los contadores de la cobertura")
+    void transiciones_ActualizanContadores() {
+        Pedido p1 = pedido("URBANA-QUITO", EstadoPedido.PENDIENTE);
+        Pedido p2 = pedido("URBANA-QUITO", EstadoPedido.PENDIENTE);
+
+        transactionTemplate.executeWithoutResult(s -> kpiPedidoService.registrarCreaciones(List.of(p1, p2)));
+        transactionTemplate.executeWithoutResult(s ->
+                kpiPedidoService.registrarTransicion(p1, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO));
+
+        KpiCoberturaResponse kpi = kpi("URBANA-QUITO");
+        assertEquals(2, kpi.getPedidosTotal());
+        assertEquals(1L, kpi.getPedidosPorEstado().get(EstadoPedido.PENDIENTE));
+        assertEquals(1L, kpi.getPedidosPorEstado().get(EstadoPedido.ASIGNADO));
+        assertNull(kpi.getTiempoPromedioEntregaMinutos());
+    }
+
+    @Test
+    @DisplayName("Las entregas acumulan la duración para el tiempo promedio")
+    void entregas_TiempoPromedio() {
+        Pedido pedido = pedido("NACIONAL", EstadoPedido.EN_TRANSITO);
+        pedido.setFechaEntregaReal(pedido.getFechaCreacion().plusMinutes(90));
+
+        transactionTemplate.executeWithoutResult(s -> {
+            kpiPedidoService.registrarCreaciones(List.of(pedido));
+            kpiPedidoService.registrarTransicion(pedido, EstadoPedido.EN_TRANSITO, EstadoPedido.ENTREGADO);
+        });
+
+        KpiCoberturaResponse kpi = kpi("NACIONAL");
+        assertEquals(1L, kpi.getPedidosPorEstado().get(EstadoPedido.ENTREGADO));
+        assertEquals(0L, kpi.getPedidosPorEstado().get(EstadoPedido.EN_TRANSITO));
+        assertEquals(1, kpi.getEntregasMedidas());
+        assertEquals(90.0, kpi.getTiempoPromedioEntregaMinutos());
+    }
+
+    @Test
+    @DisplayName("Un rollback descarta los deltas de la transacción")
+    void rollback_DescartaDeltas() {
+        transactionTemplate.executeWithoutResult(s -> {
+            kpiPedidoService.registrarCreaciones(List.of(pedido("URBANA-QUITO", EstadoPedido.PENDIENTE)));
+            s.setRollbackOnly();
+        });
+
+        assertTrue(kpiPedidoService.obtenerKpis(null).isEmpty());
+        assertEquals(0, kpiPedidoRepository.count());
+    }
+
+    @Test
+    @DisplayName("El espejo recargado refleja la tabla (escrituras de otras instancias)")
+    void recargar_LeeTabla() {
+        kpiPedidoRepository.save(KpiPedido.builder()
+                .cobertura("INTERCANTONAL").estado(EstadoPedido.PENDIENTE).cantidad(7).build());
+
+        kpiPedidoService.recargar();
+
+        assertEquals(7L, kpi("INTERCANTONAL").getPedidosPorEstado().get(EstadoPedido.PENDIENTE));
+    }
+
+    @Test
+    @DisplayName("Con la tabla vacía el rollup se reconstruye desde los pedidos existentes")
+    void inicializar_ReconstruyeDesdePedidos() {
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal").numero("123").ciudad("Quito").provincia("Pichincha")
+                .latitud(-0.18).longitud(-78.47).build();
+        for (EstadoPedido estado : List.of(EstadoPedido.PENDIENTE, EstadoPedido.CANCELADO, EstadoPedido.ENTREGADO)) {
+            pedidoRepository.save(Pedido.builder()
+                    .clienteId("cli-1")
+                    .direccionOrigen(direccion)
+                    .direccionDestino(direccion)
+                    .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                    .tipoEntrega(TipoEntrega.NORMAL)
+                    .estado(estado)
+                    .peso(1.0)
+                    .cobertura("URBANA-QUITO")
+                    .telefonoContacto("0987654321")
+                    // fechaCreacion la fija @PrePersist en "ahora"
+                    .fechaEntregaReal(estado == EstadoPedido.ENTREGADO ? LocalDateTime.now().plusMinutes(30) : null)
+                    .build());
+        }
+
+        ReflectionTestUtils.invokeMethod(kpiPedidoService, "inicializar");
+
+        KpiCoberturaResponse kpi = kpi("URBANA-QUITO");
+        assertEquals(3, kpi.getPedidosTotal());
+        assertEquals(1L, kpi.getPedidosPorEstado().get(EstadoPedido.PENDIENTE));
+        assertEquals(1L, kpi.getPedidosPorEstado().get(EstadoPedido.CANCELADO));
+        assertEquals(1, kpi.getEntregasMedidas());
+        assertEquals(30.0, kpi.getTiempoPromedioEntregaMinutos(), 0.1);
+    }
+}
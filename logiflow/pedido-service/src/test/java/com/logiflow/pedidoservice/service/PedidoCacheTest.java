@@ -0,0 +1,178 @@
+package com.logiflow.pedidoservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.dto.PedidoMapper;
+import com.logiflow.pedidoservice.dto.PedidoResponse;
+import com.logiflow.pedidoservice.model.Direccion;
+import com.logiflow.pedidoservice.model.EstadoPedido;
+import com.logiflow.pedidoservice.model.ModalidadServicio;
+import com.logiflow.pedidoservice.model.Pedido;
+import com.logiflow.pedidoservice.model.Prioridad;
+import com.logiflow.pedidoservice.model.TipoEntrega;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.CreacionPedidoPipeline;
+import com.logiflow.pedidoservice.service.impl.EstadoLoteProcessor;
+import com.logiflow.pedidoservice.service.impl.PedidoServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig({CacheConfig.class, PedidoServiceImpl.class})
+@DisplayName("Tests de la caché de lecturas de pedidos")
+class PedidoCacheTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private PedidoRepository pedidoRepository;
+
+    @MockBean
+    private PedidoMapper pedidoMapper;
+
+    @MockBean
+    private CoberturaValidationService coberturaValidationService;
+
+    @MockBean
+    private DistanciaService distanciaService;
+
+    @MockBean
+    private PedidoEventPublisher pedidoEventPublisher;
+
+    @MockBean
+    private KpiPedidoService kpiPedidoService;
+
+    @MockBean
+    private HistorialEstadoService historialEstadoService;
+
+    @MockBean
+    private CreacionPedidoPipeline creacionPedidoPipeline;
+
+    @MockBean
+    private EstadoLoteProcessor estadoLoteProcessor;
+
+    @MockBean
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private EntityManager entityManager;
+
+    @MockBean
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private Validator validator;
+
+    private Pedido pedido;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.PEDIDOS_CACHE).clear();
+
+        pedido = Pedido.builder().id("ped-1").clienteId("cli-1").estado(EstadoPedido.PENDIENTE).build();
+        when(pedidoRepository.buscarPorId("ped-1")).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.save(any(Pedido.class))).thenAnswer(inv -> inv.getArgument(0));
+        // El UPDATE condicional se refleja en la fila que devuelve buscarPorId
+        when(pedidoRepository.transicionarDesde(any(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            EstadoPedido anterior = pedido.getEstado();
+            pedido.setEstado(inv.getArgument(3));
+            return Optional.of(anterior);
+        });
+        when(pedidoMapper.toResponse(any(Pedido.class))).thenAnswer(inv -> {
+            Pedido p = inv.getArgument(0);
+            return PedidoResponse.builder().id(p.getId()).estado(p.getEstado()).build();
+        });
+    }
+
+    @Test
+    @DisplayName("Lecturas repetidas se sirven desde la caché")
+    void getPedidoById_SegundaLecturaDesdeCache() {
+        pedidoService.getPedidoById("ped-1");
+        PedidoResponse segunda = pedidoService.getPedidoById("ped-1");
+
+        assertEquals("ped-1", segunda.getId());
+        verify(pedidoRepository, times(1)).buscarPorId("ped-1");
+    }
+
+    @Test
+    @DisplayName("Cancelar invalida solo la entrada del pedido afectado")
+    void cancelarPedido_InvalidaEntrada() {
+        Cache cache = cacheManager.getCache(CacheConfig.PEDIDOS_CACHE);
+        cache.put("ped-2", PedidoResponse.builder().id("ped-2").build());
+        pedidoService.getPedidoById("ped-1");
+
+        pedidoService.cancelarPedido("ped-1");
+
+        assertNull(cache.get("ped-1"));
+        assertNotNull(cache.get("ped-2"));
+        assertEquals(EstadoPedido.CANCELADO, pedidoService.getPedidoById("ped-1").getEstado());
+    }
+
+    @Test
+    @DisplayName("Pedido inexistente no se guarda en caché")
+    void getPedidoById_NoEncontrado() {
+        when(pedidoRepository.buscarPorId("no-existe")).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> pedidoService.getPedidoById("no-existe"));
+        assertNull(cacheManager.getCache(CacheConfig.PEDIDOS_CACHE).get("no-existe"));
+    }
+
+    @Test
+    @DisplayName("Dentro de una transacción la invalidación espera al commit")
+    void evict_EnTransaccion_SeAplicaTrasCommit() {
+        Cache cache = cacheManager.getCache(CacheConfig.PEDIDOS_CACHE);
+        cache.put("ped-1", PedidoResponse.builder().id("ped-1").build());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evict("ped-1");
+            assertNotNull(cache.get("ped-1"), "La entrada no debe desaparecer antes del commit");
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            assertNull(cache.get("ped-1"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("El reintento manual de asignación invalida la entrada (cambia version)")
+    void reintentarAsignacion_InvalidaEntrada() {
+        Direccion direccion = Direccion.builder().calle("Av Principal").numero("123").ciudad("Quito").provincia("Pichincha").build();
+        pedido.setDireccionOrigen(direccion);
+        pedido.setDireccionDestino(direccion);
+        pedido.setModalidadServicio(ModalidadServicio.URBANA_RAPIDA);
+        pedido.setTipoEntrega(TipoEntrega.NORMAL);
+        pedido.setPrioridad(Prioridad.NORMAL);
+        pedidoService.getPedidoById("ped-1");
+        assertNotNull(cacheManager.getCache(CacheConfig.PEDIDOS_CACHE).get("ped-1"));
+
+        pedidoService.reintentarAsignacionAutomatica("ped-1", "admin");
+
+        assertNull(cacheManager.getCache(CacheConfig.PEDIDOS_CACHE).get("ped-1"));
+        verify(pedidoRepository).flush();
+    }
+}
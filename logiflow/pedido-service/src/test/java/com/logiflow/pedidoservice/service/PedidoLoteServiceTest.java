@@ -0,0 +1,171 @@
+package com.logiflow.pedidoservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logiflow.pedidoservice.dto.PedidoLoteRequest;
+import com.logiflow.pedidoservice.dto.PedidoLoteResponse;
+import com.logiflow.pedidoservice.dto.PedidoLoteResponse.EstadoItem;
+import com.logiflow.pedidoservice.dto.PedidoMapper;
+import com.logiflow.pedidoservice.dto.PedidoRequest;
+import com.logiflow.pedidoservice.event.PedidoCreadoEvent;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.CreacionPedidoPipeline;
+import com.logiflow.pedidoservice.service.impl.EstadoLoteProcessor;
+import com.logiflow.pedidoservice.service.impl.PedidoServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitarios para la carga masiva de pedidos")
+class PedidoLoteServiceTest {
+
+    @Mock
+    private PedidoRepository pedidoRepository;
+
+    @Mock
+    private CoberturaValidationService coberturaValidationService;
+
+    @Mock
+    private DistanciaService distanciaService;
+
+    @Mock
+    private PedidoEventPublisher pedidoEventPublisher;
+
+    @Mock
+    private KpiPedidoService kpiPedidoService;
+
+    @Mock
+    private HistorialEstadoService historialEstadoService;
+
+    @Mock
+    private CreacionPedidoPipeline creacionPedidoPipeline;
+
+    @Mock
+    private EstadoLoteProcessor estadoLoteProcessor;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PedidoServiceImpl pedidoService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(pedidoRepository.saveAll(anyList())).thenAnswer(this::simularPersistencia);
+        lenient().when(coberturaValidationService.isValidCobertura(any())).thenReturn(true);
+        lenient().when(coberturaValidationService.isTipoEntregaDisponible(any(), any())).thenReturn(true);
+
+        pedidoService = new PedidoServiceImpl(pedidoRepository, new PedidoMapper(), coberturaValidationService,
+                distanciaService, pedidoEventPublisher, kpiPedidoService, historialEstadoService, creacionPedidoPipeline, estadoLoteProcessor, new TransactionTemplate(transactionManager),
+                entityManager, new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(pedidoService, "loteTamanoChunk", 2);
+    }
+
+    // Lo que harían el generador UUID y @PrePersist
+    private List<Pedido> simularPersistencia(InvocationOnMock inv) {
+        List<Pedido> pedidos = inv.getArgument(0);
+        pedidos.forEach(p -> {
+            p.setId(UUID.randomUUID().toString());
+            p.setPrioridad(Prioridad.ALTA);
+        });
+        return pedidos;
+    }
+
+    private PedidoRequest request(String ciudadDestino) {
+        return PedidoRequest.builder()
+                .clienteId("cli-12345")
+                .direccionOrigen(Direccion.builder().calle("Av Principal").numero("123").ciudad("Quito")
+                        .provincia("Pichincha").latitud(-0.18).longitud(-78.47).build())
+                .direccionDestino(Direccion.builder().calle("Calle Secundaria").numero("456").ciudad(ciudadDestino)
+                        .provincia("Pichincha").latitud(-0.25).longitud(-78.52).build())
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.EXPRESS)
+                .peso(2.5)
+                .telefonoContacto("0987654321")
+                .build();
+    }
+
+    @Test
+    @DisplayName("Inserta por chunks y encola un lote de eventos por chunk")
+    @SuppressWarnings("unchecked")
+    void crearPedidosLote_ChunksYEventosEnLote() {
+        List<PedidoRequest> pedidos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            pedidos.add(request("Quito"));
+        }
+
+        PedidoLoteResponse response = pedidoService.crearPedidosLote(new PedidoLoteRequest(pedidos));
+
+        assertEquals(5, response.getCreados());
+        assertEquals(0, response.getRechazados());
+        assertTrue(response.getResultados().stream().allMatch(r -> r.getPedidoId() != null));
+        verify(pedidoRepository, times(3)).saveAll(anyList());
+
+        ArgumentCaptor<List<PedidoCreadoEvent>> eventos = ArgumentCaptor.forClass(List.class);
+        verify(pedidoEventPublisher, times(3)).publishPedidosCreadosEvents(eventos.capture());
+        assertEquals(5, eventos.getAllValues().stream().mapToInt(List::size).sum());
+        // Cobertura validada una sola vez para la combinación repetida
+        verify(coberturaValidationService, times(1)).isValidCobertura("URBANA-QUITO");
+        verifyNoInteractions(creacionPedidoPipeline);
+    }
+
+    @Test
+    @DisplayName("Pedidos inválidos se rechazan sin afectar al resto del lote")
+    void crearPedidosLote_RechazoPorPedido() {
+        PedidoRequest sinTelefono = request("Quito");
+        sinTelefono.setTelefonoContacto("123");
+        when(coberturaValidationService.isValidCobertura("INTERMUNICIPAL-PICHINCHA")).thenReturn(false);
+
+        PedidoLoteResponse response = pedidoService.crearPedidosLote(new PedidoLoteRequest(
+                List.of(request("Quito"), sinTelefono, request("Latacunga"))));
+
+        assertEquals(1, response.getCreados());
+        assertEquals(2, response.getRechazados());
+        assertEquals(EstadoItem.CREADO, response.getResultados().get(0).getEstado());
+        assertEquals(EstadoItem.RECHAZADO, response.getResultados().get(1).getEstado());
+        assertTrue(response.getResultados().get(1).getError().startsWith("telefonoContacto"));
+        assertEquals(EstadoItem.RECHAZADO, response.getResultados().get(2).getEstado());
+        assertEquals(2, response.getResultados().get(2).getIndice());
+    }
+
+    @Test
+    @DisplayName("Un chunk que falla al guardar marca solo sus pedidos como rechazados")
+    void crearPedidosLote_FalloDeChunk() {
+        when(pedidoRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicado"))
+                .thenAnswer(this::simularPersistencia);
+
+        PedidoLoteResponse response = pedidoService.crearPedidosLote(new PedidoLoteRequest(
+                List.of(request("Quito"), request("Quito"), request("Quito"))));
+
+        assertEquals(1, response.getCreados());
+        assertEquals(EstadoItem.RECHAZADO, response.getResultados().get(0).getEstado());
+        assertEquals(EstadoItem.RECHAZADO, response.getResultados().get(1).getEstado());
+        assertEquals(EstadoItem.CREADO, response.getResultados().get(2).getEstado());
+    }
+}
@@ -6,17 +6,24 @@ import com.logiflow.pedidoservice.dto.PedidoMapper;
 import com.logiflow.pedidoservice.dto.PedidoRequest;
 import com.logiflow.pedidoservice.dto.PedidoResponse;
 import com.logiflow.pedidoservice.dto.PedidoPatchRequest;
+import com.logiflow.pedidoservice.event.PedidoEstadoEvent;
+import com.logiflow.pedidoservice.exception.TransicionNoPermitidaException;
 import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
 import com.logiflow.pedidoservice.repository.PedidoRepository;
 import com.logiflow.pedidoservice.service.impl.PedidoServiceImpl;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -25,6 +32,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +48,21 @@ class PedidoServiceImplTest {
     @Mock
     private CoberturaValidationService coberturaValidationService;
 
+    @Mock
+    private DistanciaService distanciaService;
+
+    @Mock
+    private PedidoEventPublisher pedidoEventPublisher;
+
+    @Mock
+    private KpiPedidoService kpiPedidoService;
+
+    @Mock
+    private HistorialEstadoService historialEstadoService;
+
+    @Mock
+    private EntityManager entityManager;
+
     @Mock
     private BillingClient billingClient;
 
@@ -145,7 +168,7 @@ class PedidoServiceImplTest {
     void obtenerPedidoPorId_Exitoso() {
         // Given
         String pedidoId = "ped-123";
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
         when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponse);
 
         // When
@@ -156,7 +179,7 @@ class PedidoServiceImplTest {
         assertEquals(pedidoId, result.getId());
         assertEquals("cli-12345", result.getClienteId());
 
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
         verify(pedidoMapper).toResponse(pedido);
     }
 
@@ -165,7 +188,7 @@ class PedidoServiceImplTest {
     void obtenerPedidoPorId_NoEncontrado() {
         // Given
         String pedidoId = "ped-inexistente";
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.empty());
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.empty());
 
         // When & Then
         EntityNotFoundException exception = assertThrows(
@@ -174,7 +197,7 @@ class PedidoServiceImplTest {
         );
 
         assertEquals("Pedido no encontrado con ID: " + pedidoId, exception.getMessage());
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
         verify(pedidoMapper, never()).toResponse(any());
     }
 
@@ -219,18 +242,36 @@ class PedidoServiceImplTest {
         verify(pedidoMapper).toResponse(pedido);
     }
 
+    @Test
+    @DisplayName("Obtener pedidos por cliente desde una fecha usa la consulta acotada")
+    void obtenerPedidosPorCliente_ConDesde() {
+        // Given
+        String clienteId = "cli-12345";
+        LocalDateTime desde = LocalDateTime.of(2025, 1, 1, 0, 0);
+        when(pedidoRepository.findByClienteIdAndFechaCreacionGreaterThanEqual(clienteId, desde))
+                .thenReturn(List.of(pedido));
+        when(pedidoMapper.toResponse(pedido)).thenReturn(pedidoResponse);
+
+        // When
+        List<PedidoResponse> result = pedidoService.getPedidosByCliente(clienteId, desde);
+
+        // Then
+        assertEquals(1, result.size());
+        verify(pedidoRepository, never()).findByClienteId(anyString());
+    }
+
     @Test
     @DisplayName("Eliminar pedido exitosamente")
     void eliminarPedido_Exitoso() {
         // Given
         String pedidoId = "ped-123";
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
 
         // When
         assertDoesNotThrow(() -> pedidoService.deletePedido(pedidoId));
 
         // Then
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
         verify(pedidoRepository).delete(pedido);
     }
 
@@ -239,7 +280,7 @@ class PedidoServiceImplTest {
     void eliminarPedido_NoEncontrado() {
         // Given
         String pedidoId = "ped-inexistente";
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.empty());
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.empty());
 
         // When & Then
         EntityNotFoundException exception = assertThrows(
@@ -248,7 +289,7 @@ class PedidoServiceImplTest {
         );
 
         assertEquals("Pedido no encontrado con ID: " + pedidoId, exception.getMessage());
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
         verify(pedidoRepository, never()).delete(any(com.logiflow.pedidoservice.model.Pedido.class));
     }
 
@@ -265,7 +306,7 @@ class PedidoServiceImplTest {
                 .telefonoContacto("0999999999")
                 .build();
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
         // El mapper actualiza entidad in-place, no devuelve nada; simulamos que hace la actualización
         doAnswer(invocation -> {
             Pedido target = invocation.getArgument(0);
@@ -282,7 +323,7 @@ class PedidoServiceImplTest {
 
         // Then
         assertNotNull(result);
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
         verify(pedidoMapper).updateEntityFromPatch(any(Pedido.class), any(PedidoPatchRequest.class));
         verify(pedidoRepository).save(pedido);
         verify(pedidoMapper).toResponse(pedido);
@@ -296,13 +337,89 @@ class PedidoServiceImplTest {
         pedido.setEstado(EstadoPedido.CANCELADO);
         PedidoPatchRequest patch = PedidoPatchRequest.builder().telefonoContacto("0999").build();
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
 
         // When & Then
-        IllegalStateException ex = assertThrows(IllegalStateException.class,
+        TransicionNoPermitidaException ex = assertThrows(TransicionNoPermitidaException.class,
                 () -> pedidoService.patchPedido(pedidoId, patch));
         assertEquals("No se puede modificar un pedido cancelado", ex.getMessage());
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
+    }
+
+    @Test
+    @DisplayName("Patch solo de estado - transición válida con UPDATE condicional")
+    void patchPedido_SoloEstado_TransicionCondicional() {
+        // Given
+        String pedidoId = "ped-123";
+        pedido.setEstado(EstadoPedido.EN_TRANSITO);
+        pedido.setVersion(6L);
+        PedidoPatchRequest patch = PedidoPatchRequest.builder().estado(EstadoPedido.EN_TRANSITO).version(5L).build();
+
+        when(pedidoRepository.transicionarDesde(eq(pedidoId), anyCollection(), eq(5L),
+                eq(EstadoPedido.EN_TRANSITO), isNull(), any())).thenReturn(Optional.of(EstadoPedido.ASIGNADO));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponse);
+
+        // When
+        pedidoService.patchPedido(pedidoId, patch);
+
+        // Then: primero el UPDATE, la lectura solo después
+        InOrder orden = inOrder(pedidoRepository);
+        orden.verify(pedidoRepository).transicionarDesde(any(), any(), any(), any(), any(), any());
+        orden.verify(pedidoRepository).buscarPorId(pedidoId);
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+        verify(pedidoMapper, never()).updateEntityFromPatch(any(), any());
+        verify(kpiPedidoService).registrarTransicion(pedido, EstadoPedido.ASIGNADO, EstadoPedido.EN_TRANSITO);
+
+        ArgumentCaptor<PedidoEstadoEvent> evento = ArgumentCaptor.forClass(PedidoEstadoEvent.class);
+        verify(pedidoEventPublisher).publishPedidoEstadoEvent(evento.capture());
+        assertEquals("ASIGNADO", evento.getValue().getEstadoAnterior());
+        assertEquals("EN_TRANSITO", evento.getValue().getEstadoNuevo());
+    }
+
+    @Test
+    @DisplayName("Patch pedido - rechaza transición fuera de la tabla de estados")
+    void patchPedido_TransicionNoPermitida() {
+        // Given
+        String pedidoId = "ped-123";
+        PedidoPatchRequest patch = PedidoPatchRequest.builder().estado(EstadoPedido.ENTREGADO).build();
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // When & Then
+        TransicionNoPermitidaException ex = assertThrows(TransicionNoPermitidaException.class,
+                () -> pedidoService.patchPedido(pedidoId, patch));
+        assertEquals("Transición de estado no permitida: PENDIENTE → ENTREGADO", ex.getMessage());
+        verifyNoInteractions(pedidoEventPublisher, kpiPedidoService);
+    }
+
+    @Test
+    @DisplayName("Patch solo de estado - 0 filas con versión vieja responde conflicto")
+    void patchPedido_SoloEstado_VersionDesactualizada() {
+        // Given
+        String pedidoId = "ped-123";
+        pedido.setVersion(7L);
+        PedidoPatchRequest patch = PedidoPatchRequest.builder().estado(EstadoPedido.CANCELADO).version(6L).build();
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class, () -> pedidoService.patchPedido(pedidoId, patch));
+        verify(pedidoRepository).transicionarDesde(eq(pedidoId), anyCollection(), eq(6L),
+                eq(EstadoPedido.CANCELADO), isNull(), any());
+        verifyNoInteractions(pedidoEventPublisher);
+    }
+
+    @Test
+    @DisplayName("Patch pedido - versión del cliente desactualizada")
+    void patchPedido_VersionDesactualizada() {
+        // Given
+        String pedidoId = "ped-123";
+        pedido.setVersion(7L);
+        PedidoPatchRequest patch = PedidoPatchRequest.builder().telefonoContacto("0999").version(6L).build();
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class, () -> pedidoService.patchPedido(pedidoId, patch));
+        verify(pedidoRepository, never()).save(any(Pedido.class));
     }
 
     @Test
@@ -310,18 +427,55 @@ class PedidoServiceImplTest {
     void cancelarPedido_Exitoso() {
         // Given
         String pedidoId = "ped-123";
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
-        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        pedido.setVersion(4L);
+        when(pedidoRepository.transicionarDesde(eq(pedidoId),
+                eq(List.of(EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO, EstadoPedido.EN_PREPARACION, EstadoPedido.FALLIDO)),
+                isNull(), eq(EstadoPedido.CANCELADO), isNull(), any())).thenReturn(Optional.of(EstadoPedido.PENDIENTE));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
         when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponse);
 
         // When
         PedidoResponse result = pedidoService.cancelarPedido(pedidoId);
 
-        // Then
+        // Then: primero el UPDATE, la lectura solo después
         assertNotNull(result);
-        verify(pedidoRepository).findById(pedidoId);
-        verify(pedidoRepository).save(any(Pedido.class));
-        verify(pedidoMapper).toResponse(any(Pedido.class));
+        InOrder orden = inOrder(pedidoRepository);
+        orden.verify(pedidoRepository).transicionarDesde(any(), any(), any(), any(), any(), any());
+        orden.verify(pedidoRepository).buscarPorId(pedidoId);
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+        verify(pedidoMapper).toResponse(pedido);
+        verify(historialEstadoService).registrarTransicion(pedido, EstadoPedido.PENDIENTE, EstadoPedido.CANCELADO, "SYSTEM");
+
+        ArgumentCaptor<PedidoEstadoEvent> evento = ArgumentCaptor.forClass(PedidoEstadoEvent.class);
+        verify(pedidoEventPublisher).publishPedidoEstadoEvent(evento.capture());
+        assertEquals("PENDIENTE", evento.getValue().getEstadoAnterior());
+        assertEquals("CANCELADO", evento.getValue().getEstadoNuevo());
+    }
+
+    @Test
+    @DisplayName("Cancelar pedido - conflicto si otro escritor cambió la fila")
+    void cancelarPedido_ConflictoConcurrente() {
+        // Given
+        String pedidoId = "ped-123";
+        // 0 filas y la relectura lo muestra PENDIENTE: otro escritor cambió la fila entre medio
+        when(pedidoRepository.transicionarDesde(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class, () -> pedidoService.cancelarPedido(pedidoId));
+        verifyNoInteractions(pedidoEventPublisher);
+    }
+
+    @Test
+    @DisplayName("Cancelar pedido - inexistente")
+    void cancelarPedido_NoEncontrado() {
+        // Given
+        when(pedidoRepository.buscarPorId("no-existe")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> pedidoService.cancelarPedido("no-existe"));
+        verifyNoInteractions(pedidoEventPublisher);
     }
 
     @Test
@@ -330,13 +484,13 @@ class PedidoServiceImplTest {
         // Given
         String pedidoId = "ped-123";
         pedido.setEstado(EstadoPedido.ENTREGADO);
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
 
         // When & Then
-        IllegalStateException ex = assertThrows(IllegalStateException.class,
+        TransicionNoPermitidaException ex = assertThrows(TransicionNoPermitidaException.class,
                 () -> pedidoService.cancelarPedido(pedidoId));
         assertEquals("No se puede cancelar un pedido ya entregado", ex.getMessage());
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
     }
 
     @Test
@@ -346,20 +500,33 @@ class PedidoServiceImplTest {
         String pedidoId = "ped-123";
         String repartidorId = "rep-1";
         String vehiculoId = "veh-1";
-        pedido.setEstado(EstadoPedido.PENDIENTE);
+        // Fila releída tras el UPDATE
+        pedido.setEstado(EstadoPedido.ASIGNADO);
+        pedido.setRepartidorId(repartidorId);
+        pedido.setVehiculoId(vehiculoId);
+        pedido.setVersion(1L);
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
-        when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
+        when(pedidoRepository.asignarRecursosSiPendiente(eq(pedidoId), eq(repartidorId), eq(vehiculoId), any()))
+                .thenReturn(1);
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
         when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponse);
 
         // When
         PedidoResponse result = pedidoService.asignarRepartidorYVehiculo(pedidoId, repartidorId, vehiculoId);
 
-        // Then
+        // Then: primero el UPDATE, la lectura solo después
         assertNotNull(result);
-        verify(pedidoRepository).findById(pedidoId);
-        verify(pedidoRepository).save(any(Pedido.class));
-        verify(pedidoMapper).toResponse(any(Pedido.class));
+        InOrder orden = inOrder(pedidoRepository);
+        orden.verify(pedidoRepository).asignarRecursosSiPendiente(any(), any(), any(), any());
+        orden.verify(pedidoRepository).buscarPorId(pedidoId);
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+        verify(pedidoMapper).toResponse(pedido);
+        verify(kpiPedidoService).registrarTransicion(pedido, EstadoPedido.PENDIENTE, EstadoPedido.ASIGNADO);
+
+        ArgumentCaptor<PedidoEstadoEvent> evento = ArgumentCaptor.forClass(PedidoEstadoEvent.class);
+        verify(pedidoEventPublisher).publishPedidoEstadoEvent(evento.capture());
+        assertEquals("PENDIENTE", evento.getValue().getEstadoAnterior());
+        assertEquals(repartidorId, evento.getValue().getRepartidorId());
     }
 
     @Test
@@ -368,13 +535,27 @@ class PedidoServiceImplTest {
         // Given
         String pedidoId = "ped-123";
         pedido.setEstado(EstadoPedido.ASIGNADO);
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
 
         // When & Then
-        IllegalStateException ex = assertThrows(IllegalStateException.class,
+        TransicionNoPermitidaException ex = assertThrows(TransicionNoPermitidaException.class,
                 () -> pedidoService.asignarRepartidorYVehiculo(pedidoId, "r","v"));
         assertEquals("Solo se pueden asignar recursos a pedidos en estado PENDIENTE", ex.getMessage());
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
+        verifyNoInteractions(pedidoEventPublisher);
+    }
+
+    @Test
+    @DisplayName("Asignar repartidor - conflicto si sigue PENDIENTE pero el UPDATE no aplicó")
+    void asignarRepartidor_ConflictoConcurrente() {
+        // Given
+        String pedidoId = "ped-123";
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> pedidoService.asignarRepartidorYVehiculo(pedidoId, "r", "v"));
+        verifyNoInteractions(pedidoEventPublisher);
     }
 
     @Test
@@ -442,7 +623,7 @@ class PedidoServiceImplTest {
         Double tarifa = 10.0;
         pedido.setFacturaId(null);
 
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
         when(pedidoRepository.save(any(Pedido.class))).thenReturn(pedido);
         when(pedidoMapper.toResponse(any(Pedido.class))).thenReturn(pedidoResponse);
 
@@ -451,7 +632,7 @@ class PedidoServiceImplTest {
 
         // Then
         assertNotNull(result);
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
         verify(pedidoRepository).save(any(Pedido.class));
         verify(pedidoMapper).toResponse(any(Pedido.class));
     }
@@ -462,13 +643,13 @@ class PedidoServiceImplTest {
         // Given
         String pedidoId = "ped-123";
         pedido.setFacturaId("fac-existente");
-        when(pedidoRepository.findById(pedidoId)).thenReturn(Optional.of(pedido));
+        when(pedidoRepository.buscarPorId(pedidoId)).thenReturn(Optional.of(pedido));
 
         // When & Then
         IllegalStateException ex = assertThrows(IllegalStateException.class,
                 () -> pedidoService.asociarFactura(pedidoId, "fac-2", 5.0));
         assertEquals("El pedido ya tiene una factura asociada", ex.getMessage());
-        verify(pedidoRepository).findById(pedidoId);
+        verify(pedidoRepository).buscarPorId(pedidoId);
     }
 
 }
@@ -0,0 +1,187 @@
+package com.logiflow.pedidoservice.service;
+
+import com.logiflow.pedidoservice.config.CacheConfig;
+import com.logiflow.pedidoservice.dto.PedidoResponse;
+import com.logiflow.pedidoservice.event.ReintentarAsignacionEvent;
+import com.logiflow.pedidoservice.event.ReintentoAsignacionLoteEvent;
+import com.logiflow.pedidoservice.model.*;
+import com.logiflow.pedidoservice.rabbit.PedidoEventPublisher;
+import com.logiflow.pedidoservice.repository.PedidoRepository;
+import com.logiflow.pedidoservice.service.impl.ReintentoAsignacionScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ReintentoAsignacionScheduler.class, CacheConfig.class})
+@TestPropertySource(properties = "pedido.reintento.enabled=true")
+@DisplayName("Tests del scheduler de reintento automático de asignación")
+class ReintentoAsignacionSchedulerTest {
+
+    @Autowired
+    private ReintentoAsignacionScheduler scheduler;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private PedidoEventPublisher pedidoEventPublisher;
+
+    private LocalDateTime ahora;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "tamanoPagina", 2);
+        ahora = LocalDateTime.now().plusMinutes(1);
+    }
+
+    private Pedido guardar(Prioridad prioridad) {
+        Direccion direccion = Direccion.builder()
+                .calle("Av Principal")
+                .numero("123")
+                .ciudad("Quito")
+                .provincia("Pichincha")
+                .latitud(-0.18)
+                .longitud(-78.47)
+                .build();
+        return pedidoRepository.saveAndFlush(Pedido.builder()
+                .clienteId("cli-1")
+                .direccionOrigen(direccion)
+                .direccionDestino(direccion)
+                .modalidadServicio(ModalidadServicio.URBANA_RAPIDA)
+                .tipoEntrega(TipoEntrega.NORMAL)
+                .prioridad(prioridad)
+                .peso(1.0)
+                .cobertura("URBANA-QUITO")
+                .telefonoContacto("0987654321")
+                .build());
+    }
+
+    private List<ReintentarAsignacionEvent> loteEnviado() {
+        ArgumentCaptor<ReintentoAsignacionLoteEvent> captor = ArgumentCaptor.forClass(ReintentoAsignacionLoteEvent.class);
+        verify(pedidoEventPublisher).publishReintentoAsignacionLoteEvent(captor.capture());
+        return captor.getValue().getPedidos();
+    }
+
+    @Test
+    @DisplayName("Un solo lote por ciclo, por prioridad y luego antigüedad")
+    void ciclo_UnLoteOrdenadoPorPrioridad() {
+        Pedido normalAntiguo = guardar(Prioridad.NORMAL);
+        Pedido baja = guardar(Prioridad.BAJA);
+        Pedido urgente = guardar(Prioridad.URGENTE);
+        Pedido normalReciente = guardar(Prioridad.NORMAL);
+        Pedido asignado = guardar(Prioridad.URGENTE);
+        asignado.setRepartidorId("rep-1");
+        asignado.setVehiculoId("veh-1");
+
+        assertEquals(4, scheduler.ejecutarCiclo(ahora));
+
+        List<ReintentarAsignacionEvent> lote = loteEnviado();
+        assertEquals(List.of(urgente.getId(), normalAntiguo.getId(), normalReciente.getId(), baja.getId()),
+                lote.stream().map(ReintentarAsignacionEvent::getPedidoId).toList());
+        assertTrue(lote.stream().allMatch(e -> e.getNumeroReintento() == 1));
+    }
+
+    @Test
+    @DisplayName("El backoff exponencial evita reenviar el pedido hasta que venza")
+    void ciclo_RespetaBackoff() {
+        Pedido pedido = guardar(Prioridad.ALTA);
+
+        assertEquals(1, scheduler.ejecutarCiclo(ahora));
+        assertEquals(0, scheduler.ejecutarCiclo(ahora.plusSeconds(10)));
+        assertEquals(1, scheduler.ejecutarCiclo(ahora.plusSeconds(31)));
+
+        Pedido actualizado = pedidoRepository.findById(pedido.getId()).orElseThrow();
+        assertEquals(2, actualizado.getIntentosAsignacion());
+        assertEquals(ahora.plusSeconds(31).plusSeconds(60), actualizado.getProximoReintento());
+    }
+
+    @Test
+    @DisplayName("El tope por ciclo se llena con los más urgentes recorriendo varias páginas")
+    void ciclo_TopePorCiclo() {
+        for (int i = 0; i < 3; i++) {
+            guardar(Prioridad.BAJA);
+        }
+        Pedido alta1 = guardar(Prioridad.ALTA);
+        Pedido alta2 = guardar(Prioridad.ALTA);
+        Pedido alta3 = guardar(Prioridad.ALTA);
+        ReflectionTestUtils.setField(scheduler, "maximoPorCiclo", 4);
+
+        assertEquals(4, scheduler.ejecutarCiclo(ahora));
+
+        List<String> ids = loteEnviado().stream().map(ReintentarAsignacionEvent::getPedidoId).toList();
+        assertEquals(List.of(alta1.getId(), alta2.getId(), alta3.getId()), ids.subList(0, 3));
+    }
+
+    @Test
+    @DisplayName("Pedidos recién creados esperan a que fleet procese pedido.creado")
+    void ciclo_EsperaInicial() {
+        guardar(Prioridad.URGENTE);
+
+        assertEquals(0, scheduler.ejecutarCiclo(LocalDateTime.now()));
+        verify(pedidoEventPublisher, never()).publishReintentoAsignacionLoteEvent(any());
+    }
+
+    @Test
+    @DisplayName("Sin pendientes no se publica nada")
+    void ciclo_SinPendientes() {
+        assertEquals(0, scheduler.ejecutarCiclo(ahora));
+        verifyNoInteractions(pedidoEventPublisher);
+    }
+
+    @Test
+    @DisplayName("El retraso se duplica en cada intento hasta el máximo")
+    void retraso_Exponencial() {
+        Duration primero = ReflectionTestUtils.invokeMethod(scheduler, "retraso", 1);
+        Duration tercero = ReflectionTestUtils.invokeMethod(scheduler, "retraso", 3);
+        Duration muchos = ReflectionTestUtils.invokeMethod(scheduler, "retraso", 40);
+
+        assertEquals(Duration.ofSeconds(30), primero);
+        assertEquals(Duration.ofSeconds(120), tercero);
+        assertEquals(Duration.ofSeconds(1800), muchos);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Al confirmar el ciclo se invalidan en caché los pedidos reprogramados")
+    void ciclo_InvalidaCacheTrasCommit() {
+        Pedido pedido = guardar(Prioridad.ALTA);
+        Cache cache = cacheManager.getCache(CacheConfig.PEDIDOS_CACHE);
+        cache.put(pedido.getId(), PedidoResponse.builder().id(pedido.getId()).version(pedido.getVersion()).build());
+        cache.put("otro", PedidoResponse.builder().id("otro").build());
+        try {
+            assertEquals(1, scheduler.ejecutarCiclo(ahora));
+
+            assertNull(cache.get(pedido.getId()));
+            assertNotNull(cache.get("otro"));
+            assertTrue(pedidoRepository.findById(pedido.getId()).orElseThrow().getVersion() > pedido.getVersion());
+        } finally {
+            cache.clear();
+            pedidoRepository.deleteAll();
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Tabla fría de pedidos archivados para tests (en PostgreSQL la crea V2__particionar_pedidos.sql)
+DROP TABLE IF EXISTS pedidos_archivo;
+CREATE TABLE pedidos_archivo AS SELECT * FROM pedidos WHERE 1 = 0;
@@ -0,0 +1,48 @@
+-- Esquema previo a Flyway: lo que ddl-auto: update (Hibernate 6, PostgreSQL) creaba para Pedido
+-- antes de intentos_asignacion, proximo_reintento y version. Sin pedido_outbox ni kpi_pedidos.
+
+create table pedidos (
+    destino_latitud float(53),
+    destino_longitud float(53),
+    origen_latitud float(53),
+    origen_longitud float(53),
+    peso float(53) not null,
+    tarifa_calculada float(53),
+    volumen float(53),
+    fecha_actualizacion timestamp(6),
+    fecha_creacion timestamp(6) not null,
+    fecha_entrega_real timestamp(6),
+    fecha_estimada_entrega timestamp(6),
+    cliente_id varchar(255) not null,
+    cobertura varchar(255) not null,
+    descripcion varchar(255),
+    destino_calle varchar(255),
+    destino_ciudad varchar(255),
+    destino_numero varchar(255),
+    destino_provincia varchar(255),
+    estado varchar(255) not null check (estado in ('PENDIENTE','ASIGNADO','EN_PREPARACION','EN_TRANSITO','EN_DISTRIBUCION','ENTREGADO','FALLIDO','CANCELADO','DEVUELTO')),
+    factura_id varchar(255),
+    id varchar(255) not null,
+    modalidad_servicio varchar(255) not null check (modalidad_servicio in ('URBANA_RAPIDA','INTERMUNICIPAL','NACIONAL')),
+    nombre_destinatario varchar(255),
+    origen_calle varchar(255),
+    origen_ciudad varchar(255),
+    origen_numero varchar(255),
+    origen_provincia varchar(255),
+    prioridad varchar(255) check (prioridad in ('BAJA','NORMAL','ALTA','URGENTE')),
+    repartidor_id varchar(255),
+    telefono_contacto varchar(255) not null,
+    tipo_entrega varchar(255) not null check (tipo_entrega in ('EXPRESS','NORMAL','PROGRAMADA')),
+    vehiculo_id varchar(255),
+    primary key (id)
+);
+
+-- Pedidos de meses distintos: V2 los reparte en particiones mensuales
+insert into pedidos (id, cliente_id, modalidad_servicio, tipo_entrega, estado, peso, cobertura,
+                     telefono_contacto, prioridad, fecha_creacion, fecha_actualizacion)
+values ('legado-1', 'cli-legado', 'URBANA_RAPIDA', 'NORMAL', 'PENDIENTE', 1.0, 'URBANA-QUITO',
+        '0987654321', 'NORMAL', now() - interval '2 months', now() - interval '2 months'),
+       ('legado-2', 'cli-legado', 'NACIONAL', 'EXPRESS', 'ENTREGADO', 2.5, 'NACIONAL',
+        '0987654321', 'ALTA', now() - interval '1 month', now() - interval '1 month'),
+       ('legado-3', 'cli-legado', 'INTERMUNICIPAL', 'PROGRAMADA', 'ASIGNADO', 4.0, 'INTERMUNICIPAL',
+        '0987654321', null, now(), now());